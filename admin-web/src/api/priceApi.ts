@@ -1,5 +1,5 @@
 import { apiClient } from './client';
-import type { StorePrice, BatchPriceUpdateRequest, BatchPriceUpdateResponse } from '../types';
+import type { StorePrice, PriceHistoryPage, PriceChart, BatchPriceUpdateRequest, BatchPriceUpdateResponse } from '../types';
 
 const BASE_PATH = 'prices';
 
@@ -45,4 +45,41 @@ export const priceApi = {
         );
         return response.data;
     },
+
+    /**
+     * Get one page of price history, newest first. Pass the previous page's nextCursor to continue.
+     */
+    getPriceHistoryPage: async (
+        storeItemId: string,
+        options: { from?: string; to?: string; cursor?: string; limit?: number } = {}
+    ): Promise<PriceHistoryPage> => {
+        const params = new URLSearchParams();
+        if (options.from) params.append('from', options.from);
+        if (options.to) params.append('to', options.to);
+        if (options.cursor) params.append('cursor', options.cursor);
+        if (options.limit !== undefined) params.append('limit', options.limit.toString());
+
+        const response = await apiClient.get<PriceHistoryPage>(
+            `${BASE_PATH}/history/${storeItemId}/page?${params.toString()}`
+        );
+        return response.data;
+    },
+
+    /**
+     * Get price history reduced to at most `points` points for drawing a chart
+     */
+    getPriceChart: async (
+        storeItemId: string,
+        options: { from?: string; to?: string; points?: number } = {}
+    ): Promise<PriceChart> => {
+        const params = new URLSearchParams();
+        if (options.from) params.append('from', options.from);
+        if (options.to) params.append('to', options.to);
+        if (options.points !== undefined) params.append('points', options.points.toString());
+
+        const response = await apiClient.get<PriceChart>(
+            `${BASE_PATH}/history/${storeItemId}/chart?${params.toString()}`
+        );
+        return response.data;
+    },
 };
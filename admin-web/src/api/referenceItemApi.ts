@@ -1,5 +1,5 @@
 import { apiClient } from './client';
-import type { ReferenceItem, CreateReferenceItemRequest } from '../types';
+import type { ReferenceItem, CreateReferenceItemRequest, ItemSuggestion } from '../types';
 
 const BASE_PATH = 'items';
 
@@ -19,9 +19,23 @@ export const referenceItemApi = {
         return response.data;
     },
 
-    search: async (query: string): Promise<ReferenceItem[]> => {
+    /**
+     * Search by name, Arabic name, category or brand, best matches first (the total is in X-Total-Count).
+     * With fuzzy, words within one or two typos of the query words also match.
+     */
+    search: async (query: string, page = 0, size = 50, fuzzy = false): Promise<ReferenceItem[]> => {
         const response = await apiClient.get<ReferenceItem[]>(`${BASE_PATH}/search`, {
-            params: { query },
+            params: { query, page, size, fuzzy },
+        });
+        return response.data;
+    },
+
+    /**
+     * Search box suggestions: the most popular items with a name word starting with the prefix
+     */
+    suggest: async (prefix: string, limit = 10): Promise<ItemSuggestion[]> => {
+        const response = await apiClient.get<ItemSuggestion[]>(`${BASE_PATH}/suggest`, {
+            params: { prefix, limit },
         });
         return response.data;
     },
@@ -1,5 +1,11 @@
 import { apiClient } from './client';
-import type { StoreItem, CreateStoreItemRequest } from '../types';
+import type {
+    StoreItem,
+    CreateStoreItemRequest,
+    StoreItemMatchResponse,
+    StoreItemPage,
+    StoreItemPageParams,
+} from '../types';
 
 const BASE_PATH = 'store-items';
 
@@ -13,13 +19,60 @@ export const storeItemApi = {
     },
 
     /**
-     * Create a new store item linked to a reference item
+     * Get one page of store items in id order; pass nextCursor back as cursor for the next page
+     */
+    getPage: async (params: StoreItemPageParams = {}, cursor?: string): Promise<StoreItemPage> => {
+        const response = await apiClient.get<StoreItemPage>(`${BASE_PATH}/page`, {
+            params: {
+                ...params,
+                referenceItemIds: params.referenceItemIds?.join(','),
+                fields: params.fields?.join(','),
+                cursor,
+            },
+        });
+        return response.data;
+    },
+
+    /**
+     * Get every store item matching the filters, page by page; narrow them first (e.g. by referenceItemIds)
+     */
+    getAllPages: async (params: StoreItemPageParams = {}): Promise<StoreItem[]> => {
+        const items: StoreItem[] = [];
+        let cursor: string | undefined;
+        do {
+            const page = await storeItemApi.getPage(params, cursor);
+            items.push(...page.items);
+            cursor = page.nextCursor ?? undefined;
+        } while (cursor);
+        return items;
+    },
+
+    /**
+     * Create a new store item, linked to a reference item when one is given
      */
     create: async (data: CreateStoreItemRequest): Promise<StoreItem> => {
         const response = await apiClient.post<StoreItem>(BASE_PATH, data);
         return response.data;
     },
 
+    /**
+     * Match unlinked store items to reference items; confident matches are linked unless apply is false
+     */
+    match: async (storeId?: string, apply = true): Promise<StoreItemMatchResponse> => {
+        const response = await apiClient.post<StoreItemMatchResponse>(`${BASE_PATH}/match`, null, {
+            params: { storeId, apply },
+        });
+        return response.data;
+    },
+
+    /**
+     * Link an unlinked store item to a reference item, e.g. after reviewing its match candidates
+     */
+    link: async (id: string, referenceItemId: string): Promise<StoreItem> => {
+        const response = await apiClient.put<StoreItem>(`${BASE_PATH}/${id}/reference-item`, { referenceItemId });
+        return response.data;
+    },
+
     /**
      * Get a store item by ID
      */
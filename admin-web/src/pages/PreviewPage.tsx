@@ -17,11 +17,6 @@ export function PreviewPage() {
         queryFn: referenceItemApi.getAll,
     });
 
-    const { data: storeItems = [] } = useQuery({
-        queryKey: ['storeItems'],
-        queryFn: storeItemApi.getAll,
-    });
-
     const { data: stores = [] } = useQuery({
         queryKey: ['stores'],
         queryFn: storeApi.getAll,
@@ -63,6 +58,18 @@ export function PreviewPage() {
         });
     };
 
+    // Store prices of the cart items only, read when the checkout opens
+    const cartItemIds = Array.from(cart.keys());
+    const { data: storeItems = [], isLoading: storeItemsLoading } = useQuery({
+        queryKey: ['storeItems', 'preview', cartItemIds],
+        queryFn: () => storeItemApi.getAllPages({
+            referenceItemIds: cartItemIds,
+            limit: 500,
+            fields: ['storeId', 'referenceItemId', 'currentPrice'],
+        }),
+        enabled: showCheckout && cartItemIds.length > 0,
+    });
+
     const getCartQuantity = (itemId: string) => cart.get(itemId) || 0;
     const cartItemCount = () => Array.from(cart.values()).reduce((sum, qty) => sum + qty, 0);
 
@@ -287,7 +294,12 @@ export function PreviewPage() {
 
                                     {/* Store Totals */}
                                     <div className="space-y-3">
-                                        {storeTotals.map((st) => {
+                                        {storeItemsLoading && (
+                                            <div className="text-center py-8 text-slate-400">
+                                                Loading prices...
+                                            </div>
+                                        )}
+                                        {!storeItemsLoading && storeTotals.map((st) => {
                                             const isCheapest = cheapestStore?.store.id === st.store.id;
                                             const missingItems = st.items.filter(itm => itm.price === null);
 
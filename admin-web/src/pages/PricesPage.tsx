@@ -5,7 +5,7 @@ import { storeApi } from '../api/storeApi';
 import { storeItemApi } from '../api/storeItemApi';
 import { priceApi } from '../api/priceApi';
 import { categoryApi } from '../api/categoryApi';
-import { Search, ChevronDown, Package, Save, X } from 'lucide-react';
+import { Search, ChevronDown, ChevronLeft, ChevronRight, Package, Save, X } from 'lucide-react';
 import type { StoreItem } from '../types';
 
 interface PendingChange {
@@ -21,6 +21,8 @@ interface PendingNewItem {
     originalPrice: number | null;
 }
 
+const ITEMS_PER_PAGE = 20;
+
 export function PricesPage() {
     const queryClient = useQueryClient();
     const [expandedItems, setExpandedItems] = useState<Set<string>>(new Set());
@@ -28,6 +30,7 @@ export function PricesPage() {
     const [pendingNewItems, setPendingNewItems] = useState<PendingNewItem[]>([]);
     const [searchQuery, setSearchQuery] = useState('');
     const [filterCategory, setFilterCategory] = useState('');
+    const [page, setPage] = useState(0);
 
     const { data: items = [], isLoading: itemsLoading } = useQuery({
         queryKey: ['items'],
@@ -39,11 +42,6 @@ export function PricesPage() {
         queryFn: storeApi.getActive,
     });
 
-    const { data: storeItems = [] } = useQuery({
-        queryKey: ['storeItems'],
-        queryFn: storeItemApi.getAll,
-    });
-
     const { data: categories = [] } = useQuery({
         queryKey: ['categories'],
         queryFn: categoryApi.getAll,
@@ -67,6 +65,22 @@ export function PricesPage() {
         return matchesSearch && matchesCategory;
     });
 
+    const pageCount = Math.max(1, Math.ceil(filteredItems.length / ITEMS_PER_PAGE));
+    const currentPage = Math.min(page, pageCount - 1);
+    const pageItems = filteredItems.slice(currentPage * ITEMS_PER_PAGE, (currentPage + 1) * ITEMS_PER_PAGE);
+    const pageItemIds = pageItems.map(item => item.id);
+
+    // Store prices of the items on this page only, with just the fields this page uses
+    const { data: storeItems = [], isLoading: storeItemsLoading } = useQuery({
+        queryKey: ['storeItems', 'prices', pageItemIds],
+        queryFn: () => storeItemApi.getAllPages({
+            referenceItemIds: pageItemIds,
+            limit: 500,
+            fields: ['storeId', 'referenceItemId', 'currentPrice', 'originalPrice'],
+        }),
+        enabled: pageItemIds.length > 0,
+    });
+
     const toggleExpand = (id: string) => {
         setExpandedItems(prev => {
             const next = new Set(prev);
@@ -161,13 +175,19 @@ export function PricesPage() {
                         type="text"
                         placeholder="Search items..."
                         value={searchQuery}
-                        onChange={(e) => setSearchQuery(e.target.value)}
+                        onChange={(e) => {
+                            setSearchQuery(e.target.value);
+                            setPage(0);
+                        }}
                         className="form-input pl-10"
                     />
                 </div>
                 <select
                     value={filterCategory}
-                    onChange={(e) => setFilterCategory(e.target.value)}
+                    onChange={(e) => {
+                        setFilterCategory(e.target.value);
+                        setPage(0);
+                    }}
                     className="form-input w-full sm:w-48"
                 >
                     <option value="">All Categories</option>
@@ -179,7 +199,7 @@ export function PricesPage() {
 
             {/* Items Accordion */}
             <div className="space-y-2">
-                {filteredItems.map(item => {
+                {pageItems.map(item => {
                     const isExpanded = expandedItems.has(item.id);
                     return (
                         <div key={item.id} className="card p-0 overflow-hidden">
@@ -201,7 +221,9 @@ export function PricesPage() {
                             {/* Expanded Content */}
                             {isExpanded && (
                                 <div className="border-t border-slate-100 p-4 bg-slate-50">
-                                    {((item.availableInAllStores ?? true) ? stores : stores.filter(store => item.specificStoreIds?.includes(store.id))).length === 0 ? (
+                                    {storeItemsLoading ? (
+                                        <div className="text-center py-4 text-slate-400">Loading prices...</div>
+                                    ) : ((item.availableInAllStores ?? true) ? stores : stores.filter(store => item.specificStoreIds?.includes(store.id))).length === 0 ? (
                                         <div className="text-center py-4 text-slate-400">
                                             No stores available for this item. {(item.availableInAllStores ?? true) ? <a href="/stores" className="text-primary-600 hover:underline">Add a store first</a> : 'Update item to select specific stores.'}
                                         </div>
@@ -279,6 +301,31 @@ export function PricesPage() {
                 })}
             </div>
 
+            {/* Pagination */}
+            {pageCount > 1 && (
+                <div className="flex items-center justify-center gap-4">
+                    <button
+                        onClick={() => setPage(currentPage - 1)}
+                        disabled={currentPage === 0}
+                        className="btn btn-secondary btn-sm flex items-center gap-1"
+                    >
+                        <ChevronLeft size={14} />
+                        Previous
+                    </button>
+                    <span className="text-sm text-slate-500">
+                        Page {currentPage + 1} of {pageCount}
+                    </span>
+                    <button
+                        onClick={() => setPage(currentPage + 1)}
+                        disabled={currentPage === pageCount - 1}
+                        className="btn btn-secondary btn-sm flex items-center gap-1"
+                    >
+                        Next
+                        <ChevronRight size={14} />
+                    </button>
+                </div>
+            )}
+
             {/* Floating Action Bar */}
             {hasChanges && (
                 <div className="fixed bottom-6 left-1/2 transform -translate-x-1/2 ml-32 bg-slate-900 text-white px-6 py-4 rounded-2xl shadow-2xl flex items-center gap-4 z-50">
@@ -49,6 +49,13 @@ export interface CreateReferenceItemRequest {
     specificStoreIds?: string[];
 }
 
+export interface ItemSuggestion {
+    id: string;
+    name: string;
+    nameAr?: string;
+    category?: string;
+}
+
 // ============ Store Types ============
 
 export interface Store {
@@ -75,8 +82,8 @@ export interface StoreItem {
     id: string;
     storeId: string;
     storeName: string;
-    referenceItemId: string;
-    referenceItemName: string;
+    referenceItemId: string | null;  // null until matched or linked
+    referenceItemName: string | null;
     name: string;
     nameAr: string | null;
     brand: string;
@@ -91,9 +98,26 @@ export interface StoreItem {
     lastPriceUpdate: string | null;
 }
 
+export interface StoreItemPage {
+    items: StoreItem[];
+    limit: number;
+    hasMore: boolean;
+    nextCursor: string | null;
+}
+
+export interface StoreItemPageParams {
+    storeId?: string;
+    category?: string;
+    referenceItemIds?: string[];
+    hasPrice?: boolean;
+    promotion?: boolean;
+    limit?: number;
+    fields?: (keyof StoreItem)[];  // only these fields are filled in, id always
+}
+
 export interface CreateStoreItemRequest {
     storeId: string;
-    referenceItemId: string;
+    referenceItemId?: string;
     name: string;
     nameAr?: string;
     brand?: string;
@@ -105,6 +129,38 @@ export interface CreateStoreItemRequest {
     isPromotion?: boolean;
 }
 
+export interface StoreItemMatch {
+    storeItemId: string;
+    storeItemName: string;
+    referenceItemId: string;
+    referenceItemName: string;
+    score: number;
+    reason: 'barcode' | 'name';
+}
+
+export interface StoreItemMatchCandidate {
+    referenceItemId: string;
+    referenceItemName: string;
+    score: number;
+}
+
+export interface StoreItemMatchReview {
+    storeItemId: string;
+    storeItemName: string;
+    candidates: StoreItemMatchCandidate[];
+}
+
+export interface StoreItemMatchResponse {
+    unlinkedCount: number;
+    matchedCount: number;
+    reviewCount: number;
+    unmatchedCount: number;
+    applied: boolean;
+    elapsedMs: number;
+    matches: StoreItemMatch[];
+    reviews: StoreItemMatchReview[];
+}
+
 // ============ Price Types ============
 
 export interface StorePrice {
@@ -117,6 +173,28 @@ export interface StorePrice {
     isPromotion: boolean;
 }
 
+export interface PriceHistoryPage {
+    prices: StorePrice[];
+    limit: number;
+    hasMore: boolean;
+    nextCursor: string | null;
+}
+
+export interface PriceChartPoint {
+    timestamp: string;
+    price: number;
+}
+
+export interface PriceChart {
+    storeItemId: string;
+    from: string | null;
+    to: string;
+    maxPoints: number;
+    sourcePoints: number;
+    downsampled: boolean;
+    points: PriceChartPoint[];
+}
+
 export interface PriceEntry {
     storeItemId: string;
     price: number;
@@ -0,0 +1,74 @@
+package com.smartbasket.backend.config;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.task.ThreadPoolTaskExecutorBuilder;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.scheduling.concurrent.CustomizableThreadFactory;
+import org.springframework.scheduling.concurrent.ThreadPoolTaskExecutor;
+
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+
+@Configuration
+public class ExecutorConfig {
+
+    /**
+     * Spring Boot backs off its own task executor once another Executor bean is defined, so it is
+     * declared here from the spring.task.execution settings. MVC runs streaming responses on it.
+     */
+    @Bean(name = {"applicationTaskExecutor", "taskExecutor"})
+    public ThreadPoolTaskExecutor applicationTaskExecutor(ThreadPoolTaskExecutorBuilder builder) {
+        return builder.build();
+    }
+
+    /**
+     * Bounded pool for evaluating the baskets of a batch comparison in parallel.
+     * When the queue is full the calling request thread evaluates the basket itself.
+     */
+    @Bean(destroyMethod = "shutdown")
+    public ExecutorService basketComparisonExecutor(
+            @Value("${basket.batch.parallelism:0}") int parallelism,
+            @Value("${basket.batch.queue-capacity:256}") int queueCapacity) {
+        return boundedExecutor("basket-compare-", parallelism, queueCapacity);
+    }
+
+    /**
+     * Bounded pool applying the partitions of a large price batch in parallel.
+     * When the queue is full the calling thread applies the partition itself.
+     */
+    @Bean(destroyMethod = "shutdown")
+    public ExecutorService priceBatchExecutor(
+            @Value("${prices.batch.parallelism:0}") int parallelism,
+            @Value("${prices.batch.queue-capacity:64}") int queueCapacity) {
+        return boundedExecutor("price-batch-", parallelism, queueCapacity);
+    }
+
+    /**
+     * Pool scoring the partitions of a store item matching run, one per core by default.
+     * When the queue is full the calling thread scores the partition itself.
+     */
+    @Bean(destroyMethod = "shutdown")
+    public ExecutorService storeItemMatchExecutor(
+            @Value("${items.match.parallelism:0}") int parallelism,
+            @Value("${items.match.queue-capacity:64}") int queueCapacity) {
+        return boundedExecutor("item-match-", parallelism, queueCapacity);
+    }
+
+    /**
+     * Fixed pool of daemon threads, one per core unless parallelism is set, over a bounded queue.
+     * Idle threads time out, and a full queue makes the submitting thread run the task itself.
+     */
+    private static ExecutorService boundedExecutor(String threadNamePrefix, int parallelism, int queueCapacity) {
+        int threads = parallelism > 0 ? parallelism : Runtime.getRuntime().availableProcessors();
+        CustomizableThreadFactory threadFactory = new CustomizableThreadFactory(threadNamePrefix);
+        threadFactory.setDaemon(true);
+
+        ThreadPoolExecutor executor = new ThreadPoolExecutor(threads, threads, 60, TimeUnit.SECONDS,
+                new ArrayBlockingQueue<>(queueCapacity), threadFactory, new ThreadPoolExecutor.CallerRunsPolicy());
+        executor.allowCoreThreadTimeOut(true);
+        return executor;
+    }
+}
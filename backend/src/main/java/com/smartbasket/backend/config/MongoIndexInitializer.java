@@ -0,0 +1,68 @@
+package com.smartbasket.backend.config;
+
+import com.smartbasket.backend.model.Category;
+import com.smartbasket.backend.model.PriceRollup;
+import com.smartbasket.backend.model.ReferenceItem;
+import com.smartbasket.backend.model.Store;
+import com.smartbasket.backend.model.StoreItem;
+import com.smartbasket.backend.model.StorePrice;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.index.IndexDefinition;
+import org.springframework.data.mongodb.core.index.IndexOperations;
+import org.springframework.data.mongodb.core.index.IndexResolver;
+import org.springframework.data.mongodb.core.index.MongoPersistentEntityIndexResolver;
+import org.springframework.stereotype.Component;
+
+import java.util.List;
+
+/**
+ * Creates the indexes declared with {@code @Indexed} and {@code @CompoundIndex} on the documents.
+ * Spring Data MongoDB no longer creates them automatically, so without this every indexed lookup
+ * would scan its collection. Existing indexes are left as they are.
+ */
+@Slf4j
+@Component
+@RequiredArgsConstructor
+public class MongoIndexInitializer {
+
+    static final List<Class<?>> DOCUMENTS = List.of(
+            Category.class, PriceRollup.class, ReferenceItem.class, Store.class, StoreItem.class, StorePrice.class);
+
+    private final MongoTemplate mongoTemplate;
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void createOnStartup() {
+        Thread creator = new Thread(this::ensureIndexes, "mongo-index-creator");
+        creator.setDaemon(true);
+        creator.start();
+    }
+
+    /**
+     * Create the declared indexes that do not exist yet. An index that cannot be created, e.g. a unique
+     * index over duplicate values, is logged and skipped.
+     *
+     * @return number of indexes ensured
+     */
+    public int ensureIndexes() {
+        IndexResolver resolver = new MongoPersistentEntityIndexResolver(mongoTemplate.getConverter().getMappingContext());
+        int ensured = 0;
+        for (Class<?> document : DOCUMENTS) {
+            IndexOperations indexOps = mongoTemplate.indexOps(document);
+            for (IndexDefinition index : resolver.resolveIndexFor(document)) {
+                try {
+                    indexOps.ensureIndex(index);
+                    ensured++;
+                } catch (RuntimeException e) {
+                    log.warn("Could not create index {} for {}: {}", index.getIndexKeys().toJson(),
+                            document.getSimpleName(), e.getMessage());
+                }
+            }
+        }
+        log.info("Ensured {} MongoDB indexes", ensured);
+        return ensured;
+    }
+}
@@ -0,0 +1,12 @@
+package com.smartbasket.backend.config;
+
+import org.springframework.context.annotation.Configuration;
+import org.springframework.scheduling.annotation.EnableScheduling;
+
+/**
+ * Background jobs, such as the price rollups, run on Spring Boot's task scheduler
+ */
+@Configuration
+@EnableScheduling
+public class SchedulingConfig {
+}
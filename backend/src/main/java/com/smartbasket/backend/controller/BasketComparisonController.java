@@ -1,12 +1,30 @@
 package com.smartbasket.backend.controller;
 
+import com.smartbasket.backend.dto.BasketBatchComparisonRequest;
+import com.smartbasket.backend.dto.BasketBatchComparisonResponse;
 import com.smartbasket.backend.dto.BasketComparisonRequest;
 import com.smartbasket.backend.dto.BasketComparisonResponse;
+import com.smartbasket.backend.dto.BasketComparisonStreamRecord;
+import com.smartbasket.backend.dto.BasketComparisonSummary;
+import com.smartbasket.backend.dto.BasketOptimizationRequest;
+import com.smartbasket.backend.dto.BasketOptimizationResponse;
 import com.smartbasket.backend.service.BasketComparisonService;
+import com.smartbasket.backend.service.BasketOptimizationService;
+import com.fasterxml.jackson.databind.ObjectMapper;
 import jakarta.validation.Valid;
 import lombok.RequiredArgsConstructor;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.core.task.AsyncTaskExecutor;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
 
 @RestController
 @RequestMapping("/basket")
@@ -14,6 +32,15 @@ import org.springframework.web.bind.annotation.*;
 public class BasketComparisonController {
 
     private final BasketComparisonService basketComparisonService;
+    private final BasketOptimizationService basketOptimizationService;
+    private final ObjectMapper objectMapper;
+    @Qualifier("applicationTaskExecutor")
+    private final AsyncTaskExecutor taskExecutor;
+
+    private static final String NDJSON_VALUE = "application/x-ndjson";
+
+    @Value("${basket.stream.timeout-ms:60000}")
+    private long streamTimeoutMs;
 
     @PostMapping("/compare")
     public ResponseEntity<BasketComparisonResponse> compareBasket(
@@ -21,4 +48,79 @@ public class BasketComparisonController {
         BasketComparisonResponse response = basketComparisonService.compareBasket(request);
         return ResponseEntity.ok(response);
     }
+
+    /**
+     * Stream the comparison as Server-Sent Events: one "store" event per store as it is computed,
+     * then a "summary" event with the cheapest store, totals and savings
+     */
+    @PostMapping(value = "/compare/stream", produces = MediaType.TEXT_EVENT_STREAM_VALUE)
+    public SseEmitter streamBasketEvents(@Valid @RequestBody BasketComparisonRequest request) {
+        SseEmitter emitter = new SseEmitter(streamTimeoutMs);
+        taskExecutor.execute(() -> {
+            try {
+                BasketComparisonSummary summary = basketComparisonService.streamBasket(request, result -> {
+                    try {
+                        emitter.send(SseEmitter.event().name(BasketComparisonStreamRecord.STORE).data(result));
+                    } catch (IOException e) {
+                        throw new UncheckedIOException(e);
+                    }
+                });
+                emitter.send(SseEmitter.event().name(BasketComparisonStreamRecord.SUMMARY).data(summary));
+                emitter.complete();
+            } catch (IOException | RuntimeException e) {
+                emitter.completeWithError(e);
+            }
+        });
+        return emitter;
+    }
+
+    /**
+     * Stream the comparison as NDJSON: one store record per line, then a summary record
+     */
+    @PostMapping(value = "/compare/stream", produces = NDJSON_VALUE)
+    public ResponseEntity<StreamingResponseBody> streamBasketNdjson(
+            @Valid @RequestBody BasketComparisonRequest request) {
+        StreamingResponseBody body = out -> {
+            BasketComparisonSummary summary = basketComparisonService.streamBasket(request, result ->
+                    writeLine(out, BasketComparisonStreamRecord.builder()
+                            .type(BasketComparisonStreamRecord.STORE)
+                            .store(result)
+                            .build()));
+            writeLine(out, BasketComparisonStreamRecord.builder()
+                    .type(BasketComparisonStreamRecord.SUMMARY)
+                    .summary(summary)
+                    .build());
+        };
+        return ResponseEntity.ok().contentType(MediaType.parseMediaType(NDJSON_VALUE)).body(body);
+    }
+
+    private void writeLine(OutputStream out, BasketComparisonStreamRecord record) {
+        try {
+            out.write(objectMapper.writeValueAsBytes(record));
+            out.write('\n');
+            out.flush();
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    /**
+     * Compare several baskets in one call, e.g. all of a user's saved shopping lists
+     */
+    @PostMapping("/compare/batch")
+    public ResponseEntity<BasketBatchComparisonResponse> compareBaskets(
+            @Valid @RequestBody BasketBatchComparisonRequest request) {
+        BasketBatchComparisonResponse response = basketComparisonService.compareBaskets(request);
+        return ResponseEntity.ok(response);
+    }
+
+    /**
+     * Cheapest way to buy the basket split across at most maxStores stores
+     */
+    @PostMapping("/optimize")
+    public ResponseEntity<BasketOptimizationResponse> optimizeBasket(
+            @Valid @RequestBody BasketOptimizationRequest request) {
+        BasketOptimizationResponse response = basketOptimizationService.optimize(request);
+        return ResponseEntity.ok(response);
+    }
 }
@@ -1,18 +1,41 @@
 package com.smartbasket.backend.controller;
 
+import com.smartbasket.backend.dto.BarcodePriceUpdateRequest;
 import com.smartbasket.backend.dto.BatchPriceUpdateRequest;
 import com.smartbasket.backend.dto.BatchPriceUpdateResponse;
+import com.smartbasket.backend.dto.PriceChart;
+import com.smartbasket.backend.dto.PriceHistoryPage;
+import com.smartbasket.backend.dto.PriceImportResponse;
+import com.smartbasket.backend.dto.PriceIngestResponse;
+import com.smartbasket.backend.dto.PriceSeries;
+import com.smartbasket.backend.dto.PriceStats;
+import com.smartbasket.backend.dto.PriceStatsRequest;
+import com.smartbasket.backend.exception.IngestionQueueFullException;
 import com.smartbasket.backend.model.StorePrice;
+import com.smartbasket.backend.service.PriceChartService;
+import com.smartbasket.backend.service.PriceImportService;
+import com.smartbasket.backend.service.PriceRollupService;
+import com.smartbasket.backend.service.PriceStatsService;
 import com.smartbasket.backend.service.PriceUpdateService;
+import com.smartbasket.backend.service.PriceWriteBehindQueue;
 import jakarta.validation.Valid;
 import jakarta.validation.constraints.Min;
 import jakarta.validation.constraints.NotBlank;
 import jakarta.validation.constraints.NotNull;
 import lombok.RequiredArgsConstructor;
+import org.springframework.core.io.FileSystemResource;
+import org.springframework.core.io.Resource;
+import org.springframework.format.annotation.DateTimeFormat;
+import org.springframework.http.ContentDisposition;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
 
+import java.io.IOException;
+import java.io.InputStream;
+import java.time.Instant;
 import java.util.List;
 
 @RestController
@@ -22,33 +45,87 @@ import java.util.List;
 public class PriceController {
 
     private final PriceUpdateService priceUpdateService;
+    private final PriceImportService priceImportService;
+    private final PriceWriteBehindQueue priceWriteBehindQueue;
+    private final PriceRollupService priceRollupService;
+    private final PriceStatsService priceStatsService;
+    private final PriceChartService priceChartService;
 
     /**
-     * Update a single item's price
+     * Update a single item's price (queued with 202 Accepted in async ingestion mode)
      */
     @PostMapping
-    public ResponseEntity<StorePrice> updatePrice(
+    public ResponseEntity<?> updatePrice(
             @RequestParam @NotBlank String storeItemId,
             @RequestParam @NotNull @Min(0) Double price,
             @RequestParam(required = false) @Min(0) Double originalPrice,
             @RequestParam(required = false) String currency,
             @RequestParam(required = false) Boolean isPromotion) {
-        
+
+        if (priceWriteBehindQueue.isEnabled()) {
+            return enqueue(List.of(BatchPriceUpdateRequest.PriceEntry.builder()
+                    .storeItemId(storeItemId)
+                    .price(price)
+                    .originalPrice(originalPrice)
+                    .currency(currency)
+                    .isPromotion(isPromotion)
+                    .build()));
+        }
         StorePrice updatedPrice = priceUpdateService.updatePrice(storeItemId, price, originalPrice, currency, isPromotion);
         return ResponseEntity.status(HttpStatus.CREATED).body(updatedPrice);
     }
 
     /**
-     * Batch update prices for multiple items
+     * Batch update prices for multiple items (queued with 202 Accepted in async ingestion mode)
      */
     @PostMapping("/batch")
-    public ResponseEntity<BatchPriceUpdateResponse> batchUpdatePrices(
+    public ResponseEntity<?> batchUpdatePrices(
             @Valid @RequestBody BatchPriceUpdateRequest request) {
-        
+
+        if (priceWriteBehindQueue.isEnabled()) {
+            return enqueue(request.getPrices());
+        }
         BatchPriceUpdateResponse response = priceUpdateService.batchUpdatePrices(request);
         return ResponseEntity.ok(response);
     }
 
+    /**
+     * Batch update the prices of one store's items identified by barcode
+     */
+    @PostMapping("/batch/by-barcode")
+    public ResponseEntity<BatchPriceUpdateResponse> batchUpdatePricesByBarcode(
+            @Valid @RequestBody BarcodePriceUpdateRequest request) {
+        return ResponseEntity.ok(priceUpdateService.batchUpdatePricesByBarcode(request));
+    }
+
+    /**
+     * Import a CSV price feed streamed in the request body (header row required)
+     */
+    @PostMapping(value = "/import", consumes = "text/csv")
+    public ResponseEntity<PriceImportResponse> importCsv(InputStream body) throws IOException {
+        return ResponseEntity.ok(priceImportService.importPrices(body, PriceImportService.FORMAT_CSV));
+    }
+
+    /**
+     * Import an NDJSON price feed streamed in the request body, one price entry per line
+     */
+    @PostMapping(value = "/import", consumes = MediaType.APPLICATION_NDJSON_VALUE)
+    public ResponseEntity<PriceImportResponse> importNdjson(InputStream body) throws IOException {
+        return ResponseEntity.ok(priceImportService.importPrices(body, PriceImportService.FORMAT_NDJSON));
+    }
+
+    /**
+     * Download the rejected rows of an import as CSV
+     */
+    @GetMapping(value = "/import/{importId}/rejected", produces = "text/csv")
+    public ResponseEntity<Resource> getRejectedRows(@PathVariable String importId) {
+        Resource report = new FileSystemResource(priceImportService.rejectedReport(importId));
+        return ResponseEntity.ok()
+                .header(HttpHeaders.CONTENT_DISPOSITION, ContentDisposition.attachment()
+                        .filename("rejected-" + importId + ".csv").build().toString())
+                .body(report);
+    }
+
     /**
      * Get price history for a store item
      */
@@ -57,4 +134,72 @@ public class PriceController {
         List<StorePrice> history = priceUpdateService.getPriceHistory(storeItemId);
         return ResponseEntity.ok(history);
     }
+
+    /**
+     * Get one page of a store item's price history, newest first, optionally within [from, to]
+     */
+    @GetMapping("/history/{storeItemId}/page")
+    public ResponseEntity<PriceHistoryPage> getPriceHistoryPage(
+            @PathVariable String storeItemId,
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) Instant from,
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) Instant to,
+            @RequestParam(required = false) String cursor,
+            @RequestParam(required = false) Integer limit) {
+        return ResponseEntity.ok(priceUpdateService.getPriceHistoryPage(storeItemId, from, to, cursor, limit));
+    }
+
+    /**
+     * Get a store item's price history over [from, to] as min/max/avg/close points. By default the
+     * coarsest granularity (raw, hour or day) that still gives enough points for the range is used.
+     */
+    @GetMapping("/history/{storeItemId}/series")
+    public ResponseEntity<PriceSeries> getPriceSeries(
+            @PathVariable String storeItemId,
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) Instant from,
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) Instant to,
+            @RequestParam(defaultValue = "auto") String granularity) {
+        return ResponseEntity.ok(priceRollupService.series(storeItemId, from, to, granularity));
+    }
+
+    /**
+     * Get a store item's price history over [from, to] reduced to at most {@code points} points for a chart.
+     * Spikes and drops are kept; by default the whole history up to now is covered.
+     */
+    @GetMapping("/history/{storeItemId}/chart")
+    public ResponseEntity<PriceChart> getPriceChart(
+            @PathVariable String storeItemId,
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) Instant from,
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) Instant to,
+            @RequestParam(required = false) Integer points) {
+        return ResponseEntity.ok(priceChartService.chart(storeItemId, from, to, points));
+    }
+
+    /**
+     * Get a store item's lowest, highest, average and median price over the last 30/90/365 days,
+     * and whether its current price is a real discount
+     */
+    @GetMapping("/stats/{storeItemId}")
+    public ResponseEntity<PriceStats> getPriceStats(@PathVariable String storeItemId) {
+        return ResponseEntity.ok(priceStatsService.getStats(storeItemId));
+    }
+
+    /**
+     * Get the price statistics of many store items at once
+     */
+    @PostMapping("/stats")
+    public ResponseEntity<List<PriceStats>> getPriceStatsBatch(@Valid @RequestBody PriceStatsRequest request) {
+        return ResponseEntity.ok(priceStatsService.getStats(request.getStoreItemIds()));
+    }
+
+    private ResponseEntity<PriceIngestResponse> enqueue(List<BatchPriceUpdateRequest.PriceEntry> entries) {
+        int accepted = priceWriteBehindQueue.enqueueAll(entries);
+        if (accepted == 0) {
+            throw new IngestionQueueFullException("Price ingestion queue is full, retry later");
+        }
+        return ResponseEntity.status(HttpStatus.ACCEPTED).body(PriceIngestResponse.builder()
+                .acceptedCount(accepted)
+                .rejectedCount(entries.size() - accepted)
+                .queueDepth(priceWriteBehindQueue.depth())
+                .build());
+    }
 }
@@ -1,11 +1,13 @@
 package com.smartbasket.backend.controller;
 
 import com.smartbasket.backend.dto.CreateReferenceItemRequest;
+import com.smartbasket.backend.dto.ItemSuggestion;
 import com.smartbasket.backend.dto.ReferenceItemDto;
 import com.smartbasket.backend.exception.ResourceNotFoundException;
 import com.smartbasket.backend.service.ReferenceItemService;
 import jakarta.validation.Valid;
 import lombok.RequiredArgsConstructor;
+import org.springframework.data.domain.Page;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
@@ -17,6 +19,8 @@ import java.util.List;
 @RequiredArgsConstructor
 public class ReferenceItemController {
 
+    private static final String TOTAL_COUNT_HEADER = "X-Total-Count";
+
     private final ReferenceItemService referenceItemService;
 
     @GetMapping
@@ -36,9 +40,31 @@ public class ReferenceItemController {
         return ResponseEntity.ok(referenceItemService.getItemsByCategory(category));
     }
 
+    /**
+     * Search by name, Arabic name, category or brand, best matches first.
+     * With fuzzy, words within one or two typos of the query words also match, ranked below exact matches.
+     * The total number of matches is returned in the X-Total-Count header.
+     */
     @GetMapping("/search")
-    public ResponseEntity<List<ReferenceItemDto>> searchItems(@RequestParam String query) {
-        return ResponseEntity.ok(referenceItemService.searchItems(query));
+    public ResponseEntity<List<ReferenceItemDto>> searchItems(
+            @RequestParam String query,
+            @RequestParam(defaultValue = "0") int page,
+            @RequestParam(defaultValue = "50") int size,
+            @RequestParam(defaultValue = "false") boolean fuzzy) {
+        Page<ReferenceItemDto> results = referenceItemService.searchItems(query, page, size, fuzzy);
+        return ResponseEntity.ok()
+                .header(TOTAL_COUNT_HEADER, String.valueOf(results.getTotalElements()))
+                .body(results.getContent());
+    }
+
+    /**
+     * Search box suggestions: id, names and category of the most popular items with a word starting with prefix
+     */
+    @GetMapping("/suggest")
+    public ResponseEntity<List<ItemSuggestion>> suggestItems(
+            @RequestParam String prefix,
+            @RequestParam(defaultValue = "10") int limit) {
+        return ResponseEntity.ok(referenceItemService.suggest(prefix, limit));
     }
 
     @PostMapping
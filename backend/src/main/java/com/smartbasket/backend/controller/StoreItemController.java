@@ -1,7 +1,11 @@
 package com.smartbasket.backend.controller;
 
 import com.smartbasket.backend.dto.CreateStoreItemRequest;
+import com.smartbasket.backend.dto.LinkStoreItemRequest;
 import com.smartbasket.backend.dto.StoreItemDto;
+import com.smartbasket.backend.dto.StoreItemMatchResponse;
+import com.smartbasket.backend.dto.StoreItemPage;
+import com.smartbasket.backend.service.StoreItemMatcher;
 import com.smartbasket.backend.service.StoreItemService;
 import jakarta.validation.Valid;
 import lombok.RequiredArgsConstructor;
@@ -18,6 +22,7 @@ import java.util.List;
 public class StoreItemController {
 
     private final StoreItemService storeItemService;
+    private final StoreItemMatcher storeItemMatcher;
 
     /**
      * Get all store items
@@ -28,6 +33,25 @@ public class StoreItemController {
         return ResponseEntity.ok(items);
     }
 
+    /**
+     * Get one page of store items in id order. Filters by store, reference item category, reference items
+     * (comma-separated ids), whether the item has a price and whether it is on promotion; fields limits the
+     * returned fields (comma-separated).
+     */
+    @GetMapping("/page")
+    public ResponseEntity<StoreItemPage> getStoreItemPage(
+            @RequestParam(required = false) String storeId,
+            @RequestParam(required = false) String category,
+            @RequestParam(required = false) List<String> referenceItemIds,
+            @RequestParam(required = false) Boolean hasPrice,
+            @RequestParam(required = false) Boolean promotion,
+            @RequestParam(required = false) String cursor,
+            @RequestParam(required = false) Integer limit,
+            @RequestParam(required = false) List<String> fields) {
+        return ResponseEntity.ok(storeItemService.getPage(storeId, category, referenceItemIds, hasPrice, promotion,
+                cursor, limit, fields));
+    }
+
     /**
      * Create a store item and auto-link to reference item
      */
@@ -37,6 +61,26 @@ public class StoreItemController {
         return ResponseEntity.status(HttpStatus.CREATED).body(created);
     }
 
+    /**
+     * Match the unlinked store items of a store (or of every store) to reference items by barcode,
+     * name and brand. Confident matches are linked unless apply is false; the others are returned for review.
+     */
+    @PostMapping("/match")
+    public ResponseEntity<StoreItemMatchResponse> matchUnlinked(
+            @RequestParam(required = false) String storeId,
+            @RequestParam(defaultValue = "true") boolean apply) {
+        return ResponseEntity.ok(storeItemMatcher.match(storeId, apply));
+    }
+
+    /**
+     * Link an unlinked store item to a reference item
+     */
+    @PutMapping("/{id}/reference-item")
+    public ResponseEntity<StoreItemDto> linkToReferenceItem(@PathVariable String id,
+                                                            @Valid @RequestBody LinkStoreItemRequest request) {
+        return ResponseEntity.ok(storeItemService.linkToReferenceItem(id, request.getReferenceItemId()));
+    }
+
     /**
      * Get a store item by ID
      */
@@ -0,0 +1,50 @@
+package com.smartbasket.backend.dto;
+
+import jakarta.validation.Valid;
+import jakarta.validation.constraints.Min;
+import jakarta.validation.constraints.NotBlank;
+import jakarta.validation.constraints.NotEmpty;
+import jakarta.validation.constraints.NotNull;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.List;
+
+/**
+ * Price feed of one store, with items identified by barcode
+ */
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class BarcodePriceUpdateRequest {
+
+    @NotBlank(message = "Store ID is required")
+    private String storeId;
+
+    @NotEmpty(message = "At least one price entry is required")
+    @Valid
+    private List<BarcodePriceEntry> prices;
+
+    @Data
+    @Builder
+    @NoArgsConstructor
+    @AllArgsConstructor
+    public static class BarcodePriceEntry {
+
+        @NotBlank(message = "Barcode is required")
+        private String barcode;
+
+        @NotNull(message = "Price is required")
+        @Min(value = 0, message = "Price must be non-negative")
+        private Double price;
+
+        @Min(value = 0, message = "Original price must be non-negative")
+        private Double originalPrice;
+
+        private String currency;
+        private Boolean isPromotion;
+    }
+}
@@ -0,0 +1,23 @@
+package com.smartbasket.backend.dto;
+
+import jakarta.validation.Valid;
+import jakarta.validation.constraints.NotEmpty;
+import jakarta.validation.constraints.Size;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.List;
+
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class BasketBatchComparisonRequest {
+
+    @NotEmpty(message = "At least one basket is required")
+    @Size(max = 100, message = "At most 100 baskets can be compared at once")
+    @Valid
+    private List<BasketComparisonRequest> baskets;
+}
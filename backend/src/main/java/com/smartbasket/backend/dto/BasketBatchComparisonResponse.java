@@ -0,0 +1,33 @@
+package com.smartbasket.backend.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.List;
+
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class BasketBatchComparisonResponse {
+    private int totalBaskets;
+    private int cacheHits;
+    private int failureCount;
+    private long sharedLookupMs;  // Loading the reference items and store items shared by all baskets
+    private long elapsedMs;
+    private List<BasketResult> results;  // Same order as the request
+
+    @Data
+    @Builder
+    @NoArgsConstructor
+    @AllArgsConstructor
+    public static class BasketResult {
+        private int index;
+        private boolean cached;
+        private long elapsedMs;
+        private BasketComparisonResponse comparison;
+        private String error;
+    }
+}
@@ -1,12 +1,15 @@
 package com.smartbasket.backend.dto;
 
+import jakarta.validation.constraints.Min;
 import jakarta.validation.constraints.NotEmpty;
 import lombok.AllArgsConstructor;
 import lombok.Builder;
 import lombok.Data;
 import lombok.NoArgsConstructor;
 
+import java.time.Instant;
 import java.util.List;
+import java.util.Map;
 
 @Data
 @Builder
@@ -15,4 +18,33 @@ import java.util.List;
 public class BasketComparisonRequest {
     @NotEmpty(message = "Basket must contain at least one item")
     private List<String> referenceItemIds;
+
+    // Optional quantity per reference item (items not listed default to 1)
+    private Map<String, @Min(value = 1, message = "Quantity must be at least 1") Integer> quantities;
+
+    // Optional brands to prefer per reference item; the cheapest variant of a preferred brand is used
+    // at stores that carry one, otherwise the cheapest variant of any brand
+    private Map<String, List<String>> preferredBrands;
+
+    // Per-item price breakdown for each store (defaults to true if not specified)
+    private Boolean includeItemDetail;
+
+    // Price the basket as it was at this instant, from the price history (current prices if not specified)
+    private Instant asOf;
+
+    // Page of the store ranking to return (all stores if limit is not specified)
+    @Min(value = 0, message = "Offset must be non-negative")
+    private Integer offset;
+
+    @Min(value = 1, message = "Limit must be at least 1")
+    private Integer limit;
+
+    public boolean isItemDetailRequested() {
+        return includeItemDetail == null || includeItemDetail;
+    }
+
+    public int quantityOf(String referenceItemId) {
+        Integer quantity = quantities != null ? quantities.get(referenceItemId) : null;
+        return quantity != null ? quantity : 1;
+    }
 }
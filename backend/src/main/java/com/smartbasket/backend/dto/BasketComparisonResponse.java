@@ -13,7 +13,8 @@ import java.util.List;
 @AllArgsConstructor
 public class BasketComparisonResponse {
     private List<BasketItemInfo> basketItems;
-    private List<StoreComparisonResult> storeComparisons;
+    private List<StoreComparisonResult> storeComparisons;  // Requested page of the ranking
+    private Integer totalStores;  // Active stores ranked, across all pages
     private String cheapestStoreId;
     private String cheapestStoreName;
     private Double lowestTotal;
@@ -0,0 +1,24 @@
+package com.smartbasket.backend.dto;
+
+import com.fasterxml.jackson.annotation.JsonInclude;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+/**
+ * One line of an NDJSON basket comparison stream: a store result, or the summary as the last line
+ */
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+@JsonInclude(JsonInclude.Include.NON_NULL)
+public class BasketComparisonStreamRecord {
+    public static final String STORE = "store";
+    public static final String SUMMARY = "summary";
+
+    private String type;
+    private StoreComparisonResult store;
+    private BasketComparisonSummary summary;
+}
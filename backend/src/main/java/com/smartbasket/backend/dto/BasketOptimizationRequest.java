@@ -0,0 +1,38 @@
+package com.smartbasket.backend.dto;
+
+import jakarta.validation.constraints.DecimalMin;
+import jakarta.validation.constraints.Max;
+import jakarta.validation.constraints.Min;
+import jakarta.validation.constraints.NotEmpty;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.List;
+import java.util.Map;
+
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class BasketOptimizationRequest {
+    @NotEmpty(message = "Basket must contain at least one item")
+    private List<String> referenceItemIds;
+
+    // Optional quantity per reference item (items not listed default to 1)
+    private Map<String, @Min(value = 1, message = "Quantity must be at least 1") Integer> quantities;
+
+    // Maximum number of stores to split the basket across (defaults to 2)
+    @Min(value = 1, message = "At least one store is required")
+    @Max(value = 50, message = "At most 50 stores can be combined")
+    private Integer maxStores;
+
+    // Cost added for every store in the plan, e.g. travel or delivery (defaults to 0)
+    @DecimalMin(value = "0.0", message = "Store visit cost must be non-negative")
+    private Double storeVisitCost;
+
+    // Search deadline; the best plan found so far is returned when it is reached
+    @Min(value = 1, message = "Timeout must be at least 1 ms")
+    private Long timeoutMs;
+}
@@ -0,0 +1,37 @@
+package com.smartbasket.backend.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.List;
+
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class BasketOptimizationResponse {
+    private List<BasketItemInfo> basketItems;
+    private List<StorePlan> stores;
+    private Double itemsTotal;
+    private Double visitCost;
+    private Double grandTotal; // itemsTotal + visitCost
+    private String currency;
+    private List<String> unavailableItems; // Not bought at any store in the plan
+    private boolean optimal; // false if the deadline was reached first
+    private long nodesExplored;
+    private long elapsedMs;
+
+    @Data
+    @Builder
+    @NoArgsConstructor
+    @AllArgsConstructor
+    public static class StorePlan {
+        private String storeId;
+        private String storeName;
+        private String storeLogoUrl;
+        private List<StoreItemPriceInfo> items;
+        private Double subtotal;
+    }
+}
@@ -1,5 +1,6 @@
 package com.smartbasket.backend.dto;
 
+import com.fasterxml.jackson.annotation.JsonInclude;
 import lombok.AllArgsConstructor;
 import lombok.Builder;
 import lombok.Data;
@@ -13,8 +14,12 @@ import java.util.List;
 @AllArgsConstructor
 public class BatchPriceUpdateResponse {
     private int totalRequested;
-    private int successCount;
+    private int successCount;      // changedCount + unchangedCount
+    private int changedCount;      // recorded a new price
+    private int unchangedCount;    // repeated the current price, only confirmed
     private int failureCount;
+    @JsonInclude(JsonInclude.Include.NON_NULL)
+    private List<String> unknownBarcodes;  // distinct, for barcode-addressed updates only
     private List<PriceUpdateResult> results;
 
     @Data
@@ -23,7 +28,10 @@ public class BatchPriceUpdateResponse {
     @AllArgsConstructor
     public static class PriceUpdateResult {
         private String storeItemId;
+        @JsonInclude(JsonInclude.Include.NON_NULL)
+        private String barcode;
         private boolean success;
+        private Boolean changed;  // null when the entry failed
         private String message;
         private Double newPrice;
     }
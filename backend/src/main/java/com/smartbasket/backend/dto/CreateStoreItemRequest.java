@@ -17,7 +17,7 @@ public class CreateStoreItemRequest {
     @NotBlank(message = "Store ID is required")
     private String storeId;
     
-    @NotBlank(message = "Reference Item ID is required")
+    // Optional: unlinked store items can be matched later by /store-items/match
     private String referenceItemId;
     
     @NotBlank(message = "Name is required")
@@ -0,0 +1,20 @@
+package com.smartbasket.backend.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+/**
+ * Compact reference item for search box suggestions
+ */
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class ItemSuggestion {
+    private String id;
+    private String name;
+    private String nameAr;
+    private String category;
+}
@@ -0,0 +1,17 @@
+package com.smartbasket.backend.dto;
+
+import jakarta.validation.constraints.NotBlank;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class LinkStoreItemRequest {
+
+    @NotBlank(message = "Reference Item ID is required")
+    private String referenceItemId;
+}
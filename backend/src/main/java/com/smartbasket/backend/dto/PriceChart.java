@@ -0,0 +1,35 @@
+package com.smartbasket.backend.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.time.Instant;
+import java.util.List;
+
+/**
+ * Price history of a store item reduced to at most maxPoints points for drawing a chart
+ */
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class PriceChart {
+    private String storeItemId;
+    private Instant from;
+    private Instant to;
+    private int maxPoints;
+    private long sourcePoints;   // Observations read for the range
+    private boolean downsampled; // Points were dropped to stay within maxPoints
+    private List<Point> points;
+
+    @Data
+    @Builder
+    @NoArgsConstructor
+    @AllArgsConstructor
+    public static class Point {
+        private Instant timestamp;
+        private Double price;
+    }
+}
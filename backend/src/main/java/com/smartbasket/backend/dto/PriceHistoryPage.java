@@ -0,0 +1,23 @@
+package com.smartbasket.backend.dto;
+
+import com.smartbasket.backend.model.StorePrice;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.List;
+
+/**
+ * One page of a store item's price history, newest first
+ */
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class PriceHistoryPage {
+    private List<StorePrice> prices;
+    private int limit;
+    private boolean hasMore;
+    private String nextCursor;  // pass back as cursor to get the next page, null on the last page
+}
@@ -0,0 +1,22 @@
+package com.smartbasket.backend.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class PriceImportResponse {
+    private String importId;
+    private String format;
+    private long totalRows;
+    private long importedCount;
+    private long unchangedCount;  // imported rows that repeated the current price
+    private long rejectedCount;
+    private long chunkCount;
+    private long elapsedMs;
+    private String rejectedReportUrl;  // CSV of rejected rows, null if every row was imported
+}
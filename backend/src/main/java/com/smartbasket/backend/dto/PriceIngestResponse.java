@@ -0,0 +1,20 @@
+package com.smartbasket.backend.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+/**
+ * Answer to a price update accepted for asynchronous ingestion.
+ * Entries are accepted in request order, so the first {@code acceptedCount} entries were queued.
+ */
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class PriceIngestResponse {
+    private int acceptedCount;
+    private int rejectedCount;
+    private int queueDepth;
+}
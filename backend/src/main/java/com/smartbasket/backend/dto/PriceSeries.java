@@ -0,0 +1,38 @@
+package com.smartbasket.backend.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.time.Instant;
+import java.util.List;
+
+/**
+ * Price history of a store item over a time range, at the granularity chosen for the range
+ */
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class PriceSeries {
+    private String storeItemId;
+    private String granularity;  // raw, hour or day
+    private Instant from;
+    private Instant to;
+    private boolean truncated;   // raw points beyond the limit were left out
+    private List<PricePoint> points;
+
+    @Data
+    @Builder
+    @NoArgsConstructor
+    @AllArgsConstructor
+    public static class PricePoint {
+        private Instant timestamp;  // observation time, or bucket start
+        private Double min;
+        private Double max;
+        private Double avg;
+        private Double close;
+        private long count;
+    }
+}
@@ -0,0 +1,47 @@
+package com.smartbasket.backend.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.time.Instant;
+import java.util.List;
+
+/**
+ * Price statistics of a store item over trailing windows, computed from its daily rollups
+ */
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class PriceStats {
+    private String storeItemId;
+    private Double currentPrice;
+    private Double originalPrice;
+    private Boolean isPromotion;
+    private Instant priceSince;      // When the current price took effect
+
+    private List<Window> windows;
+
+    // Lowest price in the reference period before the current price took effect
+    private Double referencePrice;
+    private int referenceDays;
+    // Current price is below the reference price
+    private boolean realDiscount;
+    private Double discountPercent;  // Relative to the reference price
+
+    @Data
+    @Builder
+    @NoArgsConstructor
+    @AllArgsConstructor
+    public static class Window {
+        private int days;
+        private Instant from;
+        private Double min;
+        private Double max;
+        private Double avg;          // Mean of the daily prices
+        private Double median;       // Median of the daily prices
+        private int daysWithPrice;   // Days in the window with a known price
+    }
+}
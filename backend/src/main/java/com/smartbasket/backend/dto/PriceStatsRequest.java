@@ -0,0 +1,21 @@
+package com.smartbasket.backend.dto;
+
+import jakarta.validation.constraints.NotEmpty;
+import jakarta.validation.constraints.Size;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.List;
+
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class PriceStatsRequest {
+
+    @NotEmpty(message = "At least one store item is required")
+    @Size(max = 200, message = "At most 200 store items can be requested at once")
+    private List<String> storeItemIds;
+}
@@ -31,4 +31,5 @@ public class StoreItemDto {
     private String currency;
     private Boolean isPromotion;
     private Instant lastPriceUpdate;
+    private Instant lastConfirmedAt;
 }
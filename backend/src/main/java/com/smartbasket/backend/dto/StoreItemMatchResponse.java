@@ -0,0 +1,56 @@
+package com.smartbasket.backend.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.List;
+
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class StoreItemMatchResponse {
+    private int unlinkedCount;    // store items without a reference item when the run started
+    private int matchedCount;     // confident matches
+    private int reviewCount;      // plausible but not confident, left for review
+    private int unmatchedCount;
+    private boolean applied;      // whether the confident matches were linked
+    private long elapsedMs;
+    private List<Match> matches;
+    private List<Review> reviews;
+
+    @Data
+    @Builder
+    @NoArgsConstructor
+    @AllArgsConstructor
+    public static class Match {
+        private String storeItemId;
+        private String storeItemName;
+        private String referenceItemId;
+        private String referenceItemName;
+        private double score;
+        private String reason;  // "barcode" or "name"
+    }
+
+    @Data
+    @Builder
+    @NoArgsConstructor
+    @AllArgsConstructor
+    public static class Review {
+        private String storeItemId;
+        private String storeItemName;
+        private List<Candidate> candidates;  // best first
+    }
+
+    @Data
+    @Builder
+    @NoArgsConstructor
+    @AllArgsConstructor
+    public static class Candidate {
+        private String referenceItemId;
+        private String referenceItemName;
+        private double score;
+    }
+}
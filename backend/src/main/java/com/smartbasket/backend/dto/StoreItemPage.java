@@ -0,0 +1,22 @@
+package com.smartbasket.backend.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.List;
+
+/**
+ * One page of store items in id order
+ */
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class StoreItemPage {
+    private List<StoreItemDto> items;
+    private int limit;
+    private boolean hasMore;
+    private String nextCursor;  // pass back as cursor to get the next page, null on the last page
+}
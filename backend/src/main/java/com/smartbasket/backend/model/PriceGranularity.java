@@ -0,0 +1,39 @@
+package com.smartbasket.backend.model;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.time.temporal.ChronoUnit;
+import java.util.Locale;
+
+/**
+ * Resolution of price history: raw observations or hourly/daily rollup buckets (UTC)
+ */
+public enum PriceGranularity {
+    RAW(ChronoUnit.MILLIS),
+    HOUR(ChronoUnit.HOURS),
+    DAY(ChronoUnit.DAYS);
+
+    private final ChronoUnit unit;
+
+    PriceGranularity(ChronoUnit unit) {
+        this.unit = unit;
+    }
+
+    public Duration duration() {
+        return unit.getDuration();
+    }
+
+    /**
+     * Start of the bucket containing the instant
+     */
+    public Instant truncate(Instant instant) {
+        return instant.truncatedTo(unit);
+    }
+
+    /**
+     * Value stored in price_rollups and used as the $dateTrunc unit
+     */
+    public String key() {
+        return name().toLowerCase(Locale.ROOT);
+    }
+}
@@ -0,0 +1,47 @@
+package com.smartbasket.backend.model;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+import org.springframework.data.annotation.Id;
+import org.springframework.data.mongodb.core.index.CompoundIndex;
+import org.springframework.data.mongodb.core.mapping.Document;
+
+import java.time.Instant;
+
+/**
+ * Hourly or daily summary of a store item's price observations, maintained by PriceRollupService
+ */
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+@Document(collection = "price_rollups")
+@CompoundIndex(name = "store_item_granularity_bucket_idx", def = "{'storeItemId': 1, 'granularity': 1, 'bucketStart': 1}")
+public class PriceRollup {
+    @Id
+    private Key id;
+
+    private String storeItemId;
+    private String granularity; // PriceGranularity key: hour or day
+    private Instant bucketStart;
+
+    private Double min;
+    private Double max;
+    private Double sum;
+    private Double avg;
+    private Double close; // Last price observed in the bucket
+    private Instant closeAt;
+    private Double closeOriginalPrice;
+    private long count;
+
+    @Data
+    @NoArgsConstructor
+    @AllArgsConstructor
+    public static class Key {
+        private String storeItemId;
+        private String granularity;
+        private Instant bucketStart;
+    }
+}
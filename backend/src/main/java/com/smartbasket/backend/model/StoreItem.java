@@ -5,6 +5,7 @@ import lombok.Builder;
 import lombok.Data;
 import lombok.NoArgsConstructor;
 import org.springframework.data.annotation.Id;
+import org.springframework.data.mongodb.core.index.CompoundIndex;
 import org.springframework.data.mongodb.core.index.Indexed;
 import org.springframework.data.mongodb.core.mapping.Document;
 
@@ -17,6 +18,10 @@ import java.util.List;
 @NoArgsConstructor
 @AllArgsConstructor
 @Document(collection = "store_items")
+@CompoundIndex(name = "reference_store_idx", def = "{'referenceItemId': 1, 'storeId': 1}")
+@CompoundIndex(name = "store_id_idx", def = "{'storeId': 1, '_id': 1}")
+@CompoundIndex(name = "store_barcode_idx", def = "{'storeId': 1, 'barcode': 1}", unique = true,
+        partialFilter = "{'barcode': {'$gt': ''}}")
 public class StoreItem {
     @Id
     private String id;
@@ -41,5 +46,6 @@ public class StoreItem {
     private Double originalPrice; // For discount calculation
     private String currency;
     private Boolean isPromotion;
-    private Instant lastPriceUpdate;
+    private Instant lastPriceUpdate; // When the price last changed
+    private Instant lastConfirmedAt; // When a feed last reported the price, changed or not
 }
@@ -4,10 +4,12 @@ import com.smartbasket.backend.model.StoreItem;
 import org.springframework.data.mongodb.repository.MongoRepository;
 import org.springframework.stereotype.Repository;
 
+import java.util.Collection;
 import java.util.List;
 
 @Repository
 public interface StoreItemRepository extends MongoRepository<StoreItem, String> {
     List<StoreItem> findByReferenceItemId(String referenceItemId);
     List<StoreItem> findByStoreId(String storeId);
+    List<StoreItem> findByReferenceItemIdIn(Collection<String> referenceItemIds);
 }
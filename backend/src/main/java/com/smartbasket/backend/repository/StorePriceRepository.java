@@ -5,9 +5,11 @@ import org.springframework.data.mongodb.repository.MongoRepository;
 import org.springframework.stereotype.Repository;
 
 import java.util.List;
+import java.util.Optional;
 
 @Repository
 public interface StorePriceRepository extends MongoRepository<StorePrice, String> {
     List<StorePrice> findByStoreItemId(String storeItemId);
     List<StorePrice> findByStoreItemIdOrderByTimestampDesc(String storeItemId);
+    Optional<StorePrice> findFirstByStoreItemIdOrderByTimestampDesc(String storeItemId);
 }
@@ -0,0 +1,176 @@
+package com.smartbasket.backend.service;
+
+import com.smartbasket.backend.model.StoreItem;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.query.Criteria;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.stereotype.Component;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Consumer;
+import java.util.stream.Stream;
+
+/**
+ * Resident (storeId, barcode) -> store item id index, so barcode-addressed feeds resolve without a
+ * query per row. Loaded in the background once the application is ready and kept current by
+ * {@link StoreItemService} on create and delete. Until it is loaded, lookups fall back to one $in
+ * query per call.
+ */
+@Slf4j
+@Component
+@RequiredArgsConstructor
+public class BarcodeIndex {
+
+    // Barcodes sent per $in query when the index is not loaded
+    private static final int QUERY_BATCH_SIZE = 1000;
+
+    private final MongoTemplate mongoTemplate;
+
+    // Replaced wholesale by a load; null until the first successful load
+    private volatile Map<String, String> idsByKey;
+
+    // Guarded by this. Non-null while a load is running, so writes made during the load are replayed.
+    private List<Consumer<Map<String, String>>> pendingMutations;
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void loadOnStartup() {
+        Thread loader = new Thread(this::rebuild, "barcode-index-loader");
+        loader.setDaemon(true);
+        loader.start();
+    }
+
+    public boolean isLoaded() {
+        return idsByKey != null;
+    }
+
+    /**
+     * Reload the index from MongoDB, reading only the id, store and barcode of each store item
+     */
+    public void rebuild() {
+        synchronized (this) {
+            if (pendingMutations != null) {
+                return;
+            }
+            pendingMutations = new ArrayList<>();
+        }
+        try {
+            long start = System.nanoTime();
+            Map<String, String> fresh = new ConcurrentHashMap<>();
+            int duplicates = 0;
+            Query query = Query.query(Criteria.where("barcode").type(2));
+            query.fields().include("storeId", "barcode");
+            try (Stream<StoreItem> storeItems = mongoTemplate.stream(query, StoreItem.class)) {
+                for (StoreItem storeItem : (Iterable<StoreItem>) storeItems::iterator) {
+                    String key = key(storeItem.getStoreId(), storeItem.getBarcode());
+                    if (key != null && fresh.putIfAbsent(key, storeItem.getId()) != null) {
+                        duplicates++;
+                    }
+                }
+            }
+
+            synchronized (this) {
+                pendingMutations.forEach(mutation -> mutation.accept(fresh));
+                idsByKey = fresh;
+            }
+            if (duplicates > 0) {
+                log.warn("Barcode index: {} store items share a (store, barcode) with another item; the first one wins",
+                        duplicates);
+            }
+            log.info("Barcode index loaded: {} barcodes in {} ms", fresh.size(), (System.nanoTime() - start) / 1_000_000);
+        } catch (RuntimeException e) {
+            log.warn("Barcode index load failed, barcode lookups will query MongoDB: {}", e.getMessage());
+        } finally {
+            synchronized (this) {
+                pendingMutations = null;
+            }
+        }
+    }
+
+    /**
+     * Store item id for a barcode of a store, or null if none
+     */
+    public String find(String storeId, String barcode) {
+        String key = key(storeId, barcode);
+        if (key == null) {
+            return null;
+        }
+        Map<String, String> index = idsByKey;
+        if (index != null) {
+            return index.get(key);
+        }
+        return resolve(storeId, List.of(barcode)).get(barcode.trim());
+    }
+
+    /**
+     * Store item ids for barcodes of one store
+     *
+     * @return store item id by trimmed barcode, for the barcodes that are known
+     */
+    public Map<String, String> resolve(String storeId, Collection<String> barcodes) {
+        Map<String, String> resolved = new HashMap<>();
+        Map<String, String> index = idsByKey;
+        if (index != null) {
+            for (String barcode : barcodes) {
+                String key = key(storeId, barcode);
+                String storeItemId = key != null ? index.get(key) : null;
+                if (storeItemId != null) {
+                    resolved.put(barcode.trim(), storeItemId);
+                }
+            }
+            return resolved;
+        }
+
+        List<String> distinct = barcodes.stream()
+                .filter(barcode -> barcode != null && !barcode.isBlank())
+                .map(String::trim)
+                .distinct()
+                .toList();
+        for (int from = 0; from < distinct.size(); from += QUERY_BATCH_SIZE) {
+            List<String> batch = distinct.subList(from, Math.min(from + QUERY_BATCH_SIZE, distinct.size()));
+            Query query = Query.query(Criteria.where("storeId").is(storeId).and("barcode").in(batch));
+            query.fields().include("barcode");
+            mongoTemplate.find(query, StoreItem.class)
+                    .forEach(storeItem -> resolved.putIfAbsent(storeItem.getBarcode(), storeItem.getId()));
+        }
+        return resolved;
+    }
+
+    public void put(StoreItem storeItem) {
+        String key = key(storeItem.getStoreId(), storeItem.getBarcode());
+        if (key != null) {
+            mutate(index -> index.put(key, storeItem.getId()));
+        }
+    }
+
+    public void remove(StoreItem storeItem) {
+        String key = key(storeItem.getStoreId(), storeItem.getBarcode());
+        if (key != null) {
+            mutate(index -> index.remove(key, storeItem.getId()));
+        }
+    }
+
+    private synchronized void mutate(Consumer<Map<String, String>> mutation) {
+        if (idsByKey != null) {
+            mutation.accept(idsByKey);
+        }
+        if (pendingMutations != null) {
+            pendingMutations.add(mutation);
+        }
+    }
+
+    private static String key(String storeId, String barcode) {
+        if (storeId == null || barcode == null || barcode.isBlank()) {
+            return null;
+        }
+        return storeId + '\u0000' + barcode.trim();
+    }
+}
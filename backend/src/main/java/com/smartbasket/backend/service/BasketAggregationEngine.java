@@ -0,0 +1,139 @@
+package com.smartbasket.backend.service;
+
+import lombok.RequiredArgsConstructor;
+import org.bson.Document;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.aggregation.Aggregation;
+import org.springframework.data.mongodb.core.aggregation.AggregationOperation;
+import org.springframework.stereotype.Component;
+
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Objects;
+import java.util.Set;
+import java.util.function.Consumer;
+import java.util.stream.Stream;
+
+/**
+ * Computes per-store basket totals inside MongoDB with a single aggregation on store_items,
+ * so only one summary document per active store comes back over the wire.
+ */
+@Component
+@RequiredArgsConstructor
+public class BasketAggregationEngine {
+
+    private static final String STORE_ITEMS_COLLECTION = "store_items";
+    private static final String STORES_COLLECTION = "stores";
+
+    private final MongoTemplate mongoTemplate;
+
+    /**
+     * Basket totals for one active store
+     */
+    public record StoreBasketSummary(String storeId, String storeName, String storeLogoUrl,
+                                     double total, int availableCount, Set<String> pricedItemIds) {
+    }
+
+    /**
+     * @param referenceItemIds basket reference item ids
+     * @param quantities       quantity for each id, in the same order
+     * @param preferredBrands  normalized preferred brands for each id (empty for any brand), in the same order
+     */
+    public List<StoreBasketSummary> summarize(List<String> referenceItemIds, List<Integer> quantities,
+                                              List<List<String>> preferredBrands) {
+        List<StoreBasketSummary> summaries = new ArrayList<>();
+        summarizeEach(referenceItemIds, quantities, preferredBrands, summaries::add);
+        return summaries;
+    }
+
+    /**
+     * Like {@link #summarize}, but reads the results through a cursor and hands each one to the sink
+     */
+    public void summarizeEach(List<String> referenceItemIds, List<Integer> quantities,
+                              List<List<String>> preferredBrands, Consumer<StoreBasketSummary> sink) {
+        Document pricedCondition = new Document("$gt", List.of("$price", 0));
+        Document itemPosition = new Document("$indexOfArray",
+                List.of(new Document("$literal", referenceItemIds), "$referenceItemId"));
+        Document quantity = new Document("$arrayElemAt", List.of(new Document("$literal", quantities), itemPosition));
+        Document variantPriced = new Document("$gt", List.of("$currentPrice", 0));
+        Document preferredBrand = new Document("$in", List.of(
+                new Document("$toLower", new Document("$trim",
+                        new Document("input", new Document("$ifNull", List.of("$brand", ""))))),
+                new Document("$arrayElemAt", List.of(new Document("$literal", preferredBrands), itemPosition))));
+
+        List<AggregationOperation> pipeline = List.of(
+                // 1. Only the store items for the basket
+                stage("$match", new Document("referenceItemId", new Document("$in", referenceItemIds))),
+                // 2. Cheapest priced variant per (store, reference item), of a preferred brand if there is one
+                stage("$group", new Document("_id", new Document("storeId", "$storeId")
+                        .append("referenceItemId", "$referenceItemId"))
+                        .append("cheapest", new Document("$min",
+                                new Document("$cond", List.of(variantPriced, "$currentPrice", null))))
+                        .append("cheapestPreferred", new Document("$min",
+                                new Document("$cond", List.of(new Document("$and", List.of(variantPriced, preferredBrand)),
+                                        "$currentPrice", null))))
+                        .append("quantity", new Document("$first", quantity))),
+                stage("$set", new Document("price",
+                        new Document("$ifNull", List.of("$cheapestPreferred", "$cheapest", 0)))),
+                // 3. Per-store total and availability
+                stage("$group", new Document("_id", "$_id.storeId")
+                        .append("total", new Document("$sum",
+                                new Document("$cond", List.of(pricedCondition,
+                                        new Document("$multiply", List.of("$price", "$quantity")), 0))))
+                        .append("availableCount", new Document("$sum",
+                                new Document("$cond", List.of(pricedCondition, 1, 0))))
+                        .append("pricedItemIds", new Document("$push",
+                                new Document("$cond", List.of(pricedCondition, "$_id.referenceItemId", null))))),
+                // 4. Keep only active stores (store ids are stored as strings on store_items)
+                stage("$lookup", new Document("from", STORES_COLLECTION)
+                        .append("let", new Document("storeId", "$_id"))
+                        .append("pipeline", List.of(new Document("$match", new Document("$expr",
+                                new Document("$and", List.of(
+                                        new Document("$eq", List.of(new Document("$toString", "$_id"), "$$storeId")),
+                                        new Document("$eq", List.of("$active", true))))))))
+                        .append("as", "store")),
+                stage("$unwind", "$store"),
+                // 5. Active stores that carry none of the basket items still get a row
+                stage("$unionWith", new Document("coll", STORES_COLLECTION)
+                        .append("pipeline", List.of(
+                                new Document("$match", new Document("active", true)),
+                                new Document("$project", new Document("_id", new Document("$toString", "$_id"))
+                                        .append("total", new Document("$literal", 0))
+                                        .append("availableCount", new Document("$literal", 0))
+                                        .append("pricedItemIds", new Document("$literal", List.of()))
+                                        .append("store", "$$ROOT"))))),
+                stage("$sort", new Document("availableCount", -1).append("total", -1)),
+                stage("$group", new Document("_id", "$_id")
+                        .append("total", new Document("$first", "$total"))
+                        .append("availableCount", new Document("$first", "$availableCount"))
+                        .append("pricedItemIds", new Document("$first", "$pricedItemIds"))
+                        .append("storeName", new Document("$first", "$store.name"))
+                        .append("storeLogoUrl", new Document("$first", "$store.logoUrl")))
+        );
+
+        try (Stream<Document> results = mongoTemplate.aggregateStream(Aggregation.newAggregation(pipeline),
+                STORE_ITEMS_COLLECTION, Document.class)) {
+            results.map(BasketAggregationEngine::toSummary).forEach(sink);
+        }
+    }
+
+    private static StoreBasketSummary toSummary(Document doc) {
+        Set<String> pricedItemIds = new HashSet<>();
+        List<?> ids = doc.getList("pricedItemIds", Object.class, List.of());
+        ids.stream().filter(Objects::nonNull).map(Object::toString).forEach(pricedItemIds::add);
+
+        return new StoreBasketSummary(
+                doc.getString("_id"),
+                doc.getString("storeName"),
+                doc.getString("storeLogoUrl"),
+                ((Number) doc.get("total")).doubleValue(),
+                ((Number) doc.get("availableCount")).intValue(),
+                pricedItemIds);
+    }
+
+    private static AggregationOperation stage(String operator, Object body) {
+        Document stage = new Document(operator, body);
+        return context -> stage;
+    }
+}
@@ -0,0 +1,217 @@
+package com.smartbasket.backend.service;
+
+import com.smartbasket.backend.dto.BasketComparisonResponse;
+import com.smartbasket.backend.dto.StoreComparisonResult;
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Bounded LRU cache of basket comparison responses keyed by {@link CanonicalBasket}, so the same
+ * contents in any order or with duplicates share one entry.
+ *
+ * Entries are indexed by the reference items they contain and by the stores that carry at least one
+ * of those items, so writes evict only the baskets they can change. Store changes also bump a roster
+ * version; on read, entries from an older roster drop the rows of deactivated stores, and are recomputed
+ * when a store without a row became active (it is not indexed, so it cannot have evicted them).
+ */
+@Component
+public class BasketComparisonCache {
+
+    private final int maxSize;
+    private final boolean enabled;
+
+    // Access-ordered, so iteration starts at the least recently used entry. Guarded by this.
+    private final LinkedHashMap<CanonicalBasket, Entry> entries = new LinkedHashMap<>(16, 0.75f, true);
+    private final Map<String, Set<CanonicalBasket>> keysByReferenceItem = new HashMap<>();
+    private final Map<String, Set<CanonicalBasket>> keysByStore = new HashMap<>();
+    private final Map<CanonicalBasket, List<String>> storesByKey = new HashMap<>();
+
+    // Bumped on every invalidation, so a response computed across a write is not cached
+    private final AtomicLong writeGeneration = new AtomicLong();
+    private final AtomicLong rosterVersion = new AtomicLong();
+    private final AtomicLong hits = new AtomicLong();
+    private final AtomicLong misses = new AtomicLong();
+    private final AtomicLong sizeEvictions = new AtomicLong();
+    private final AtomicLong invalidations = new AtomicLong();
+
+    public BasketComparisonCache(
+            @Value("${basket.comparison.cache.enabled:true}") boolean enabled,
+            @Value("${basket.comparison.cache.max-size:10000}") int maxSize,
+            MeterRegistry meterRegistry) {
+        this.enabled = enabled;
+        this.maxSize = maxSize;
+
+        Gauge.builder("basket.compare.cache.size", this, BasketComparisonCache::size)
+                .register(meterRegistry);
+        FunctionCounter.builder("basket.compare.cache.requests", hits, AtomicLong::get)
+                .tag("result", "hit")
+                .register(meterRegistry);
+        FunctionCounter.builder("basket.compare.cache.requests", misses, AtomicLong::get)
+                .tag("result", "miss")
+                .register(meterRegistry);
+        FunctionCounter.builder("basket.compare.cache.evictions", sizeEvictions, AtomicLong::get)
+                .tag("cause", "size")
+                .register(meterRegistry);
+        FunctionCounter.builder("basket.compare.cache.evictions", invalidations, AtomicLong::get)
+                .tag("cause", "invalidation")
+                .register(meterRegistry);
+        Gauge.builder("basket.compare.cache.hit.ratio", this, BasketComparisonCache::hitRatio)
+                .register(meterRegistry);
+    }
+
+    /**
+     * A cached response and the store roster version it was computed against
+     */
+    public record Entry(BasketComparisonResponse response, long rosterVersion) {
+    }
+
+    /**
+     * Versions to capture before computing a response that will be passed to {@link #put}
+     */
+    public record Versions(long writeGeneration, long rosterVersion) {
+    }
+
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    public Versions currentVersions() {
+        return new Versions(writeGeneration.get(), rosterVersion.get());
+    }
+
+    public long currentRosterVersion() {
+        return rosterVersion.get();
+    }
+
+    public synchronized Optional<Entry> get(CanonicalBasket key) {
+        if (!enabled) {
+            return Optional.empty();
+        }
+        Entry entry = entries.get(key);
+        if (entry == null) {
+            misses.incrementAndGet();
+            return Optional.empty();
+        }
+        hits.incrementAndGet();
+        return Optional.of(entry);
+    }
+
+    /**
+     * Store a response computed at the given versions. Responses that raced with a write are dropped.
+     */
+    public synchronized void put(CanonicalBasket key, BasketComparisonResponse response, Versions computedAt) {
+        if (!enabled || computedAt.writeGeneration() != writeGeneration.get()) {
+            return;
+        }
+        if (entries.containsKey(key)) {
+            unindex(key);
+        }
+        entries.put(key, new Entry(response, computedAt.rosterVersion()));
+        index(key, response);
+
+        Iterator<Map.Entry<CanonicalBasket, Entry>> eldest = entries.entrySet().iterator();
+        while (entries.size() > maxSize && eldest.hasNext()) {
+            CanonicalBasket evicted = eldest.next().getKey();
+            eldest.remove();
+            unindex(evicted);
+            sizeEvictions.incrementAndGet();
+        }
+    }
+
+    /**
+     * Evict baskets that contain the reference item (its price, status or name changed)
+     */
+    public synchronized void invalidateReferenceItem(String referenceItemId) {
+        writeGeneration.incrementAndGet();
+        Set<CanonicalBasket> keys = keysByReferenceItem.get(referenceItemId);
+        if (keys != null) {
+            evictAll(new ArrayList<>(keys));
+        }
+    }
+
+    /**
+     * Evict baskets the store carries items for and mark every other entry for roster reconciliation
+     */
+    public synchronized void invalidateStore(String storeId) {
+        writeGeneration.incrementAndGet();
+        rosterVersion.incrementAndGet();
+        Set<CanonicalBasket> keys = keysByStore.get(storeId);
+        if (keys != null) {
+            evictAll(new ArrayList<>(keys));
+        }
+    }
+
+    public synchronized int size() {
+        return entries.size();
+    }
+
+    private double hitRatio() {
+        long total = hits.get() + misses.get();
+        return total == 0 ? 0.0 : (double) hits.get() / total;
+    }
+
+    private void evictAll(List<CanonicalBasket> keys) {
+        for (CanonicalBasket key : keys) {
+            if (entries.remove(key) != null) {
+                unindex(key);
+                invalidations.incrementAndGet();
+            }
+        }
+    }
+
+    private void index(CanonicalBasket key, BasketComparisonResponse response) {
+        for (String referenceItemId : key.referenceItemIds()) {
+            keysByReferenceItem.computeIfAbsent(referenceItemId, k -> new HashSet<>()).add(key);
+        }
+        List<String> carryingStores = new ArrayList<>();
+        for (StoreComparisonResult result : response.getStoreComparisons()) {
+            if (carriesBasketItems(result)) {
+                carryingStores.add(result.getStoreId());
+                keysByStore.computeIfAbsent(result.getStoreId(), k -> new HashSet<>()).add(key);
+            }
+        }
+        storesByKey.put(key, carryingStores);
+    }
+
+    private void unindex(CanonicalBasket key) {
+        for (String referenceItemId : key.referenceItemIds()) {
+            removeFromIndex(keysByReferenceItem, referenceItemId, key);
+        }
+        List<String> carryingStores = storesByKey.remove(key);
+        if (carryingStores != null) {
+            for (String storeId : carryingStores) {
+                removeFromIndex(keysByStore, storeId, key);
+            }
+        }
+    }
+
+    private static boolean carriesBasketItems(StoreComparisonResult result) {
+        return result.getAvailableItemCount() > 0
+                || (result.getItemPrices() != null
+                && result.getItemPrices().stream().anyMatch(info -> info.getStoreItemId() != null));
+    }
+
+    private static void removeFromIndex(Map<String, Set<CanonicalBasket>> index, String id, CanonicalBasket key) {
+        Set<CanonicalBasket> keys = index.get(id);
+        if (keys != null) {
+            keys.remove(key);
+            if (keys.isEmpty()) {
+                index.remove(id);
+            }
+        }
+    }
+}
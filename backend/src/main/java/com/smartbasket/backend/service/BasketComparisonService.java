@@ -10,9 +10,15 @@ import com.smartbasket.backend.repository.StorePriceRepository;
 import com.smartbasket.backend.repository.StoreRepository;
 import com.smartbasket.backend.repository.ReferenceItemRepository;
 import lombok.RequiredArgsConstructor;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Service;
 
 import java.util.*;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+import java.util.function.Consumer;
 import java.util.stream.Collectors;
 
 @Service
@@ -23,86 +29,605 @@ public class BasketComparisonService {
     private final StoreRepository storeRepository;
     private final StoreItemRepository storeItemRepository;
     private final StorePriceRepository storePriceRepository;
+    private final PriceMatrix priceMatrix;
+    private final BasketAggregationEngine basketAggregationEngine;
+    private final BasketComparisonCache basketComparisonCache;
+    private final HistoricalPriceLookup historicalPriceLookup;
+    @Qualifier("basketComparisonExecutor")
+    private final ExecutorService basketComparisonExecutor;
 
     private static final String DEFAULT_CURRENCY = "JOD";
+    private static final String AGGREGATION_ENGINE = "aggregation";
+
+    // matrix (resident price matrix, default) or aggregation (MongoDB pipeline per request)
+    @Value("${basket.comparison.engine:matrix}")
+    private String comparisonEngine;
 
     public BasketComparisonResponse compareBasket(BasketComparisonRequest request) {
+        CanonicalBasket key = CanonicalBasket.of(request);
+
+        // 1. Serve the same basket contents from the cache, whatever order they were sent in
+        Optional<BasketComparisonResponse> cached = cachedResponse(key);
+        if (cached.isPresent()) {
+            return cached.get();
+        }
+
+        // 2. Price the basket at every active store with the configured engine
+        BasketComparisonCache.Versions versions = basketComparisonCache.currentVersions();
+        BasketComparisonResponse response = buildResponse(evaluate(key));
+        basketComparisonCache.put(key, response, versions);
+        return response;
+    }
+
+    /**
+     * Compare several baskets at once. Cached baskets are served directly; the rest share one load of
+     * their reference items and store items (or the price matrix) and are evaluated in parallel.
+     */
+    public BasketBatchComparisonResponse compareBaskets(BasketBatchComparisonRequest request) {
+        long start = System.nanoTime();
+        List<CanonicalBasket> keys = request.getBaskets().stream().map(CanonicalBasket::of).toList();
+        BasketBatchComparisonResponse.BasketResult[] results = new BasketBatchComparisonResponse.BasketResult[keys.size()];
+
+        // 1. Serve cached baskets
+        List<Integer> pending = new ArrayList<>();
+        for (int index = 0; index < keys.size(); index++) {
+            long basketStart = System.nanoTime();
+            Optional<BasketComparisonResponse> cached = cachedResponse(keys.get(index));
+            if (cached.isPresent()) {
+                results[index] = basketResult(index, true, basketStart, cached.get(), null);
+            } else {
+                pending.add(index);
+            }
+        }
+        int cacheHits = keys.size() - pending.size();
+
+        // 2. Shared lookups: the price matrix when it is loaded, otherwise one load for the union of all baskets
+        BasketComparisonCache.Versions versions = basketComparisonCache.currentVersions();
+        long lookupStart = System.nanoTime();
+        BasketLookup lookup = null;
+        if (!pending.isEmpty() && (AGGREGATION_ENGINE.equalsIgnoreCase(comparisonEngine) || !priceMatrix.isLoaded())) {
+            if (!AGGREGATION_ENGINE.equalsIgnoreCase(comparisonEngine)) {
+                priceMatrix.requestLoad();
+            }
+            Set<String> referenceItemIds = new HashSet<>();
+            pending.stream().map(keys::get).filter(key -> key.asOf() == null)
+                    .forEach(key -> referenceItemIds.addAll(key.referenceItemIds()));
+            lookup = loadLookup(referenceItemIds);
+        }
+        long sharedLookupMs = (System.nanoTime() - lookupStart) / 1_000_000;
+
+        // 3. Evaluate the remaining baskets in parallel on the bounded executor
+        BasketLookup sharedLookup = lookup;
+        List<Future<BasketComparisonResponse>> futures = new ArrayList<>();
+        long[] starts = new long[keys.size()];
+        for (int index : pending) {
+            CanonicalBasket key = keys.get(index);
+            starts[index] = System.nanoTime();
+            futures.add(basketComparisonExecutor.submit(() -> {
+                BasketEvaluation evaluation;
+                if (key.asOf() != null) {
+                    // Historical baskets each resolve their own prices
+                    evaluation = evaluate(key);
+                } else if (sharedLookup != null) {
+                    evaluation = evaluateFromLookup(key, sharedLookup);
+                } else {
+                    evaluation = priceMatrix.evaluate(key).orElseGet(() -> evaluateFromRepository(key));
+                }
+                BasketComparisonResponse response = buildResponse(evaluation);
+                basketComparisonCache.put(key, response, versions);
+                return response;
+            }));
+        }
+
+        int failureCount = 0;
+        for (int i = 0; i < pending.size(); i++) {
+            int index = pending.get(i);
+            try {
+                results[index] = basketResult(index, false, starts[index], futures.get(i).get(), null);
+            } catch (ExecutionException e) {
+                failureCount++;
+                results[index] = basketResult(index, false, starts[index], null, e.getCause().getMessage());
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                futures.forEach(future -> future.cancel(true));
+                throw new IllegalStateException("Interrupted while comparing baskets", e);
+            }
+        }
+
+        return BasketBatchComparisonResponse.builder()
+                .totalBaskets(keys.size())
+                .cacheHits(cacheHits)
+                .failureCount(failureCount)
+                .sharedLookupMs(sharedLookupMs)
+                .elapsedMs((System.nanoTime() - start) / 1_000_000)
+                .results(Arrays.asList(results))
+                .build();
+    }
+
+    private BasketBatchComparisonResponse.BasketResult basketResult(int index, boolean cached, long startNanos,
+                                                                    BasketComparisonResponse comparison,
+                                                                    String error) {
+        return BasketBatchComparisonResponse.BasketResult.builder()
+                .index(index)
+                .cached(cached)
+                .elapsedMs((System.nanoTime() - startNanos) / 1_000_000)
+                .comparison(comparison)
+                .error(error)
+                .build();
+    }
+
+    /**
+     * Compare a basket store by store, handing each result to the sink as soon as it is computed, so
+     * neither the client nor the server waits for the full list. Results arrive unranked; the returned
+     * summary carries the cheapest store, totals and savings.
+     */
+    public BasketComparisonSummary streamBasket(BasketComparisonRequest request,
+                                                Consumer<StoreComparisonResult> sink) {
+        CanonicalBasket key = CanonicalBasket.of(request).unpaged();
+        RunningSummary summary = new RunningSummary();
+        Consumer<StoreComparisonResult> tracked = result -> {
+            summary.accept(result);
+            sink.accept(result);
+        };
+
+        // 1. Replay a cached response
+        Optional<BasketComparisonResponse> cached = cachedResponse(key);
+        if (cached.isPresent()) {
+            cached.get().getStoreComparisons().forEach(tracked);
+            return summary.toSummary(cached.get().getBasketItems());
+        }
+
+        // 2. Otherwise evaluate with the configured engine
+        List<BasketItemInfo> basketItems;
+        if (key.asOf() != null) {
+            basketItems = evaluateFromLookup(key, lookupFor(key), tracked);
+        } else if (AGGREGATION_ENGINE.equalsIgnoreCase(comparisonEngine)) {
+            basketItems = evaluateWithAggregation(key, tracked);
+        } else {
+            basketItems = priceMatrix.evaluateEach(key, tracked).orElseGet(() -> {
+                priceMatrix.requestLoad();
+                return evaluateFromLookup(key, loadLookup(key.referenceItemIds()), tracked);
+            });
+        }
+        return summary.toSummary(basketItems);
+    }
+
+    /**
+     * Cheapest store and lowest/highest totals over store results seen one at a time,
+     * with the same rules as {@link StoreRanking}
+     */
+    private static final class RunningSummary {
+        private int storeCount;
+        private StoreComparisonResult cheapest;
+        private double lowestTotal = Double.POSITIVE_INFINITY;
+        private double highestTotal = Double.NEGATIVE_INFINITY;
+
+        void accept(StoreComparisonResult result) {
+            storeCount++;
+            if (!result.isAllItemsAvailable()) {
+                return;
+            }
+            if (result.getTotalPrice() < lowestTotal) {
+                lowestTotal = result.getTotalPrice();
+                cheapest = result;
+            }
+            highestTotal = Math.max(highestTotal, result.getTotalPrice());
+        }
+
+        BasketComparisonSummary toSummary(List<BasketItemInfo> basketItems) {
+            double lowest = cheapest != null ? lowestTotal : 0.0;
+            double highest = cheapest != null ? highestTotal : 0.0;
+            return BasketComparisonSummary.builder()
+                    .basketItems(basketItems)
+                    .storeCount(storeCount)
+                    .cheapestStoreId(cheapest != null ? cheapest.getStoreId() : null)
+                    .cheapestStoreName(cheapest != null ? cheapest.getStoreName() : null)
+                    .lowestTotal(lowest)
+                    .highestTotal(highest)
+                    .potentialSavings(highest - lowest)
+                    .build();
+        }
+    }
+
+    /**
+     * Cached response for the basket, reconciled with the active stores if stores were toggled since
+     */
+    private Optional<BasketComparisonResponse> cachedResponse(CanonicalBasket key) {
+        Optional<BasketComparisonCache.Entry> cached = basketComparisonCache.get(key);
+        if (cached.isEmpty()) {
+            return Optional.empty();
+        }
+        BasketComparisonCache.Entry entry = cached.get();
+        if (entry.rosterVersion() == basketComparisonCache.currentRosterVersion()) {
+            return Optional.of(entry.response());
+        }
+        if (key.isPaged()) {
+            // Any store toggle can move stores in or out of a page, so recompute it
+            return Optional.empty();
+        }
+        // Stores were toggled since this entry was cached, without carrying any of its items
+        BasketComparisonCache.Versions versions = basketComparisonCache.currentVersions();
+        BasketComparisonResponse reconciled = reconcileWithActiveStores(entry.response());
+        if (reconciled == null) {
+            return Optional.empty();
+        }
+        basketComparisonCache.put(key, reconciled, versions);
+        return Optional.of(reconciled);
+    }
+
+    private BasketComparisonResponse buildResponse(BasketEvaluation evaluation) {
+        return BasketComparisonResponse.builder()
+                .basketItems(evaluation.basketItems())
+                .storeComparisons(evaluation.storeResults())
+                .totalStores(evaluation.totalStores())
+                .cheapestStoreId(evaluation.cheapestStoreId())
+                .cheapestStoreName(evaluation.cheapestStoreName())
+                .lowestTotal(evaluation.lowestTotal())
+                .highestTotal(evaluation.highestTotal())
+                .potentialSavings(evaluation.highestTotal() - evaluation.lowestTotal())
+                .build();
+    }
+
+    /**
+     * Rank complete store results, for responses assembled outside the evaluation paths
+     */
+    private BasketEvaluation rank(List<BasketItemInfo> basketItems, List<StoreComparisonResult> results) {
+        StoreRanking<StoreComparisonResult> ranking = new StoreRanking<>(0, null);
+        for (StoreComparisonResult result : results) {
+            ranking.offer(result.getStoreId(), result.getStoreName(), result, result.getTotalPrice(),
+                    result.getAvailableItemCount(), result.isAllItemsAvailable());
+        }
+        return ranking.toEvaluation(basketItems, StoreRanking.Ranked::store);
+    }
+
+    /**
+     * Drop rows for stores that are no longer active, or null when an active store has no row. Such a
+     * store was activated after the entry was cached and may carry basket items without having evicted it
+     * (an inactive store is not indexed by the entry), so the basket has to be recomputed.
+     */
+    private BasketComparisonResponse reconcileWithActiveStores(BasketComparisonResponse cached) {
+        Map<String, Store> activeStores = new LinkedHashMap<>();
+        priceMatrix.activeStores()
+                .orElseGet(storeRepository::findByActiveTrue)
+                .forEach(store -> activeStores.put(store.getId(), store));
+
+        List<StoreComparisonResult> storeResults = new ArrayList<>();
+        for (StoreComparisonResult row : cached.getStoreComparisons()) {
+            Store store = activeStores.remove(row.getStoreId());
+            if (store != null) {
+                storeResults.add(StoreComparisonResult.builder()
+                        .storeId(row.getStoreId())
+                        .storeName(store.getName())
+                        .storeLogoUrl(store.getLogoUrl())
+                        .totalPrice(row.getTotalPrice())
+                        .currency(row.getCurrency())
+                        .allItemsAvailable(row.isAllItemsAvailable())
+                        .itemPrices(row.getItemPrices())
+                        .missingItems(row.getMissingItems())
+                        .availableItemCount(row.getAvailableItemCount())
+                        .totalItemCount(row.getTotalItemCount())
+                        .build());
+            }
+        }
+        if (!activeStores.isEmpty()) {
+            return null;
+        }
+
+        return buildResponse(rank(cached.getBasketItems(), storeResults));
+    }
+
+    private BasketEvaluation evaluate(CanonicalBasket basket) {
+        if (basket.asOf() != null) {
+            return evaluateFromLookup(basket, lookupFor(basket));
+        }
+        if (AGGREGATION_ENGINE.equalsIgnoreCase(comparisonEngine)) {
+            return evaluateWithAggregation(basket);
+        }
+        return priceMatrix.evaluate(basket)
+                .orElseGet(() -> {
+                    priceMatrix.requestLoad();
+                    return evaluateFromRepository(basket);
+                });
+    }
+
+    /**
+     * Price the basket inside MongoDB and only fetch store item documents when item detail is requested
+     */
+    private BasketEvaluation evaluateWithAggregation(CanonicalBasket basket) {
         // 1. Get all ACTIVE reference items in the basket
-        List<ReferenceItem> basketReferenceItems = referenceItemRepository
-                .findAllById(request.getReferenceItemIds())
+        List<ReferenceItem> basketReferenceItems = findActiveReferenceItems(basket.referenceItemIds());
+        List<String> basketIds = basketReferenceItems.stream().map(ReferenceItem::getId).toList();
+        List<Integer> quantities = basketIds.stream().map(basket::quantityOf).toList();
+        List<List<String>> preferredBrands = basketIds.stream().map(basket::preferredBrandsOf).toList();
+
+        // 2. Rank the per-store summaries computed server-side
+        StoreRanking<BasketAggregationEngine.StoreBasketSummary> ranking = StoreRanking.forBasket(basket);
+        if (!basketIds.isEmpty()) {
+            basketAggregationEngine.summarizeEach(basketIds, quantities, preferredBrands, summary ->
+                    ranking.offer(summary.storeId(), summary.storeName(), summary, summary.total(),
+                            summary.availableCount(), summary.availableCount() == basketIds.size()));
+        }
+
+        // 3. Item detail is fetched lazily, with a single $in query, and only built for the returned page
+        Map<String, Map<String, List<StoreItem>>> storeItemTable = basket.includeItemDetail()
+                ? loadStoreItemTable(basketReferenceItems)
+                : Map.of();
+
+        return ranking.toEvaluation(toBasketItemInfos(basketReferenceItems, basket), ranked ->
+                toStoreResult(ranked.store(), basketReferenceItems, basket, storeItemTable));
+    }
+
+    private List<BasketItemInfo> evaluateWithAggregation(CanonicalBasket basket,
+                                                         Consumer<StoreComparisonResult> sink) {
+        boolean includeItemDetail = basket.includeItemDetail();
+
+        // 1. Get all ACTIVE reference items in the basket
+        List<ReferenceItem> basketReferenceItems = findActiveReferenceItems(basket.referenceItemIds());
+        List<String> basketIds = basketReferenceItems.stream().map(ReferenceItem::getId).toList();
+        List<Integer> quantities = basketIds.stream().map(basket::quantityOf).toList();
+        List<List<String>> preferredBrands = basketIds.stream().map(basket::preferredBrandsOf).toList();
+
+        // 2. Item detail is fetched lazily, with a single $in query
+        Map<String, Map<String, List<StoreItem>>> storeItemTable = includeItemDetail
+                ? loadStoreItemTable(basketReferenceItems)
+                : Map.of();
+
+        // 3. One summary per active store, computed server-side and read through a cursor
+        if (!basketIds.isEmpty()) {
+            basketAggregationEngine.summarizeEach(basketIds, quantities, preferredBrands, summary ->
+                    sink.accept(toStoreResult(summary, basketReferenceItems, basket, storeItemTable)));
+        }
+
+        return toBasketItemInfos(basketReferenceItems, basket);
+    }
+
+    private StoreComparisonResult toStoreResult(BasketAggregationEngine.StoreBasketSummary summary,
+                                                List<ReferenceItem> basketReferenceItems, CanonicalBasket basket,
+                                                Map<String, Map<String, List<StoreItem>>> storeItemTable) {
+        List<String> missingItems = basketReferenceItems.stream()
+                .filter(item -> !summary.pricedItemIds().contains(item.getId()))
+                .map(ReferenceItem::getName)
+                .collect(Collectors.toList());
+
+        List<StoreItemPriceInfo> itemPrices = List.of();
+        if (basket.includeItemDetail()) {
+            Store store = Store.builder()
+                    .id(summary.storeId())
+                    .name(summary.storeName())
+                    .logoUrl(summary.storeLogoUrl())
+                    .build();
+            itemPrices = calculateStoreTotal(store, basketReferenceItems, basket,
+                    storeItemTable.getOrDefault(summary.storeId(), Map.of())).getItemPrices();
+        }
+
+        return StoreComparisonResult.builder()
+                .storeId(summary.storeId())
+                .storeName(summary.storeName())
+                .storeLogoUrl(summary.storeLogoUrl())
+                .totalPrice(summary.total())
+                .currency(DEFAULT_CURRENCY)
+                .allItemsAvailable(missingItems.isEmpty())
+                .itemPrices(itemPrices)
+                .missingItems(missingItems)
+                .availableItemCount(summary.availableCount())
+                .totalItemCount(basketReferenceItems.size())
+                .build();
+    }
+
+    /**
+     * Price the basket straight from MongoDB, used until the price matrix has been loaded
+     */
+    private BasketEvaluation evaluateFromRepository(CanonicalBasket basket) {
+        return evaluateFromLookup(basket, loadLookup(basket.referenceItemIds()));
+    }
+
+    /**
+     * Reference items, active stores and store items for a set of reference item ids, loaded with one query each
+     */
+    private record BasketLookup(Map<String, ReferenceItem> referenceItems, List<Store> activeStores,
+                                Map<String, Map<String, List<StoreItem>>> storeItemTable) {
+    }
+
+    /**
+     * Lookup for one basket, with the store items repriced from the price history if the basket has an asOf.
+     * Stores and reference items are taken as they are now.
+     */
+    private BasketLookup lookupFor(CanonicalBasket basket) {
+        BasketLookup lookup = loadLookup(basket.referenceItemIds());
+        if (basket.asOf() == null) {
+            return lookup;
+        }
+
+        List<StoreItem> storeItems = new ArrayList<>();
+        lookup.storeItemTable().values().forEach(byItem -> byItem.values().forEach(storeItems::addAll));
+
+        Map<String, Map<String, List<StoreItem>>> table = new HashMap<>();
+        for (StoreItem storeItem : historicalPriceLookup.pricedAsOf(storeItems, basket.asOf())) {
+            table.computeIfAbsent(storeItem.getStoreId(), k -> new HashMap<>())
+                    .computeIfAbsent(storeItem.getReferenceItemId(), k -> new ArrayList<>())
+                    .add(storeItem);
+        }
+        return new BasketLookup(lookup.referenceItems(), lookup.activeStores(), table);
+    }
+
+    private BasketLookup loadLookup(Collection<String> referenceItemIds) {
+        // 1. Get all ACTIVE reference items
+        List<ReferenceItem> activeReferenceItems = findActiveReferenceItems(referenceItemIds);
+        Map<String, ReferenceItem> referenceItems = new HashMap<>();
+        activeReferenceItems.forEach(item -> referenceItems.put(item.getId(), item));
+
+        // 2. Get all active stores
+        List<Store> activeStores = storeRepository.findByActiveTrue();
+
+        // 3. Load every store item in one query and index it by store -> reference item
+        return new BasketLookup(referenceItems, activeStores, loadStoreItemTable(activeReferenceItems));
+    }
+
+    private BasketEvaluation evaluateFromLookup(CanonicalBasket basket, BasketLookup lookup) {
+        List<ReferenceItem> basketReferenceItems = basket.referenceItemIds().stream()
+                .map(lookup.referenceItems()::get)
+                .filter(Objects::nonNull)
+                .toList();
+
+        // 1. Rank every store on its total alone
+        StoreRanking<Store> ranking = StoreRanking.forBasket(basket);
+        for (Store store : lookup.activeStores()) {
+            Map<String, List<StoreItem>> itemsAtStore = lookup.storeItemTable().getOrDefault(store.getId(), Map.of());
+            double total = 0.0;
+            int availableCount = 0;
+            for (ReferenceItem refItem : basketReferenceItems) {
+                Double price = currentPrice(itemsAtStore.getOrDefault(refItem.getId(), List.of()),
+                        basket.preferredBrandsOf(refItem.getId()));
+                if (price != null) {
+                    total += price * basket.quantityOf(refItem.getId());
+                    availableCount++;
+                }
+            }
+            ranking.offer(store.getId(), store.getName(), store, total, availableCount,
+                    availableCount == basketReferenceItems.size());
+        }
+
+        // 2. Build the full results for the returned page only
+        return ranking.toEvaluation(toBasketItemInfos(basketReferenceItems, basket), ranked -> {
+            Map<String, List<StoreItem>> itemsAtStore =
+                    lookup.storeItemTable().getOrDefault(ranked.storeId(), Map.of());
+            StoreComparisonResult result = calculateStoreTotal(ranked.store(), basketReferenceItems, basket, itemsAtStore);
+            if (!basket.includeItemDetail()) {
+                result.setItemPrices(List.of());
+            }
+            return result;
+        });
+    }
+
+    /**
+     * Price of the variant used for a reference item at a store, or null if none is priced
+     */
+    private static Double currentPrice(List<StoreItem> variants, List<String> preferredBrands) {
+        StoreItem variant = selectVariant(variants, preferredBrands);
+        return variant != null ? variant.getCurrentPrice() : null;
+    }
+
+    /**
+     * Cheapest priced variant of a preferred brand if there is one, otherwise the cheapest priced
+     * variant of any brand; null if no variant is priced. Same rule as the price matrix.
+     */
+    private static StoreItem selectVariant(List<StoreItem> variants, List<String> preferredBrands) {
+        StoreItem cheapest = null;
+        StoreItem cheapestPreferred = null;
+        for (StoreItem variant : variants) {
+            Double price = variant.getCurrentPrice();
+            if (price == null || price <= 0) {
+                continue;
+            }
+            if (cheapest == null || price < cheapest.getCurrentPrice()) {
+                cheapest = variant;
+            }
+            if (!preferredBrands.isEmpty()
+                    && preferredBrands.contains(CanonicalBasket.normalizeBrand(variant.getBrand()))
+                    && (cheapestPreferred == null || price < cheapestPreferred.getCurrentPrice())) {
+                cheapestPreferred = variant;
+            }
+        }
+        return cheapestPreferred != null ? cheapestPreferred : cheapest;
+    }
+
+    private List<BasketItemInfo> evaluateFromLookup(CanonicalBasket basket, BasketLookup lookup,
+                                                    Consumer<StoreComparisonResult> sink) {
+        List<ReferenceItem> basketReferenceItems = basket.referenceItemIds().stream()
+                .map(lookup.referenceItems()::get)
+                .filter(Objects::nonNull)
+                .toList();
+
+        // For each store, calculate the basket total
+        for (Store store : lookup.activeStores()) {
+            Map<String, List<StoreItem>> itemsAtStore = lookup.storeItemTable().getOrDefault(store.getId(), Map.of());
+            StoreComparisonResult result = calculateStoreTotal(store, basketReferenceItems, basket, itemsAtStore);
+            if (!basket.includeItemDetail()) {
+                result.setItemPrices(List.of());
+            }
+            sink.accept(result);
+        }
+
+        return toBasketItemInfos(basketReferenceItems, basket);
+    }
+
+    private List<ReferenceItem> findActiveReferenceItems(Collection<String> referenceItemIds) {
+        return referenceItemRepository
+                .findAllById(referenceItemIds)
                 .stream()
                 .filter(ReferenceItem::isActive) // Exclude inactive items
                 .toList();
+    }
 
-        // Build basket item info list
-        List<BasketItemInfo> basketItemInfos = basketReferenceItems.stream()
+    private List<BasketItemInfo> toBasketItemInfos(List<ReferenceItem> basketReferenceItems, CanonicalBasket basket) {
+        return basketReferenceItems.stream()
                 .map(item -> BasketItemInfo.builder()
                         .referenceItemId(item.getId())
                         .name(item.getName())
                         .category(item.getCategory())
+                        .quantity(basket.quantityOf(item.getId()))
                         .build())
                 .collect(Collectors.toList());
+    }
 
-        // 2. Get all active stores
-        List<Store> activeStores = storeRepository.findByActiveTrue();
-
-        // 3. For each store, calculate the basket total
-        List<StoreComparisonResult> storeResults = new ArrayList<>();
-
-        for (Store store : activeStores) {
-            StoreComparisonResult result = calculateStoreTotal(store, basketReferenceItems);
-            storeResults.add(result);
-        }
+    /**
+     * Offers for the basket at every active store, from the price matrix when it is loaded
+     */
+    public PriceMatrix.PriceTable priceTable(CanonicalBasket basket) {
+        return priceMatrix.priceTable(basket).orElseGet(() -> {
+            List<ReferenceItem> basketReferenceItems = findActiveReferenceItems(basket.referenceItemIds());
+            List<Store> activeStores = storeRepository.findByActiveTrue();
+            Map<String, Map<String, List<StoreItem>>> storeItemTable = loadStoreItemTable(basketReferenceItems);
 
-        // 4. Sort by total price (cheapest first), putting stores with missing items last
-        storeResults.sort((a, b) -> {
-            // Stores with all items available come first
-            if (a.isAllItemsAvailable() && !b.isAllItemsAvailable()) return -1;
-            if (!a.isAllItemsAvailable() && b.isAllItemsAvailable()) return 1;
-            // Then sort by price
-            return Double.compare(a.getTotalPrice(), b.getTotalPrice());
+            PriceMatrix.Variant[][] offers = new PriceMatrix.Variant[activeStores.size()][basketReferenceItems.size()];
+            for (int store = 0; store < activeStores.size(); store++) {
+                Map<String, List<StoreItem>> itemsAtStore =
+                        storeItemTable.getOrDefault(activeStores.get(store).getId(), Map.of());
+                for (int item = 0; item < basketReferenceItems.size(); item++) {
+                    String referenceItemId = basketReferenceItems.get(item).getId();
+                    StoreItem variant = selectVariant(itemsAtStore.getOrDefault(referenceItemId, List.of()),
+                            basket.preferredBrandsOf(referenceItemId));
+                    offers[store][item] = variant != null ? PriceMatrix.Variant.of(variant) : null;
+                }
+            }
+            return new PriceMatrix.PriceTable(toBasketItemInfos(basketReferenceItems, basket), activeStores, offers);
         });
+    }
 
-        // 5. Calculate savings and find cheapest
-        Double lowestTotal = storeResults.stream()
-                .filter(StoreComparisonResult::isAllItemsAvailable)
-                .mapToDouble(StoreComparisonResult::getTotalPrice)
-                .min()
-                .orElse(0.0);
-
-        Double highestTotal = storeResults.stream()
-                .filter(StoreComparisonResult::isAllItemsAvailable)
-                .mapToDouble(StoreComparisonResult::getTotalPrice)
-                .max()
-                .orElse(0.0);
+    /**
+     * Fetch all store items for the basket with a single $in query and group them
+     * into a storeId -> referenceItemId -> variants table
+     */
+    private Map<String, Map<String, List<StoreItem>>> loadStoreItemTable(List<ReferenceItem> basketItems) {
+        if (basketItems.isEmpty()) {
+            return Map.of();
+        }
 
-        StoreComparisonResult cheapest = storeResults.stream()
-                .filter(StoreComparisonResult::isAllItemsAvailable)
-                .min(Comparator.comparingDouble(StoreComparisonResult::getTotalPrice))
-                .orElse(null);
+        List<String> referenceItemIds = basketItems.stream().map(ReferenceItem::getId).toList();
 
-        return BasketComparisonResponse.builder()
-                .basketItems(basketItemInfos)
-                .storeComparisons(storeResults)
-                .cheapestStoreId(cheapest != null ? cheapest.getStoreId() : null)
-                .cheapestStoreName(cheapest != null ? cheapest.getStoreName() : null)
-                .lowestTotal(lowestTotal)
-                .highestTotal(highestTotal)
-                .potentialSavings(highestTotal - lowestTotal)
-                .build();
+        Map<String, Map<String, List<StoreItem>>> table = new HashMap<>();
+        for (StoreItem storeItem : storeItemRepository.findByReferenceItemIdIn(referenceItemIds)) {
+            table.computeIfAbsent(storeItem.getStoreId(), k -> new HashMap<>())
+                    .computeIfAbsent(storeItem.getReferenceItemId(), k -> new ArrayList<>())
+                    .add(storeItem);
+        }
+        return table;
     }
 
-    private StoreComparisonResult calculateStoreTotal(Store store, List<ReferenceItem> basketItems) {
+    private StoreComparisonResult calculateStoreTotal(Store store, List<ReferenceItem> basketItems,
+                                                      CanonicalBasket basket,
+                                                      Map<String, List<StoreItem>> itemsAtStore) {
         List<StoreItemPriceInfo> itemPrices = new ArrayList<>();
         List<String> missingItems = new ArrayList<>();
         double totalPrice = 0.0;
 
         for (ReferenceItem refItem : basketItems) {
-            // Find the store item for this reference item at this store
-            List<StoreItem> storeItems = storeItemRepository.findByReferenceItemId(refItem.getId())
-                    .stream()
-                    .filter(si -> si.getStoreId().equals(store.getId()))
-                    .toList();
+            // Find the store items (variants) for this reference item at this store
+            List<StoreItem> storeItems = itemsAtStore.getOrDefault(refItem.getId(), List.of());
+            int quantity = basket.quantityOf(refItem.getId());
+
+            // Cheapest priced variant, honouring brand preferences
+            StoreItem storeItem = selectVariant(storeItems, basket.preferredBrandsOf(refItem.getId()));
 
             if (storeItems.isEmpty()) {
                 // Item not available at this store
@@ -112,40 +637,43 @@ public class BasketComparisonService {
                         .referenceItemName(refItem.getName())
                         .available(false)
                         .price(0.0)
+                        .quantity(quantity)
+                        .lineTotal(0.0)
                         .currency(DEFAULT_CURRENCY)
                         .build());
-            } else {
+            } else if (storeItem != null) {
                 // Use cached price from StoreItem (no need to query StorePrice table)
-                StoreItem storeItem = storeItems.get(0);
-                
-                if (storeItem.getCurrentPrice() != null && storeItem.getCurrentPrice() > 0) {
-                    totalPrice += storeItem.getCurrentPrice();
-
-                    itemPrices.add(StoreItemPriceInfo.builder()
-                            .referenceItemId(refItem.getId())
-                            .referenceItemName(refItem.getName())
-                            .storeItemId(storeItem.getId())
-                            .storeItemName(storeItem.getName())
-                            .brand(storeItem.getBrand())
-                            .price(storeItem.getCurrentPrice())
-                            .currency(storeItem.getCurrency() != null ? storeItem.getCurrency() : DEFAULT_CURRENCY)
-                            .isPromotion(storeItem.getIsPromotion() != null && storeItem.getIsPromotion())
-                            .available(true)
-                            .build());
-                } else {
-                    // No price data available
-                    missingItems.add(refItem.getName());
-                    itemPrices.add(StoreItemPriceInfo.builder()
-                            .referenceItemId(refItem.getId())
-                            .referenceItemName(refItem.getName())
-                            .storeItemId(storeItem.getId())
-                            .storeItemName(storeItem.getName())
-                            .brand(storeItem.getBrand())
-                            .available(false)
-                            .price(0.0)
-                            .currency(DEFAULT_CURRENCY)
-                            .build());
-                }
+                totalPrice += storeItem.getCurrentPrice() * quantity;
+
+                itemPrices.add(StoreItemPriceInfo.builder()
+                        .referenceItemId(refItem.getId())
+                        .referenceItemName(refItem.getName())
+                        .storeItemId(storeItem.getId())
+                        .storeItemName(storeItem.getName())
+                        .brand(storeItem.getBrand())
+                        .price(storeItem.getCurrentPrice())
+                        .quantity(quantity)
+                        .lineTotal(storeItem.getCurrentPrice() * quantity)
+                        .currency(storeItem.getCurrency() != null ? storeItem.getCurrency() : DEFAULT_CURRENCY)
+                        .isPromotion(storeItem.getIsPromotion() != null && storeItem.getIsPromotion())
+                        .available(true)
+                        .build());
+            } else {
+                // No price data available
+                StoreItem unpriced = storeItems.get(0);
+                missingItems.add(refItem.getName());
+                itemPrices.add(StoreItemPriceInfo.builder()
+                        .referenceItemId(refItem.getId())
+                        .referenceItemName(refItem.getName())
+                        .storeItemId(unpriced.getId())
+                        .storeItemName(unpriced.getName())
+                        .brand(unpriced.getBrand())
+                        .available(false)
+                        .price(0.0)
+                        .quantity(quantity)
+                        .lineTotal(0.0)
+                        .currency(DEFAULT_CURRENCY)
+                        .build());
             }
         }
 
@@ -0,0 +1,18 @@
+package com.smartbasket.backend.service;
+
+import com.smartbasket.backend.dto.BasketItemInfo;
+import com.smartbasket.backend.dto.StoreComparisonResult;
+
+import java.util.List;
+
+/**
+ * Ranked page of per-store results for a basket, with the cheapest store and totals over every
+ * active store, produced by one of the comparison paths
+ *
+ * @param storeResults results for the requested page, in rank order
+ * @param totalStores  number of active stores ranked
+ */
+public record BasketEvaluation(List<BasketItemInfo> basketItems, List<StoreComparisonResult> storeResults,
+                               int totalStores, String cheapestStoreId, String cheapestStoreName,
+                               double lowestTotal, double highestTotal) {
+}
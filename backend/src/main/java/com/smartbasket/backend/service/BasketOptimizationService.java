@@ -0,0 +1,101 @@
+package com.smartbasket.backend.service;
+
+import com.smartbasket.backend.dto.BasketItemInfo;
+import com.smartbasket.backend.dto.BasketOptimizationRequest;
+import com.smartbasket.backend.dto.BasketOptimizationResponse;
+import com.smartbasket.backend.dto.StoreItemPriceInfo;
+import com.smartbasket.backend.model.Store;
+import lombok.RequiredArgsConstructor;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import java.util.ArrayList;
+import java.util.List;
+
+@Service
+@RequiredArgsConstructor
+public class BasketOptimizationService {
+
+    private final BasketComparisonService basketComparisonService;
+
+    private static final String DEFAULT_CURRENCY = "JOD";
+    private static final int DEFAULT_MAX_STORES = 2;
+
+    @Value("${basket.optimize.default-timeout-ms:200}")
+    private long defaultTimeoutMs;
+
+    @Value("${basket.optimize.max-timeout-ms:2000}")
+    private long maxTimeoutMs;
+
+    /**
+     * Find the cheapest way to buy the basket across at most maxStores stores
+     */
+    public BasketOptimizationResponse optimize(BasketOptimizationRequest request) {
+        long start = System.nanoTime();
+        long timeoutMs = Math.min(request.getTimeoutMs() != null ? request.getTimeoutMs() : defaultTimeoutMs, maxTimeoutMs);
+        int maxStores = request.getMaxStores() != null ? request.getMaxStores() : DEFAULT_MAX_STORES;
+        double visitCost = request.getStoreVisitCost() != null ? request.getStoreVisitCost() : 0.0;
+
+        // 1. Offers for the basket at every active store
+        CanonicalBasket basket = CanonicalBasket.of(request.getReferenceItemIds(), request.getQuantities(), true);
+        PriceMatrix.PriceTable table = basketComparisonService.priceTable(basket);
+        List<BasketItemInfo> items = table.items();
+        List<Store> stores = table.stores();
+        PriceMatrix.Variant[][] offers = table.offers();
+
+        // 2. Line costs per store and item, +Infinity where the store does not sell the item
+        double[][] costs = new double[stores.size()][items.size()];
+        for (int store = 0; store < stores.size(); store++) {
+            for (int item = 0; item < items.size(); item++) {
+                PriceMatrix.Variant offer = offers[store][item];
+                costs[store][item] = offer != null ? offer.price() * items.get(item).getQuantity() : Double.POSITIVE_INFINITY;
+            }
+        }
+
+        // 3. Search within the deadline
+        long deadline = start + timeoutMs * 1_000_000;
+        BasketSplitOptimizer.Plan plan = BasketSplitOptimizer.solve(costs, items.size(), maxStores, visitCost, deadline);
+
+        // 4. Build the per-store shopping lists
+        List<BasketOptimizationResponse.StorePlan> storePlans = new ArrayList<>();
+        for (int store : plan.stores()) {
+            List<StoreItemPriceInfo> storeItems = new ArrayList<>();
+            double subtotal = 0.0;
+            for (int item = 0; item < items.size(); item++) {
+                if (plan.assignment()[item] == store) {
+                    BasketItemInfo info = items.get(item);
+                    storeItems.add(offers[store][item].toPriceInfo(info.getReferenceItemId(), info.getName(), info.getQuantity()));
+                    subtotal += costs[store][item];
+                }
+            }
+            Store storeInfo = stores.get(store);
+            storePlans.add(BasketOptimizationResponse.StorePlan.builder()
+                    .storeId(storeInfo.getId())
+                    .storeName(storeInfo.getName())
+                    .storeLogoUrl(storeInfo.getLogoUrl())
+                    .items(storeItems)
+                    .subtotal(subtotal)
+                    .build());
+        }
+
+        List<String> unavailableItems = new ArrayList<>();
+        for (int item = 0; item < items.size(); item++) {
+            if (plan.assignment()[item] < 0) {
+                unavailableItems.add(items.get(item).getName());
+            }
+        }
+
+        return BasketOptimizationResponse.builder()
+                .basketItems(items)
+                .stores(storePlans)
+                .itemsTotal(plan.itemsTotal())
+                .visitCost(plan.total() - plan.itemsTotal())
+                .grandTotal(plan.total())
+                .currency(DEFAULT_CURRENCY)
+                .unavailableItems(unavailableItems)
+                .optimal(plan.optimal())
+                .nodesExplored(plan.nodesExplored())
+                .elapsedMs((System.nanoTime() - start) / 1_000_000)
+                .build();
+    }
+}
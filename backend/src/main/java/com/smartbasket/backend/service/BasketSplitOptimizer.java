@@ -0,0 +1,285 @@
+package com.smartbasket.backend.service;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.List;
+
+/**
+ * Finds the cheapest way to buy a basket split across at most K stores, with an optional cost per store visited.
+ *
+ * Bounded branch-and-bound over include/exclude decisions per store. Stores are ordered so promising ones are
+ * tried first, a greedy plan seeds the incumbent, and a node is pruned when the visit cost so far plus the best
+ * price still reachable for every item cannot beat the incumbent. The search stops at the deadline and returns
+ * the best plan found so far.
+ */
+public final class BasketSplitOptimizer {
+
+    private static final int DEADLINE_CHECK_INTERVAL = 1024;
+    private static final double EPSILON = 1e-9;
+
+    /**
+     * @param stores         indexes of the stores in the plan
+     * @param assignment     store index each item is bought from, or -1 if it is not bought
+     * @param itemsTotal     sum of the line costs of the bought items
+     * @param total          itemsTotal plus the visit cost of every store in the plan
+     * @param uncoveredItems items available somewhere but not at any store in the plan
+     * @param optimal        false if the deadline was reached before the search completed
+     */
+    public record Plan(int[] stores, int[] assignment, double itemsTotal, double total,
+                       int uncoveredItems, boolean optimal, long nodesExplored) {
+    }
+
+    private final double[][] costs;
+    private final int itemCount;
+    private final int maxStores;
+    private final double visitCost;
+    private final long deadlineNanos;
+
+    // Items that no store offers are left out of the objective
+    private final boolean[] purchasable;
+    // Charged per purchasable item left uncovered, larger than any complete plan, so coverage comes first
+    private final double uncoveredPenalty;
+
+    private int[] order;
+    private double[][] suffixMin;
+    private double[][] bestPerItem;
+    private int[] selected;
+
+    private double bestValue = Double.POSITIVE_INFINITY;
+    private int[] bestStores = new int[0];
+    private long nodes;
+    private boolean timedOut;
+
+    private BasketSplitOptimizer(double[][] costs, int itemCount, int maxStores, double visitCost, long deadlineNanos) {
+        this.costs = costs;
+        this.itemCount = itemCount;
+        // A plan never has more stores than there are, and K sizes the search arrays
+        this.maxStores = Math.max(1, Math.min(maxStores, costs.length));
+        this.visitCost = Math.max(0.0, visitCost);
+        this.deadlineNanos = deadlineNanos;
+
+        this.purchasable = new boolean[itemCount];
+        double maxTotal = 0.0;
+        for (int item = 0; item < itemCount; item++) {
+            double max = 0.0;
+            for (double[] storeCosts : costs) {
+                if (storeCosts[item] != Double.POSITIVE_INFINITY) {
+                    purchasable[item] = true;
+                    max = Math.max(max, storeCosts[item]);
+                }
+            }
+            maxTotal += max;
+        }
+        this.uncoveredPenalty = maxTotal + this.visitCost * (this.maxStores + 1) + 1.0;
+    }
+
+    /**
+     * @param costs         {@code costs[store][item]} line cost (unit price x quantity), or +Infinity if unavailable
+     * @param itemCount     number of items in the basket
+     * @param maxStores     maximum number of stores in the plan (K)
+     * @param visitCost     cost added for every store in the plan
+     * @param deadlineNanos {@link System#nanoTime()} value at which to stop searching
+     */
+    public static Plan solve(double[][] costs, int itemCount, int maxStores, double visitCost, long deadlineNanos) {
+        return new BasketSplitOptimizer(costs, itemCount, maxStores, visitCost, deadlineNanos).search();
+    }
+
+    private Plan search() {
+        order = orderCandidateStores();
+        suffixMin = new double[order.length + 1][itemCount];
+        Arrays.fill(suffixMin[order.length], Double.POSITIVE_INFINITY);
+        for (int pos = order.length - 1; pos >= 0; pos--) {
+            double[] storeCosts = costs[order[pos]];
+            for (int item = 0; item < itemCount; item++) {
+                suffixMin[pos][item] = Math.min(suffixMin[pos + 1][item], storeCosts[item]);
+            }
+        }
+
+        bestPerItem = new double[maxStores + 1][itemCount];
+        Arrays.fill(bestPerItem[0], Double.POSITIVE_INFINITY);
+        selected = new int[maxStores];
+
+        seedWithGreedyPlan();
+        if (order.length > 0) {
+            branch(0, 0);
+        }
+        return toPlan();
+    }
+
+    /**
+     * Stores that offer at least one item, most items-at-lowest-price first, then widest coverage
+     */
+    private int[] orderCandidateStores() {
+        double[] globalMin = new double[itemCount];
+        Arrays.fill(globalMin, Double.POSITIVE_INFINITY);
+        for (double[] storeCosts : costs) {
+            for (int item = 0; item < itemCount; item++) {
+                globalMin[item] = Math.min(globalMin[item], storeCosts[item]);
+            }
+        }
+
+        List<int[]> candidates = new ArrayList<>();
+        for (int store = 0; store < costs.length; store++) {
+            int cheapest = 0;
+            int covered = 0;
+            for (int item = 0; item < itemCount; item++) {
+                double cost = costs[store][item];
+                if (cost != Double.POSITIVE_INFINITY) {
+                    covered++;
+                    if (cost <= globalMin[item]) {
+                        cheapest++;
+                    }
+                }
+            }
+            if (covered > 0) {
+                candidates.add(new int[] {store, cheapest, covered});
+            }
+        }
+        candidates.sort(Comparator.<int[]>comparingInt(c -> -c[1]).thenComparingInt(c -> -c[2]));
+        return candidates.stream().mapToInt(c -> c[0]).toArray();
+    }
+
+    private void seedWithGreedyPlan() {
+        List<Integer> plan = new ArrayList<>();
+        double[] current = bestPerItem[0].clone();
+        double currentValue = Double.POSITIVE_INFINITY;
+
+        while (plan.size() < maxStores) {
+            int bestStore = -1;
+            double bestCandidate = currentValue;
+            for (int store : order) {
+                if (plan.contains(store)) {
+                    continue;
+                }
+                double value = value(merge(current, costs[store]), plan.size() + 1);
+                if (value < bestCandidate - EPSILON) {
+                    bestCandidate = value;
+                    bestStore = store;
+                }
+            }
+            if (bestStore < 0) {
+                break;
+            }
+            plan.add(bestStore);
+            current = merge(current, costs[bestStore]);
+            currentValue = bestCandidate;
+        }
+
+        if (!plan.isEmpty()) {
+            bestValue = currentValue;
+            bestStores = plan.stream().mapToInt(Integer::intValue).toArray();
+        }
+    }
+
+    private void branch(int pos, int selectedCount) {
+        if (timedOut || (++nodes % DEADLINE_CHECK_INTERVAL == 0 && System.nanoTime() > deadlineNanos)) {
+            timedOut = true;
+            return;
+        }
+
+        double[] current = bestPerItem[selectedCount];
+        if (selectedCount > 0) {
+            double value = value(current, selectedCount);
+            if (value < bestValue - EPSILON) {
+                bestValue = value;
+                bestStores = Arrays.copyOf(selected, selectedCount);
+            }
+        }
+        if (pos == order.length || selectedCount == maxStores) {
+            return;
+        }
+        if (lowerBound(current, pos, selectedCount) >= bestValue - EPSILON) {
+            return;
+        }
+
+        // Include the store, unless it does not improve any item
+        int store = order[pos];
+        double[] storeCosts = costs[store];
+        double[] next = bestPerItem[selectedCount + 1];
+        boolean improves = false;
+        for (int item = 0; item < itemCount; item++) {
+            double cost = storeCosts[item];
+            if (cost < current[item]) {
+                next[item] = cost;
+                improves = true;
+            } else {
+                next[item] = current[item];
+            }
+        }
+        if (improves) {
+            selected[selectedCount] = store;
+            branch(pos + 1, selectedCount + 1);
+        }
+
+        // Exclude the store
+        branch(pos + 1, selectedCount);
+    }
+
+    /**
+     * Visit cost of the stores chosen so far (at least one) plus, for every item, the cheapest
+     * price among the chosen stores and the stores still to be decided
+     */
+    private double lowerBound(double[] current, int pos, int selectedCount) {
+        double bound = visitCost * Math.max(1, selectedCount);
+        double[] reachable = suffixMin[pos];
+        for (int item = 0; item < itemCount; item++) {
+            if (!purchasable[item]) {
+                continue;
+            }
+            double cost = Math.min(current[item], reachable[item]);
+            bound += cost == Double.POSITIVE_INFINITY ? uncoveredPenalty : cost;
+            if (bound >= bestValue) {
+                return bound;
+            }
+        }
+        return bound;
+    }
+
+    private double value(double[] perItem, int storeCount) {
+        double value = visitCost * storeCount;
+        for (int item = 0; item < itemCount; item++) {
+            if (purchasable[item]) {
+                value += perItem[item] == Double.POSITIVE_INFINITY ? uncoveredPenalty : perItem[item];
+            }
+        }
+        return value;
+    }
+
+    private double[] merge(double[] current, double[] storeCosts) {
+        double[] merged = new double[itemCount];
+        for (int item = 0; item < itemCount; item++) {
+            merged[item] = Math.min(current[item], storeCosts[item]);
+        }
+        return merged;
+    }
+
+    private Plan toPlan() {
+        int[] assignment = new int[itemCount];
+        double itemsTotal = 0.0;
+        int uncovered = 0;
+        for (int item = 0; item < itemCount; item++) {
+            int bestStore = -1;
+            double bestCost = Double.POSITIVE_INFINITY;
+            for (int store : bestStores) {
+                if (costs[store][item] < bestCost) {
+                    bestCost = costs[store][item];
+                    bestStore = store;
+                }
+            }
+            assignment[item] = bestStore;
+            if (bestStore >= 0) {
+                itemsTotal += bestCost;
+            } else if (purchasable[item]) {
+                uncovered++;
+            }
+        }
+
+        // Drop stores that ended up with nothing to buy
+        int[] usedStores = Arrays.stream(bestStores)
+                .filter(store -> Arrays.stream(assignment).anyMatch(assigned -> assigned == store))
+                .toArray();
+        return new Plan(usedStores, assignment, itemsTotal, itemsTotal + visitCost * usedStores.length,
+                uncovered, !timedOut, nodes);
+    }
+}
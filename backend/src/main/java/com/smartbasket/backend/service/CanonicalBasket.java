@@ -0,0 +1,105 @@
+package com.smartbasket.backend.service;
+
+import com.smartbasket.backend.dto.BasketComparisonRequest;
+
+import java.time.Instant;
+import java.util.Collection;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.TreeSet;
+
+/**
+ * Order-independent form of a basket: sorted, de-duplicated reference item ids with their quantities
+ * and brand preferences, plus the page of the store ranking requested and the instant to price it at.
+ * Two requests for the same contents produce equal instances, so this doubles as the cache key.
+ *
+ * @param preferredBrands normalized brands per reference item, only for items with a preference
+ * @param limit           stores to return after offset, or null for all of them
+ * @param asOf            instant whose prices to use, or null for current prices
+ */
+public record CanonicalBasket(List<String> referenceItemIds, Map<String, Integer> quantities,
+                              Map<String, List<String>> preferredBrands, boolean includeItemDetail,
+                              int offset, Integer limit, Instant asOf) {
+
+    public static CanonicalBasket of(BasketComparisonRequest request) {
+        return of(request.getReferenceItemIds(), request.getQuantities(), request.getPreferredBrands(),
+                request.isItemDetailRequested(), request.getOffset() != null ? request.getOffset() : 0,
+                request.getLimit(), request.getAsOf());
+    }
+
+    public static CanonicalBasket of(Collection<String> referenceItemIds, Map<String, Integer> quantities,
+                                     boolean includeItemDetail) {
+        return of(referenceItemIds, quantities, null, includeItemDetail, 0, null, null);
+    }
+
+    public static CanonicalBasket of(Collection<String> referenceItemIds, Map<String, Integer> quantities,
+                                     Map<String, List<String>> preferredBrands, boolean includeItemDetail,
+                                     int offset, Integer limit, Instant asOf) {
+        List<String> ids = List.copyOf(new TreeSet<>(referenceItemIds));
+
+        // Only keep quantities for basket items that differ from the default of 1
+        Map<String, Integer> normalized = new TreeMap<>();
+        if (quantities != null) {
+            for (String id : ids) {
+                Integer quantity = quantities.get(id);
+                if (quantity != null && quantity != 1) {
+                    normalized.put(id, quantity);
+                }
+            }
+        }
+
+        Map<String, List<String>> brands = new TreeMap<>();
+        if (preferredBrands != null) {
+            for (String id : ids) {
+                List<String> preferred = preferredBrands.get(id);
+                if (preferred == null) {
+                    continue;
+                }
+                TreeSet<String> normalizedBrands = new TreeSet<>();
+                preferred.stream().map(CanonicalBasket::normalizeBrand).filter(brand -> !brand.isEmpty())
+                        .forEach(normalizedBrands::add);
+                if (!normalizedBrands.isEmpty()) {
+                    brands.put(id, List.copyOf(normalizedBrands));
+                }
+            }
+        }
+        return new CanonicalBasket(ids, Map.copyOf(normalized), Map.copyOf(brands), includeItemDetail, offset, limit,
+                asOf);
+    }
+
+    /**
+     * Case- and whitespace-insensitive form of a brand name, as stored in preferredBrands
+     */
+    public static String normalizeBrand(String brand) {
+        return brand == null ? "" : brand.trim().toLowerCase(Locale.ROOT);
+    }
+
+    /**
+     * True if only part of the store ranking is requested
+     */
+    public boolean isPaged() {
+        return offset > 0 || limit != null;
+    }
+
+    /**
+     * The same basket with the whole store ranking
+     */
+    public CanonicalBasket unpaged() {
+        return isPaged()
+                ? new CanonicalBasket(referenceItemIds, quantities, preferredBrands, includeItemDetail, 0, null, asOf)
+                : this;
+    }
+
+    public int quantityOf(String referenceItemId) {
+        return quantities.getOrDefault(referenceItemId, 1);
+    }
+
+    /**
+     * Preferred brands for the item, empty if any brand will do
+     */
+    public List<String> preferredBrandsOf(String referenceItemId) {
+        return preferredBrands.getOrDefault(referenceItemId, List.of());
+    }
+}
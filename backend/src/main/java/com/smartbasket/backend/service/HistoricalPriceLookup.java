@@ -0,0 +1,102 @@
+package com.smartbasket.backend.service;
+
+import com.smartbasket.backend.model.StoreItem;
+import com.smartbasket.backend.model.StorePrice;
+import lombok.RequiredArgsConstructor;
+import org.bson.Document;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.aggregation.Aggregation;
+import org.springframework.data.mongodb.core.aggregation.AggregationOperation;
+import org.springframework.stereotype.Component;
+
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Date;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Resolves the price of store items at a past instant from the store_prices history.
+ *
+ * Uses the (storeItemId, timestamp desc) index: a $match on both fields followed by a $sort and
+ * $group/$first on the same keys is answered with a DISTINCT_SCAN, so each item costs one index
+ * seek instead of a scan of its history.
+ */
+@Component
+@RequiredArgsConstructor
+public class HistoricalPriceLookup {
+
+    private static final String STORE_PRICES_COLLECTION = "store_prices";
+    private static final int BATCH_SIZE = 1000;
+
+    private final MongoTemplate mongoTemplate;
+
+    /**
+     * Latest price record at or before asOf for each store item that has one
+     */
+    public Map<String, StorePrice> latestPricesAtOrBefore(Collection<String> storeItemIds, Instant asOf) {
+        Map<String, StorePrice> latest = new HashMap<>();
+        List<String> ids = new ArrayList<>(storeItemIds);
+        for (int from = 0; from < ids.size(); from += BATCH_SIZE) {
+            List<String> batch = ids.subList(from, Math.min(from + BATCH_SIZE, ids.size()));
+            List<AggregationOperation> pipeline = List.of(
+                    stage("$match", new Document("storeItemId", new Document("$in", batch))
+                            .append("timestamp", new Document("$lte", Date.from(asOf)))),
+                    stage("$sort", new Document("storeItemId", 1).append("timestamp", -1)),
+                    stage("$group", new Document("_id", "$storeItemId")
+                            .append("record", new Document("$first", "$$ROOT"))),
+                    stage("$replaceRoot", new Document("newRoot", "$record")));
+
+            for (StorePrice price : mongoTemplate.aggregate(Aggregation.newAggregation(pipeline),
+                    STORE_PRICES_COLLECTION, StorePrice.class)) {
+                latest.put(price.getStoreItemId(), price);
+            }
+        }
+        return latest;
+    }
+
+    /**
+     * Copies of the store items carrying the price in effect at asOf, or no price if it is unknown.
+     * Items whose current price was set at or before asOf are used as they are; only the rest
+     * are looked up in the history, in one batch.
+     */
+    public List<StoreItem> pricedAsOf(List<StoreItem> storeItems, Instant asOf) {
+        List<String> changedSince = storeItems.stream()
+                .filter(item -> item.getLastPriceUpdate() == null || item.getLastPriceUpdate().isAfter(asOf))
+                .map(StoreItem::getId)
+                .toList();
+        Map<String, StorePrice> history = changedSince.isEmpty() ? Map.of() : latestPricesAtOrBefore(changedSince, asOf);
+
+        List<StoreItem> priced = new ArrayList<>(storeItems.size());
+        for (StoreItem item : storeItems) {
+            if (item.getLastPriceUpdate() != null && !item.getLastPriceUpdate().isAfter(asOf)) {
+                priced.add(item);
+                continue;
+            }
+            StorePrice price = history.get(item.getId());
+            priced.add(StoreItem.builder()
+                    .id(item.getId())
+                    .storeId(item.getStoreId())
+                    .referenceItemId(item.getReferenceItemId())
+                    .name(item.getName())
+                    .nameAr(item.getNameAr())
+                    .brand(item.getBrand())
+                    .barcode(item.getBarcode())
+                    .images(item.getImages())
+                    .currentPrice(price != null ? price.getPrice() : null)
+                    .originalPrice(price != null ? price.getOriginalPrice() : null)
+                    .currency(price != null ? price.getCurrency() : item.getCurrency())
+                    .isPromotion(price != null && price.isPromotion())
+                    .lastPriceUpdate(price != null ? price.getTimestamp() : null)
+                    .build());
+        }
+        return priced;
+    }
+
+    private static AggregationOperation stage(String operator, Object body) {
+        Document stage = new Document(operator, body);
+        return context -> stage;
+    }
+}
@@ -0,0 +1,185 @@
+package com.smartbasket.backend.service;
+
+import com.smartbasket.backend.dto.PriceChart;
+import com.smartbasket.backend.model.StorePrice;
+import lombok.RequiredArgsConstructor;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.domain.Sort;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.query.Criteria;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.stereotype.Service;
+
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.stream.Stream;
+
+/**
+ * Price charts with a bounded number of points. Observations are streamed from a cursor in time order
+ * through a min/max downsampler: the range is split into equal time buckets and each bucket keeps only
+ * its lowest and highest observation, so spikes and drops survive while memory stays O(points).
+ */
+@Service
+@RequiredArgsConstructor
+public class PriceChartService {
+
+    private final MongoTemplate mongoTemplate;
+
+    @Value("${prices.chart.default-points:500}")
+    private int defaultPoints = 500;
+    @Value("${prices.chart.max-points:5000}")
+    private int maxPoints = 5000;
+    @Value("${prices.chart.cursor-batch-size:1000}")
+    private int cursorBatchSize = 1000;
+
+    /**
+     * Price chart of a store item over [from, to] (default: its whole history up to now)
+     *
+     * @param points maximum number of points, default prices.chart.default-points
+     */
+    public PriceChart chart(String storeItemId, Instant from, Instant to, Integer points) {
+        int limit = points == null ? defaultPoints : points;
+        if (limit < 4 || limit > maxPoints) {
+            throw new IllegalArgumentException("points must be between 4 and " + maxPoints);
+        }
+        Instant end = to != null ? to : Instant.now();
+        Instant start = from != null ? from : oldestTimestamp(storeItemId);
+        PriceChart.PriceChartBuilder chart = PriceChart.builder()
+                .storeItemId(storeItemId)
+                .from(start)
+                .to(end)
+                .maxPoints(limit);
+        if (start == null || start.isAfter(end)) {
+            return chart.points(List.of()).build();
+        }
+
+        Query query = Query.query(Criteria.where("storeItemId").is(storeItemId).and("timestamp").gte(start).lte(end))
+                .with(Sort.by(Sort.Direction.ASC, "timestamp"))
+                .cursorBatchSize(cursorBatchSize);
+        query.fields().include("timestamp", "price");
+
+        MinMaxDownsampler downsampler = new MinMaxDownsampler(start, end, limit);
+        try (Stream<StorePrice> prices = mongoTemplate.stream(query, StorePrice.class)) {
+            prices.filter(price -> price.getTimestamp() != null && price.getPrice() != null)
+                    .forEach(price -> downsampler.accept(price.getTimestamp(), price.getPrice()));
+        }
+        return chart.sourcePoints(downsampler.sourcePoints())
+                .downsampled(downsampler.downsampled())
+                .points(downsampler.finish())
+                .build();
+    }
+
+    private Instant oldestTimestamp(String storeItemId) {
+        Query query = Query.query(Criteria.where("storeItemId").is(storeItemId))
+                .with(Sort.by(Sort.Direction.ASC, "timestamp"));
+        query.fields().include("timestamp");
+        StorePrice oldest = mongoTemplate.findOne(query, StorePrice.class);
+        return oldest != null ? oldest.getTimestamp() : null;
+    }
+
+    /**
+     * Single-pass min/max bucketing of points arriving in time order. The first maxPoints points are
+     * buffered as they are; once there are more, the buffer is replayed into (maxPoints - 2) / 2 time
+     * buckets that each emit their minimum and maximum in time order. The first and last points are
+     * always kept, which gives at most 2 + 2 * buckets points.
+     */
+    static final class MinMaxDownsampler {
+
+        private final long startMillis;
+        private final double bucketMillis;
+        private final int maxPoints;
+        private final int bucketCount;
+
+        private List<PriceChart.Point> buffer = new ArrayList<>();
+        private final List<PriceChart.Point> output = new ArrayList<>();
+        private long sourcePoints;
+        private boolean downsampling;
+
+        private int bucket = -1;
+        private PriceChart.Point bucketMin;
+        private PriceChart.Point bucketMax;
+        private PriceChart.Point lastEmitted;
+        private PriceChart.Point last;
+
+        MinMaxDownsampler(Instant from, Instant to, int maxPoints) {
+            this.maxPoints = maxPoints;
+            this.bucketCount = (maxPoints - 2) / 2;
+            this.startMillis = from.toEpochMilli();
+            this.bucketMillis = Math.max(1.0, (double) (to.toEpochMilli() - startMillis + 1) / bucketCount);
+        }
+
+        void accept(Instant timestamp, double price) {
+            PriceChart.Point point = PriceChart.Point.builder().timestamp(timestamp).price(price).build();
+            sourcePoints++;
+            if (!downsampling) {
+                buffer.add(point);
+                if (buffer.size() <= maxPoints) {
+                    return;
+                }
+                downsampling = true;
+                List<PriceChart.Point> buffered = buffer;
+                buffer = null;
+                buffered.forEach(this::add);
+                return;
+            }
+            add(point);
+        }
+
+        List<PriceChart.Point> finish() {
+            if (!downsampling) {
+                return buffer;
+            }
+            flushBucket();
+            if (last != null) {
+                emit(last);
+            }
+            return output;
+        }
+
+        long sourcePoints() {
+            return sourcePoints;
+        }
+
+        boolean downsampled() {
+            return downsampling;
+        }
+
+        private void add(PriceChart.Point point) {
+            if (lastEmitted == null) {
+                emit(point);
+            }
+            int index = (int) Math.min(bucketCount - 1,
+                    Math.max(0, (point.getTimestamp().toEpochMilli() - startMillis) / bucketMillis));
+            if (index != bucket) {
+                flushBucket();
+                bucket = index;
+            }
+            if (bucketMin == null || point.getPrice() < bucketMin.getPrice()) {
+                bucketMin = point;
+            }
+            if (bucketMax == null || point.getPrice() > bucketMax.getPrice()) {
+                bucketMax = point;
+            }
+            last = point;
+        }
+
+        private void flushBucket() {
+            if (bucketMin == null) {
+                return;
+            }
+            boolean minFirst = !bucketMin.getTimestamp().isAfter(bucketMax.getTimestamp());
+            emit(minFirst ? bucketMin : bucketMax);
+            emit(minFirst ? bucketMax : bucketMin);
+            bucketMin = null;
+            bucketMax = null;
+        }
+
+        private void emit(PriceChart.Point point) {
+            if (point != lastEmitted) {
+                output.add(point);
+                lastEmitted = point;
+            }
+        }
+    }
+}
@@ -0,0 +1,67 @@
+package com.smartbasket.backend.service;
+
+import com.smartbasket.backend.model.StoreItem;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.stereotype.Component;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * 64-bit fingerprint of the cached price fields (price, original price, currency, promotion) of each
+ * store item, so feed rows that repeat the current price are recognised without reading the store item.
+ *
+ * Entries are filled as prices are written or read back, and dropped when a store item is deleted or a
+ * write fails. A missing entry only means the store item is read before deciding.
+ */
+@Component
+public class PriceFingerprints {
+
+    private static final long NULL_BITS = 0x7ff8_dead_beef_0001L;
+
+    private final Map<String, Long> fingerprints = new ConcurrentHashMap<>();
+
+    public PriceFingerprints(MeterRegistry meterRegistry) {
+        Gauge.builder("prices.fingerprints.size", fingerprints, Map::size)
+                .register(meterRegistry);
+    }
+
+    public Long get(String storeItemId) {
+        return fingerprints.get(storeItemId);
+    }
+
+    public void put(String storeItemId, long fingerprint) {
+        fingerprints.put(storeItemId, fingerprint);
+    }
+
+    public void forget(String storeItemId) {
+        fingerprints.remove(storeItemId);
+    }
+
+    public static long of(StoreItem storeItem) {
+        return of(storeItem.getCurrentPrice(), storeItem.getOriginalPrice(), storeItem.getCurrency(),
+                Boolean.TRUE.equals(storeItem.getIsPromotion()));
+    }
+
+    public static long of(Double price, Double originalPrice, String currency, boolean isPromotion) {
+        long hash = 0x9E37_79B9_7F4A_7C15L;
+        hash = mix(hash ^ bits(price));
+        hash = mix(hash ^ bits(originalPrice));
+        hash = mix(hash ^ (currency != null ? currency.hashCode() : NULL_BITS));
+        return mix(hash ^ (isPromotion ? 1 : 2));
+    }
+
+    private static long bits(Double value) {
+        return value != null ? Double.doubleToLongBits(value) : NULL_BITS;
+    }
+
+    // MurmurHash3 finalizer
+    private static long mix(long hash) {
+        hash ^= hash >>> 33;
+        hash *= 0xff51_afd7_ed55_8ccdL;
+        hash ^= hash >>> 33;
+        hash *= 0xc4ce_b9fe_1a85_ec53L;
+        return hash ^ (hash >>> 33);
+    }
+}
@@ -0,0 +1,69 @@
+package com.smartbasket.backend.service;
+
+import com.smartbasket.backend.model.StorePrice;
+import lombok.extern.slf4j.Slf4j;
+import org.bson.Document;
+import org.springframework.beans.factory.SmartInitializingSingleton;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.mongodb.core.CollectionOptions;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.timeseries.Granularity;
+import org.springframework.stereotype.Component;
+
+/**
+ * How store_prices is stored. With {@code prices.history.storage=timeseries} the collection is created as
+ * a MongoDB time-series collection (timeField timestamp, metaField storeItemId) before the application
+ * starts serving, so observations of one store item are packed into compressed buckets. An existing
+ * regular collection is kept as it is, since MongoDB cannot convert it in place.
+ */
+@Slf4j
+@Component
+public class PriceHistoryStorage implements SmartInitializingSingleton {
+
+    public static final String STORAGE_TIMESERIES = "timeseries";
+
+    private final MongoTemplate mongoTemplate;
+    private final boolean timeSeriesRequested;
+
+    private volatile boolean timeSeries;
+
+    public PriceHistoryStorage(MongoTemplate mongoTemplate,
+                               @Value("${prices.history.storage:standard}") String storage) {
+        this.mongoTemplate = mongoTemplate;
+        this.timeSeriesRequested = STORAGE_TIMESERIES.equalsIgnoreCase(storage);
+    }
+
+    /**
+     * Whether store_prices is a time-series collection
+     */
+    public boolean isTimeSeries() {
+        return timeSeries;
+    }
+
+    @Override
+    public void afterSingletonsInstantiated() {
+        if (!timeSeriesRequested) {
+            return;
+        }
+        try {
+            String collection = mongoTemplate.getCollectionName(StorePrice.class);
+            if (!mongoTemplate.collectionExists(collection)) {
+                mongoTemplate.createCollection(collection, CollectionOptions.empty().timeSeries(
+                        CollectionOptions.TimeSeriesOptions.timeSeries("timestamp")
+                                .metaField("storeItemId")
+                                .granularity(Granularity.HOURS)));
+                log.info("Created {} as a time-series collection", collection);
+            }
+
+            Document info = mongoTemplate.getDb().listCollections()
+                    .filter(new Document("name", collection))
+                    .first();
+            timeSeries = info != null && STORAGE_TIMESERIES.equals(info.getString("type"));
+            if (!timeSeries) {
+                log.warn("{} already exists as a regular collection; price history stays in regular storage", collection);
+            }
+        } catch (RuntimeException e) {
+            log.warn("Could not prepare time-series price history, using regular storage: {}", e.getMessage());
+        }
+    }
+}
@@ -0,0 +1,370 @@
+package com.smartbasket.backend.service;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.smartbasket.backend.dto.BatchPriceUpdateRequest;
+import com.smartbasket.backend.dto.BatchPriceUpdateResponse;
+import com.smartbasket.backend.dto.PriceImportResponse;
+import com.smartbasket.backend.exception.ResourceNotFoundException;
+import jakarta.validation.ConstraintViolation;
+import jakarta.validation.Validator;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.attribute.FileTime;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+import java.util.UUID;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+/**
+ * Imports price feeds streamed as CSV or NDJSON with memory bounded by the chunk size.
+ *
+ * Rows are parsed and validated one line at a time and flushed through the bulk price pipeline
+ * in fixed-size chunks. The next chunk is only read once the previous one has been written, so a
+ * slow database slows the upload down instead of filling the heap. Rejected rows are spilled to
+ * a report file on disk rather than kept in memory.
+ */
+@Slf4j
+@Service
+@RequiredArgsConstructor
+public class PriceImportService {
+
+    public static final String FORMAT_CSV = "csv";
+    public static final String FORMAT_NDJSON = "ndjson";
+
+    private static final int MAX_RAW_LENGTH = 500;
+    private static final List<String> CSV_COLUMNS =
+            List.of("storeItemId", "price", "originalPrice", "currency", "isPromotion");
+    // Spreadsheet exports often start the file with a UTF-8 byte order mark
+    private static final String BYTE_ORDER_MARK = "\uFEFF";
+
+    private final PriceUpdateService priceUpdateService;
+    private final ObjectMapper objectMapper;
+    private final Validator validator;
+
+    @Value("${prices.import.chunk-size:1000}")
+    private int chunkSize;
+
+    @Value("${prices.import.report-dir:${java.io.tmpdir}/smart-basket-imports}")
+    private String reportDir;
+
+    @Value("${prices.import.report-ttl-hours:24}")
+    private long reportTtlHours;
+
+    /**
+     * A row waiting to be flushed, with where it came from for the rejected-rows report
+     */
+    private record PendingRow(long lineNumber, String raw, BatchPriceUpdateRequest.PriceEntry entry) {
+    }
+
+    public PriceImportResponse importPrices(InputStream body, String format) throws IOException {
+        long start = System.nanoTime();
+        String importId = UUID.randomUUID().toString();
+        Path reportPath = reportPath(importId);
+        deleteExpiredReports();
+
+        long totalRows = 0;
+        long importedCount = 0;
+        long unchangedCount = 0;
+        long rejectedCount = 0;
+        long chunkCount = 0;
+
+        try (BufferedReader reader = new BufferedReader(new InputStreamReader(body, StandardCharsets.UTF_8));
+             RejectedRowsReport report = new RejectedRowsReport(reportPath)) {
+            Map<String, Integer> csvHeader = null;
+            List<PendingRow> chunk = new ArrayList<>(chunkSize);
+            long lineNumber = 0;
+            String line;
+
+            while ((line = reader.readLine()) != null) {
+                lineNumber++;
+                if (line.isBlank()) {
+                    continue;
+                }
+                if (FORMAT_CSV.equals(format) && csvHeader == null) {
+                    csvHeader = parseCsvHeader(line);
+                    if (!csvHeader.containsKey("storeitemid") || !csvHeader.containsKey("price")) {
+                        throw new IllegalArgumentException("CSV header must contain storeItemId and price columns");
+                    }
+                    continue;
+                }
+
+                // 1. Parse and validate the row on its own
+                totalRows++;
+                BatchPriceUpdateRequest.PriceEntry entry;
+                try {
+                    entry = FORMAT_CSV.equals(format) ? parseCsvRow(line, csvHeader) : parseNdjsonRow(line);
+                    String violations = validate(entry);
+                    if (violations != null) {
+                        throw new IllegalArgumentException(violations);
+                    }
+                } catch (IllegalArgumentException e) {
+                    report.reject(lineNumber, null, e.getMessage(), line);
+                    rejectedCount++;
+                    continue;
+                }
+                chunk.add(new PendingRow(lineNumber, line, entry));
+
+                // 2. Flush full chunks before reading on
+                if (chunk.size() >= chunkSize) {
+                    ChunkResult flushed = flush(chunk, report);
+                    importedCount += flushed.imported();
+                    unchangedCount += flushed.unchanged();
+                    rejectedCount += chunk.size() - flushed.imported();
+                    chunkCount++;
+                    chunk.clear();
+                }
+            }
+
+            if (!chunk.isEmpty()) {
+                ChunkResult flushed = flush(chunk, report);
+                importedCount += flushed.imported();
+                unchangedCount += flushed.unchanged();
+                rejectedCount += chunk.size() - flushed.imported();
+                chunkCount++;
+            }
+        }
+
+        if (rejectedCount == 0) {
+            Files.deleteIfExists(reportPath);
+        }
+        long elapsedMs = (System.nanoTime() - start) / 1_000_000;
+        log.info("Price import {} ({}): {} rows, {} imported, {} rejected in {} ms",
+                importId, format, totalRows, importedCount, rejectedCount, elapsedMs);
+
+        return PriceImportResponse.builder()
+                .importId(importId)
+                .format(format)
+                .totalRows(totalRows)
+                .importedCount(importedCount)
+                .unchangedCount(unchangedCount)
+                .rejectedCount(rejectedCount)
+                .chunkCount(chunkCount)
+                .elapsedMs(elapsedMs)
+                .rejectedReportUrl(rejectedCount > 0 ? "/prices/import/" + importId + "/rejected" : null)
+                .build();
+    }
+
+    /**
+     * Rejected-rows report of an earlier import
+     */
+    public Path rejectedReport(String importId) {
+        Path path;
+        try {
+            path = reportPath(UUID.fromString(importId).toString());
+        } catch (IllegalArgumentException e) {
+            throw new ResourceNotFoundException("Import not found: " + importId);
+        }
+        if (!Files.exists(path)) {
+            throw new ResourceNotFoundException("No rejected rows report for import: " + importId);
+        }
+        return path;
+    }
+
+    private record ChunkResult(long imported, long unchanged) {
+    }
+
+    /**
+     * Write one chunk through the bulk pipeline and report the rows it rejected
+     */
+    private ChunkResult flush(List<PendingRow> chunk, RejectedRowsReport report) throws IOException {
+        List<BatchPriceUpdateResponse.PriceUpdateResult> results =
+                priceUpdateService.applyPriceEntries(chunk.stream().map(PendingRow::entry).toList());
+        long imported = 0;
+        long unchanged = 0;
+        for (int i = 0; i < results.size(); i++) {
+            BatchPriceUpdateResponse.PriceUpdateResult result = results.get(i);
+            if (result.isSuccess()) {
+                imported++;
+                if (Boolean.FALSE.equals(result.getChanged())) {
+                    unchanged++;
+                }
+            } else {
+                PendingRow row = chunk.get(i);
+                report.reject(row.lineNumber(), result.getStoreItemId(), result.getMessage(), row.raw());
+            }
+        }
+        return new ChunkResult(imported, unchanged);
+    }
+
+    private String validate(BatchPriceUpdateRequest.PriceEntry entry) {
+        Set<ConstraintViolation<BatchPriceUpdateRequest.PriceEntry>> violations = validator.validate(entry);
+        if (violations.isEmpty()) {
+            return null;
+        }
+        return violations.stream().map(ConstraintViolation::getMessage).sorted().collect(Collectors.joining("; "));
+    }
+
+    private BatchPriceUpdateRequest.PriceEntry parseNdjsonRow(String line) {
+        try {
+            return objectMapper.readValue(line, BatchPriceUpdateRequest.PriceEntry.class);
+        } catch (JsonProcessingException e) {
+            throw new IllegalArgumentException("Invalid JSON: " + e.getOriginalMessage());
+        }
+    }
+
+    private static Map<String, Integer> parseCsvHeader(String line) {
+        Map<String, Integer> header = new HashMap<>();
+        List<String> columns = splitCsvLine(line);
+        for (int i = 0; i < columns.size(); i++) {
+            String cell = columns.get(i);
+            if (i == 0 && cell.startsWith(BYTE_ORDER_MARK)) {
+                cell = cell.substring(BYTE_ORDER_MARK.length());
+            }
+            String column = cell.trim().toLowerCase(Locale.ROOT);
+            if (CSV_COLUMNS.stream().anyMatch(known -> known.toLowerCase(Locale.ROOT).equals(column))) {
+                header.put(column, i);
+            }
+        }
+        return header;
+    }
+
+    private static BatchPriceUpdateRequest.PriceEntry parseCsvRow(String line, Map<String, Integer> header) {
+        List<String> values = splitCsvLine(line);
+        return BatchPriceUpdateRequest.PriceEntry.builder()
+                .storeItemId(column(values, header, "storeitemid"))
+                .price(parseDouble(column(values, header, "price"), "price"))
+                .originalPrice(parseDouble(column(values, header, "originalprice"), "originalPrice"))
+                .currency(column(values, header, "currency"))
+                .isPromotion(parseBoolean(column(values, header, "ispromotion")))
+                .build();
+    }
+
+    private static String column(List<String> values, Map<String, Integer> header, String name) {
+        Integer index = header.get(name);
+        if (index == null || index >= values.size()) {
+            return null;
+        }
+        String value = values.get(index).trim();
+        return value.isEmpty() ? null : value;
+    }
+
+    private static Double parseDouble(String value, String column) {
+        if (value == null) {
+            return null;
+        }
+        try {
+            return Double.parseDouble(value);
+        } catch (NumberFormatException e) {
+            throw new IllegalArgumentException("Invalid " + column + ": " + value);
+        }
+    }
+
+    private static Boolean parseBoolean(String value) {
+        if (value == null) {
+            return null;
+        }
+        return switch (value.toLowerCase(Locale.ROOT)) {
+            case "true", "1", "yes", "y" -> true;
+            case "false", "0", "no", "n" -> false;
+            default -> throw new IllegalArgumentException("Invalid isPromotion: " + value);
+        };
+    }
+
+    /**
+     * Split one CSV line, honouring double-quoted fields and "" escapes
+     */
+    static List<String> splitCsvLine(String line) {
+        List<String> values = new ArrayList<>();
+        StringBuilder current = new StringBuilder();
+        boolean quoted = false;
+        for (int i = 0; i < line.length(); i++) {
+            char c = line.charAt(i);
+            if (quoted) {
+                if (c == '"' && i + 1 < line.length() && line.charAt(i + 1) == '"') {
+                    current.append('"');
+                    i++;
+                } else if (c == '"') {
+                    quoted = false;
+                } else {
+                    current.append(c);
+                }
+            } else if (c == '"') {
+                quoted = true;
+            } else if (c == ',') {
+                values.add(current.toString());
+                current.setLength(0);
+            } else {
+                current.append(c);
+            }
+        }
+        values.add(current.toString());
+        return values;
+    }
+
+    private Path reportPath(String importId) {
+        return Path.of(reportDir, importId + ".csv");
+    }
+
+    private void deleteExpiredReports() {
+        Path dir = Path.of(reportDir);
+        if (!Files.isDirectory(dir)) {
+            return;
+        }
+        FileTime cutoff = FileTime.from(Instant.now().minus(Duration.ofHours(reportTtlHours)));
+        try (Stream<Path> reports = Files.list(dir)) {
+            reports.filter(path -> {
+                try {
+                    return Files.getLastModifiedTime(path).compareTo(cutoff) < 0;
+                } catch (IOException e) {
+                    return false;
+                }
+            }).forEach(path -> path.toFile().delete());
+        } catch (IOException e) {
+            log.warn("Could not clean up price import reports in {}: {}", dir, e.getMessage());
+        }
+    }
+
+    /**
+     * CSV of rejected rows, written as the import goes
+     */
+    private static final class RejectedRowsReport implements AutoCloseable {
+        private final Path path;
+        private BufferedWriter writer;
+
+        RejectedRowsReport(Path path) {
+            this.path = path;
+        }
+
+        void reject(long lineNumber, String storeItemId, String reason, String raw) throws IOException {
+            if (writer == null) {
+                Files.createDirectories(path.getParent());
+                writer = Files.newBufferedWriter(path, StandardCharsets.UTF_8);
+                writer.write("line,storeItemId,reason,row");
+                writer.newLine();
+            }
+            String row = raw.length() > MAX_RAW_LENGTH ? raw.substring(0, MAX_RAW_LENGTH) : raw;
+            writer.write(lineNumber + "," + quote(storeItemId) + "," + quote(reason) + "," + quote(row));
+            writer.newLine();
+        }
+
+        private static String quote(String value) {
+            return value == null ? "" : "\"" + value.replace("\"", "\"\"") + "\"";
+        }
+
+        @Override
+        public void close() throws IOException {
+            if (writer != null) {
+                writer.close();
+            }
+        }
+    }
+}
@@ -0,0 +1,693 @@
+package com.smartbasket.backend.service;
+
+import com.smartbasket.backend.dto.BasketItemInfo;
+import com.smartbasket.backend.dto.StoreComparisonResult;
+import com.smartbasket.backend.dto.StoreItemPriceInfo;
+import com.smartbasket.backend.model.ReferenceItem;
+import com.smartbasket.backend.model.Store;
+import com.smartbasket.backend.model.StoreItem;
+import com.smartbasket.backend.repository.ReferenceItemRepository;
+import com.smartbasket.backend.repository.StoreItemRepository;
+import com.smartbasket.backend.repository.StoreRepository;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Component;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.function.Consumer;
+
+/**
+ * Resident store x reference item price table used to compare baskets without touching MongoDB.
+ *
+ * Stores and reference items are mapped to dense int indexes. Each store owns a primitive
+ * price column and an availability bitset indexed by reference item, so basket totals are
+ * tight loops over primitives. When a store carries several variants (brands, sizes) of one
+ * reference item, the column holds the cheapest priced one, kept current on every write.
+ *
+ * The matrix is loaded in the background once the application is ready and kept current by
+ * the services that write stores, reference items and store items.
+ */
+@Slf4j
+@Component
+@RequiredArgsConstructor
+public class PriceMatrix {
+
+    private static final String DEFAULT_CURRENCY = "JOD";
+    private static final int INITIAL_ITEM_CAPACITY = 64;
+    // Stores evaluated per read lock acquisition when streaming results
+    private static final int STREAM_SLICE_SIZE = 32;
+
+    private final StoreRepository storeRepository;
+    private final ReferenceItemRepository referenceItemRepository;
+    private final StoreItemRepository storeItemRepository;
+
+    // The matrix is only loaded when it backs basket comparison
+    @Value("${basket.comparison.engine:matrix}")
+    private String comparisonEngine;
+
+    private final ReentrantReadWriteLock lock = new ReentrantReadWriteLock();
+    private final AtomicBoolean loading = new AtomicBoolean(false);
+
+    // Guarded by lock. Null until the first successful load.
+    private State state;
+
+    // Guarded by lock. Non-null while a rebuild is running, so writes made during the load are replayed.
+    private List<Consumer<State>> pendingMutations;
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void loadOnStartup() {
+        if ("matrix".equalsIgnoreCase(comparisonEngine)) {
+            requestLoad();
+        }
+    }
+
+    /**
+     * Start a background load unless the matrix is already loaded or loading
+     */
+    public void requestLoad() {
+        if (isLoaded() || loading.get()) {
+            return;
+        }
+        Thread loader = new Thread(this::rebuild, "price-matrix-loader");
+        loader.setDaemon(true);
+        loader.start();
+    }
+
+    public boolean isLoaded() {
+        lock.readLock().lock();
+        try {
+            return state != null;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * Reload the whole matrix from MongoDB. Writes that arrive while loading are replayed on the new matrix.
+     */
+    public void rebuild() {
+        if (!loading.compareAndSet(false, true)) {
+            return;
+        }
+        lock.writeLock().lock();
+        try {
+            pendingMutations = new ArrayList<>();
+        } finally {
+            lock.writeLock().unlock();
+        }
+
+        try {
+            long start = System.nanoTime();
+            State fresh = new State();
+            storeRepository.findAll().forEach(fresh::putStore);
+            referenceItemRepository.findAll().forEach(fresh::putItem);
+            storeItemRepository.findAll().forEach(fresh::putStoreItem);
+
+            lock.writeLock().lock();
+            try {
+                pendingMutations.forEach(mutation -> mutation.accept(fresh));
+                state = fresh;
+            } finally {
+                lock.writeLock().unlock();
+            }
+            log.info("Price matrix loaded: {} stores x {} reference items in {} ms",
+                    fresh.storeIndex.size(), fresh.itemIndex.size(), (System.nanoTime() - start) / 1_000_000);
+        } catch (RuntimeException e) {
+            log.warn("Price matrix load failed, basket comparison will read from MongoDB: {}", e.getMessage());
+        } finally {
+            lock.writeLock().lock();
+            try {
+                pendingMutations = null;
+            } finally {
+                lock.writeLock().unlock();
+            }
+            loading.set(false);
+        }
+    }
+
+    /**
+     * Rank every active store for a basket and return the requested page, or empty if the matrix is not loaded yet
+     */
+    public Optional<BasketEvaluation> evaluate(CanonicalBasket basket) {
+        lock.readLock().lock();
+        try {
+            return state == null ? Optional.empty() : Optional.of(state.evaluate(basket));
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * Evaluate a basket store by store, handing each result to the sink outside the lock.
+     * Stores are evaluated in small slices so a slow sink never holds up writers.
+     *
+     * @return the basket items, or empty if the matrix is not loaded yet
+     */
+    public Optional<List<BasketItemInfo>> evaluateEach(CanonicalBasket basket, Consumer<StoreComparisonResult> sink) {
+        State snapshot;
+        State.ResolvedBasket resolved;
+        lock.readLock().lock();
+        try {
+            if (state == null) {
+                return Optional.empty();
+            }
+            snapshot = state;
+            resolved = snapshot.resolve(basket);
+        } finally {
+            lock.readLock().unlock();
+        }
+
+        int next = 0;
+        while (true) {
+            List<StoreComparisonResult> slice;
+            lock.readLock().lock();
+            try {
+                if (next >= snapshot.stores.size()) {
+                    break;
+                }
+                int end = Math.min(next + STREAM_SLICE_SIZE, snapshot.stores.size());
+                slice = snapshot.evaluateStores(resolved, next, end, basket.includeItemDetail());
+                next = end;
+            } finally {
+                lock.readLock().unlock();
+            }
+            slice.forEach(sink);
+        }
+        return Optional.of(resolved.items());
+    }
+
+    /**
+     * Snapshot of the offers for a basket at every active store, or empty if the matrix is not loaded yet
+     */
+    public Optional<PriceTable> priceTable(CanonicalBasket basket) {
+        lock.readLock().lock();
+        try {
+            return state == null ? Optional.empty() : Optional.of(state.priceTable(basket));
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * Active stores known to the matrix, or empty if the matrix is not loaded yet
+     */
+    public Optional<List<Store>> activeStores() {
+        lock.readLock().lock();
+        try {
+            if (state == null) {
+                return Optional.empty();
+            }
+            List<Store> stores = new ArrayList<>();
+            for (StoreColumn column : state.stores) {
+                if (column != null && column.active) {
+                    stores.add(Store.builder()
+                            .id(column.id)
+                            .name(column.name)
+                            .logoUrl(column.logoUrl)
+                            .active(true)
+                            .build());
+                }
+            }
+            return Optional.of(stores);
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    public void upsertStore(Store store) {
+        mutate(s -> s.putStore(store));
+    }
+
+    public void removeStore(String storeId) {
+        mutate(s -> s.removeStore(storeId));
+    }
+
+    public void upsertReferenceItem(ReferenceItem item) {
+        mutate(s -> s.putItem(item));
+    }
+
+    public void removeReferenceItem(String referenceItemId) {
+        mutate(s -> s.removeItem(referenceItemId));
+    }
+
+    public void upsertStoreItem(StoreItem storeItem) {
+        mutate(s -> s.putStoreItem(storeItem));
+    }
+
+    public void removeStoreItem(StoreItem storeItem) {
+        mutate(s -> s.removeStoreItem(storeItem));
+    }
+
+    private void mutate(Consumer<State> mutation) {
+        lock.writeLock().lock();
+        try {
+            if (pendingMutations != null) {
+                pendingMutations.add(mutation);
+            }
+            if (state != null) {
+                mutation.accept(state);
+            }
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * Offers for a basket: {@code offers[store][item]} is the priced variant, or null if unavailable
+     */
+    public record PriceTable(List<BasketItemInfo> items, List<Store> stores, Variant[][] offers) {
+    }
+
+    /**
+     * Immutable snapshot of one store item as seen by the matrix
+     */
+    public record Variant(String storeItemId, String name, String brand, double price,
+                          String currency, boolean promotion) {
+
+        public static Variant of(StoreItem storeItem) {
+            Double price = storeItem.getCurrentPrice();
+            return new Variant(
+                    storeItem.getId(),
+                    storeItem.getName(),
+                    storeItem.getBrand(),
+                    price != null && price > 0 ? price : Double.NaN,
+                    storeItem.getCurrency() != null ? storeItem.getCurrency() : DEFAULT_CURRENCY,
+                    storeItem.getIsPromotion() != null && storeItem.getIsPromotion());
+        }
+
+        public boolean isPriced() {
+            return !Double.isNaN(price);
+        }
+
+        public StoreItemPriceInfo toPriceInfo(String referenceItemId, String referenceItemName, int quantity) {
+            return StoreItemPriceInfo.builder()
+                    .referenceItemId(referenceItemId)
+                    .referenceItemName(referenceItemName)
+                    .storeItemId(storeItemId)
+                    .storeItemName(name)
+                    .brand(brand)
+                    .price(price)
+                    .quantity(quantity)
+                    .lineTotal(price * quantity)
+                    .currency(currency)
+                    .isPromotion(promotion)
+                    .available(true)
+                    .build();
+        }
+    }
+
+    private static final class ItemRow {
+        final String id;
+        String name;
+        String category;
+        boolean active;
+
+        ItemRow(String id) {
+            this.id = id;
+        }
+    }
+
+    private static final class StoreColumn {
+        final String id;
+        String name;
+        String logoUrl;
+        boolean active;
+        double[] prices;
+        long[] available;
+        Variant[][] variants;
+        // Cheapest priced variant per item, null if none is priced
+        Variant[] cheapest;
+
+        StoreColumn(String id, int capacity) {
+            this.id = id;
+            this.prices = new double[capacity];
+            this.available = new long[(capacity + 63) >>> 6];
+            this.variants = new Variant[capacity][];
+            this.cheapest = new Variant[capacity];
+        }
+
+        void ensureCapacity(int capacity) {
+            if (prices.length >= capacity) {
+                return;
+            }
+            prices = Arrays.copyOf(prices, capacity);
+            available = Arrays.copyOf(available, (capacity + 63) >>> 6);
+            variants = Arrays.copyOf(variants, capacity);
+            cheapest = Arrays.copyOf(cheapest, capacity);
+        }
+
+        boolean isAvailable(int itemIdx) {
+            return itemIdx < prices.length && (available[itemIdx >>> 6] & (1L << itemIdx)) != 0;
+        }
+
+        /**
+         * Variant to price the item with: the cheapest of a preferred brand if the store has one,
+         * otherwise the cheapest of any brand. Null if no variant is priced.
+         */
+        Variant choose(int itemIdx, List<String> preferredBrands) {
+            if (!isAvailable(itemIdx)) {
+                return null;
+            }
+            if (preferredBrands.isEmpty()) {
+                return cheapest[itemIdx];
+            }
+            Variant best = null;
+            for (Variant variant : variants[itemIdx]) {
+                if (variant.isPriced() && preferredBrands.contains(CanonicalBasket.normalizeBrand(variant.brand()))
+                        && (best == null || variant.price() < best.price())) {
+                    best = variant;
+                }
+            }
+            return best != null ? best : cheapest[itemIdx];
+        }
+
+        /**
+         * Variant shown for an item the store carries without a price
+         */
+        Variant unpriced(int itemIdx) {
+            Variant[] cell = itemIdx < variants.length ? variants[itemIdx] : null;
+            return cell == null || cell.length == 0 ? null : cell[0];
+        }
+
+        void refreshCell(int itemIdx) {
+            Variant best = null;
+            Variant[] cell = variants[itemIdx];
+            if (cell != null) {
+                for (Variant variant : cell) {
+                    if (variant.isPriced() && (best == null || variant.price() < best.price())) {
+                        best = variant;
+                    }
+                }
+            }
+            cheapest[itemIdx] = best;
+            if (best != null) {
+                prices[itemIdx] = best.price();
+                available[itemIdx >>> 6] |= 1L << itemIdx;
+            } else {
+                prices[itemIdx] = 0.0;
+                available[itemIdx >>> 6] &= ~(1L << itemIdx);
+            }
+        }
+    }
+
+    private static final class State {
+        final Map<String, Integer> storeIndex = new HashMap<>();
+        final List<StoreColumn> stores = new ArrayList<>();
+        final Map<String, Integer> itemIndex = new HashMap<>();
+        final List<ItemRow> items = new ArrayList<>();
+        int itemCapacity = INITIAL_ITEM_CAPACITY;
+
+        void putStore(Store store) {
+            Integer idx = storeIndex.get(store.getId());
+            StoreColumn column;
+            if (idx == null) {
+                column = new StoreColumn(store.getId(), itemCapacity);
+                storeIndex.put(store.getId(), stores.size());
+                stores.add(column);
+            } else {
+                column = stores.get(idx);
+            }
+            column.name = store.getName();
+            column.logoUrl = store.getLogoUrl();
+            column.active = store.isActive();
+        }
+
+        void removeStore(String storeId) {
+            Integer idx = storeIndex.remove(storeId);
+            if (idx != null) {
+                stores.set(idx, null);
+            }
+        }
+
+        void putItem(ReferenceItem item) {
+            Integer idx = itemIndex.get(item.getId());
+            ItemRow row;
+            if (idx == null) {
+                idx = items.size();
+                row = new ItemRow(item.getId());
+                itemIndex.put(item.getId(), idx);
+                items.add(row);
+                if (idx >= itemCapacity) {
+                    itemCapacity *= 2;
+                }
+            } else {
+                row = items.get(idx);
+            }
+            row.name = item.getName();
+            row.category = item.getCategory();
+            row.active = item.isActive();
+        }
+
+        void removeItem(String referenceItemId) {
+            Integer idx = itemIndex.remove(referenceItemId);
+            if (idx == null) {
+                return;
+            }
+            items.set(idx, null);
+            for (StoreColumn column : stores) {
+                if (column != null && idx < column.variants.length) {
+                    column.variants[idx] = null;
+                    column.refreshCell(idx);
+                }
+            }
+        }
+
+        void putStoreItem(StoreItem storeItem) {
+            StoreColumn column = column(storeItem.getStoreId());
+            Integer itemIdx = itemIndex.get(storeItem.getReferenceItemId());
+            if (column == null || itemIdx == null) {
+                return;
+            }
+            column.ensureCapacity(itemCapacity);
+
+            Variant variant = Variant.of(storeItem);
+            Variant[] cell = column.variants[itemIdx];
+            if (cell == null) {
+                column.variants[itemIdx] = new Variant[] {variant};
+            } else {
+                int existing = indexOf(cell, storeItem.getId());
+                if (existing >= 0) {
+                    cell = cell.clone();
+                    cell[existing] = variant;
+                } else {
+                    cell = Arrays.copyOf(cell, cell.length + 1);
+                    cell[cell.length - 1] = variant;
+                }
+                column.variants[itemIdx] = cell;
+            }
+            column.refreshCell(itemIdx);
+        }
+
+        void removeStoreItem(StoreItem storeItem) {
+            StoreColumn column = column(storeItem.getStoreId());
+            Integer itemIdx = itemIndex.get(storeItem.getReferenceItemId());
+            if (column == null || itemIdx == null || itemIdx >= column.variants.length) {
+                return;
+            }
+            Variant[] cell = column.variants[itemIdx];
+            int existing = cell == null ? -1 : indexOf(cell, storeItem.getId());
+            if (existing < 0) {
+                return;
+            }
+            Variant[] remaining = new Variant[cell.length - 1];
+            System.arraycopy(cell, 0, remaining, 0, existing);
+            System.arraycopy(cell, existing + 1, remaining, existing, cell.length - existing - 1);
+            column.variants[itemIdx] = remaining.length == 0 ? null : remaining;
+            column.refreshCell(itemIdx);
+        }
+
+        private StoreColumn column(String storeId) {
+            Integer idx = storeIndex.get(storeId);
+            return idx == null ? null : stores.get(idx);
+        }
+
+        private static int indexOf(Variant[] cell, String storeItemId) {
+            for (int i = 0; i < cell.length; i++) {
+                if (cell[i].storeItemId().equals(storeItemId)) {
+                    return i;
+                }
+            }
+            return -1;
+        }
+
+        /**
+         * Dense indexes, quantities and brand preferences of the active items of a basket
+         */
+        private record ResolvedBasket(int[] indexes, int[] quantities, List<List<String>> preferredBrands,
+                                      int size, List<BasketItemInfo> items) {
+        }
+
+        private record Totals(double total, int availableCount) {
+        }
+
+        ResolvedBasket resolve(CanonicalBasket basket) {
+            List<String> referenceItemIds = basket.referenceItemIds();
+            int[] indexes = new int[referenceItemIds.size()];
+            int[] quantities = new int[referenceItemIds.size()];
+            List<List<String>> preferredBrands = new ArrayList<>();
+            int size = 0;
+            List<BasketItemInfo> basketItems = new ArrayList<>();
+            for (String id : referenceItemIds) {
+                Integer idx = itemIndex.get(id);
+                if (idx == null || !items.get(idx).active) {
+                    continue;
+                }
+                ItemRow row = items.get(idx);
+                indexes[size] = idx;
+                quantities[size] = basket.quantityOf(id);
+                preferredBrands.add(basket.preferredBrandsOf(id));
+                size++;
+                basketItems.add(BasketItemInfo.builder()
+                        .referenceItemId(row.id)
+                        .name(row.name)
+                        .category(row.category)
+                        .quantity(basket.quantityOf(id))
+                        .build());
+            }
+            return new ResolvedBasket(indexes, quantities, preferredBrands, size, basketItems);
+        }
+
+        /**
+         * Rank every active store on totals alone, then build results for the requested page only
+         */
+        BasketEvaluation evaluate(CanonicalBasket canonicalBasket) {
+            ResolvedBasket basket = resolve(canonicalBasket);
+
+            StoreRanking<StoreColumn> ranking = StoreRanking.forBasket(canonicalBasket);
+            for (StoreColumn column : stores) {
+                if (column == null || !column.active) {
+                    continue;
+                }
+                Totals totals = totals(column, basket);
+                ranking.offer(column.id, column.name, column, totals.total(), totals.availableCount(),
+                        totals.availableCount() == basket.size());
+            }
+
+            return ranking.toEvaluation(basket.items(), ranked -> buildResult(ranked.store(), basket,
+                    ranked.total(), ranked.availableCount(), canonicalBasket.includeItemDetail()));
+        }
+
+        /**
+         * Results for the active stores among the store indexes [from, to)
+         */
+        List<StoreComparisonResult> evaluateStores(ResolvedBasket basket, int from, int to, boolean includeItemDetail) {
+            List<StoreComparisonResult> storeResults = new ArrayList<>();
+            for (int storeIdx = from; storeIdx < to; storeIdx++) {
+                StoreColumn column = stores.get(storeIdx);
+                if (column == null || !column.active) {
+                    continue;
+                }
+                Totals totals = totals(column, basket);
+                storeResults.add(buildResult(column, basket, totals.total(), totals.availableCount(),
+                        includeItemDetail));
+            }
+            return storeResults;
+        }
+
+        /**
+         * Basket total at one store: reads the cheapest-variant price column directly, and only
+         * looks at the variants of items with a brand preference
+         */
+        private Totals totals(StoreColumn column, ResolvedBasket basket) {
+            int[] indexes = basket.indexes();
+            int[] quantities = basket.quantities();
+            double[] prices = column.prices;
+
+            double total = 0.0;
+            int availableCount = 0;
+            for (int i = 0; i < basket.size(); i++) {
+                int idx = indexes[i];
+                if (!column.isAvailable(idx)) {
+                    continue;
+                }
+                List<String> preferredBrands = basket.preferredBrands().get(i);
+                double price = preferredBrands.isEmpty() ? prices[idx] : column.choose(idx, preferredBrands).price();
+                total += price * quantities[i];
+                availableCount++;
+            }
+            return new Totals(total, availableCount);
+        }
+
+        PriceTable priceTable(CanonicalBasket canonicalBasket) {
+            ResolvedBasket basket = resolve(canonicalBasket);
+            List<Store> activeStores = new ArrayList<>();
+            List<Variant[]> offers = new ArrayList<>();
+            for (StoreColumn column : stores) {
+                if (column == null || !column.active) {
+                    continue;
+                }
+                activeStores.add(Store.builder().id(column.id).name(column.name).logoUrl(column.logoUrl)
+                        .active(true).build());
+                Variant[] row = new Variant[basket.size()];
+                for (int i = 0; i < basket.size(); i++) {
+                    int idx = basket.indexes()[i];
+                    row[i] = column.choose(idx, basket.preferredBrands().get(i));
+                }
+                offers.add(row);
+            }
+            return new PriceTable(basket.items(), activeStores, offers.toArray(new Variant[0][]));
+        }
+
+        private StoreComparisonResult buildResult(StoreColumn column, ResolvedBasket basket,
+                                                  double total, int availableCount, boolean includeItemDetail) {
+            int basketSize = basket.size();
+            List<StoreItemPriceInfo> itemPrices = includeItemDetail ? new ArrayList<>(basketSize) : List.of();
+            List<String> missingItems = new ArrayList<>(basketSize - availableCount);
+
+            for (int i = 0; i < basketSize; i++) {
+                int idx = basket.indexes()[i];
+                BasketItemInfo item = basket.items().get(i);
+                if (!includeItemDetail) {
+                    if (!column.isAvailable(idx)) {
+                        missingItems.add(item.getName());
+                    }
+                    continue;
+                }
+                Variant chosen = column.choose(idx, basket.preferredBrands().get(i));
+                StoreItemPriceInfo info;
+                if (chosen != null) {
+                    info = chosen.toPriceInfo(item.getReferenceItemId(), item.getName(), basket.quantities()[i]);
+                } else {
+                    Variant variant = column.unpriced(idx);
+                    missingItems.add(item.getName());
+                    info = StoreItemPriceInfo.builder()
+                            .referenceItemId(item.getReferenceItemId())
+                            .referenceItemName(item.getName())
+                            .storeItemId(variant != null ? variant.storeItemId() : null)
+                            .storeItemName(variant != null ? variant.name() : null)
+                            .brand(variant != null ? variant.brand() : null)
+                            .price(0.0)
+                            .quantity(basket.quantities()[i])
+                            .lineTotal(0.0)
+                            .currency(DEFAULT_CURRENCY)
+                            .available(false)
+                            .build();
+                }
+                itemPrices.add(info);
+            }
+
+            return StoreComparisonResult.builder()
+                    .storeId(column.id)
+                    .storeName(column.name)
+                    .storeLogoUrl(column.logoUrl)
+                    .totalPrice(total)
+                    .currency(DEFAULT_CURRENCY)
+                    .allItemsAvailable(availableCount == basketSize)
+                    .itemPrices(itemPrices)
+                    .missingItems(missingItems)
+                    .availableItemCount(availableCount)
+                    .totalItemCount(basketSize)
+                    .build();
+        }
+    }
+}
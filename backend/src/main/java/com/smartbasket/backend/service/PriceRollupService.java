@@ -0,0 +1,279 @@
+package com.smartbasket.backend.service;
+
+import com.smartbasket.backend.dto.PriceSeries;
+import com.smartbasket.backend.model.PriceGranularity;
+import com.smartbasket.backend.model.PriceRollup;
+import com.smartbasket.backend.model.StorePrice;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.bson.Document;
+import org.bson.types.ObjectId;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.domain.Sort;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.aggregation.Aggregation;
+import org.springframework.data.mongodb.core.aggregation.AggregationOperation;
+import org.springframework.data.mongodb.core.aggregation.AggregationOptions;
+import org.springframework.data.mongodb.core.query.Criteria;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.data.mongodb.core.query.Update;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.stream.Stream;
+
+/**
+ * Keeps hourly and daily min/max/avg/close buckets of every store item's prices in price_rollups, and
+ * reads price history at the coarsest granularity that still gives enough points for a range.
+ *
+ * Each run finds the store items written since the previous run and recomputes, inside MongoDB, every
+ * bucket from the oldest one they touched, merging the results into price_rollups. Late observations
+ * therefore correct the buckets they fall into.
+ */
+@Slf4j
+@Service
+@RequiredArgsConstructor
+public class PriceRollupService {
+
+    private static final String STORE_PRICES_COLLECTION = "store_prices";
+    private static final String ROLLUPS_COLLECTION = "price_rollups";
+    private static final String STATE_COLLECTION = "price_rollup_state";
+    // Store items recomputed per aggregation
+    private static final int ITEM_BATCH_SIZE = 500;
+    // Writes still in flight when a run starts are picked up again by the next run
+    private static final Duration WATERMARK_OVERLAP = Duration.ofSeconds(30);
+    private static final Duration DEFAULT_RANGE = Duration.ofDays(30);
+    private static final List<PriceGranularity> ROLLUP_GRANULARITIES = List.of(PriceGranularity.HOUR, PriceGranularity.DAY);
+
+    private final MongoTemplate mongoTemplate;
+    private final PriceHistoryStorage priceHistoryStorage;
+
+    @Value("${prices.rollup.enabled:true}")
+    private boolean enabled = true;
+    // Auto granularity picks the coarsest one giving at least this many points over the range
+    @Value("${prices.rollup.target-points:60}")
+    private int targetPoints = 60;
+    @Value("${prices.rollup.max-raw-points:5000}")
+    private int maxRawPoints = 5000;
+
+    private final AtomicBoolean running = new AtomicBoolean(false);
+
+    @Scheduled(fixedDelayString = "${prices.rollup.interval-ms:300000}",
+            initialDelayString = "${prices.rollup.initial-delay-ms:60000}")
+    public void scheduledRollup() {
+        if (!enabled) {
+            return;
+        }
+        try {
+            rollup();
+        } catch (RuntimeException e) {
+            log.warn("Price rollup failed, retrying on the next run: {}", e.getMessage());
+        }
+    }
+
+    /**
+     * Recompute the hourly and daily buckets touched since the previous run
+     *
+     * @return number of store items whose buckets were recomputed
+     */
+    public int rollup() {
+        if (!running.compareAndSet(false, true)) {
+            return 0;
+        }
+        try {
+            long start = System.nanoTime();
+            Instant runStart = Instant.now();
+
+            // 1. Store items written since the watermark, with the oldest observation written for each
+            Map<String, Instant> touched = touchedSince(readWatermark());
+
+            // 2. Recompute their buckets from the oldest touched one, per granularity
+            List<String> storeItemIds = new ArrayList<>(touched.keySet());
+            for (int from = 0; from < storeItemIds.size(); from += ITEM_BATCH_SIZE) {
+                List<String> batch = storeItemIds.subList(from, Math.min(from + ITEM_BATCH_SIZE, storeItemIds.size()));
+                for (PriceGranularity granularity : ROLLUP_GRANULARITIES) {
+                    recompute(batch, touched, granularity);
+                }
+            }
+
+            writeWatermark(runStart.minus(WATERMARK_OVERLAP));
+            log.info("Price rollup: {} store items recomputed in {} ms",
+                    touched.size(), (System.nanoTime() - start) / 1_000_000);
+            return touched.size();
+        } finally {
+            running.set(false);
+        }
+    }
+
+    /**
+     * Price history of a store item over [from, to] (default: the last 30 days)
+     *
+     * @param granularity raw, hour, day, or auto (null) for the coarsest one giving at least
+     *                    prices.rollup.target-points points over the range
+     */
+    public PriceSeries series(String storeItemId, Instant from, Instant to, String granularity) {
+        Instant end = to != null ? to : Instant.now();
+        Instant start = from != null ? from : end.minus(DEFAULT_RANGE);
+        if (!start.isBefore(end)) {
+            throw new IllegalArgumentException("from must be before to");
+        }
+        PriceGranularity resolved = resolveGranularity(granularity, Duration.between(start, end));
+
+        PriceSeries.PriceSeriesBuilder series = PriceSeries.builder()
+                .storeItemId(storeItemId)
+                .granularity(resolved.key())
+                .from(start)
+                .to(end);
+        if (resolved == PriceGranularity.RAW) {
+            List<PriceSeries.PricePoint> points = rawPoints(storeItemId, start, end, maxRawPoints + 1);
+            boolean truncated = points.size() > maxRawPoints;
+            return series.points(truncated ? points.subList(0, maxRawPoints) : points)
+                    .truncated(truncated)
+                    .build();
+        }
+        return series.points(rollupPoints(storeItemId, resolved, start, end)).build();
+    }
+
+    /**
+     * The requested granularity, or the coarsest one giving at least the target number of points
+     */
+    PriceGranularity resolveGranularity(String requested, Duration range) {
+        if (requested != null && !requested.isBlank() && !"auto".equalsIgnoreCase(requested)) {
+            try {
+                return PriceGranularity.valueOf(requested.trim().toUpperCase(Locale.ROOT));
+            } catch (IllegalArgumentException e) {
+                throw new IllegalArgumentException("Unknown granularity: " + requested + " (auto, raw, hour or day)");
+            }
+        }
+        if (enabled) {
+            for (PriceGranularity candidate : List.of(PriceGranularity.DAY, PriceGranularity.HOUR)) {
+                if (range.dividedBy(candidate.duration()) >= targetPoints) {
+                    return candidate;
+                }
+            }
+        }
+        return PriceGranularity.RAW;
+    }
+
+    private List<PriceSeries.PricePoint> rawPoints(String storeItemId, Instant start, Instant end, int limit) {
+        Query query = Query.query(Criteria.where("storeItemId").is(storeItemId).and("timestamp").gte(start).lte(end))
+                .with(Sort.by(Sort.Direction.ASC, "timestamp"))
+                .limit(limit);
+        return mongoTemplate.find(query, StorePrice.class).stream()
+                .map(price -> PriceSeries.PricePoint.builder()
+                        .timestamp(price.getTimestamp())
+                        .min(price.getPrice())
+                        .max(price.getPrice())
+                        .avg(price.getPrice())
+                        .close(price.getPrice())
+                        .count(1)
+                        .build())
+                .toList();
+    }
+
+    private List<PriceSeries.PricePoint> rollupPoints(String storeItemId, PriceGranularity granularity,
+                                                      Instant start, Instant end) {
+        Query query = Query.query(Criteria.where("storeItemId").is(storeItemId)
+                        .and("granularity").is(granularity.key())
+                        .and("bucketStart").gte(granularity.truncate(start)).lte(end))
+                .with(Sort.by(Sort.Direction.ASC, "bucketStart"));
+        return mongoTemplate.find(query, PriceRollup.class).stream()
+                .map(rollup -> PriceSeries.PricePoint.builder()
+                        .timestamp(rollup.getBucketStart())
+                        .min(rollup.getMin())
+                        .max(rollup.getMax())
+                        .avg(rollup.getAvg())
+                        .close(rollup.getClose())
+                        .count(rollup.getCount())
+                        .build())
+                .toList();
+    }
+
+    /**
+     * Oldest observation timestamp per store item written since the watermark (everything if null).
+     * Regular collections find new writes through the _id index; time-series collections by timestamp.
+     */
+    private Map<String, Instant> touchedSince(Instant watermark) {
+        Document match = new Document();
+        if (watermark != null) {
+            match = priceHistoryStorage.isTimeSeries()
+                    ? new Document("timestamp", new Document("$gte", Date.from(watermark)))
+                    : new Document("_id", new Document("$gte", new ObjectId(Date.from(watermark))));
+        }
+        List<AggregationOperation> pipeline = List.of(
+                stage("$match", match),
+                stage("$group", new Document("_id", "$storeItemId")
+                        .append("from", new Document("$min", "$timestamp"))));
+
+        Map<String, Instant> touched = new LinkedHashMap<>();
+        try (Stream<Document> results = mongoTemplate.aggregateStream(
+                Aggregation.newAggregation(pipeline).withOptions(AggregationOptions.builder().allowDiskUse(true).build()),
+                STORE_PRICES_COLLECTION, Document.class)) {
+            results.filter(doc -> doc.get("_id") != null && doc.getDate("from") != null)
+                    .forEach(doc -> touched.put(doc.get("_id").toString(), doc.getDate("from").toInstant()));
+        }
+        return touched;
+    }
+
+    /**
+     * Recompute the buckets of the given store items from the bucket of their oldest touched observation
+     */
+    private void recompute(List<String> storeItemIds, Map<String, Instant> touched, PriceGranularity granularity) {
+        List<Document> ranges = storeItemIds.stream()
+                .map(id -> new Document("storeItemId", id)
+                        .append("timestamp", new Document("$gte", Date.from(granularity.truncate(touched.get(id))))))
+                .toList();
+        Document bucketStart = new Document("$dateTrunc", new Document("date", "$timestamp")
+                .append("unit", granularity.key()));
+
+        List<AggregationOperation> pipeline = List.of(
+                stage("$match", new Document("$or", ranges)),
+                stage("$sort", new Document("storeItemId", 1).append("timestamp", 1)),
+                stage("$group", new Document("_id", new Document("storeItemId", "$storeItemId")
+                        .append("granularity", granularity.key())
+                        .append("bucketStart", bucketStart))
+                        .append("min", new Document("$min", "$price"))
+                        .append("max", new Document("$max", "$price"))
+                        .append("sum", new Document("$sum", "$price"))
+                        .append("count", new Document("$sum", 1))
+                        .append("close", new Document("$last", "$price"))
+                        .append("closeAt", new Document("$last", "$timestamp"))
+                        .append("closeOriginalPrice", new Document("$last", "$originalPrice"))),
+                stage("$set", new Document("storeItemId", "$_id.storeItemId")
+                        .append("granularity", "$_id.granularity")
+                        .append("bucketStart", "$_id.bucketStart")
+                        .append("avg", new Document("$divide", List.of("$sum", "$count")))),
+                stage("$merge", new Document("into", ROLLUPS_COLLECTION)
+                        .append("on", "_id")
+                        .append("whenMatched", "replace")
+                        .append("whenNotMatched", "insert")));
+
+        mongoTemplate.aggregate(
+                Aggregation.newAggregation(pipeline).withOptions(AggregationOptions.builder().allowDiskUse(true).build()),
+                STORE_PRICES_COLLECTION, Document.class);
+    }
+
+    private Instant readWatermark() {
+        Document state = mongoTemplate.findById(STORE_PRICES_COLLECTION, Document.class, STATE_COLLECTION);
+        return state != null && state.getDate("watermark") != null ? state.getDate("watermark").toInstant() : null;
+    }
+
+    private void writeWatermark(Instant watermark) {
+        mongoTemplate.upsert(Query.query(Criteria.where("_id").is(STORE_PRICES_COLLECTION)),
+                Update.update("watermark", Date.from(watermark)), STATE_COLLECTION);
+    }
+
+    private static AggregationOperation stage(String operator, Object body) {
+        Document stage = new Document(operator, body);
+        return context -> stage;
+    }
+}
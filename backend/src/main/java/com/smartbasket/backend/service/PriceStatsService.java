@@ -0,0 +1,232 @@
+package com.smartbasket.backend.service;
+
+import com.smartbasket.backend.dto.PriceStats;
+import com.smartbasket.backend.exception.ResourceNotFoundException;
+import com.smartbasket.backend.model.PriceGranularity;
+import com.smartbasket.backend.model.PriceRollup;
+import com.smartbasket.backend.model.StoreItem;
+import com.smartbasket.backend.model.StorePrice;
+import com.smartbasket.backend.repository.StoreItemRepository;
+import lombok.RequiredArgsConstructor;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.domain.Sort;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.query.Criteria;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.stereotype.Service;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+
+/**
+ * Windowed price statistics (lowest, highest, average and median price over the last 30/90/365 days)
+ * and a real-discount check, computed from the daily rollups maintained by PriceRollupService.
+ *
+ * A request costs two queries however long the price history is: the store items, and at most one
+ * daily bucket per item and day. Each bucket is visited once per item. An item whose price changed
+ * inside the window without a bucket on its first day costs one more read for the price in effect
+ * before it.
+ */
+@Service
+@RequiredArgsConstructor
+public class PriceStatsService {
+
+    private final MongoTemplate mongoTemplate;
+    private final StoreItemRepository storeItemRepository;
+
+    @Value("${prices.stats.windows-days:30,90,365}")
+    private int[] windowDays = {30, 90, 365};
+    // A discount is real when the price is below the lowest price of this many days before it
+    @Value("${prices.stats.reference-days:30}")
+    private int referenceDays = 30;
+
+    /**
+     * Price statistics of one store item
+     */
+    public PriceStats getStats(String storeItemId) {
+        List<PriceStats> stats = getStats(List.of(storeItemId));
+        if (stats.isEmpty()) {
+            throw new ResourceNotFoundException("Store item not found: " + storeItemId);
+        }
+        return stats.get(0);
+    }
+
+    /**
+     * Price statistics of many store items, in request order; unknown ids are left out
+     */
+    public List<PriceStats> getStats(List<String> storeItemIds) {
+        List<String> ids = new ArrayList<>(new LinkedHashSet<>(storeItemIds));
+        Map<String, StoreItem> items = storeItemRepository.findAllById(ids).stream()
+                .collect(Collectors.toMap(StoreItem::getId, Function.identity()));
+        if (items.isEmpty()) {
+            return List.of();
+        }
+
+        Instant today = PriceGranularity.DAY.truncate(Instant.now());
+        Instant firstDay = firstDay(today);
+        Query query = Query.query(Criteria.where("storeItemId").in(items.keySet())
+                        .and("granularity").is(PriceGranularity.DAY.key())
+                        .and("bucketStart").gte(firstDay))
+                .with(Sort.by("storeItemId", "bucketStart"));
+        query.fields().include("storeItemId", "bucketStart", "min", "max", "close");
+        Map<String, List<PriceRollup>> buckets = mongoTemplate.find(query, PriceRollup.class).stream()
+                .collect(Collectors.groupingBy(PriceRollup::getStoreItemId));
+
+        return ids.stream()
+                .map(items::get)
+                .filter(Objects::nonNull)
+                .map(item -> {
+                    List<PriceRollup> itemBuckets = buckets.getOrDefault(item.getId(), List.of());
+                    return compute(item, itemBuckets, today, openingPrice(item, itemBuckets, firstDay));
+                })
+                .toList();
+    }
+
+    /**
+     * Price in effect when the window opens, when the buckets of the window do not tell it
+     */
+    private Double openingPrice(StoreItem item, List<PriceRollup> buckets, Instant firstDay) {
+        if (!buckets.isEmpty() && !buckets.get(0).getBucketStart().isAfter(firstDay)) {
+            return null;
+        }
+        // Unchanged prices are not written to the history, so the current price may be older than the window
+        if (item.getLastPriceUpdate() != null && !item.getLastPriceUpdate().isAfter(firstDay)) {
+            return item.getCurrentPrice();
+        }
+        Query rollupQuery = Query.query(Criteria.where("storeItemId").is(item.getId())
+                        .and("granularity").is(PriceGranularity.DAY.key())
+                        .and("bucketStart").lt(firstDay))
+                .with(Sort.by(Sort.Direction.DESC, "bucketStart"))
+                .limit(1);
+        rollupQuery.fields().include("close");
+        PriceRollup before = mongoTemplate.findOne(rollupQuery, PriceRollup.class);
+        if (before != null && before.getClose() != null) {
+            return before.getClose();
+        }
+        // Raw history older than the rollups
+        Query rawQuery = Query.query(Criteria.where("storeItemId").is(item.getId()).and("timestamp").lt(firstDay))
+                .with(Sort.by(Sort.Direction.DESC, "timestamp"))
+                .limit(1);
+        rawQuery.fields().include("price");
+        StorePrice raw = mongoTemplate.findOne(rawQuery, StorePrice.class);
+        return raw != null ? raw.getPrice() : null;
+    }
+
+    /**
+     * Statistics of a store item from its daily buckets since {@link #firstDay(Instant)}, starting from
+     * openingPrice (the price in effect before the first day, if known) until the first bucket
+     */
+    PriceStats compute(StoreItem item, List<PriceRollup> buckets, Instant today, Double openingPrice) {
+        Instant firstDay = firstDay(today);
+        int dayCount = (int) Duration.between(firstDay, today).toDays() + 1;
+        double[] low = new double[dayCount];
+        double[] high = new double[dayCount];
+        double[] close = new double[dayCount];
+        Arrays.fill(low, Double.NaN);
+        Arrays.fill(high, Double.NaN);
+        Arrays.fill(close, Double.NaN);
+
+        for (PriceRollup bucket : buckets) {
+            int day = (int) Duration.between(firstDay, bucket.getBucketStart()).toDays();
+            if (day >= 0 && day < dayCount && bucket.getClose() != null) {
+                low[day] = bucket.getMin();
+                high[day] = bucket.getMax();
+                close[day] = bucket.getClose();
+            }
+        }
+        if (Double.isNaN(close[0]) && openingPrice != null) {
+            low[0] = high[0] = close[0] = openingPrice;
+        }
+        // Unchanged prices are not written to the history, so a day without observations kept the
+        // previous day's close
+        for (int day = 1; day < dayCount; day++) {
+            if (Double.isNaN(close[day]) && !Double.isNaN(close[day - 1])) {
+                low[day] = high[day] = close[day] = close[day - 1];
+            }
+        }
+        // Rollups lag the raw history, the denormalized current price does not
+        Double currentPrice = item.getCurrentPrice();
+        if (currentPrice != null) {
+            int day = dayCount - 1;
+            low[day] = Double.isNaN(low[day]) ? currentPrice : Math.min(low[day], currentPrice);
+            high[day] = Double.isNaN(high[day]) ? currentPrice : Math.max(high[day], currentPrice);
+            close[day] = currentPrice;
+        }
+
+        List<PriceStats.Window> windows = new ArrayList<>();
+        for (int days : windowDays) {
+            windows.add(window(days, today, low, high, close));
+        }
+
+        // Reference: lowest price of the reference period before the day the current price took effect
+        Instant priceSince = item.getLastPriceUpdate();
+        int sinceDay = priceSince != null
+                ? (int) Duration.between(firstDay, PriceGranularity.DAY.truncate(priceSince)).toDays()
+                : dayCount - 1;
+        Double referencePrice = null;
+        for (int day = Math.max(0, sinceDay - referenceDays); day < Math.min(sinceDay, dayCount); day++) {
+            if (!Double.isNaN(low[day]) && (referencePrice == null || low[day] < referencePrice)) {
+                referencePrice = low[day];
+            }
+        }
+        boolean realDiscount = currentPrice != null && referencePrice != null && currentPrice < referencePrice;
+
+        return PriceStats.builder()
+                .storeItemId(item.getId())
+                .currentPrice(currentPrice)
+                .originalPrice(item.getOriginalPrice())
+                .isPromotion(item.getIsPromotion())
+                .priceSince(priceSince)
+                .windows(windows)
+                .referencePrice(referencePrice)
+                .referenceDays(referenceDays)
+                .realDiscount(realDiscount)
+                .discountPercent(realDiscount ? (referencePrice - currentPrice) / referencePrice * 100 : null)
+                .build();
+    }
+
+    private PriceStats.Window window(int days, Instant today, double[] low, double[] high, double[] close) {
+        int from = Math.max(0, close.length - days);
+        double min = Double.POSITIVE_INFINITY;
+        double max = Double.NEGATIVE_INFINITY;
+        double sum = 0;
+        double[] prices = new double[close.length - from];
+        int count = 0;
+        for (int day = from; day < close.length; day++) {
+            if (Double.isNaN(close[day])) {
+                continue;
+            }
+            min = Math.min(min, low[day]);
+            max = Math.max(max, high[day]);
+            sum += close[day];
+            prices[count++] = close[day];
+        }
+
+        PriceStats.Window.WindowBuilder window = PriceStats.Window.builder()
+                .days(days)
+                .from(today.minus(Duration.ofDays(days - 1L)))
+                .daysWithPrice(count);
+        if (count == 0) {
+            return window.build();
+        }
+        Arrays.sort(prices, 0, count);
+        double median = count % 2 == 1 ? prices[count / 2] : (prices[count / 2 - 1] + prices[count / 2]) / 2;
+        return window.min(min).max(max).avg(sum / count).median(median).build();
+    }
+
+    /**
+     * First day read: the longest window plus the reference period before it
+     */
+    private Instant firstDay(Instant today) {
+        int longest = Arrays.stream(windowDays).max().orElse(0);
+        return today.minus(Duration.ofDays(longest - 1L + referenceDays));
+    }
+}
@@ -1,19 +1,46 @@
 package com.smartbasket.backend.service;
 
+import com.smartbasket.backend.dto.BarcodePriceUpdateRequest;
 import com.smartbasket.backend.dto.BatchPriceUpdateRequest;
 import com.smartbasket.backend.dto.BatchPriceUpdateResponse;
+import com.smartbasket.backend.dto.PriceHistoryPage;
 import com.smartbasket.backend.model.StoreItem;
 import com.smartbasket.backend.model.StorePrice;
 import com.smartbasket.backend.repository.StoreItemRepository;
 import com.smartbasket.backend.repository.StorePriceRepository;
+import com.mongodb.bulk.BulkWriteError;
 import lombok.RequiredArgsConstructor;
+import org.bson.types.ObjectId;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.dao.DataAccessException;
+import org.springframework.data.domain.Sort;
+import org.springframework.data.mongodb.BulkOperationException;
+import org.springframework.data.mongodb.core.BulkOperations;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.query.Criteria;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.data.mongodb.core.query.Update;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 
+import java.nio.charset.StandardCharsets;
 import java.time.Instant;
 import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Base64;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
 import java.util.List;
+import java.util.Map;
 import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
 
 @Service
 @RequiredArgsConstructor
@@ -21,11 +48,32 @@ public class PriceUpdateService {
 
     private final StoreItemRepository storeItemRepository;
     private final StorePriceRepository storePriceRepository;
+    private final PriceMatrix priceMatrix;
+    private final BasketComparisonCache basketComparisonCache;
+    private final MongoTemplate mongoTemplate;
+    private final PriceFingerprints priceFingerprints;
+    private final BarcodeIndex barcodeIndex;
+    @Qualifier("priceBatchExecutor")
+    private final ExecutorService priceBatchExecutor;
+
+    // Partitions of a large batch applied in parallel (0 = number of CPUs), and entries per bulk round
+    @Value("${prices.batch.parallelism:0}")
+    private int batchParallelism;
+    @Value("${prices.batch.chunk-size:1000}")
+    private int batchChunkSize = 1000;
+
+    @Value("${prices.history.default-page-size:50}")
+    private int historyDefaultPageSize = 50;
+    @Value("${prices.history.max-page-size:500}")
+    private int historyMaxPageSize = 500;
 
     private static final String DEFAULT_CURRENCY = "JOD";
+    // Writes sent per bulk operation
+    private static final int BULK_CHUNK_SIZE = 1000;
 
     /**
-     * Update a single item's price
+     * Update a single item's price. If it repeats the current price, only lastConfirmedAt is advanced
+     * and the latest history record is returned.
      */
     @Transactional
     public StorePrice updatePrice(String storeItemId, Double price, Double originalPrice, String currency, Boolean isPromotion) {
@@ -39,7 +87,19 @@ public class PriceUpdateService {
         boolean effectivePromotion = isPromotion != null ? isPromotion : false;
         Instant now = Instant.now();
 
-        // 1. Create price history record
+        // 1. Unchanged price: confirm it instead of recording it again
+        long fingerprint = PriceFingerprints.of(price, originalPrice, effectiveCurrency, effectivePromotion);
+        if (PriceFingerprints.of(storeItem) == fingerprint) {
+            Optional<StorePrice> latest = storePriceRepository.findFirstByStoreItemIdOrderByTimestampDesc(storeItemId);
+            if (latest.isPresent()) {
+                mongoTemplate.updateFirst(Query.query(Criteria.where("_id").is(storeItemId)),
+                        new Update().max("lastConfirmedAt", now), StoreItem.class);
+                priceFingerprints.put(storeItemId, fingerprint);
+                return latest.get();
+            }
+        }
+
+        // 2. Create price history record
         StorePrice priceRecord = StorePrice.builder()
                 .storeItemId(storeItemId)
                 .price(price)
@@ -50,13 +110,17 @@ public class PriceUpdateService {
                 .build();
         StorePrice savedPrice = storePriceRepository.save(priceRecord);
 
-        // 2. Update cached price on StoreItem
+        // 3. Update cached price on StoreItem
         storeItem.setCurrentPrice(price);
         storeItem.setOriginalPrice(originalPrice);
         storeItem.setCurrency(effectiveCurrency);
         storeItem.setIsPromotion(effectivePromotion);
         storeItem.setLastPriceUpdate(now);
+        storeItem.setLastConfirmedAt(now);
         storeItemRepository.save(storeItem);
+        priceFingerprints.put(storeItemId, fingerprint);
+        priceMatrix.upsertStoreItem(storeItem);
+        basketComparisonCache.invalidateReferenceItem(storeItem.getReferenceItemId());
 
         return savedPrice;
     }
@@ -66,48 +130,505 @@ public class PriceUpdateService {
      */
     @Transactional
     public BatchPriceUpdateResponse batchUpdatePrices(BatchPriceUpdateRequest request) {
-        List<BatchPriceUpdateResponse.PriceUpdateResult> results = new ArrayList<>();
-        int successCount = 0;
-        int failureCount = 0;
+        return summarize(applyPriceEntries(request.getPrices()), null);
+    }
 
-        for (BatchPriceUpdateRequest.PriceEntry entry : request.getPrices()) {
-            try {
-                updatePrice(
-                        entry.getStoreItemId(),
-                        entry.getPrice(),
-                        entry.getOriginalPrice(),
-                        entry.getCurrency(),
-                        entry.getIsPromotion()
-                );
-                results.add(BatchPriceUpdateResponse.PriceUpdateResult.builder()
-                        .storeItemId(entry.getStoreItemId())
-                        .success(true)
-                        .message("Price updated successfully")
-                        .newPrice(entry.getPrice())
-                        .build());
-                successCount++;
-            } catch (Exception e) {
-                results.add(BatchPriceUpdateResponse.PriceUpdateResult.builder()
-                        .storeItemId(entry.getStoreItemId())
+    /**
+     * Batch update the prices of one store's items identified by barcode. Barcodes are resolved
+     * through the resident barcode index; rows with unknown barcodes fail and are listed once each.
+     */
+    public BatchPriceUpdateResponse batchUpdatePricesByBarcode(BarcodePriceUpdateRequest request) {
+        List<BarcodePriceUpdateRequest.BarcodePriceEntry> rows = request.getPrices();
+        Map<String, String> storeItemIds = barcodeIndex.resolve(request.getStoreId(),
+                rows.stream().map(BarcodePriceUpdateRequest.BarcodePriceEntry::getBarcode).toList());
+
+        // 1. Rows with a known barcode become regular price entries
+        List<Integer> positions = new ArrayList<>();
+        List<BatchPriceUpdateRequest.PriceEntry> entries = new ArrayList<>();
+        Set<String> unknownBarcodes = new LinkedHashSet<>();
+        BatchPriceUpdateResponse.PriceUpdateResult[] results = new BatchPriceUpdateResponse.PriceUpdateResult[rows.size()];
+        for (int i = 0; i < rows.size(); i++) {
+            BarcodePriceUpdateRequest.BarcodePriceEntry row = rows.get(i);
+            String barcode = row.getBarcode().trim();
+            String storeItemId = storeItemIds.get(barcode);
+            if (storeItemId == null) {
+                unknownBarcodes.add(barcode);
+                results[i] = BatchPriceUpdateResponse.PriceUpdateResult.builder()
+                        .barcode(barcode)
                         .success(false)
-                        .message(e.getMessage())
-                        .build());
-                failureCount++;
+                        .message("Unknown barcode for store " + request.getStoreId())
+                        .build();
+                continue;
             }
+            positions.add(i);
+            entries.add(BatchPriceUpdateRequest.PriceEntry.builder()
+                    .storeItemId(storeItemId)
+                    .price(row.getPrice())
+                    .originalPrice(row.getOriginalPrice())
+                    .currency(row.getCurrency())
+                    .isPromotion(row.getIsPromotion())
+                    .build());
+        }
+
+        // 2. Apply them through the bulk pipeline and put the results back in row order
+        List<BatchPriceUpdateResponse.PriceUpdateResult> applied = applyPriceEntries(entries);
+        for (int k = 0; k < applied.size(); k++) {
+            int i = positions.get(k);
+            BatchPriceUpdateResponse.PriceUpdateResult result = applied.get(k);
+            result.setBarcode(rows.get(i).getBarcode().trim());
+            results[i] = result;
         }
+        return summarize(Arrays.asList(results), new ArrayList<>(unknownBarcodes));
+    }
+
+    private static BatchPriceUpdateResponse summarize(List<BatchPriceUpdateResponse.PriceUpdateResult> results,
+                                                      List<String> unknownBarcodes) {
+        int successCount = (int) results.stream().filter(BatchPriceUpdateResponse.PriceUpdateResult::isSuccess).count();
+        int unchangedCount = (int) results.stream().filter(result -> Boolean.FALSE.equals(result.getChanged())).count();
 
         return BatchPriceUpdateResponse.builder()
-                .totalRequested(request.getPrices().size())
+                .totalRequested(results.size())
                 .successCount(successCount)
-                .failureCount(failureCount)
+                .changedCount(successCount - unchangedCount)
+                .unchangedCount(unchangedCount)
+                .failureCount(results.size() - successCount)
+                .unknownBarcodes(unknownBarcodes)
                 .results(results)
                 .build();
     }
 
+    /**
+     * Apply price entries with a fixed number of round-trips: one $in query for the store items,
+     * unordered bulk inserts for the history and one bulk $set per touched store item for the
+     * cached price fields. Entries for the same store item are applied in input order.
+     *
+     * Entries that repeat the current price, original price, currency and promotion flag of their
+     * store item are not recorded again; they only advance its lastConfirmedAt. Store items whose
+     * fingerprint already matches every entry are not read at all.
+     *
+     * @return one result per entry, in input order
+     */
+    public List<BatchPriceUpdateResponse.PriceUpdateResult> applyPriceEntries(
+            List<BatchPriceUpdateRequest.PriceEntry> entries) {
+        return applyPriceEntries(entries, null);
+    }
+
+    /**
+     * Like {@link #applyPriceEntries(List)}, but records each entry at the time it was observed.
+     *
+     * Batches larger than one chunk are split into partitions by store item id hash, so every entry
+     * of a store item lands in the same partition in input order. Partitions are applied chunk by
+     * chunk in parallel on the price batch executor, and the results are merged back in input order.
+     *
+     * @param observedAt timestamp of each entry, in the same order, or null to record all of them now
+     */
+    public List<BatchPriceUpdateResponse.PriceUpdateResult> applyPriceEntries(
+            List<BatchPriceUpdateRequest.PriceEntry> entries, List<Instant> observedAt) {
+        BatchPriceUpdateResponse.PriceUpdateResult[] results = new BatchPriceUpdateResponse.PriceUpdateResult[entries.size()];
+        Instant now = Instant.now();
+        List<Instant> timestamps = observedAt != null ? observedAt : Collections.nCopies(entries.size(), now);
+
+        // 1. Partition positions by store item id hash
+        int partitionCount = partitionCount(entries.size());
+        List<List<Integer>> partitions = new ArrayList<>(partitionCount);
+        for (int p = 0; p < partitionCount; p++) {
+            partitions.add(new ArrayList<>());
+        }
+        for (int i = 0; i < entries.size(); i++) {
+            partitions.get(Math.floorMod(entries.get(i).getStoreItemId().hashCode(), partitionCount)).add(i);
+        }
+        if (partitionCount == 1) {
+            applyPartition(partitions.get(0), entries, timestamps, results);
+            return Arrays.asList(results);
+        }
+
+        // 2. Apply the partitions in parallel
+        List<Future<?>> futures = new ArrayList<>();
+        for (List<Integer> partition : partitions) {
+            futures.add(priceBatchExecutor.submit(() -> applyPartition(partition, entries, timestamps, results)));
+        }
+
+        // 3. Wait for all of them; entries of a failed partition that have no result yet fail with it
+        for (int p = 0; p < partitionCount; p++) {
+            try {
+                futures.get(p).get();
+            } catch (ExecutionException e) {
+                for (int i : partitions.get(p)) {
+                    if (results[i] == null) {
+                        results[i] = failure(entries.get(i), e.getCause().getMessage());
+                    }
+                }
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                futures.forEach(future -> future.cancel(true));
+                throw new IllegalStateException("Interrupted while applying price batch", e);
+            }
+        }
+        return Arrays.asList(results);
+    }
+
+    /**
+     * Partitions for a batch: one per chunk of entries, at most the configured parallelism
+     */
+    private int partitionCount(int entryCount) {
+        int parallelism = batchParallelism > 0 ? batchParallelism : Runtime.getRuntime().availableProcessors();
+        int chunks = (entryCount + batchChunkSize - 1) / batchChunkSize;
+        return Math.max(1, Math.min(parallelism, chunks));
+    }
+
+    /**
+     * Apply the entries at the given positions chunk by chunk, in order, writing their results in place
+     */
+    private void applyPartition(List<Integer> positions, List<BatchPriceUpdateRequest.PriceEntry> entries,
+                                List<Instant> timestamps, BatchPriceUpdateResponse.PriceUpdateResult[] results) {
+        for (int from = 0; from < positions.size(); from += batchChunkSize) {
+            List<Integer> chunk = positions.subList(from, Math.min(from + batchChunkSize, positions.size()));
+            List<BatchPriceUpdateResponse.PriceUpdateResult> chunkResults = applyChunk(
+                    chunk.stream().map(entries::get).toList(),
+                    chunk.stream().map(timestamps::get).toList());
+            for (int k = 0; k < chunk.size(); k++) {
+                results[chunk.get(k)] = chunkResults.get(k);
+            }
+        }
+    }
+
+    private List<BatchPriceUpdateResponse.PriceUpdateResult> applyChunk(
+            List<BatchPriceUpdateRequest.PriceEntry> entries, List<Instant> observedAt) {
+        BatchPriceUpdateResponse.PriceUpdateResult[] results = new BatchPriceUpdateResponse.PriceUpdateResult[entries.size()];
+
+        // 1. Fingerprint the entries; only store items with an unknown or different fingerprint are read.
+        //    The known fingerprints are read once, so concurrent writes cannot change the classification.
+        long[] fingerprints = new long[entries.size()];
+        Map<String, Long> knownFingerprints = new HashMap<>();
+        Set<String> storeItemIds = new LinkedHashSet<>();
+        for (int i = 0; i < entries.size(); i++) {
+            BatchPriceUpdateRequest.PriceEntry entry = entries.get(i);
+            fingerprints[i] = PriceFingerprints.of(entry.getPrice(), entry.getOriginalPrice(),
+                    effectiveCurrency(entry), effectivePromotion(entry));
+            if (!knownFingerprints.containsKey(entry.getStoreItemId())) {
+                knownFingerprints.put(entry.getStoreItemId(), priceFingerprints.get(entry.getStoreItemId()));
+            }
+            Long known = knownFingerprints.get(entry.getStoreItemId());
+            if (known == null || known != fingerprints[i]) {
+                storeItemIds.add(entry.getStoreItemId());
+            }
+        }
+        Map<String, StoreItem> storeItems = new HashMap<>();
+        if (!storeItemIds.isEmpty()) {
+            storeItemRepository.findAllById(storeItemIds).forEach(item -> storeItems.put(item.getId(), item));
+        }
+
+        // 2. Compare each entry with the running fingerprint of its store item and build history
+        //    records for the ones that change it
+        Map<String, Long> current = new HashMap<>();
+        knownFingerprints.forEach((storeItemId, known) -> {
+            if (known != null) {
+                current.put(storeItemId, known);
+            }
+        });
+        storeItems.values().forEach(item -> current.put(item.getId(), PriceFingerprints.of(item)));
+        Map<String, Instant> confirmedAt = new HashMap<>();
+        List<Integer> unchanged = new ArrayList<>();
+        List<Integer> positions = new ArrayList<>();
+        List<StorePrice> priceRecords = new ArrayList<>();
+        for (int i = 0; i < entries.size(); i++) {
+            BatchPriceUpdateRequest.PriceEntry entry = entries.get(i);
+            String storeItemId = entry.getStoreItemId();
+            if (storeItemIds.contains(storeItemId) && !storeItems.containsKey(storeItemId)) {
+                results[i] = failure(entry, "Store item not found: " + storeItemId);
+                continue;
+            }
+            Instant timestamp = observedAt.get(i);
+            confirmedAt.merge(storeItemId, timestamp, (a, b) -> a.isAfter(b) ? a : b);
+            Long running = current.get(storeItemId);
+            if (running != null && running == fingerprints[i]) {
+                unchanged.add(i);
+                continue;
+            }
+            current.put(storeItemId, fingerprints[i]);
+            positions.add(i);
+            priceRecords.add(StorePrice.builder()
+                    .storeItemId(storeItemId)
+                    .price(entry.getPrice())
+                    .originalPrice(entry.getOriginalPrice())
+                    .currency(effectiveCurrency(entry))
+                    .isPromotion(effectivePromotion(entry))
+                    .timestamp(timestamp)
+                    .build());
+        }
+
+        // 3. Insert the history; a failed insert only fails its own entry
+        Map<Integer, String> insertFailures = bulkInsert(priceRecords);
+
+        // 4. Fold the recorded entries into the final cached price of each store item
+        Map<String, StoreItem> updatedItems = new LinkedHashMap<>();
+        Map<String, List<Integer>> positionsByItem = new HashMap<>();
+        Set<String> failedItems = new HashSet<>();
+        for (int k = 0; k < priceRecords.size(); k++) {
+            int i = positions.get(k);
+            BatchPriceUpdateRequest.PriceEntry entry = entries.get(i);
+            if (insertFailures.containsKey(k)) {
+                results[i] = failure(entry, insertFailures.get(k));
+                failedItems.add(entry.getStoreItemId());
+                continue;
+            }
+            StorePrice priceRecord = priceRecords.get(k);
+            StoreItem storeItem = storeItems.get(entry.getStoreItemId());
+            storeItem.setCurrentPrice(priceRecord.getPrice());
+            storeItem.setOriginalPrice(priceRecord.getOriginalPrice());
+            storeItem.setCurrency(priceRecord.getCurrency());
+            storeItem.setIsPromotion(priceRecord.isPromotion());
+            storeItem.setLastPriceUpdate(priceRecord.getTimestamp());
+            storeItem.setLastConfirmedAt(confirmedAt.get(storeItem.getId()));
+            updatedItems.put(storeItem.getId(), storeItem);
+            positionsByItem.computeIfAbsent(storeItem.getId(), id -> new ArrayList<>()).add(i);
+            results[i] = BatchPriceUpdateResponse.PriceUpdateResult.builder()
+                    .storeItemId(entry.getStoreItemId())
+                    .success(true)
+                    .changed(true)
+                    .message("Price updated successfully")
+                    .newPrice(entry.getPrice())
+                    .build();
+        }
+
+        // 5. Apply the cached price fields with bulk $set updates, and only confirm the rest
+        Map<String, String> updateFailures = bulkUpdateCachedPrices(new ArrayList<>(updatedItems.values()));
+        updateFailures.forEach((storeItemId, message) -> {
+            updatedItems.remove(storeItemId);
+            failedItems.add(storeItemId);
+            for (int i : positionsByItem.get(storeItemId)) {
+                results[i] = failure(entries.get(i), "Price recorded but store item not updated: " + message);
+            }
+        });
+        Map<String, Instant> confirmOnly = new LinkedHashMap<>();
+        for (int i : unchanged) {
+            String storeItemId = entries.get(i).getStoreItemId();
+            if (!updatedItems.containsKey(storeItemId) && !failedItems.contains(storeItemId)) {
+                confirmOnly.put(storeItemId, confirmedAt.get(storeItemId));
+            }
+        }
+        Map<String, String> confirmFailures = bulkConfirm(confirmOnly);
+        for (int i : unchanged) {
+            BatchPriceUpdateRequest.PriceEntry entry = entries.get(i);
+            String confirmFailure = failedItems.contains(entry.getStoreItemId())
+                    ? "store item not updated"
+                    : confirmFailures.get(entry.getStoreItemId());
+            results[i] = confirmFailure != null
+                    ? failure(entry, "Price unchanged but not confirmed: " + confirmFailure)
+                    : BatchPriceUpdateResponse.PriceUpdateResult.builder()
+                            .storeItemId(entry.getStoreItemId())
+                            .success(true)
+                            .changed(false)
+                            .message("Price unchanged")
+                            .newPrice(entry.getPrice())
+                            .build();
+        }
+        failedItems.addAll(confirmFailures.keySet());
+
+        // 6. Remember the fingerprints that are now stored, and forget the ones that may not be
+        current.forEach((storeItemId, fingerprint) -> {
+            if (failedItems.contains(storeItemId)) {
+                priceFingerprints.forget(storeItemId);
+            } else {
+                priceFingerprints.put(storeItemId, fingerprint);
+            }
+        });
+
+        // 7. Keep the price matrix and the comparison cache current
+        Set<String> referenceItemIds = new LinkedHashSet<>();
+        for (StoreItem storeItem : updatedItems.values()) {
+            priceMatrix.upsertStoreItem(storeItem);
+            referenceItemIds.add(storeItem.getReferenceItemId());
+        }
+        referenceItemIds.forEach(basketComparisonCache::invalidateReferenceItem);
+
+        return Arrays.asList(results);
+    }
+
+    /**
+     * Insert price records with unordered bulk writes
+     *
+     * @return error message by record index, for the records that were not inserted
+     */
+    private Map<Integer, String> bulkInsert(List<StorePrice> priceRecords) {
+        Map<Integer, String> failures = new HashMap<>();
+        for (int from = 0; from < priceRecords.size(); from += BULK_CHUNK_SIZE) {
+            int to = Math.min(from + BULK_CHUNK_SIZE, priceRecords.size());
+            BulkOperations operations = mongoTemplate.bulkOps(BulkOperations.BulkMode.UNORDERED, StorePrice.class);
+            operations.insert(priceRecords.subList(from, to));
+            try {
+                operations.execute();
+            } catch (BulkOperationException e) {
+                for (BulkWriteError error : e.getErrors()) {
+                    failures.put(from + error.getIndex(), error.getMessage());
+                }
+            } catch (DataAccessException e) {
+                for (int k = from; k < to; k++) {
+                    failures.put(k, e.getMessage());
+                }
+            }
+        }
+        return failures;
+    }
+
+    /**
+     * $set the cached price fields of each store item with unordered bulk writes
+     *
+     * @return error message by store item id, for the items that were not updated
+     */
+    private Map<String, String> bulkUpdateCachedPrices(List<StoreItem> storeItems) {
+        Map<String, String> failures = new HashMap<>();
+        for (int from = 0; from < storeItems.size(); from += BULK_CHUNK_SIZE) {
+            int to = Math.min(from + BULK_CHUNK_SIZE, storeItems.size());
+            List<StoreItem> chunk = storeItems.subList(from, to);
+            BulkOperations operations = mongoTemplate.bulkOps(BulkOperations.BulkMode.UNORDERED, StoreItem.class);
+            for (StoreItem storeItem : chunk) {
+                operations.updateOne(Query.query(Criteria.where("_id").is(storeItem.getId())), new Update()
+                        .set("currentPrice", storeItem.getCurrentPrice())
+                        .set("originalPrice", storeItem.getOriginalPrice())
+                        .set("currency", storeItem.getCurrency())
+                        .set("isPromotion", storeItem.getIsPromotion())
+                        .set("lastPriceUpdate", storeItem.getLastPriceUpdate())
+                        .set("lastConfirmedAt", storeItem.getLastConfirmedAt()));
+            }
+            try {
+                operations.execute();
+            } catch (BulkOperationException e) {
+                for (BulkWriteError error : e.getErrors()) {
+                    failures.put(chunk.get(error.getIndex()).getId(), error.getMessage());
+                }
+            } catch (DataAccessException e) {
+                chunk.forEach(storeItem -> failures.put(storeItem.getId(), e.getMessage()));
+            }
+        }
+        return failures;
+    }
+
+    /**
+     * $set only the lastConfirmedAt of store items whose price did not change
+     *
+     * @return error message by store item id, for the items that were not updated
+     */
+    private Map<String, String> bulkConfirm(Map<String, Instant> confirmedAt) {
+        Map<String, String> failures = new HashMap<>();
+        List<String> storeItemIds = new ArrayList<>(confirmedAt.keySet());
+        for (int from = 0; from < storeItemIds.size(); from += BULK_CHUNK_SIZE) {
+            List<String> chunk = storeItemIds.subList(from, Math.min(from + BULK_CHUNK_SIZE, storeItemIds.size()));
+            BulkOperations operations = mongoTemplate.bulkOps(BulkOperations.BulkMode.UNORDERED, StoreItem.class);
+            for (String storeItemId : chunk) {
+                operations.updateOne(Query.query(Criteria.where("_id").is(storeItemId)),
+                        new Update().max("lastConfirmedAt", confirmedAt.get(storeItemId)));
+            }
+            try {
+                operations.execute();
+            } catch (BulkOperationException e) {
+                for (BulkWriteError error : e.getErrors()) {
+                    failures.put(chunk.get(error.getIndex()), error.getMessage());
+                }
+            } catch (DataAccessException e) {
+                chunk.forEach(storeItemId -> failures.put(storeItemId, e.getMessage()));
+            }
+        }
+        return failures;
+    }
+
+    private static String effectiveCurrency(BatchPriceUpdateRequest.PriceEntry entry) {
+        return entry.getCurrency() != null ? entry.getCurrency() : DEFAULT_CURRENCY;
+    }
+
+    private static boolean effectivePromotion(BatchPriceUpdateRequest.PriceEntry entry) {
+        return entry.getIsPromotion() != null ? entry.getIsPromotion() : false;
+    }
+
+    private static BatchPriceUpdateResponse.PriceUpdateResult failure(BatchPriceUpdateRequest.PriceEntry entry,
+                                                                      String message) {
+        return BatchPriceUpdateResponse.PriceUpdateResult.builder()
+                .storeItemId(entry.getStoreItemId())
+                .success(false)
+                .message(message)
+                .build();
+    }
+
     /**
      * Get price history for a store item
      */
     public List<StorePrice> getPriceHistory(String storeItemId) {
         return storePriceRepository.findByStoreItemIdOrderByTimestampDesc(storeItemId);
     }
+
+    /**
+     * One page of a store item's price history, newest first. Pages are keyed on (timestamp, id)
+     * of the last record returned, so each page is an index range scan on
+     * (storeItemId, timestamp desc) however deep it is.
+     *
+     * @param from   earliest timestamp to include, or null
+     * @param to     latest timestamp to include, or null
+     * @param cursor nextCursor of the previous page, or null for the first page
+     * @param limit  page size, capped at prices.history.max-page-size
+     */
+    public PriceHistoryPage getPriceHistoryPage(String storeItemId, Instant from, Instant to,
+                                                String cursor, Integer limit) {
+        int pageSize = Math.min(limit != null && limit > 0 ? limit : historyDefaultPageSize, historyMaxPageSize);
+
+        // 1. Time range, then resume strictly after the cursor position
+        Criteria criteria = Criteria.where("storeItemId").is(storeItemId);
+        if (from != null || to != null) {
+            Criteria timestamp = criteria.and("timestamp");
+            if (from != null) {
+                timestamp.gte(from);
+            }
+            if (to != null) {
+                timestamp.lte(to);
+            }
+        }
+        if (cursor != null && !cursor.isBlank()) {
+            HistoryCursor position = HistoryCursor.decode(cursor);
+            criteria = new Criteria().andOperator(criteria, new Criteria().orOperator(
+                    Criteria.where("timestamp").lt(position.timestamp()),
+                    Criteria.where("timestamp").is(position.timestamp()).and("_id").lt(new ObjectId(position.id()))));
+        }
+
+        // 2. One record more than the page tells whether there is another page
+        Query query = Query.query(criteria)
+                .with(Sort.by(Sort.Order.desc("timestamp"), Sort.Order.desc("_id")))
+                .limit(pageSize + 1);
+        List<StorePrice> prices = new ArrayList<>(mongoTemplate.find(query, StorePrice.class));
+        boolean hasMore = prices.size() > pageSize;
+        if (hasMore) {
+            prices.remove(pageSize);
+        }
+
+        StorePrice last = prices.isEmpty() ? null : prices.get(prices.size() - 1);
+        return PriceHistoryPage.builder()
+                .prices(prices)
+                .limit(pageSize)
+                .hasMore(hasMore)
+                .nextCursor(hasMore ? new HistoryCursor(last.getTimestamp(), last.getId()).encode() : null)
+                .build();
+    }
+
+    /**
+     * Position in a price history: timestamp and id of the last record of a page
+     */
+    private record HistoryCursor(Instant timestamp, String id) {
+
+        String encode() {
+            String raw = timestamp.toEpochMilli() + ":" + id;
+            return Base64.getUrlEncoder().withoutPadding().encodeToString(raw.getBytes(StandardCharsets.UTF_8));
+        }
+
+        static HistoryCursor decode(String cursor) {
+            try {
+                String raw = new String(Base64.getUrlDecoder().decode(cursor), StandardCharsets.UTF_8);
+                int separator = raw.indexOf(':');
+                String id = raw.substring(separator + 1);
+                if (!ObjectId.isValid(id)) {
+                    throw new IllegalArgumentException("Invalid cursor");
+                }
+                return new HistoryCursor(Instant.ofEpochMilli(Long.parseLong(raw.substring(0, separator))), id);
+            } catch (IllegalArgumentException | IndexOutOfBoundsException e) {
+                throw new IllegalArgumentException("Invalid cursor: " + cursor);
+            }
+        }
+    }
 }
@@ -0,0 +1,257 @@
+package com.smartbasket.backend.service;
+
+import com.smartbasket.backend.dto.BatchPriceUpdateRequest;
+import com.smartbasket.backend.dto.BatchPriceUpdateResponse;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.SmartLifecycle;
+import org.springframework.stereotype.Component;
+
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Write-behind buffer for price updates when {@code prices.ingest.mode} is {@code async}.
+ *
+ * Requests only enqueue into a bounded queue. A single writer thread collects everything that
+ * arrives within the coalescing window, folds the updates per store item (keeping the last value,
+ * and the whole sequence for the history when {@code keep-history} is set) and writes the result
+ * through the bulk price pipeline. On shutdown it stops after the web server and drains the queue.
+ */
+@Slf4j
+@Component
+public class PriceWriteBehindQueue implements SmartLifecycle {
+
+    public static final String MODE_ASYNC = "async";
+
+    // Boot stops the web server in phase DEFAULT_PHASE - 2048 (after the graceful shutdown at
+    // WebServerGracefulShutdownLifecycle.SMART_LIFECYCLE_PHASE). Lower phases stop later, so one below
+    // that drains the queue only once no request can enqueue anymore.
+    private static final int WEB_SERVER_STOP_PHASE = SmartLifecycle.DEFAULT_PHASE - 2048;
+    private static final int PHASE = WEB_SERVER_STOP_PHASE - 1;
+    private static final long IDLE_POLL_MS = 100;
+    private static final long IDLE_POLL_NANOS = TimeUnit.MILLISECONDS.toNanos(IDLE_POLL_MS);
+
+    private final PriceUpdateService priceUpdateService;
+    private final boolean enabled;
+    private final long windowNanos;
+    private final int maxFlushSize;
+    private final boolean keepHistory;
+    private final long drainTimeoutMs;
+    private final BlockingQueue<PendingPrice> queue;
+
+    private final Timer lag;
+    private final DistributionSummary flushSize;
+    private final Counter coalesced;
+    private final Counter failures;
+    private final Counter rejected;
+
+    private volatile boolean running;
+    private Thread writer;
+
+    /**
+     * A queued update and when it arrived
+     */
+    private record PendingPrice(BatchPriceUpdateRequest.PriceEntry entry, Instant receivedAt, long enqueuedNanos) {
+    }
+
+    public PriceWriteBehindQueue(
+            PriceUpdateService priceUpdateService,
+            MeterRegistry meterRegistry,
+            @Value("${prices.ingest.mode:sync}") String mode,
+            @Value("${prices.ingest.queue-capacity:100000}") int queueCapacity,
+            @Value("${prices.ingest.coalesce-window-ms:1000}") long coalesceWindowMs,
+            @Value("${prices.ingest.max-flush-size:5000}") int maxFlushSize,
+            @Value("${prices.ingest.keep-history:true}") boolean keepHistory,
+            @Value("${prices.ingest.drain-timeout-ms:30000}") long drainTimeoutMs) {
+        this.priceUpdateService = priceUpdateService;
+        this.enabled = MODE_ASYNC.equalsIgnoreCase(mode);
+        this.windowNanos = TimeUnit.MILLISECONDS.toNanos(coalesceWindowMs);
+        this.maxFlushSize = maxFlushSize;
+        this.keepHistory = keepHistory;
+        this.drainTimeoutMs = drainTimeoutMs;
+        this.queue = new ArrayBlockingQueue<>(queueCapacity);
+
+        Gauge.builder("prices.ingest.queue.depth", queue, BlockingQueue::size)
+                .register(meterRegistry);
+        this.lag = Timer.builder("prices.ingest.lag")
+                .description("Time from enqueue until the update is written")
+                .register(meterRegistry);
+        this.flushSize = DistributionSummary.builder("prices.ingest.flush.size")
+                .description("Price entries written per flush after coalescing")
+                .register(meterRegistry);
+        this.coalesced = Counter.builder("prices.ingest.coalesced")
+                .description("Updates folded into a later update of the same store item")
+                .register(meterRegistry);
+        this.failures = Counter.builder("prices.ingest.failures")
+                .register(meterRegistry);
+        this.rejected = Counter.builder("prices.ingest.rejected")
+                .description("Updates refused because the queue was full")
+                .register(meterRegistry);
+    }
+
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    public int depth() {
+        return queue.size();
+    }
+
+    /**
+     * Queue entries in order until the queue is full
+     *
+     * @return number of entries queued, from the start of the list
+     */
+    public int enqueueAll(List<BatchPriceUpdateRequest.PriceEntry> entries) {
+        if (!running) {
+            rejected.increment(entries.size());
+            return 0;
+        }
+        Instant receivedAt = Instant.now();
+        long enqueuedNanos = System.nanoTime();
+        int accepted = 0;
+        for (BatchPriceUpdateRequest.PriceEntry entry : entries) {
+            if (!queue.offer(new PendingPrice(entry, receivedAt, enqueuedNanos))) {
+                break;
+            }
+            accepted++;
+        }
+        rejected.increment(entries.size() - accepted);
+        return accepted;
+    }
+
+    @Override
+    public void start() {
+        if (!enabled || running) {
+            return;
+        }
+        running = true;
+        writer = new Thread(this::run, "price-write-behind");
+        writer.setDaemon(true);
+        writer.start();
+        log.info("Price write-behind ingestion started (capacity {}, window {} ms)",
+                queue.remainingCapacity(), TimeUnit.NANOSECONDS.toMillis(windowNanos));
+    }
+
+    @Override
+    public void stop() {
+        if (!running) {
+            return;
+        }
+        running = false;
+        try {
+            writer.join(drainTimeoutMs);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        if (writer.isAlive() || !queue.isEmpty()) {
+            log.warn("Price write-behind queue not drained within {} ms, {} updates dropped",
+                    drainTimeoutMs, queue.size());
+        } else {
+            log.info("Price write-behind queue drained");
+        }
+    }
+
+    @Override
+    public boolean isRunning() {
+        return running;
+    }
+
+    @Override
+    public int getPhase() {
+        return PHASE;
+    }
+
+    private void run() {
+        while (running || !queue.isEmpty()) {
+            List<PendingPrice> window = collectWindow();
+            if (!window.isEmpty()) {
+                flush(window);
+            }
+        }
+    }
+
+    /**
+     * Everything that arrives within one coalescing window of the first update, up to the flush size.
+     * Once stopping, whatever is queued is taken without waiting.
+     */
+    private List<PendingPrice> collectWindow() {
+        List<PendingPrice> window = new ArrayList<>();
+        try {
+            PendingPrice first = queue.poll(IDLE_POLL_MS, TimeUnit.MILLISECONDS);
+            if (first == null) {
+                return window;
+            }
+            window.add(first);
+            long deadline = System.nanoTime() + windowNanos;
+            while (window.size() < maxFlushSize) {
+                queue.drainTo(window, maxFlushSize - window.size());
+                long remaining = deadline - System.nanoTime();
+                if (!running || remaining <= 0 || window.size() >= maxFlushSize) {
+                    break;
+                }
+                // Short slices, so stop() does not wait out the window
+                PendingPrice next = queue.poll(Math.min(remaining, IDLE_POLL_NANOS), TimeUnit.NANOSECONDS);
+                if (next != null) {
+                    window.add(next);
+                }
+            }
+        } catch (InterruptedException e) {
+            // Only stop() ends the writer, and it lets the queue drain first
+            log.debug("Price write-behind writer interrupted");
+        }
+        return window;
+    }
+
+    private void flush(List<PendingPrice> window) {
+        // 1. Fold the window per store item, in arrival order
+        Map<String, List<PendingPrice>> byItem = new LinkedHashMap<>();
+        for (PendingPrice pending : window) {
+            byItem.computeIfAbsent(pending.entry().getStoreItemId(), id -> new ArrayList<>()).add(pending);
+        }
+        List<BatchPriceUpdateRequest.PriceEntry> entries = new ArrayList<>();
+        List<Instant> observedAt = new ArrayList<>();
+        for (List<PendingPrice> updates : byItem.values()) {
+            List<PendingPrice> kept = keepHistory ? updates : updates.subList(updates.size() - 1, updates.size());
+            for (PendingPrice pending : kept) {
+                entries.add(pending.entry());
+                observedAt.add(pending.receivedAt());
+            }
+            coalesced.increment(updates.size() - 1);
+        }
+
+        // 2. Write them with one bulk pass
+        try {
+            List<BatchPriceUpdateResponse.PriceUpdateResult> results =
+                    priceUpdateService.applyPriceEntries(entries, observedAt);
+            List<BatchPriceUpdateResponse.PriceUpdateResult> failed = results.stream()
+                    .filter(result -> !result.isSuccess())
+                    .toList();
+            if (!failed.isEmpty()) {
+                failures.increment(failed.size());
+                log.warn("Price write-behind flush: {} of {} entries failed, first: {} ({})", failed.size(),
+                        entries.size(), failed.get(0).getStoreItemId(), failed.get(0).getMessage());
+            }
+        } catch (RuntimeException e) {
+            failures.increment(entries.size());
+            log.error("Price write-behind flush of {} entries failed", entries.size(), e);
+        }
+
+        // 3. Record how long the updates waited and how much was written
+        flushSize.record(entries.size());
+        long now = System.nanoTime();
+        window.forEach(pending -> lag.record(now - pending.enqueuedNanos(), TimeUnit.NANOSECONDS));
+    }
+}
@@ -0,0 +1,823 @@
+package com.smartbasket.backend.service;
+
+import com.smartbasket.backend.model.ReferenceItem;
+import com.smartbasket.backend.model.StoreItem;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.query.Criteria;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.stereotype.Component;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.function.Consumer;
+import java.util.stream.Stream;
+
+/**
+ * Resident trigram index over the name, Arabic name and category of every reference item and the brands
+ * of its store items, so searches do not scan reference_items. Text is normalized by {@link SearchText}.
+ *
+ * A query matches an item when each of its tokens is a prefix (one or two characters) or a substring of
+ * one of the item's tokens. Query tokens are first matched against the dictionary of distinct tokens,
+ * through a trigram index over the dictionary, and the matching tokens' per-field postings are then
+ * merged into scores. Matches are ranked by field (names over brand over category) and match type
+ * (whole token over prefix over substring).
+ *
+ * In fuzzy mode, query tokens of {@value #ONE_EDIT_LENGTH} or more letters also match dictionary tokens
+ * within one edit, and of {@value #TWO_EDITS_LENGTH} or more within two (Damerau-Levenshtein). Candidates
+ * come from a SymSpell-style deletion dictionary: every token with up to two characters deleted, so a
+ * lookup only needs the deletions of the query token. The lookups of a search stop at a latency budget.
+ *
+ * The index is an immutable segment plus a small copy-on-write delta of the items changed since it was
+ * built, so searches never wait for writers. When the delta grows, the segment is rebuilt in memory on
+ * a background thread. Loaded in the background once the application is ready and kept current by
+ * {@link ReferenceItemService} and {@link StoreItemService}.
+ */
+@Slf4j
+@Component
+@RequiredArgsConstructor
+public class ReferenceItemSearchIndex {
+
+    private static final int GRAM = 3;
+    // Changed items kept outside the segment before it is rebuilt
+    private static final int DELTA_LIMIT = 512;
+
+    private static final int NAME = 0;
+    private static final int NAME_AR = 1;
+    private static final int BRAND = 2;
+    private static final int CATEGORY = 3;
+    private static final int[] FIELD_WEIGHTS = {4, 4, 2, 1};
+
+    // Further query tokens are ignored
+    private static final int MAX_QUERY_TOKENS = 8;
+    // Pages beyond this many ranked matches are empty
+    private static final int MAX_RANKED = 10_000;
+
+    // Typo matches score strictly below every exact kind of match
+    private static final int WHOLE_TOKEN = 8;
+    private static final int TOKEN_PREFIX = 6;
+    private static final int SUBSTRING = 4;
+    private static final int ONE_EDIT = 2;
+    private static final int TWO_EDITS = 1;
+
+    private static final int ONE_EDIT_LENGTH = 4;
+    private static final int TWO_EDITS_LENGTH = 7;
+    private static final int MAX_EDITS = 2;
+
+    // Order of equally scored matches: shorter names first, then by name. Segment ordinals follow it.
+    private static final Comparator<Doc> TIE_BREAK = Comparator.comparingInt((Doc doc) -> doc.sortName().length())
+            .thenComparing(Doc::sortName)
+            .thenComparing(Doc::id);
+
+    private final MongoTemplate mongoTemplate;
+
+    @Value("${items.search.fuzzy-budget-ms:20}")
+    private long fuzzyBudgetMs = 20;
+
+    // Replaced on every change; null until the first successful load
+    private volatile State state;
+
+    // Guarded by this
+    private Map<String, Doc> docs;
+    private Map<String, Map<String, Integer>> brandCounts;
+    private List<Consumer<ReferenceItemSearchIndex>> pendingMutations;
+    // Non-null while the segment is rebuilt: ids changed since the rebuild started
+    private Set<String> changedDuringCompaction;
+
+    /**
+     * Ranked ids of one page of matches, and the total number of matches
+     */
+    public record Result(List<String> ids, int total) {
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void loadOnStartup() {
+        Thread loader = new Thread(this::rebuild, "search-index-loader");
+        loader.setDaemon(true);
+        loader.start();
+    }
+
+    public boolean isLoaded() {
+        return state != null;
+    }
+
+    /**
+     * Reload the index from MongoDB, reading only the indexed fields
+     */
+    public void rebuild() {
+        synchronized (this) {
+            if (pendingMutations != null) {
+                return;
+            }
+            pendingMutations = new ArrayList<>();
+        }
+        try {
+            long start = System.nanoTime();
+            Map<String, Map<String, Integer>> freshBrands = new HashMap<>();
+            Query storeItems = Query.query(Criteria.where("brand").type(2));
+            storeItems.fields().include("referenceItemId", "brand");
+            try (Stream<StoreItem> items = mongoTemplate.stream(storeItems, StoreItem.class)) {
+                items.forEach(item -> countBrand(freshBrands, item.getReferenceItemId(), item.getBrand(), 1));
+            }
+            Map<String, Doc> freshDocs = new HashMap<>();
+            Query referenceItems = new Query();
+            referenceItems.fields().include("name", "nameAr", "category");
+            try (Stream<ReferenceItem> items = mongoTemplate.stream(referenceItems, ReferenceItem.class)) {
+                items.forEach(item -> freshDocs.put(item.getId(), Doc.of(Source.of(item), freshBrands.get(item.getId()))));
+            }
+            Segment segment = Segment.build(freshDocs.values());
+
+            synchronized (this) {
+                docs = freshDocs;
+                brandCounts = freshBrands;
+                state = new State(segment, Delta.EMPTY);
+                pendingMutations.forEach(mutation -> mutation.accept(this));
+            }
+            log.info("Search index loaded: {} reference items in {} ms",
+                    freshDocs.size(), (System.nanoTime() - start) / 1_000_000);
+        } catch (RuntimeException e) {
+            log.warn("Search index load failed, searches will query MongoDB: {}", e.getMessage());
+        } finally {
+            synchronized (this) {
+                pendingMutations = null;
+            }
+        }
+    }
+
+    /**
+     * One page of the reference items matching the query, best first, or null if the index is not loaded
+     */
+    public Result search(String query, int page, int size) {
+        return search(query, page, size, false);
+    }
+
+    /**
+     * One page of the reference items matching the query, best first, or null if the index is not loaded
+     *
+     * @param fuzzy also match tokens within one or two edits of the query tokens
+     */
+    public Result search(String query, int page, int size, boolean fuzzy) {
+        State current = state;
+        if (current == null) {
+            return null;
+        }
+        List<String> tokens = SearchText.tokens(query).stream().distinct().limit(MAX_QUERY_TOKENS).toList();
+        if (tokens.isEmpty()) {
+            return new Result(List.of(), 0);
+        }
+        Segment segment = current.segment();
+        Delta delta = current.delta();
+
+        // Best page-worth of segment matches, as (inverted score, ordinal) keys in rank order
+        int wanted = (int) Math.min((long) (page + 1) * size, Integer.MAX_VALUE);
+        TopMatches top = new TopMatches(wanted);
+        long deadline = fuzzy ? System.nanoTime() + fuzzyBudgetMs * 1_000_000 : Long.MAX_VALUE;
+        int matches = segment.match(tokens, fuzzy, deadline, delta.superseded(), top);
+
+        List<Hit> hits = new ArrayList<>();
+        for (long key : top.sorted()) {
+            hits.add(new Hit(segment.docs()[(int) key], Integer.MAX_VALUE - (int) (key >>> 32)));
+        }
+        int deltaMatches = 0;
+        for (Doc doc : delta.docs().values()) {
+            int score = doc.score(tokens, fuzzy);
+            if (score > 0) {
+                hits.add(new Hit(doc, score));
+                deltaMatches++;
+            }
+        }
+        if (deltaMatches > 0) {
+            hits.sort(Comparator.comparingInt(Hit::score).reversed().thenComparing(Hit::doc, TIE_BREAK));
+        }
+
+        int from = (int) Math.min((long) page * size, hits.size());
+        int to = Math.min(from + size, hits.size());
+        List<String> ids = hits.subList(from, to).stream().map(hit -> hit.doc().id()).toList();
+        return new Result(ids, matches + deltaMatches);
+    }
+
+    public void put(ReferenceItem item) {
+        Source source = Source.of(item);
+        mutate(index -> index.replace(source.id(), Doc.of(source, index.brandCounts.get(source.id()))));
+    }
+
+    public void remove(String referenceItemId) {
+        mutate(index -> {
+            index.brandCounts.remove(referenceItemId);
+            index.replace(referenceItemId, null);
+        });
+    }
+
+    /**
+     * Count a store item's brand towards its reference item
+     */
+    public void addBrand(String referenceItemId, String brand) {
+        changeBrand(referenceItemId, brand, 1);
+    }
+
+    /**
+     * Stop counting a deleted store item's brand towards its reference item
+     */
+    public void removeBrand(String referenceItemId, String brand) {
+        changeBrand(referenceItemId, brand, -1);
+    }
+
+    private void changeBrand(String referenceItemId, String brand, int delta) {
+        if (referenceItemId == null || brand == null || brand.isBlank()) {
+            return;
+        }
+        mutate(index -> {
+            Doc doc = index.docs.get(referenceItemId);
+            if (countBrand(index.brandCounts, referenceItemId, brand, delta) && doc != null) {
+                index.replace(referenceItemId, Doc.of(doc.source(), index.brandCounts.get(referenceItemId)));
+            }
+        });
+    }
+
+    private synchronized void mutate(Consumer<ReferenceItemSearchIndex> mutation) {
+        if (state != null) {
+            mutation.accept(this);
+        }
+        if (pendingMutations != null) {
+            pendingMutations.add(mutation);
+        }
+    }
+
+    /**
+     * Record the new document of a reference item (null when removed) in the delta, and start rebuilding
+     * the segment when the delta is full. Called with the lock held.
+     */
+    private void replace(String referenceItemId, Doc doc) {
+        if (doc != null) {
+            docs.put(referenceItemId, doc);
+        } else {
+            docs.remove(referenceItemId);
+        }
+        if (changedDuringCompaction != null) {
+            changedDuringCompaction.add(referenceItemId);
+        }
+        Delta delta = state.delta().with(referenceItemId, doc, state.segment());
+        state = new State(state.segment(), delta);
+        if (delta.size() > DELTA_LIMIT && changedDuringCompaction == null) {
+            changedDuringCompaction = new HashSet<>();
+            List<Doc> snapshot = List.copyOf(docs.values());
+            Thread compactor = new Thread(() -> compact(snapshot), "search-index-compactor");
+            compactor.setDaemon(true);
+            compactor.start();
+        }
+    }
+
+    /**
+     * Build a segment from a snapshot of the documents, then keep only the changes made since in the delta
+     */
+    private void compact(List<Doc> snapshot) {
+        try {
+            Segment segment = Segment.build(snapshot);
+            synchronized (this) {
+                Delta delta = Delta.EMPTY;
+                for (String id : changedDuringCompaction) {
+                    delta = delta.with(id, docs.get(id), segment);
+                }
+                state = new State(segment, delta);
+            }
+        } catch (RuntimeException e) {
+            log.warn("Search index compaction failed: {}", e.getMessage());
+        } finally {
+            synchronized (this) {
+                changedDuringCompaction = null;
+            }
+        }
+    }
+
+    /**
+     * @return whether the set of distinct brands of the reference item changed
+     */
+    private static boolean countBrand(Map<String, Map<String, Integer>> counts, String referenceItemId,
+                                      String brand, int delta) {
+        if (referenceItemId == null || brand == null || brand.isBlank()) {
+            return false;
+        }
+        Map<String, Integer> brands = counts.computeIfAbsent(referenceItemId, id -> new HashMap<>());
+        String key = brand.trim();
+        int before = brands.getOrDefault(key, 0);
+        int after = Math.max(0, before + delta);
+        if (after == 0) {
+            brands.remove(key);
+            if (brands.isEmpty()) {
+                counts.remove(referenceItemId);
+            }
+        } else {
+            brands.put(key, after);
+        }
+        return (before == 0) != (after == 0);
+    }
+
+    private static Set<String> grams(String token) {
+        Set<String> grams = new HashSet<>();
+        for (int i = 0; i + GRAM <= token.length(); i++) {
+            grams.add(token.substring(i, i + GRAM));
+        }
+        return grams;
+    }
+
+    /**
+     * Edits tolerated for a query token in fuzzy mode; numbers must match exactly
+     */
+    private static int allowedEdits(String token) {
+        if (!fuzzyCandidate(token)) {
+            return 0;
+        }
+        return token.length() >= TWO_EDITS_LENGTH ? 2 : token.length() >= ONE_EDIT_LENGTH ? 1 : 0;
+    }
+
+    /**
+     * Whether a token takes part in fuzzy matching: words of at least a gram, without digits
+     */
+    private static boolean fuzzyCandidate(String token) {
+        if (token.length() < GRAM) {
+            return false;
+        }
+        for (int i = 0; i < token.length(); i++) {
+            if (Character.isDigit(token.charAt(i))) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Match type of a token within the tolerated edits of a query token, or 0
+     */
+    private static int editMatch(String token, String query, int edits) {
+        int distance = SearchText.editDistance(token, query, edits);
+        return distance > edits ? 0 : distance == 1 ? ONE_EDIT : TWO_EDITS;
+    }
+
+    private record Source(String id, String name, String nameAr, String category) {
+        static Source of(ReferenceItem item) {
+            return new Source(item.getId(), item.getName(), item.getNameAr(), item.getCategory());
+        }
+    }
+
+    private record Hit(Doc doc, int score) {
+    }
+
+    /**
+     * Normalized tokens of a reference item per field
+     */
+    private record Doc(String id, Source source, String sortName, String[][] fields) {
+
+        static Doc of(Source source, Map<String, Integer> brands) {
+            String[][] fields = new String[FIELD_WEIGHTS.length][];
+            fields[NAME] = SearchText.tokens(source.name()).toArray(String[]::new);
+            fields[NAME_AR] = SearchText.tokens(source.nameAr()).toArray(String[]::new);
+            fields[BRAND] = brands == null ? new String[0] : brands.keySet().stream()
+                    .flatMap(brand -> SearchText.tokens(brand).stream())
+                    .distinct()
+                    .toArray(String[]::new);
+            fields[CATEGORY] = SearchText.tokens(source.category()).toArray(String[]::new);
+            return new Doc(source.id(), source, String.join(" ", fields[NAME]), fields);
+        }
+
+        /**
+         * Sum over the query tokens of their best field-weighted match, or 0 if a token does not match
+         */
+        int score(List<String> tokens, boolean fuzzy) {
+            int total = 0;
+            for (String query : tokens) {
+                int edits = fuzzy ? allowedEdits(query) : 0;
+                int best = 0;
+                for (int field = 0; field < fields.length; field++) {
+                    for (String token : fields[field]) {
+                        int match = token.equals(query) ? WHOLE_TOKEN
+                                : token.startsWith(query) ? TOKEN_PREFIX
+                                : query.length() >= GRAM && token.contains(query) ? SUBSTRING
+                                : 0;
+                        if (match == 0 && edits > 0 && fuzzyCandidate(token)) {
+                            match = editMatch(token, query, edits);
+                        }
+                        best = Math.max(best, match * FIELD_WEIGHTS[field]);
+                    }
+                }
+                if (best == 0) {
+                    return 0;
+                }
+                total += best;
+            }
+            return total;
+        }
+    }
+
+    private record State(Segment segment, Delta delta) {
+    }
+
+    /**
+     * Immutable documents in tie-break order, the sorted dictionary of their distinct tokens with
+     * per-field ascending document ordinals, and trigram -> ascending term ids over the dictionary
+     */
+    private record Segment(Doc[] docs, Map<String, Integer> ordinals, String[] terms, int[][][] postings,
+                           Map<String, int[]> termGrams, Deletions deletions) {
+
+        static Segment build(Collection<Doc> source) {
+            Doc[] docs = source.toArray(Doc[]::new);
+            Arrays.sort(docs, TIE_BREAK);
+            Map<String, Integer> ordinals = new HashMap<>(docs.length * 2);
+            Map<String, IntList[]> building = new HashMap<>();
+            for (int ordinal = 0; ordinal < docs.length; ordinal++) {
+                ordinals.put(docs[ordinal].id(), ordinal);
+                String[][] fields = docs[ordinal].fields();
+                for (int field = 0; field < fields.length; field++) {
+                    for (String token : fields[field]) {
+                        IntList[] byField = building.computeIfAbsent(token, key -> new IntList[FIELD_WEIGHTS.length]);
+                        if (byField[field] == null) {
+                            byField[field] = new IntList();
+                        }
+                        byField[field].addOnce(ordinal);
+                    }
+                }
+            }
+
+            String[] terms = building.keySet().toArray(String[]::new);
+            Arrays.sort(terms);
+            int[][][] postings = new int[terms.length][][];
+            Map<String, IntList> termGrams = new HashMap<>();
+            for (int term = 0; term < terms.length; term++) {
+                IntList[] byField = building.get(terms[term]);
+                postings[term] = new int[byField.length][];
+                for (int field = 0; field < byField.length; field++) {
+                    postings[term][field] = byField[field] != null ? byField[field].toArray() : new int[0];
+                }
+                for (String gram : grams(terms[term])) {
+                    termGrams.computeIfAbsent(gram, key -> new IntList()).add(term);
+                }
+            }
+            Map<String, int[]> grams = new HashMap<>(termGrams.size() * 2);
+            termGrams.forEach((gram, termIds) -> grams.put(gram, termIds.toArray()));
+            return new Segment(docs, ordinals, terms, postings, grams, Deletions.build(terms));
+        }
+
+        /**
+         * Score the documents matching every query token, skipping superseded ones, and offer them to top
+         *
+         * @return number of matching documents
+         */
+        int match(List<String> tokens, boolean fuzzy, long deadline, BitSet superseded, TopMatches top) {
+            short[] scores = new short[docs.length];
+            short[] tokenScores = new short[docs.length];
+            byte[] matched = new byte[docs.length];
+            IntList touched = new IntList();
+
+            for (int t = 0; t < tokens.size(); t++) {
+                String query = tokens.get(t);
+                touched.clear();
+                for (long termMatch : matchingTerms(query, fuzzy, deadline)) {
+                    int[][] byField = postings[(int) termMatch];
+                    int match = (int) (termMatch >>> 32);
+                    for (int field = 0; field < byField.length; field++) {
+                        short score = (short) (match * FIELD_WEIGHTS[field]);
+                        for (int ordinal : byField[field]) {
+                            // Documents must have matched every earlier token
+                            if (matched[ordinal] != t) {
+                                continue;
+                            }
+                            if (tokenScores[ordinal] == 0) {
+                                touched.add(ordinal);
+                            }
+                            if (score > tokenScores[ordinal]) {
+                                tokenScores[ordinal] = score;
+                            }
+                        }
+                    }
+                }
+                for (int i = 0; i < touched.size; i++) {
+                    int ordinal = touched.values[i];
+                    scores[ordinal] += tokenScores[ordinal];
+                    tokenScores[ordinal] = 0;
+                    matched[ordinal] = (byte) (t + 1);
+                }
+            }
+
+            // Documents touched by the last token matched them all
+            int count = 0;
+            for (int i = 0; i < touched.size; i++) {
+                int ordinal = touched.values[i];
+                if (!superseded.get(ordinal)) {
+                    top.offer(((long) (Integer.MAX_VALUE - scores[ordinal]) << 32) | ordinal);
+                    count++;
+                }
+            }
+            return count;
+        }
+
+        /**
+         * Dictionary terms matching a query token, as (match type, term id) pairs
+         */
+        private List<Long> matchingTerms(String query, boolean fuzzy, long deadline) {
+            List<Long> matches = exactTerms(query);
+            int edits = fuzzy ? allowedEdits(query) : 0;
+            if (edits == 0) {
+                return matches;
+            }
+            Set<Integer> matched = new HashSet<>();
+            matches.forEach(termMatch -> matched.add((int) (long) termMatch));
+            for (int term : deletions.candidates(query, edits, deadline)) {
+                if (!matched.contains(term)) {
+                    int match = editMatch(terms[term], query, edits);
+                    if (match > 0) {
+                        matches.add(((long) match << 32) | term);
+                    }
+                }
+            }
+            return matches;
+        }
+
+        /**
+         * Dictionary terms equal to, starting with or containing a query token
+         */
+        private List<Long> exactTerms(String query) {
+            List<Long> matches = new ArrayList<>();
+            if (query.length() < GRAM) {
+                // Terms starting with a short token are a contiguous range of the sorted dictionary
+                int found = Arrays.binarySearch(terms, query);
+                for (int term = found >= 0 ? found : -found - 1; term < terms.length && terms[term].startsWith(query); term++) {
+                    matches.add(((long) (terms[term].equals(query) ? WHOLE_TOKEN : TOKEN_PREFIX) << 32) | term);
+                }
+                return matches;
+            }
+
+            List<int[]> lists = new ArrayList<>();
+            for (String gram : grams(query)) {
+                int[] termIds = termGrams.get(gram);
+                if (termIds == null) {
+                    return matches;
+                }
+                lists.add(termIds);
+            }
+            lists.sort(Comparator.comparingInt(termIds -> termIds.length));
+            int[] candidates = lists.get(0);
+            for (int i = 1; i < lists.size() && candidates.length > 0; i++) {
+                candidates = intersect(candidates, lists.get(i));
+            }
+            for (int term : candidates) {
+                String candidate = terms[term];
+                int match = candidate.equals(query) ? WHOLE_TOKEN
+                        : candidate.startsWith(query) ? TOKEN_PREFIX
+                        : candidate.contains(query) ? SUBSTRING
+                        : 0;
+                if (match > 0) {
+                    matches.add(((long) match << 32) | term);
+                }
+            }
+            return matches;
+        }
+
+        private static int[] intersect(int[] smaller, int[] larger) {
+            int[] result = new int[smaller.length];
+            int count = 0;
+            int j = 0;
+            for (int value : smaller) {
+                // Gallop through the larger list, then search the last step
+                int step = 1;
+                while (j + step < larger.length && larger[j + step] < value) {
+                    j += step;
+                    step <<= 1;
+                }
+                int found = Arrays.binarySearch(larger, j, Math.min(j + step + 1, larger.length), value);
+                if (found >= 0) {
+                    result[count++] = value;
+                    j = found + 1;
+                } else {
+                    j = -found - 1;
+                }
+                if (j >= larger.length) {
+                    break;
+                }
+            }
+            return Arrays.copyOf(result, count);
+        }
+    }
+
+    /**
+     * Growable list of ints
+     */
+    private static final class IntList {
+        private int[] values = new int[4];
+        private int size;
+
+        void add(int value) {
+            if (size == values.length) {
+                values = Arrays.copyOf(values, size * 2);
+            }
+            values[size++] = value;
+        }
+
+        void addOnce(int value) {
+            if (size == 0 || values[size - 1] != value) {
+                add(value);
+            }
+        }
+
+        void clear() {
+            size = 0;
+        }
+
+        int[] toArray() {
+            return Arrays.copyOf(values, size);
+        }
+    }
+
+    /**
+     * Deletion dictionary: the hash of every string obtained by deleting up to {@value #MAX_EDITS}
+     * characters from a fuzzy-matchable term -> term id, in an open-addressing multimap of primitive arrays.
+     * Hash collisions only add candidates, which are verified by edit distance.
+     */
+    private static final class Deletions {
+        private final int[] hashes;
+        private final int[] termIds;
+        private final int mask;
+
+        private Deletions(int[] hashes, int[] termIds) {
+            this.hashes = hashes;
+            this.termIds = termIds;
+            this.mask = hashes.length - 1;
+        }
+
+        static Deletions build(String[] terms) {
+            IntList pairHashes = new IntList();
+            IntList pairTerms = new IntList();
+            for (int term = 0; term < terms.length; term++) {
+                if (fuzzyCandidate(terms[term])) {
+                    for (String deletion : deletions(terms[term], MAX_EDITS)) {
+                        pairHashes.add(deletion.hashCode());
+                        pairTerms.add(term);
+                    }
+                }
+            }
+            int capacity = Integer.highestOneBit(Math.max(16, pairHashes.size * 2)) * 2;
+            Deletions table = new Deletions(new int[capacity], new int[capacity]);
+            Arrays.fill(table.termIds, -1);
+            for (int i = 0; i < pairHashes.size; i++) {
+                int slot = table.slot(pairHashes.values[i]);
+                while (table.termIds[slot] >= 0) {
+                    slot = (slot + 1) & table.mask;
+                }
+                table.hashes[slot] = pairHashes.values[i];
+                table.termIds[slot] = pairTerms.values[i];
+            }
+            return table;
+        }
+
+        /**
+         * Distinct ids of the terms sharing a deletion with the query token, until the deadline passes
+         */
+        Collection<Integer> candidates(String query, int edits, long deadline) {
+            Set<Integer> candidates = new LinkedHashSet<>();
+            for (String deletion : deletions(query, edits)) {
+                if (System.nanoTime() > deadline) {
+                    log.debug("Fuzzy search budget exhausted for '{}'", query);
+                    break;
+                }
+                int hash = deletion.hashCode();
+                for (int slot = slot(hash); termIds[slot] >= 0; slot = (slot + 1) & mask) {
+                    if (hashes[slot] == hash) {
+                        candidates.add(termIds[slot]);
+                    }
+                }
+            }
+            return candidates;
+        }
+
+        private int slot(int hash) {
+            return (hash ^ (hash >>> 16)) * 0x9E3779B9 & mask;
+        }
+
+        /**
+         * The word and every string obtained by deleting up to edits of its characters
+         */
+        private static Set<String> deletions(String word, int edits) {
+            Set<String> all = new HashSet<>();
+            all.add(word);
+            List<String> frontier = List.of(word);
+            for (int edit = 0; edit < edits; edit++) {
+                List<String> next = new ArrayList<>();
+                for (String current : frontier) {
+                    for (int i = 0; i < current.length() && current.length() > 1; i++) {
+                        String deletion = current.substring(0, i) + current.substring(i + 1);
+                        if (all.add(deletion)) {
+                            next.add(deletion);
+                        }
+                    }
+                }
+                frontier = next;
+            }
+            return all;
+        }
+    }
+
+    /**
+     * The smallest keys offered, kept in a bounded max-heap
+     */
+    private static final class TopMatches {
+        private final long[] heap;
+        private int size;
+
+        TopMatches(int limit) {
+            heap = new long[Math.max(0, Math.min(limit, MAX_RANKED))];
+        }
+
+        void offer(long key) {
+            if (size < heap.length) {
+                heap[size] = key;
+                siftUp(size++);
+            } else if (size > 0 && key < heap[0]) {
+                heap[0] = key;
+                siftDown(0);
+            }
+        }
+
+        long[] sorted() {
+            long[] sorted = Arrays.copyOf(heap, size);
+            Arrays.sort(sorted);
+            return sorted;
+        }
+
+        private void siftUp(int index) {
+            while (index > 0) {
+                int parent = (index - 1) / 2;
+                if (heap[parent] >= heap[index]) {
+                    return;
+                }
+                swap(parent, index);
+                index = parent;
+            }
+        }
+
+        private void siftDown(int index) {
+            while (true) {
+                int largest = index;
+                int left = 2 * index + 1;
+                int right = left + 1;
+                if (left < size && heap[left] > heap[largest]) {
+                    largest = left;
+                }
+                if (right < size && heap[right] > heap[largest]) {
+                    largest = right;
+                }
+                if (largest == index) {
+                    return;
+                }
+                swap(index, largest);
+                index = largest;
+            }
+        }
+
+        private void swap(int a, int b) {
+            long tmp = heap[a];
+            heap[a] = heap[b];
+            heap[b] = tmp;
+        }
+    }
+
+    /**
+     * Documents changed since the segment was built (id -> new document; removed ids are absent), and the
+     * segment ordinals they supersede
+     */
+    private record Delta(Map<String, Doc> docs, Set<String> changed, BitSet superseded) {
+
+        static final Delta EMPTY = new Delta(Map.of(), Set.of(), new BitSet());
+
+        Delta with(String id, Doc doc, Segment segment) {
+            Map<String, Doc> docs = new HashMap<>(this.docs);
+            if (doc != null) {
+                docs.put(id, doc);
+            } else {
+                docs.remove(id);
+            }
+            Set<String> changed = new HashSet<>(this.changed);
+            changed.add(id);
+            BitSet superseded = (BitSet) this.superseded.clone();
+            Integer ordinal = segment.ordinals().get(id);
+            if (ordinal != null) {
+                superseded.set(ordinal);
+            }
+            return new Delta(docs, changed, superseded);
+        }
+
+        int size() {
+            return changed.size();
+        }
+    }
+}
@@ -1,6 +1,7 @@
 package com.smartbasket.backend.service;
 
 import com.smartbasket.backend.dto.CreateReferenceItemRequest;
+import com.smartbasket.backend.dto.ItemSuggestion;
 import com.smartbasket.backend.dto.ReferenceItemDto;
 import com.smartbasket.backend.exception.ResourceNotFoundException;
 import com.smartbasket.backend.mapper.ReferenceItemMapper;
@@ -9,10 +10,18 @@ import com.smartbasket.backend.model.ReferenceItem;
 import com.smartbasket.backend.repository.CategoryRepository;
 import com.smartbasket.backend.repository.ReferenceItemRepository;
 import lombok.RequiredArgsConstructor;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.PageImpl;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Pageable;
 import org.springframework.stereotype.Service;
 
 import java.util.List;
+import java.util.Map;
+import java.util.Objects;
 import java.util.Optional;
+import java.util.function.Function;
 import java.util.stream.Collectors;
 
 @Service
@@ -22,6 +31,13 @@ public class ReferenceItemService {
     private final ReferenceItemRepository referenceItemRepository;
     private final CategoryRepository categoryRepository;
     private final ReferenceItemMapper referenceItemMapper;
+    private final PriceMatrix priceMatrix;
+    private final BasketComparisonCache basketComparisonCache;
+    private final ReferenceItemSearchIndex searchIndex;
+    private final ReferenceItemSuggester suggester;
+
+    @Value("${items.search.max-page-size:200}")
+    private int maxSearchPageSize = 200;
 
     public List<ReferenceItemDto> getAllItems() {
         return referenceItemRepository.findAll()
@@ -42,11 +58,47 @@ public class ReferenceItemService {
                 .collect(Collectors.toList());
     }
 
-    public List<ReferenceItemDto> searchItems(String query) {
-        return referenceItemRepository.findByNameContainingIgnoreCase(query)
-                .stream()
+    /**
+     * Search reference items by name, Arabic name, category and store brand, best matches first.
+     * Falls back to a name regex query until the search index is loaded.
+     *
+     * @param fuzzy also match words within one or two typos of the query words
+     */
+    public Page<ReferenceItemDto> searchItems(String query, int page, int size, boolean fuzzy) {
+        if (page < 0 || size < 1 || size > maxSearchPageSize) {
+            throw new IllegalArgumentException("page must be at least 0 and size between 1 and " + maxSearchPageSize);
+        }
+        Pageable pageable = PageRequest.of(page, size);
+        ReferenceItemSearchIndex.Result result = searchIndex.search(query, page, size, fuzzy);
+        if (result == null) {
+            List<ReferenceItem> matches = referenceItemRepository.findByNameContainingIgnoreCase(query);
+            int from = (int) Math.min(pageable.getOffset(), matches.size());
+            List<ReferenceItemDto> content = matches.subList(from, Math.min(from + size, matches.size()))
+                    .stream()
+                    .map(referenceItemMapper::toDto)
+                    .toList();
+            return new PageImpl<>(content, pageable, matches.size());
+        }
+
+        // Only the page is read from MongoDB, in rank order
+        Map<String, ReferenceItem> items = referenceItemRepository.findAllById(result.ids()).stream()
+                .collect(Collectors.toMap(ReferenceItem::getId, Function.identity()));
+        List<ReferenceItemDto> content = result.ids().stream()
+                .map(items::get)
+                .filter(Objects::nonNull)
                 .map(referenceItemMapper::toDto)
-                .collect(Collectors.toList());
+                .toList();
+        return new PageImpl<>(content, pageable, result.total());
+    }
+
+    /**
+     * Suggestions for a search box: the most popular active items with a name word starting with the prefix
+     */
+    public List<ItemSuggestion> suggest(String prefix, int limit) {
+        if (limit < 1 || limit > ReferenceItemSuggester.MAX_LIMIT) {
+            throw new IllegalArgumentException("limit must be between 1 and " + ReferenceItemSuggester.MAX_LIMIT);
+        }
+        return suggester.suggest(prefix, limit);
     }
 
     public ReferenceItemDto createItem(CreateReferenceItemRequest request) {
@@ -57,6 +109,9 @@ public class ReferenceItemService {
         entity.setCategory(categoryName); // Set denormalized category name
         
         ReferenceItem saved = referenceItemRepository.save(entity);
+        priceMatrix.upsertReferenceItem(saved);
+        searchIndex.put(saved);
+        suggester.put(saved);
         return referenceItemMapper.toDto(saved);
     }
 
@@ -77,7 +132,12 @@ public class ReferenceItemService {
                         existing.setAvailableInAllStores(request.getAvailableInAllStores());
                     }
                     existing.setSpecificStoreIds(request.getSpecificStoreIds() != null ? request.getSpecificStoreIds() : existing.getSpecificStoreIds());
-                    return referenceItemRepository.save(existing);
+                    ReferenceItem saved = referenceItemRepository.save(existing);
+                    priceMatrix.upsertReferenceItem(saved);
+                    searchIndex.put(saved);
+                    suggester.put(saved);
+                    basketComparisonCache.invalidateReferenceItem(saved.getId());
+                    return saved;
                 })
                 .map(referenceItemMapper::toDto);
     }
@@ -85,6 +145,10 @@ public class ReferenceItemService {
     public boolean deleteItem(String id) {
         if (referenceItemRepository.existsById(id)) {
             referenceItemRepository.deleteById(id);
+            priceMatrix.removeReferenceItem(id);
+            searchIndex.remove(id);
+            suggester.remove(id);
+            basketComparisonCache.invalidateReferenceItem(id);
             return true;
         }
         return false;
@@ -94,7 +158,11 @@ public class ReferenceItemService {
         return referenceItemRepository.findById(id)
                 .map(existing -> {
                     existing.setActive(!existing.isActive());
-                    return referenceItemRepository.save(existing);
+                    ReferenceItem saved = referenceItemRepository.save(existing);
+                    priceMatrix.upsertReferenceItem(saved);
+                    suggester.put(saved);
+                    basketComparisonCache.invalidateReferenceItem(saved.getId());
+                    return saved;
                 })
                 .map(referenceItemMapper::toDto);
     }
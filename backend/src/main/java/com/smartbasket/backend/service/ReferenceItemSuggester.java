@@ -0,0 +1,243 @@
+package com.smartbasket.backend.service;
+
+import com.smartbasket.backend.dto.ItemSuggestion;
+import com.smartbasket.backend.model.ReferenceItem;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.query.Criteria;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.stereotype.Component;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.PriorityQueue;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.function.Consumer;
+import java.util.regex.Pattern;
+import java.util.stream.Stream;
+
+/**
+ * Resident prefix index for search box suggestions over the English and Arabic names of active
+ * reference items. Every word of a name starts a key (so "mi" suggests "Fresh Milk"), normalized by
+ * {@link SearchText} and cut to {@value #MAX_KEY_LENGTH} characters to bound its size. A prefix is
+ * answered from a range of the sorted keys, ranked by popularity: the number of stores carrying the item.
+ * Top suggestions of short prefixes, whose ranges are long, are cached until the catalog changes.
+ *
+ * Loaded in the background once the application is ready and updated per item by
+ * {@link ReferenceItemService} and {@link StoreItemService}.
+ */
+@Slf4j
+@Component
+@RequiredArgsConstructor
+public class ReferenceItemSuggester {
+
+    public static final int MAX_LIMIT = 50;
+    private static final int MAX_KEY_LENGTH = 20;
+    // Prefixes up to this length have their top suggestions cached
+    private static final int CACHED_PREFIX_LENGTH = 3;
+
+    private static final Comparator<Entry> RANK = Comparator.comparingInt(Entry::popularity).reversed()
+            .thenComparingInt(entry -> entry.name() != null ? entry.name().length() : 0)
+            .thenComparing(Entry::id);
+
+    private final MongoTemplate mongoTemplate;
+
+    // Key "normalized words\0id" -> entry; replaced wholesale by a load, null until the first one
+    private volatile ConcurrentSkipListMap<String, Entry> keys;
+    // Replaced by every change, so lists computed before it land in the discarded map
+    private volatile Map<String, List<Entry>> topByPrefix = new ConcurrentHashMap<>();
+
+    // Guarded by this
+    private Map<String, Entry> entries;
+    private List<Consumer<ReferenceItemSuggester>> pendingMutations;
+
+    private record Entry(String id, String name, String nameAr, String category, int popularity, List<String> keys) {
+
+        static Entry of(ReferenceItem item) {
+            Set<String> keys = new LinkedHashSet<>();
+            addKeys(item.getName(), item.getId(), keys);
+            addKeys(item.getNameAr(), item.getId(), keys);
+            int popularity = item.getLinkedStoreIds() != null ? item.getLinkedStoreIds().size() : 0;
+            return new Entry(item.getId(), item.getName(), item.getNameAr(), item.getCategory(), popularity,
+                    List.copyOf(keys));
+        }
+
+        private static void addKeys(String name, String id, Set<String> keys) {
+            String normalized = SearchText.normalize(name);
+            int start = 0;
+            while (start < normalized.length()) {
+                keys.add(truncate(normalized.substring(start)) + '\u0000' + id);
+                int space = normalized.indexOf(' ', start);
+                if (space < 0) {
+                    break;
+                }
+                start = space + 1;
+            }
+        }
+
+        ItemSuggestion toSuggestion() {
+            return ItemSuggestion.builder().id(id).name(name).nameAr(nameAr).category(category).build();
+        }
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void loadOnStartup() {
+        Thread loader = new Thread(this::rebuild, "suggest-index-loader");
+        loader.setDaemon(true);
+        loader.start();
+    }
+
+    public boolean isLoaded() {
+        return keys != null;
+    }
+
+    /**
+     * Reload the index from MongoDB, reading only the fields it needs
+     */
+    public void rebuild() {
+        synchronized (this) {
+            if (pendingMutations != null) {
+                return;
+            }
+            pendingMutations = new ArrayList<>();
+        }
+        try {
+            long start = System.nanoTime();
+            Map<String, Entry> freshEntries = new HashMap<>();
+            ConcurrentSkipListMap<String, Entry> freshKeys = new ConcurrentSkipListMap<>();
+            Query query = Query.query(Criteria.where("active").is(true));
+            query.fields().include("name", "nameAr", "category", "linkedStoreIds", "active");
+            try (Stream<ReferenceItem> items = mongoTemplate.stream(query, ReferenceItem.class)) {
+                items.forEach(item -> {
+                    Entry entry = Entry.of(item);
+                    freshEntries.put(entry.id(), entry);
+                    entry.keys().forEach(key -> freshKeys.put(key, entry));
+                });
+            }
+
+            synchronized (this) {
+                entries = freshEntries;
+                keys = freshKeys;
+                topByPrefix = new ConcurrentHashMap<>();
+                pendingMutations.forEach(mutation -> mutation.accept(this));
+            }
+            log.info("Suggest index loaded: {} reference items, {} keys in {} ms",
+                    freshEntries.size(), freshKeys.size(), (System.nanoTime() - start) / 1_000_000);
+        } catch (RuntimeException e) {
+            log.warn("Suggest index load failed, suggestions will query MongoDB: {}", e.getMessage());
+        } finally {
+            synchronized (this) {
+                pendingMutations = null;
+            }
+        }
+    }
+
+    /**
+     * Most popular active reference items with a name word starting with the prefix
+     */
+    public List<ItemSuggestion> suggest(String prefix, int limit) {
+        String normalized = truncate(SearchText.normalize(prefix));
+        if (normalized.isEmpty() || limit < 1) {
+            return List.of();
+        }
+        ConcurrentSkipListMap<String, Entry> index = keys;
+        if (index == null) {
+            return queryByNamePrefix(prefix, limit);
+        }
+
+        List<Entry> top;
+        if (normalized.length() <= CACHED_PREFIX_LENGTH) {
+            Map<String, List<Entry>> cache = topByPrefix;
+            top = cache.computeIfAbsent(normalized, key -> top(index, key, MAX_LIMIT));
+        } else {
+            top = top(index, normalized, limit);
+        }
+        return top.stream().limit(limit).map(Entry::toSuggestion).toList();
+    }
+
+    public void put(ReferenceItem item) {
+        Entry entry = item.isActive() ? Entry.of(item) : null;
+        mutate(index -> index.replace(item.getId(), entry));
+    }
+
+    public void remove(String referenceItemId) {
+        mutate(index -> index.replace(referenceItemId, null));
+    }
+
+    private synchronized void mutate(Consumer<ReferenceItemSuggester> mutation) {
+        if (keys != null) {
+            mutation.accept(this);
+        }
+        if (pendingMutations != null) {
+            pendingMutations.add(mutation);
+        }
+    }
+
+    /**
+     * Swap the keys of an item for those of its new entry (null when removed or inactive). Called with
+     * the lock held.
+     */
+    private void replace(String id, Entry entry) {
+        Entry previous = entry != null ? entries.put(id, entry) : entries.remove(id);
+        if (entry != null) {
+            entry.keys().forEach(key -> keys.put(key, entry));
+        }
+        if (previous != null) {
+            Set<String> kept = entry != null ? new HashSet<>(entry.keys()) : Set.of();
+            previous.keys().stream().filter(key -> !kept.contains(key)).forEach(keys::remove);
+        }
+        topByPrefix = new ConcurrentHashMap<>();
+    }
+
+    /**
+     * Best entries among the keys starting with the prefix, one per item
+     */
+    private static List<Entry> top(ConcurrentSkipListMap<String, Entry> index, String prefix, int limit) {
+        PriorityQueue<Entry> worstFirst = new PriorityQueue<>(limit + 1, RANK.reversed());
+        Set<String> seen = new HashSet<>();
+        for (Entry entry : index.subMap(prefix, prefix + Character.MAX_VALUE).values()) {
+            if (!seen.add(entry.id())) {
+                continue;
+            }
+            worstFirst.add(entry);
+            if (worstFirst.size() > limit) {
+                worstFirst.poll();
+            }
+        }
+        List<Entry> top = new ArrayList<>(worstFirst);
+        top.sort(RANK);
+        return List.copyOf(top);
+    }
+
+    private static String truncate(String words) {
+        return words.length() > MAX_KEY_LENGTH ? words.substring(0, MAX_KEY_LENGTH) : words;
+    }
+
+    /**
+     * Until the index is loaded: active items whose English name starts with the prefix
+     */
+    private List<ItemSuggestion> queryByNamePrefix(String prefix, int limit) {
+        Query query = Query.query(Criteria.where("active").is(true)
+                        .and("name").regex("^" + Pattern.quote(prefix.trim()), "i"))
+                .limit(limit);
+        query.fields().include("name", "nameAr", "category");
+        return mongoTemplate.find(query, ReferenceItem.class).stream()
+                .map(item -> ItemSuggestion.builder()
+                        .id(item.getId())
+                        .name(item.getName())
+                        .nameAr(item.getNameAr())
+                        .category(item.getCategory())
+                        .build())
+                .toList();
+    }
+}
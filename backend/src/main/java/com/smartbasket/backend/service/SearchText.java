@@ -0,0 +1,117 @@
+package com.smartbasket.backend.service;
+
+import java.text.Normalizer;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+
+/**
+ * Normalization of item names and search queries, so that spelling variants match:
+ * lower case, Latin accents removed, and for Arabic the diacritics (tashkeel) and tatweel removed,
+ * alef forms (أ إ آ ٱ) unified to ا, ى to ي, ة to ه, hamza carriers ؤ and ئ to و and ي, and Arabic-Indic
+ * digits mapped to ASCII. Anything that is not a letter or digit separates tokens.
+ */
+final class SearchText {
+
+    private SearchText() {
+    }
+
+    /**
+     * Normalized text with single spaces between tokens, or an empty string
+     */
+    static String normalize(String text) {
+        if (text == null || text.isEmpty()) {
+            return "";
+        }
+        String decomposed = Normalizer.normalize(text, Normalizer.Form.NFKD).toLowerCase(Locale.ROOT);
+        StringBuilder normalized = new StringBuilder(decomposed.length());
+        boolean space = true;
+        for (int i = 0; i < decomposed.length(); i++) {
+            char c = decomposed.charAt(i);
+            if (Character.getType(c) == Character.NON_SPACING_MARK || c == '\u0640') {
+                continue; // Latin accents, Arabic tashkeel and superscript alef, tatweel
+            }
+            c = fold(c);
+            if (Character.isLetterOrDigit(c)) {
+                normalized.append(c);
+                space = false;
+            } else if (!space) {
+                normalized.append(' ');
+                space = true;
+            }
+        }
+        int length = normalized.length();
+        if (length > 0 && normalized.charAt(length - 1) == ' ') {
+            normalized.setLength(length - 1);
+        }
+        return normalized.toString();
+    }
+
+    /**
+     * Normalized tokens of the text
+     */
+    static List<String> tokens(String text) {
+        String normalized = normalize(text);
+        List<String> tokens = new ArrayList<>();
+        int start = 0;
+        while (start < normalized.length()) {
+            int end = normalized.indexOf(' ', start);
+            if (end < 0) {
+                end = normalized.length();
+            }
+            tokens.add(normalized.substring(start, end));
+            start = end + 1;
+        }
+        return tokens;
+    }
+
+    /**
+     * Optimal string alignment distance between a and b (insertions, deletions, substitutions and
+     * transpositions of adjacent characters), or max + 1 when it exceeds max
+     */
+    static int editDistance(String a, String b, int max) {
+        if (Math.abs(a.length() - b.length()) > max) {
+            return max + 1;
+        }
+        int m = b.length();
+        int[] beforePrevious = new int[m + 1];
+        int[] previous = new int[m + 1];
+        int[] current = new int[m + 1];
+        for (int j = 0; j <= m; j++) {
+            previous[j] = j;
+        }
+        for (int i = 1; i <= a.length(); i++) {
+            current[0] = i;
+            int rowMin = i;
+            for (int j = 1; j <= m; j++) {
+                int cost = a.charAt(i - 1) == b.charAt(j - 1) ? 0 : 1;
+                int distance = Math.min(Math.min(previous[j] + 1, current[j - 1] + 1), previous[j - 1] + cost);
+                if (i > 1 && j > 1 && a.charAt(i - 1) == b.charAt(j - 2) && a.charAt(i - 2) == b.charAt(j - 1)) {
+                    distance = Math.min(distance, beforePrevious[j - 2] + 1);
+                }
+                current[j] = distance;
+                rowMin = Math.min(rowMin, distance);
+            }
+            if (rowMin > max) {
+                return max + 1;
+            }
+            int[] recycled = beforePrevious;
+            beforePrevious = previous;
+            previous = current;
+            current = recycled;
+        }
+        return Math.min(previous[m], max + 1);
+    }
+
+    private static char fold(char c) {
+        return switch (c) {
+            case '\u0622', '\u0623', '\u0625', '\u0671' -> '\u0627'; // آ أ إ ٱ -> ا
+            case '\u0649', '\u0626' -> '\u064A'; // ى ئ -> ي
+            case '\u0624' -> '\u0648'; // ؤ -> و
+            case '\u0629' -> '\u0647'; // ة -> ه
+            default -> c >= '\u0660' && c <= '\u0669' ? (char) ('0' + c - '\u0660')  // Arabic-Indic digits
+                    : c >= '\u06F0' && c <= '\u06F9' ? (char) ('0' + c - '\u06F0')   // Eastern Arabic-Indic digits
+                    : c;
+        };
+    }
+}
@@ -0,0 +1,449 @@
+package com.smartbasket.backend.service;
+
+import com.smartbasket.backend.dto.StoreItemMatchResponse;
+import com.smartbasket.backend.model.ReferenceItem;
+import com.smartbasket.backend.model.StoreItem;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.query.Criteria;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.stereotype.Service;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+import java.util.stream.Stream;
+
+/**
+ * Bulk matching of unlinked store items to reference items.
+ *
+ * A store item whose barcode is linked to exactly one reference item in another store takes that reference
+ * item. Otherwise the candidates come from a blocking index (name word -> reference items having it, for
+ * words not too common to tell items apart), so only reference items sharing a word with the store item are
+ * scored, never all pairs. A candidate's score is the IDF-weighted Dice similarity of the names, words within
+ * one typo counting for less. It is raised when the store brand is one the reference item is already sold
+ * under, lowered when the reference item is only sold under other brands, and halved when both names state
+ * different sizes. The best candidate is a confident match when it scores high enough and clearly above the
+ * runner-up; plausible candidates are left for review.
+ */
+@Slf4j
+@Service
+@RequiredArgsConstructor
+public class StoreItemMatcher {
+
+    // Barcode linked to more than one reference item
+    private static final String AMBIGUOUS = "";
+
+    private static final int CANDIDATES = 8;
+    private static final int REVIEW_CANDIDATES = 3;
+    private static final double TYPO_CREDIT = 0.8;
+    private static final int TYPO_LENGTH = 5;
+    private static final double BRAND_MATCH = 0.1;
+    private static final double BRAND_MISMATCH = 0.15;
+    private static final double SIZE_MISMATCH = 0.5;
+    // Store items per partition scored by one task
+    private static final int PARTITION_SIZE = 500;
+
+    private final MongoTemplate mongoTemplate;
+    private final StoreItemService storeItemService;
+    @Qualifier("storeItemMatchExecutor")
+    private final ExecutorService storeItemMatchExecutor;
+
+    @Value("${items.match.auto-link-score:0.85}")
+    private double autoLinkScore = 0.85;
+    @Value("${items.match.min-margin:0.1}")
+    private double minMargin = 0.1;
+    @Value("${items.match.review-score:0.5}")
+    private double reviewScore = 0.5;
+    @Value("${items.match.max-block-size:2000}")
+    private int maxBlockSize = 2000;
+
+    /**
+     * Match the unlinked store items of a store (or of all stores) against the reference catalog
+     *
+     * @param apply link the confident matches; otherwise only report them
+     */
+    public StoreItemMatchResponse match(String storeId, boolean apply) {
+        long start = System.nanoTime();
+        Catalog catalog = loadCatalog();
+        List<StoreItem> unlinked = loadUnlinked(storeId);
+
+        // Score contiguous partitions in parallel, each with its own scratch space
+        Outcome[] outcomes = new Outcome[unlinked.size()];
+        List<Future<?>> futures = new ArrayList<>();
+        for (int from = 0; from < unlinked.size(); from += PARTITION_SIZE) {
+            int first = from;
+            int last = Math.min(from + PARTITION_SIZE, unlinked.size());
+            futures.add(storeItemMatchExecutor.submit(() -> {
+                Scratch scratch = new Scratch(catalog.entries.length);
+                for (int i = first; i < last; i++) {
+                    outcomes[i] = catalog.match(unlinked.get(i), scratch);
+                }
+            }));
+        }
+        for (Future<?> future : futures) {
+            try {
+                future.get();
+            } catch (ExecutionException e) {
+                throw new IllegalStateException("Store item matching failed", e.getCause());
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new IllegalStateException("Store item matching interrupted", e);
+            }
+        }
+
+        List<StoreItemMatchResponse.Match> matches = new ArrayList<>();
+        List<StoreItemMatchResponse.Review> reviews = new ArrayList<>();
+        Map<String, String> links = new LinkedHashMap<>();
+        for (Outcome outcome : outcomes) {
+            List<Scored> ranked = outcome.ranked();
+            if (ranked.isEmpty() || ranked.get(0).score() < reviewScore) {
+                continue;
+            }
+            Scored best = ranked.get(0);
+            double runnerUp = ranked.size() > 1 ? ranked.get(1).score() : 0;
+            if (best.score() >= autoLinkScore && best.score() - runnerUp >= minMargin) {
+                matches.add(StoreItemMatchResponse.Match.builder()
+                        .storeItemId(outcome.item().getId())
+                        .storeItemName(outcome.item().getName())
+                        .referenceItemId(best.entry().id())
+                        .referenceItemName(best.entry().name())
+                        .score(round(best.score()))
+                        .reason(outcome.reason())
+                        .build());
+                links.put(outcome.item().getId(), best.entry().id());
+            } else {
+                reviews.add(StoreItemMatchResponse.Review.builder()
+                        .storeItemId(outcome.item().getId())
+                        .storeItemName(outcome.item().getName())
+                        .candidates(ranked.stream()
+                                .filter(scored -> scored.score() >= reviewScore)
+                                .limit(REVIEW_CANDIDATES)
+                                .map(scored -> StoreItemMatchResponse.Candidate.builder()
+                                        .referenceItemId(scored.entry().id())
+                                        .referenceItemName(scored.entry().name())
+                                        .score(round(scored.score()))
+                                        .build())
+                                .toList())
+                        .build());
+            }
+        }
+
+        if (apply && !links.isEmpty()) {
+            storeItemService.linkAll(links);
+        }
+        long elapsedMs = (System.nanoTime() - start) / 1_000_000;
+        log.info("Matched {} unlinked store items against {} reference items in {} ms: {} confident, {} for review",
+                unlinked.size(), catalog.entries.length, elapsedMs, matches.size(), reviews.size());
+
+        return StoreItemMatchResponse.builder()
+                .unlinkedCount(unlinked.size())
+                .matchedCount(matches.size())
+                .reviewCount(reviews.size())
+                .unmatchedCount(unlinked.size() - matches.size() - reviews.size())
+                .applied(apply)
+                .elapsedMs(elapsedMs)
+                .matches(matches)
+                .reviews(reviews)
+                .build();
+    }
+
+    private Catalog loadCatalog() {
+        // Barcodes and brands the reference items are already sold under
+        Map<String, String> barcodeOwners = new HashMap<>();
+        Map<String, Set<String>> brands = new HashMap<>();
+        Query linked = Query.query(Criteria.where("referenceItemId").ne(null));
+        linked.fields().include("referenceItemId", "barcode", "brand");
+        try (Stream<StoreItem> items = mongoTemplate.stream(linked, StoreItem.class)) {
+            items.forEach(item -> {
+                if (item.getBarcode() != null && !item.getBarcode().isBlank()) {
+                    barcodeOwners.merge(item.getBarcode().trim(), item.getReferenceItemId(),
+                            (owner, other) -> owner.equals(other) ? owner : AMBIGUOUS);
+                }
+                String brand = brandKey(item.getBrand());
+                if (brand != null) {
+                    brands.computeIfAbsent(item.getReferenceItemId(), id -> new HashSet<>()).add(brand);
+                }
+            });
+        }
+
+        List<ReferenceItem> referenceItems = new ArrayList<>();
+        Query catalog = new Query();
+        catalog.fields().include("name", "nameAr");
+        try (Stream<ReferenceItem> items = mongoTemplate.stream(catalog, ReferenceItem.class)) {
+            items.forEach(referenceItems::add);
+        }
+        return Catalog.build(referenceItems, brands, barcodeOwners, maxBlockSize);
+    }
+
+    private List<StoreItem> loadUnlinked(String storeId) {
+        Criteria criteria = Criteria.where("referenceItemId").is(null);
+        if (storeId != null) {
+            criteria = criteria.and("storeId").is(storeId);
+        }
+        Query query = Query.query(criteria);
+        query.fields().include("storeId", "name", "nameAr", "brand", "barcode");
+        List<StoreItem> unlinked = new ArrayList<>();
+        try (Stream<StoreItem> items = mongoTemplate.stream(query, StoreItem.class)) {
+            items.forEach(unlinked::add);
+        }
+        return unlinked;
+    }
+
+    private static String brandKey(String brand) {
+        if (brand == null) {
+            return null;
+        }
+        List<String> tokens = SearchText.tokens(brand);
+        return tokens.isEmpty() ? null : String.join(" ", tokens);
+    }
+
+    private static double round(double score) {
+        return Math.round(score * 1000) / 1000.0;
+    }
+
+    /**
+     * Normalized reference item: distinct name words per language, brands and size words
+     */
+    private record Entry(String id, String name, String[] words, String[] wordsAr, Set<String> brands,
+                         Set<String> sizes) {
+    }
+
+    private record Scored(Entry entry, double score) {
+    }
+
+    /**
+     * Reference items ranked for a store item, best first
+     */
+    private record Outcome(StoreItem item, String reason, List<Scored> ranked) {
+    }
+
+    /**
+     * Per-thread candidate weights over the catalog, reset after each store item
+     */
+    private static final class Scratch {
+        final float[] weights;
+        final int[] touched;
+        int touchedCount;
+
+        Scratch(int size) {
+            weights = new float[size];
+            touched = new int[size];
+        }
+    }
+
+    /**
+     * The reference catalog prepared for matching; read-only once built
+     */
+    private static final class Catalog {
+        final Entry[] entries;
+        final Map<String, Integer> positions;
+        final Map<String, Integer> frequencies;
+        final Map<String, int[]> blocks;
+        final Map<String, String> barcodeOwners;
+
+        private Catalog(Entry[] entries, Map<String, Integer> positions, Map<String, Integer> frequencies,
+                        Map<String, int[]> blocks, Map<String, String> barcodeOwners) {
+            this.entries = entries;
+            this.positions = positions;
+            this.frequencies = frequencies;
+            this.blocks = blocks;
+            this.barcodeOwners = barcodeOwners;
+        }
+
+        static Catalog build(List<ReferenceItem> items, Map<String, Set<String>> brands,
+                             Map<String, String> barcodeOwners, int maxBlockSize) {
+            Entry[] entries = new Entry[items.size()];
+            Map<String, Integer> positions = new HashMap<>();
+            Map<String, Integer> frequencies = new HashMap<>();
+            Map<String, List<Integer>> building = new HashMap<>();
+            for (int i = 0; i < entries.length; i++) {
+                ReferenceItem item = items.get(i);
+                String[] words = words(item.getName());
+                String[] wordsAr = words(item.getNameAr());
+                Set<String> all = new LinkedHashSet<>(Arrays.asList(words));
+                all.addAll(Arrays.asList(wordsAr));
+                entries[i] = new Entry(item.getId(), item.getName(), words, wordsAr,
+                        brands.getOrDefault(item.getId(), Set.of()), sizes(all));
+                positions.put(item.getId(), i);
+                for (String word : all) {
+                    frequencies.merge(word, 1, Integer::sum);
+                    if (!hasDigit(word)) {
+                        building.computeIfAbsent(word, key -> new ArrayList<>()).add(i);
+                    }
+                }
+            }
+
+            // Words shared by too many items would make every one of them a candidate
+            Map<String, int[]> blocks = new HashMap<>();
+            building.forEach((word, block) -> {
+                if (block.size() <= maxBlockSize) {
+                    blocks.put(word, block.stream().mapToInt(Integer::intValue).toArray());
+                }
+            });
+            return new Catalog(entries, positions, frequencies, blocks, barcodeOwners);
+        }
+
+        Outcome match(StoreItem item, Scratch scratch) {
+            String barcode = item.getBarcode() != null ? item.getBarcode().trim() : "";
+            String owner = barcodeOwners.get(barcode);
+            if (owner != null && !owner.equals(AMBIGUOUS) && positions.containsKey(owner)) {
+                return new Outcome(item, "barcode", List.of(new Scored(entries[positions.get(owner)], 1.0)));
+            }
+
+            // The brand is scored on its own, so its words do not dilute the name similarity
+            String brand = brandKey(item.getBrand());
+            String[] words = withoutBrand(words(item.getName()), brand);
+            String[] wordsAr = withoutBrand(words(item.getNameAr()), brand);
+            Set<String> all = new LinkedHashSet<>(Arrays.asList(words));
+            all.addAll(Arrays.asList(wordsAr));
+            Set<String> sizes = sizes(all);
+
+            // Blocking: reference items sharing a word, by IDF weight of the shared words
+            for (String word : all) {
+                int[] block = blocks.get(word);
+                if (block == null) {
+                    continue;
+                }
+                float weight = (float) idf(word);
+                for (int position : block) {
+                    if (scratch.weights[position] == 0) {
+                        scratch.touched[scratch.touchedCount++] = position;
+                    }
+                    scratch.weights[position] += weight;
+                }
+            }
+            int[] candidates = topCandidates(scratch);
+
+            List<Scored> ranked = new ArrayList<>(candidates.length);
+            for (int position : candidates) {
+                Entry entry = entries[position];
+                double score = Math.max(
+                        Math.max(similarity(words, entry.words()), similarity(wordsAr, entry.wordsAr())),
+                        Math.max(similarity(words, entry.wordsAr()), similarity(wordsAr, entry.words())));
+                if (brand != null && !entry.brands().isEmpty()) {
+                    score += entry.brands().contains(brand) ? BRAND_MATCH : -BRAND_MISMATCH;
+                }
+                if (!sizes.isEmpty() && !entry.sizes().isEmpty() && Collections.disjoint(sizes, entry.sizes())) {
+                    score *= SIZE_MISMATCH;
+                }
+                ranked.add(new Scored(entry, Math.max(0, Math.min(1, score))));
+            }
+            ranked.sort((a, b) -> Double.compare(b.score(), a.score()));
+            return new Outcome(item, "name", ranked);
+        }
+
+        /**
+         * The best blocked candidates by shared word weight, clearing the scratch space
+         */
+        private int[] topCandidates(Scratch scratch) {
+            int[] best = new int[Math.min(CANDIDATES, scratch.touchedCount)];
+            int count = 0;
+            for (int i = 0; i < scratch.touchedCount; i++) {
+                int position = scratch.touched[i];
+                float weight = scratch.weights[position];
+                if (count < best.length) {
+                    best[count++] = position;
+                } else {
+                    int weakest = 0;
+                    for (int j = 1; j < best.length; j++) {
+                        if (scratch.weights[best[j]] < scratch.weights[best[weakest]]) {
+                            weakest = j;
+                        }
+                    }
+                    if (weight > scratch.weights[best[weakest]]) {
+                        best[weakest] = position;
+                    }
+                }
+            }
+            for (int i = 0; i < scratch.touchedCount; i++) {
+                scratch.weights[scratch.touched[i]] = 0;
+            }
+            scratch.touchedCount = 0;
+            return best;
+        }
+
+        /**
+         * IDF-weighted Dice similarity of two word sets; words within one typo share part of their weight
+         */
+        private double similarity(String[] words, String[] other) {
+            if (words.length == 0 || other.length == 0) {
+                return 0;
+            }
+            double shared = 0;
+            double total = 0;
+            for (String word : words) {
+                double weight = idf(word);
+                total += weight;
+                shared += weight * credit(word, other);
+            }
+            for (String word : other) {
+                total += idf(word);
+            }
+            return 2 * shared / total;
+        }
+
+        private double idf(String word) {
+            return Math.log(1 + (double) entries.length / (frequencies.getOrDefault(word, 0) + 1));
+        }
+
+        private static double credit(String word, String[] other) {
+            double credit = 0;
+            for (String candidate : other) {
+                if (candidate.equals(word)) {
+                    return 1;
+                }
+                if (word.length() >= TYPO_LENGTH && candidate.length() >= TYPO_LENGTH && !hasDigit(word)
+                        && SearchText.editDistance(word, candidate, 1) <= 1) {
+                    credit = TYPO_CREDIT;
+                }
+            }
+            return credit;
+        }
+
+        private static String[] words(String text) {
+            return text == null ? new String[0] : new LinkedHashSet<>(SearchText.tokens(text)).toArray(String[]::new);
+        }
+
+        private static String[] withoutBrand(String[] words, String brand) {
+            if (brand == null) {
+                return words;
+            }
+            Set<String> brandWords = Set.of(brand.split(" "));
+            String[] remaining = Arrays.stream(words).filter(word -> !brandWords.contains(word)).toArray(String[]::new);
+            return remaining.length > 0 ? remaining : words;
+        }
+
+        private static Set<String> sizes(Set<String> words) {
+            Set<String> sizes = new HashSet<>();
+            for (String word : words) {
+                if (hasDigit(word)) {
+                    sizes.add(word);
+                }
+            }
+            return sizes;
+        }
+
+        private static boolean hasDigit(String word) {
+            for (int i = 0; i < word.length(); i++) {
+                if (Character.isDigit(word.charAt(i))) {
+                    return true;
+                }
+            }
+            return false;
+        }
+    }
+}
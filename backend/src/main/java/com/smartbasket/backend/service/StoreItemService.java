@@ -2,6 +2,7 @@ package com.smartbasket.backend.service;
 
 import com.smartbasket.backend.dto.CreateStoreItemRequest;
 import com.smartbasket.backend.dto.StoreItemDto;
+import com.smartbasket.backend.dto.StoreItemPage;
 import com.smartbasket.backend.exception.ResourceNotFoundException;
 import com.smartbasket.backend.model.Store;
 import com.smartbasket.backend.model.StoreItem;
@@ -10,14 +11,27 @@ import com.smartbasket.backend.repository.StoreItemRepository;
 import com.smartbasket.backend.repository.StoreRepository;
 import com.smartbasket.backend.repository.ReferenceItemRepository;
 import lombok.RequiredArgsConstructor;
+import org.bson.types.ObjectId;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.domain.Sort;
+import org.springframework.data.mongodb.core.BulkOperations;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.query.Criteria;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.data.mongodb.core.query.Update;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 
 import java.time.Instant;
 import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.HashSet;
 import java.util.List;
 import java.util.Map;
+import java.util.Objects;
 import java.util.Optional;
+import java.util.Set;
 import java.util.stream.Collectors;
 
 @Service
@@ -27,32 +41,164 @@ public class StoreItemService {
     private final StoreItemRepository storeItemRepository;
     private final ReferenceItemRepository referenceItemRepository;
     private final StoreRepository storeRepository;
+    private final PriceMatrix priceMatrix;
+    private final BasketComparisonCache basketComparisonCache;
+    private final PriceFingerprints priceFingerprints;
+    private final BarcodeIndex barcodeIndex;
+    private final ReferenceItemSearchIndex searchIndex;
+    private final ReferenceItemSuggester suggester;
+    private final MongoTemplate mongoTemplate;
 
     private static final String DEFAULT_CURRENCY = "JOD";
 
+    // StoreItemDto field -> store item document fields it is built from
+    private static final Map<String, List<String>> PROJECTED_FIELDS = Map.ofEntries(
+            Map.entry("id", List.of()),
+            Map.entry("storeId", List.of("storeId")),
+            Map.entry("storeName", List.of("storeId")),
+            Map.entry("referenceItemId", List.of("referenceItemId")),
+            Map.entry("referenceItemName", List.of("referenceItemId")),
+            Map.entry("name", List.of("name")),
+            Map.entry("nameAr", List.of("nameAr")),
+            Map.entry("brand", List.of("brand")),
+            Map.entry("barcode", List.of("barcode")),
+            Map.entry("images", List.of("images")),
+            Map.entry("currentPrice", List.of("currentPrice")),
+            Map.entry("originalPrice", List.of("originalPrice")),
+            Map.entry("discountPercentage", List.of("currentPrice", "originalPrice")),
+            Map.entry("currency", List.of("currency")),
+            Map.entry("isPromotion", List.of("isPromotion")),
+            Map.entry("lastPriceUpdate", List.of("lastPriceUpdate")),
+            Map.entry("lastConfirmedAt", List.of("lastConfirmedAt")));
+
+    @Value("${store-items.default-page-size:100}")
+    private int defaultPageSize = 100;
+    @Value("${store-items.max-page-size:1000}")
+    private int maxPageSize = 1000;
+    // Store items linked per bulk round by linkAll
+    private static final int LINK_CHUNK_SIZE = 1000;
+
     /**
      * Get all store items
      */
     public List<StoreItemDto> getAll() {
         List<StoreItem> items = storeItemRepository.findAll();
         
-        // Build lookup maps for names
+        // Build lookup maps for names, reading only the names
         Map<String, String> storeNames = storeRepository.findAll()
                 .stream()
                 .collect(Collectors.toMap(Store::getId, Store::getName));
-        Map<String, String> refItemNames = referenceItemRepository.findAll()
-                .stream()
-                .collect(Collectors.toMap(ReferenceItem::getId, ReferenceItem::getName));
+        Map<String, String> refItemNames = referenceItemNames(null);
         
         return items.stream()
                 .map(item -> toDto(item, 
                         storeNames.getOrDefault(item.getStoreId(), "Unknown"),
-                        refItemNames.getOrDefault(item.getReferenceItemId(), "Unknown")))
+                        item.getReferenceItemId() == null ? null
+                                : refItemNames.getOrDefault(item.getReferenceItemId(), "Unknown")))
                 .collect(Collectors.toList());
     }
 
     /**
-     * Create a store item and auto-link the store to the reference item
+     * One page of store items in id order, optionally filtered and projected. Store and reference item
+     * names are read for the items of the page only.
+     *
+     * @param category   category id or name of the linked reference item
+     * @param referenceItemIds only items linked to one of these reference items
+     * @param hasPrice   only items with (true) or without (false) a current price
+     * @param promotion  only items on (true) or not on (false) promotion
+     * @param cursor     nextCursor of the previous page, or null for the first page
+     * @param limit      page size, capped at store-items.max-page-size
+     * @param fields     StoreItemDto fields to return (id is always included), or null for all of them
+     */
+    public StoreItemPage getPage(String storeId, String category, List<String> referenceItemIds, Boolean hasPrice,
+                                 Boolean promotion, String cursor, Integer limit, List<String> fields) {
+        int pageSize = Math.min(limit != null && limit > 0 ? limit : defaultPageSize, maxPageSize);
+        Set<String> requested = fields == null || fields.isEmpty() ? null : new HashSet<>(fields);
+
+        // 1. Filters, then resume strictly after the cursor
+        List<Criteria> filters = new ArrayList<>();
+        if (storeId != null) {
+            filters.add(Criteria.where("storeId").is(storeId));
+        }
+        if (category != null) {
+            Query categoryItems = Query.query(new Criteria().orOperator(
+                    Criteria.where("categoryId").is(category), Criteria.where("category").is(category)));
+            categoryItems.fields().include("_id");
+            List<String> categoryReferenceItemIds = mongoTemplate.find(categoryItems, ReferenceItem.class).stream()
+                    .map(ReferenceItem::getId)
+                    .toList();
+            filters.add(Criteria.where("referenceItemId").in(categoryReferenceItemIds));
+        }
+        if (referenceItemIds != null && !referenceItemIds.isEmpty()) {
+            filters.add(Criteria.where("referenceItemId").in(referenceItemIds));
+        }
+        if (hasPrice != null) {
+            filters.add(hasPrice ? Criteria.where("currentPrice").ne(null) : Criteria.where("currentPrice").is(null));
+        }
+        if (promotion != null) {
+            filters.add(promotion ? Criteria.where("isPromotion").is(true) : Criteria.where("isPromotion").ne(true));
+        }
+        if (cursor != null && !cursor.isBlank()) {
+            if (!ObjectId.isValid(cursor)) {
+                throw new IllegalArgumentException("Invalid cursor");
+            }
+            filters.add(Criteria.where("_id").gt(new ObjectId(cursor)));
+        }
+
+        // 2. One item more than the page tells whether there is another page
+        Query query = new Query(filters.isEmpty() ? new Criteria() : new Criteria().andOperator(filters))
+                .with(Sort.by(Sort.Direction.ASC, "_id"))
+                .limit(pageSize + 1);
+        if (requested != null) {
+            for (String field : requested) {
+                List<String> documentFields = PROJECTED_FIELDS.get(field);
+                if (documentFields == null) {
+                    throw new IllegalArgumentException("Unknown store item field: " + field);
+                }
+                documentFields.forEach(query.fields()::include);
+            }
+            // Only the id requested: an empty projection would read the whole document
+            if (query.getFieldsObject().isEmpty()) {
+                query.fields().include("_id");
+            }
+        }
+        List<StoreItem> items = new ArrayList<>(mongoTemplate.find(query, StoreItem.class));
+        boolean hasMore = items.size() > pageSize;
+        if (hasMore) {
+            items = items.subList(0, pageSize);
+        }
+
+        // 3. Names of the stores and reference items on this page only
+        Map<String, String> storeNames = new HashMap<>();
+        if (requested == null || requested.contains("storeName")) {
+            Set<String> storeIds = items.stream().map(StoreItem::getStoreId).collect(Collectors.toSet());
+            storeNames = storeRepository.findAllById(storeIds).stream()
+                    .collect(Collectors.toMap(Store::getId, Store::getName));
+        }
+        Map<String, String> refItemNames = new HashMap<>();
+        if (requested == null || requested.contains("referenceItemName")) {
+            refItemNames = referenceItemNames(items.stream()
+                    .map(StoreItem::getReferenceItemId)
+                    .filter(Objects::nonNull)
+                    .collect(Collectors.toSet()));
+        }
+
+        List<StoreItemDto> content = new ArrayList<>(items.size());
+        for (StoreItem item : items) {
+            StoreItemDto dto = toDto(item, storeNames.get(item.getStoreId()),
+                    item.getReferenceItemId() == null ? null : refItemNames.get(item.getReferenceItemId()));
+            content.add(requested == null ? dto : project(dto, requested));
+        }
+        return StoreItemPage.builder()
+                .items(content)
+                .limit(pageSize)
+                .hasMore(hasMore)
+                .nextCursor(hasMore ? items.get(items.size() - 1).getId() : null)
+                .build();
+    }
+
+    /**
+     * Create a store item and auto-link the store to the reference item, if one is given
      */
     @Transactional
     public StoreItemDto createStoreItem(CreateStoreItemRequest request) {
@@ -61,8 +207,17 @@ public class StoreItemService {
                 .orElseThrow(() -> new ResourceNotFoundException("Store not found: " + request.getStoreId()));
 
         // Validate reference item exists
-        ReferenceItem refItem = referenceItemRepository.findById(request.getReferenceItemId())
-                .orElseThrow(() -> new ResourceNotFoundException("Reference item not found: " + request.getReferenceItemId()));
+        ReferenceItem refItem = request.getReferenceItemId() == null ? null
+                : referenceItemRepository.findById(request.getReferenceItemId())
+                        .orElseThrow(() -> new ResourceNotFoundException("Reference item not found: " + request.getReferenceItemId()));
+
+        // A barcode identifies one item per store; stored trimmed, blank means none
+        String barcode = request.getBarcode() == null || request.getBarcode().isBlank()
+                ? null : request.getBarcode().trim();
+        if (barcode != null && barcodeIndex.find(request.getStoreId(), barcode) != null) {
+            throw new IllegalArgumentException("Store item with barcode '" + barcode
+                    + "' already exists in store " + request.getStoreId());
+        }
 
         // Create the store item
         StoreItem storeItem = StoreItem.builder()
@@ -71,7 +226,7 @@ public class StoreItemService {
                 .name(request.getName())
                 .nameAr(request.getNameAr())
                 .brand(request.getBrand())
-                .barcode(request.getBarcode())
+                .barcode(barcode)
                 .images(request.getImages() != null ? request.getImages() : new ArrayList<>())
                 .build();
 
@@ -85,6 +240,13 @@ public class StoreItemService {
         }
 
         StoreItem saved = storeItemRepository.save(storeItem);
+        barcodeIndex.put(saved);
+        if (refItem == null) {
+            return toDto(saved, store.getName(), null);
+        }
+        priceMatrix.upsertStoreItem(saved);
+        searchIndex.addBrand(saved.getReferenceItemId(), saved.getBrand());
+        basketComparisonCache.invalidateReferenceItem(saved.getReferenceItemId());
 
         // Auto-link: Add storeId to reference item's linkedStoreIds
         addStoreToReferenceItem(refItem, request.getStoreId());
@@ -92,6 +254,70 @@ public class StoreItemService {
         return toDto(saved, store.getName(), refItem.getName());
     }
 
+    /**
+     * Link an unlinked store item to a reference item, e.g. after reviewing a match
+     */
+    @Transactional
+    public StoreItemDto linkToReferenceItem(String id, String referenceItemId) {
+        StoreItem item = storeItemRepository.findById(id)
+                .orElseThrow(() -> new ResourceNotFoundException("Store item not found: " + id));
+        if (item.getReferenceItemId() != null) {
+            throw new IllegalArgumentException("Store item " + id + " is already linked to reference item "
+                    + item.getReferenceItemId());
+        }
+        ReferenceItem refItem = referenceItemRepository.findById(referenceItemId)
+                .orElseThrow(() -> new ResourceNotFoundException("Reference item not found: " + referenceItemId));
+
+        item.setReferenceItemId(referenceItemId);
+        StoreItem saved = storeItemRepository.save(item);
+        priceMatrix.upsertStoreItem(saved);
+        searchIndex.addBrand(referenceItemId, saved.getBrand());
+        basketComparisonCache.invalidateReferenceItem(referenceItemId);
+        addStoreToReferenceItem(refItem, saved.getStoreId());
+
+        String storeName = storeRepository.findById(saved.getStoreId()).map(Store::getName).orElse(null);
+        return toDto(saved, storeName, refItem.getName());
+    }
+
+    /**
+     * Link unlinked store items to reference items in bulk (store item id -> reference item id).
+     * Items linked in the meantime are left as they are.
+     *
+     * @return number of store items linked
+     */
+    public int linkAll(Map<String, String> referenceItemIds) {
+        int linked = 0;
+        List<String> storeItemIds = new ArrayList<>(referenceItemIds.keySet());
+        for (int from = 0; from < storeItemIds.size(); from += LINK_CHUNK_SIZE) {
+            List<String> chunk = storeItemIds.subList(from, Math.min(from + LINK_CHUNK_SIZE, storeItemIds.size()));
+            BulkOperations operations = mongoTemplate.bulkOps(BulkOperations.BulkMode.UNORDERED, StoreItem.class);
+            for (String storeItemId : chunk) {
+                operations.updateOne(
+                        Query.query(Criteria.where("_id").is(storeItemId).and("referenceItemId").is(null)),
+                        new Update().set("referenceItemId", referenceItemIds.get(storeItemId)));
+            }
+            operations.execute();
+
+            // Keep the in-memory views and the reference items' linked stores current
+            Map<String, Set<String>> storesByReferenceItem = new HashMap<>();
+            for (StoreItem item : storeItemRepository.findAllById(chunk)) {
+                if (!Objects.equals(item.getReferenceItemId(), referenceItemIds.get(item.getId()))) {
+                    continue;
+                }
+                priceMatrix.upsertStoreItem(item);
+                searchIndex.addBrand(item.getReferenceItemId(), item.getBrand());
+                storesByReferenceItem.computeIfAbsent(item.getReferenceItemId(), key -> new HashSet<>())
+                        .add(item.getStoreId());
+                linked++;
+            }
+            for (ReferenceItem refItem : referenceItemRepository.findAllById(storesByReferenceItem.keySet())) {
+                storesByReferenceItem.get(refItem.getId()).forEach(storeId -> addStoreToReferenceItem(refItem, storeId));
+                basketComparisonCache.invalidateReferenceItem(refItem.getId());
+            }
+        }
+        return linked;
+    }
+
     /**
      * Get all store items for a reference item
      */
@@ -116,8 +342,9 @@ public class StoreItemService {
                 .map(item -> {
                     String storeName = storeRepository.findById(item.getStoreId())
                             .map(Store::getName).orElse(null);
-                    String refItemName = referenceItemRepository.findById(item.getReferenceItemId())
-                            .map(ReferenceItem::getName).orElse(null);
+                    String refItemName = item.getReferenceItemId() == null ? null
+                            : referenceItemRepository.findById(item.getReferenceItemId())
+                                    .map(ReferenceItem::getName).orElse(null);
                     return toDto(item, storeName, refItemName);
                 });
     }
@@ -138,6 +365,14 @@ public class StoreItemService {
 
         // Delete the store item
         storeItemRepository.delete(item);
+        priceMatrix.removeStoreItem(item);
+        priceFingerprints.forget(id);
+        barcodeIndex.remove(item);
+        if (referenceItemId == null) {
+            return true;
+        }
+        searchIndex.removeBrand(referenceItemId, item.getBrand());
+        basketComparisonCache.invalidateReferenceItem(referenceItemId);
 
         // Check if any other store items still link this reference to this store
         boolean otherLinksExist = storeItemRepository.findByReferenceItemId(referenceItemId)
@@ -162,6 +397,7 @@ public class StoreItemService {
         if (!refItem.getLinkedStoreIds().contains(storeId)) {
             refItem.getLinkedStoreIds().add(storeId);
             referenceItemRepository.save(refItem);
+            suggester.put(refItem);
         }
     }
 
@@ -173,6 +409,7 @@ public class StoreItemService {
             if (refItem.getLinkedStoreIds() != null) {
                 refItem.getLinkedStoreIds().remove(storeId);
                 referenceItemRepository.save(refItem);
+                suggester.put(refItem);
             }
         });
     }
@@ -187,7 +424,8 @@ public class StoreItemService {
 
         // Batch fetch store and reference item names
         List<String> storeIds = items.stream().map(StoreItem::getStoreId).distinct().toList();
-        List<String> refItemIds = items.stream().map(StoreItem::getReferenceItemId).distinct().toList();
+        List<String> refItemIds = items.stream().map(StoreItem::getReferenceItemId)
+                .filter(Objects::nonNull).distinct().toList();
 
         Map<String, String> storeNames = storeRepository.findAllById(storeIds).stream()
                 .collect(Collectors.toMap(Store::getId, Store::getName));
@@ -197,10 +435,58 @@ public class StoreItemService {
         return items.stream()
                 .map(item -> toDto(item,
                         storeNames.get(item.getStoreId()),
-                        refItemNames.get(item.getReferenceItemId())))
+                        item.getReferenceItemId() == null ? null : refItemNames.get(item.getReferenceItemId())))
                 .collect(Collectors.toList());
     }
 
+    /**
+     * Names of the given reference items (all of them when ids is null), reading only the names
+     */
+    private Map<String, String> referenceItemNames(Collection<String> ids) {
+        if (ids != null && ids.isEmpty()) {
+            return new HashMap<>();
+        }
+        Query query = ids == null ? new Query() : Query.query(Criteria.where("_id").in(ids));
+        query.fields().include("name");
+        Map<String, String> names = new HashMap<>();
+        for (ReferenceItem refItem : mongoTemplate.find(query, ReferenceItem.class)) {
+            names.put(refItem.getId(), refItem.getName());
+        }
+        return names;
+    }
+
+    /**
+     * Copy of dto with the id and the requested fields only, so computed and defaulted fields that were
+     * not asked for stay null
+     */
+    private static StoreItemDto project(StoreItemDto dto, Set<String> fields) {
+        StoreItemDto projected = StoreItemDto.builder().id(dto.getId()).build();
+        for (String field : fields) {
+            switch (field) {
+                case "storeId" -> projected.setStoreId(dto.getStoreId());
+                case "storeName" -> projected.setStoreName(dto.getStoreName());
+                case "referenceItemId" -> projected.setReferenceItemId(dto.getReferenceItemId());
+                case "referenceItemName" -> projected.setReferenceItemName(dto.getReferenceItemName());
+                case "name" -> projected.setName(dto.getName());
+                case "nameAr" -> projected.setNameAr(dto.getNameAr());
+                case "brand" -> projected.setBrand(dto.getBrand());
+                case "barcode" -> projected.setBarcode(dto.getBarcode());
+                case "images" -> projected.setImages(dto.getImages());
+                case "currentPrice" -> projected.setCurrentPrice(dto.getCurrentPrice());
+                case "originalPrice" -> projected.setOriginalPrice(dto.getOriginalPrice());
+                case "discountPercentage" -> projected.setDiscountPercentage(dto.getDiscountPercentage());
+                case "currency" -> projected.setCurrency(dto.getCurrency());
+                case "isPromotion" -> projected.setIsPromotion(dto.getIsPromotion());
+                case "lastPriceUpdate" -> projected.setLastPriceUpdate(dto.getLastPriceUpdate());
+                case "lastConfirmedAt" -> projected.setLastConfirmedAt(dto.getLastConfirmedAt());
+                default -> {
+                    // id is always copied
+                }
+            }
+        }
+        return projected;
+    }
+
     private StoreItemDto toDto(StoreItem item, String storeName, String referenceItemName) {
         Double discountPercentage = null;
         if (item.getOriginalPrice() != null && item.getCurrentPrice() != null && item.getOriginalPrice() > 0) {
@@ -224,6 +510,7 @@ public class StoreItemService {
                 .currency(item.getCurrency())
                 .isPromotion(item.getIsPromotion())
                 .lastPriceUpdate(item.getLastPriceUpdate())
+                .lastConfirmedAt(item.getLastConfirmedAt())
                 .build();
     }
 }
@@ -0,0 +1,92 @@
+package com.smartbasket.backend.service;
+
+import com.smartbasket.backend.dto.BasketItemInfo;
+import com.smartbasket.backend.dto.StoreComparisonResult;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.PriorityQueue;
+import java.util.function.Function;
+
+/**
+ * Ranks the stores for a basket and keeps only one page: stores with every item available first,
+ * then cheapest first, ties in the order offered.
+ *
+ * Stores are offered as lightweight (storeId, total, availableCount) entries. Only the best
+ * offset + limit are kept, in a bounded max-heap, while the cheapest store and the lowest and
+ * highest totals are tracked over every store, so full results are only built for the page.
+ *
+ * @param <T> whatever the caller needs to build the full result for a ranked store
+ */
+final class StoreRanking<T> {
+
+    record Ranked<T>(String storeId, String storeName, T store, double total, int availableCount,
+                     boolean allItemsAvailable, long sequence) {
+    }
+
+    private static final Comparator<Ranked<?>> RANK_ORDER = Comparator
+            .comparing((Ranked<?> ranked) -> !ranked.allItemsAvailable())
+            .thenComparingDouble(Ranked::total)
+            .thenComparingLong(Ranked::sequence);
+
+    private final int offset;
+    private final long capacity;
+    // Worst ranked entry on top, so it is the one dropped when the heap is full
+    private final PriorityQueue<Ranked<T>> heap = new PriorityQueue<>(RANK_ORDER.reversed());
+
+    private long sequence;
+    private Ranked<T> cheapest;
+    private double lowestTotal = Double.POSITIVE_INFINITY;
+    private double highestTotal = Double.NEGATIVE_INFINITY;
+
+    StoreRanking(int offset, Integer limit) {
+        this.offset = offset;
+        this.capacity = limit != null ? (long) offset + limit : Long.MAX_VALUE;
+    }
+
+    static <T> StoreRanking<T> forBasket(CanonicalBasket basket) {
+        return new StoreRanking<>(basket.offset(), basket.limit());
+    }
+
+    void offer(String storeId, String storeName, T store, double total, int availableCount,
+               boolean allItemsAvailable) {
+        Ranked<T> ranked = new Ranked<>(storeId, storeName, store, total, availableCount,
+                allItemsAvailable, sequence++);
+
+        if (allItemsAvailable) {
+            if (total < lowestTotal) {
+                lowestTotal = total;
+                cheapest = ranked;
+            }
+            highestTotal = Math.max(highestTotal, total);
+        }
+
+        if (heap.size() < capacity) {
+            heap.add(ranked);
+        } else if (RANK_ORDER.compare(ranked, heap.peek()) < 0) {
+            heap.poll();
+            heap.add(ranked);
+        }
+    }
+
+    /**
+     * Build the full results for the page only, in rank order
+     */
+    BasketEvaluation toEvaluation(List<BasketItemInfo> basketItems, Function<Ranked<T>, StoreComparisonResult> build) {
+        List<Ranked<T>> ranked = new ArrayList<>(heap);
+        ranked.sort(RANK_ORDER);
+
+        List<StoreComparisonResult> page = new ArrayList<>();
+        for (int i = offset; i < ranked.size(); i++) {
+            page.add(build.apply(ranked.get(i)));
+        }
+
+        double lowest = cheapest != null ? lowestTotal : 0.0;
+        double highest = cheapest != null ? highestTotal : 0.0;
+        return new BasketEvaluation(basketItems, page, (int) sequence,
+                cheapest != null ? cheapest.storeId() : null,
+                cheapest != null ? cheapest.storeName() : null,
+                lowest, highest);
+    }
+}
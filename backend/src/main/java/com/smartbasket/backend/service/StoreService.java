@@ -18,6 +18,8 @@ public class StoreService {
 
     private final StoreRepository storeRepository;
     private final StoreMapper storeMapper;
+    private final PriceMatrix priceMatrix;
+    private final BasketComparisonCache basketComparisonCache;
 
     public List<StoreDto> getAllStores() {
         return storeRepository.findAll()
@@ -41,6 +43,8 @@ public class StoreService {
     public StoreDto createStore(CreateStoreRequest request) {
         Store entity = storeMapper.toEntity(request);
         Store saved = storeRepository.save(entity);
+        priceMatrix.upsertStore(saved);
+        basketComparisonCache.invalidateStore(saved.getId());
         return storeMapper.toDto(saved);
     }
 
@@ -52,7 +56,10 @@ public class StoreService {
                     existing.setLocation(request.getLocation());
                     existing.setLocationAr(request.getLocationAr());
                     existing.setLogoUrl(request.getLogoUrl());
-                    return storeRepository.save(existing);
+                    Store saved = storeRepository.save(existing);
+                    priceMatrix.upsertStore(saved);
+                    basketComparisonCache.invalidateStore(saved.getId());
+                    return saved;
                 })
                 .map(storeMapper::toDto);
     }
@@ -61,7 +68,10 @@ public class StoreService {
         return storeRepository.findById(id)
                 .map(existing -> {
                     existing.setActive(!existing.isActive());
-                    return storeRepository.save(existing);
+                    Store saved = storeRepository.save(existing);
+                    priceMatrix.upsertStore(saved);
+                    basketComparisonCache.invalidateStore(saved.getId());
+                    return saved;
                 })
                 .map(storeMapper::toDto);
     }
@@ -69,6 +79,8 @@ public class StoreService {
     public boolean deleteStore(String id) {
         if (storeRepository.existsById(id)) {
             storeRepository.deleteById(id);
+            priceMatrix.removeStore(id);
+            basketComparisonCache.invalidateStore(id);
             return true;
         }
         return false;
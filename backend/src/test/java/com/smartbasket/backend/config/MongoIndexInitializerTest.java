@@ -0,0 +1,75 @@
+package com.smartbasket.backend.config;
+
+import com.smartbasket.backend.model.StoreItem;
+import com.smartbasket.backend.model.StorePrice;
+import org.bson.Document;
+import org.junit.jupiter.api.Test;
+import org.mockito.ArgumentCaptor;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.convert.MappingMongoConverter;
+import org.springframework.data.mongodb.core.convert.MongoCustomConversions;
+import org.springframework.data.mongodb.core.convert.NoOpDbRefResolver;
+import org.springframework.data.mongodb.core.index.IndexDefinition;
+import org.springframework.data.mongodb.core.index.IndexOperations;
+import org.springframework.data.mongodb.core.mapping.MongoMappingContext;
+
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.argThat;
+import static org.mockito.Mockito.atLeastOnce;
+import static org.mockito.Mockito.doThrow;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+class MongoIndexInitializerTest {
+
+    @Test
+    void ensuresDeclaredIndexesAndSkipsFailingOnes() {
+        // Mapped like Spring Boot does, with java.time types as simple values
+        MongoMappingContext mappingContext = new MongoMappingContext();
+        mappingContext.setSimpleTypeHolder(new MongoCustomConversions(List.of()).getSimpleTypeHolder());
+        MongoTemplate mongoTemplate = mock(MongoTemplate.class);
+        when(mongoTemplate.getConverter())
+                .thenReturn(new MappingMongoConverter(NoOpDbRefResolver.INSTANCE, mappingContext));
+        Map<Class<?>, IndexOperations> indexOps = new HashMap<>();
+        for (Class<?> document : MongoIndexInitializer.DOCUMENTS) {
+            IndexOperations operations = mock(IndexOperations.class);
+            indexOps.put(document, operations);
+            when(mongoTemplate.indexOps(document)).thenReturn(operations);
+        }
+        // A unique index over duplicate barcodes does not stop the others
+        doThrow(new IllegalStateException("E11000 duplicate key"))
+                .when(indexOps.get(StoreItem.class))
+                .ensureIndex(argThat(index -> index.getIndexKeys().containsKey("barcode")));
+
+        int ensured = new MongoIndexInitializer(mongoTemplate).ensureIndexes();
+
+        ArgumentCaptor<IndexDefinition> storeItemIndexes = ArgumentCaptor.forClass(IndexDefinition.class);
+        verify(indexOps.get(StoreItem.class), atLeastOnce()).ensureIndex(storeItemIndexes.capture());
+        assertThat(storeItemIndexes.getAllValues())
+                .extracting(index -> index.getIndexOptions().getString("name"))
+                .contains("reference_store_idx", "store_id_idx", "store_barcode_idx", "storeId", "referenceItemId");
+        assertThat(storeItemIndexes.getAllValues())
+                .filteredOn(index -> "store_barcode_idx".equals(index.getIndexOptions().getString("name")))
+                .singleElement()
+                .satisfies(index -> {
+                    assertThat(index.getIndexOptions().getBoolean("unique")).isTrue();
+                    // Blank barcodes are stored as null and stay out of the unique index
+                    assertThat(index.getIndexOptions().get("partialFilterExpression"))
+                            .isEqualTo(new Document("barcode", new Document("$gt", "")));
+                });
+
+        ArgumentCaptor<IndexDefinition> priceIndexes = ArgumentCaptor.forClass(IndexDefinition.class);
+        verify(indexOps.get(StorePrice.class)).ensureIndex(priceIndexes.capture());
+        assertThat(priceIndexes.getValue().getIndexKeys())
+                .isEqualTo(new Document("storeItemId", 1).append("timestamp", -1));
+        assertThat(ensured).isEqualTo(7);
+        verify(mongoTemplate, never()).indexOps(any(String.class));
+    }
+}
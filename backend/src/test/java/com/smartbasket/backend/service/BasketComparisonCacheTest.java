@@ -0,0 +1,74 @@
+package com.smartbasket.backend.service;
+
+import com.smartbasket.backend.dto.BasketComparisonResponse;
+import com.smartbasket.backend.dto.StoreComparisonResult;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+import java.util.Map;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class BasketComparisonCacheTest {
+
+    private final SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+    private final BasketComparisonCache cache = new BasketComparisonCache(true, 2, meterRegistry);
+
+    @Test
+    void keyIsIndependentOfOrderAndDuplicates() {
+        assertThat(CanonicalBasket.of(List.of("b", "a", "b"), Map.of("a", 1), true))
+                .isEqualTo(CanonicalBasket.of(List.of("a", "b"), null, true));
+    }
+
+    @Test
+    void invalidatesOnlyAffectedBaskets() {
+        CanonicalBasket milkBread = put(List.of("milk", "bread"), "store-a");
+        CanonicalBasket eggs = put(List.of("eggs"), "store-b");
+
+        cache.invalidateReferenceItem("bread");
+        assertThat(cache.get(milkBread)).isEmpty();
+        assertThat(cache.get(eggs)).isPresent();
+
+        cache.invalidateStore("store-b");
+        assertThat(cache.get(eggs)).isEmpty();
+        assertThat(meterRegistry.get("basket.compare.cache.evictions").tag("cause", "invalidation")
+                .functionCounter().count()).isEqualTo(2.0);
+    }
+
+    @Test
+    void evictsLeastRecentlyUsedWhenFull() {
+        CanonicalBasket first = put(List.of("a"), "store-a");
+        CanonicalBasket second = put(List.of("b"), "store-a");
+        cache.get(first);
+        put(List.of("c"), "store-a");
+
+        assertThat(cache.get(first)).isPresent();
+        assertThat(cache.get(second)).isEmpty();
+    }
+
+    @Test
+    void dropsResponsesComputedAcrossAWrite() {
+        BasketComparisonCache.Versions before = cache.currentVersions();
+        cache.invalidateReferenceItem("milk");
+        CanonicalBasket key = CanonicalBasket.of(List.of("milk"), null, true);
+        cache.put(key, response("store-a"), before);
+
+        assertThat(cache.get(key)).isEmpty();
+    }
+
+    private CanonicalBasket put(List<String> referenceItemIds, String carryingStoreId) {
+        CanonicalBasket key = CanonicalBasket.of(referenceItemIds, null, true);
+        cache.put(key, response(carryingStoreId), cache.currentVersions());
+        return key;
+    }
+
+    private static BasketComparisonResponse response(String carryingStoreId) {
+        return BasketComparisonResponse.builder()
+                .storeComparisons(List.of(StoreComparisonResult.builder()
+                        .storeId(carryingStoreId)
+                        .availableItemCount(1)
+                        .build()))
+                .build();
+    }
+}
@@ -0,0 +1,202 @@
+package com.smartbasket.backend.service;
+
+import com.smartbasket.backend.dto.BasketBatchComparisonRequest;
+import com.smartbasket.backend.dto.BasketBatchComparisonResponse;
+import com.smartbasket.backend.dto.BasketComparisonRequest;
+import com.smartbasket.backend.dto.BasketComparisonResponse;
+import com.smartbasket.backend.dto.BasketComparisonSummary;
+import com.smartbasket.backend.dto.StoreComparisonResult;
+import com.smartbasket.backend.model.ReferenceItem;
+import com.smartbasket.backend.model.Store;
+import com.smartbasket.backend.model.StoreItem;
+import com.smartbasket.backend.repository.ReferenceItemRepository;
+import com.smartbasket.backend.repository.StoreItemRepository;
+import com.smartbasket.backend.repository.StorePriceRepository;
+import com.smartbasket.backend.repository.StoreRepository;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.Spy;
+import org.mockito.junit.jupiter.MockitoExtension;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.stream.IntStream;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyCollection;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+@ExtendWith(MockitoExtension.class)
+class BasketComparisonServiceTest {
+
+    private static final int STORE_COUNT = 40;
+    private static final int ITEM_COUNT = 30;
+
+    @Mock
+    private ReferenceItemRepository referenceItemRepository;
+
+    @Mock
+    private StoreRepository storeRepository;
+
+    @Mock
+    private StoreItemRepository storeItemRepository;
+
+    @Mock
+    private StorePriceRepository storePriceRepository;
+
+    @Mock
+    private PriceMatrix priceMatrix;
+
+    @Mock
+    private BasketComparisonCache basketComparisonCache;
+
+    @Spy
+    private ExecutorService basketComparisonExecutor = Executors.newFixedThreadPool(4);
+
+    @InjectMocks
+    private BasketComparisonService basketComparisonService;
+
+    private List<String> referenceItemIds;
+
+    @BeforeEach
+    void setUp() {
+        List<ReferenceItem> referenceItems = IntStream.range(0, ITEM_COUNT)
+                .mapToObj(i -> ReferenceItem.builder().id("ref-" + i).name("Item " + i).active(true).build())
+                .toList();
+        referenceItemIds = referenceItems.stream().map(ReferenceItem::getId).toList();
+
+        List<Store> stores = IntStream.range(0, STORE_COUNT)
+                .mapToObj(i -> Store.builder().id("store-" + i).name("Store " + i).active(true).build())
+                .toList();
+
+        List<StoreItem> storeItems = new ArrayList<>();
+        for (Store store : stores) {
+            for (ReferenceItem refItem : referenceItems) {
+                storeItems.add(StoreItem.builder()
+                        .id(store.getId() + "-" + refItem.getId())
+                        .storeId(store.getId())
+                        .referenceItemId(refItem.getId())
+                        .currentPrice(1.0)
+                        .build());
+            }
+        }
+
+        when(referenceItemRepository.findAllById(any())).thenReturn(referenceItems);
+        when(storeRepository.findByActiveTrue()).thenReturn(stores);
+        when(storeItemRepository.findByReferenceItemIdIn(anyCollection())).thenReturn(storeItems);
+    }
+
+    @Test
+    void compareBasketLoadsStoreItemsInSingleQuery() {
+        BasketComparisonResponse response = basketComparisonService.compareBasket(
+                BasketComparisonRequest.builder().referenceItemIds(referenceItemIds).build());
+
+        assertThat(response.getStoreComparisons()).hasSize(STORE_COUNT);
+        assertThat(response.getStoreComparisons())
+                .allSatisfy(result -> assertThat(result.getTotalPrice()).isEqualTo(ITEM_COUNT * 1.0));
+
+        verify(referenceItemRepository, times(1)).findAllById(any());
+        verify(storeRepository, times(1)).findByActiveTrue();
+        verify(storeItemRepository, times(1)).findByReferenceItemIdIn(anyCollection());
+        verify(storeItemRepository, never()).findByReferenceItemId(anyString());
+        verify(priceMatrix).requestLoad();
+    }
+
+    @Test
+    void compareBasketsSharesOneLookupAcrossBaskets() {
+        List<BasketComparisonRequest> baskets = IntStream.range(0, 10)
+                .mapToObj(i -> BasketComparisonRequest.builder()
+                        .referenceItemIds(referenceItemIds.subList(i, i + 5))
+                        .build())
+                .toList();
+
+        BasketBatchComparisonResponse response = basketComparisonService.compareBaskets(
+                BasketBatchComparisonRequest.builder().baskets(baskets).build());
+
+        assertThat(response.getResults()).hasSize(10);
+        assertThat(response.getFailureCount()).isZero();
+        for (BasketBatchComparisonResponse.BasketResult result : response.getResults()) {
+            assertThat(result.getComparison().getBasketItems()).hasSize(5);
+            assertThat(result.getComparison().getStoreComparisons())
+                    .allSatisfy(store -> assertThat(store.getTotalPrice()).isEqualTo(5.0));
+        }
+
+        verify(referenceItemRepository, times(1)).findAllById(any());
+        verify(storeRepository, times(1)).findByActiveTrue();
+        verify(storeItemRepository, times(1)).findByReferenceItemIdIn(anyCollection());
+    }
+
+    @Test
+    void streamBasketEmitsEveryStoreThenSummary() {
+        List<StoreComparisonResult> streamed = new ArrayList<>();
+
+        BasketComparisonSummary summary = basketComparisonService.streamBasket(
+                BasketComparisonRequest.builder().referenceItemIds(referenceItemIds).build(), streamed::add);
+
+        assertThat(streamed).hasSize(STORE_COUNT);
+        assertThat(summary.getStoreCount()).isEqualTo(STORE_COUNT);
+        assertThat(summary.getLowestTotal()).isEqualTo(ITEM_COUNT * 1.0);
+        assertThat(summary.getPotentialSavings()).isZero();
+        assertThat(summary.getCheapestStoreId()).isEqualTo(streamed.get(0).getStoreId());
+    }
+
+    @Test
+    void compareBasketReturnsRequestedPageOfRanking() {
+        BasketComparisonResponse response = basketComparisonService.compareBasket(BasketComparisonRequest.builder()
+                .referenceItemIds(referenceItemIds)
+                .offset(10)
+                .limit(5)
+                .build());
+
+        assertThat(response.getTotalStores()).isEqualTo(STORE_COUNT);
+        assertThat(response.getStoreComparisons())
+                .extracting(StoreComparisonResult::getStoreId)
+                .containsExactly("store-10", "store-11", "store-12", "store-13", "store-14");
+        assertThat(response.getCheapestStoreId()).isEqualTo("store-0");
+        assertThat(response.getLowestTotal()).isEqualTo(ITEM_COUNT * 1.0);
+    }
+
+    @Test
+    void reactivatedStoreIsRepricedInsteadOfServedFromTheCache() {
+        BasketComparisonCache cache = new BasketComparisonCache(true, 100, new SimpleMeterRegistry());
+        BasketComparisonService service = new BasketComparisonService(referenceItemRepository, storeRepository,
+                storeItemRepository, storePriceRepository, priceMatrix, null, cache, null, basketComparisonExecutor);
+        BasketComparisonRequest request = BasketComparisonRequest.builder().referenceItemIds(referenceItemIds).build();
+        List<Store> stores = IntStream.range(0, STORE_COUNT)
+                .mapToObj(i -> Store.builder().id("store-" + i).name("Store " + i).active(true).build())
+                .toList();
+
+        // Deactivate a store carrying every basket item, then compare
+        when(storeRepository.findByActiveTrue())
+                .thenReturn(stores.stream().filter(store -> !store.getId().equals("store-1")).toList());
+        cache.invalidateStore("store-1");
+        assertThat(service.compareBasket(request).getStoreComparisons())
+                .extracting(StoreComparisonResult::getStoreId)
+                .doesNotContain("store-1");
+
+        // Reactivate it: the cached entry never indexed it, so it must be recomputed rather than padded
+        when(storeRepository.findByActiveTrue()).thenReturn(stores);
+        cache.invalidateStore("store-1");
+        BasketComparisonResponse response = service.compareBasket(request);
+
+        assertThat(response.getStoreComparisons()).hasSize(STORE_COUNT);
+        assertThat(response.getStoreComparisons())
+                .filteredOn(result -> result.getStoreId().equals("store-1"))
+                .singleElement()
+                .satisfies(result -> {
+                    assertThat(result.getTotalPrice()).isEqualTo(ITEM_COUNT * 1.0);
+                    assertThat(result.isAllItemsAvailable()).isTrue();
+                });
+    }
+}
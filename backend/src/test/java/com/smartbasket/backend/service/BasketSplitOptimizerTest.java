@@ -0,0 +1,145 @@
+package com.smartbasket.backend.service;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.condition.EnabledIfSystemProperty;
+
+import java.util.Random;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.within;
+
+class BasketSplitOptimizerTest {
+
+    private static final double NA = Double.POSITIVE_INFINITY;
+    private static final long NO_DEADLINE = Long.MAX_VALUE;
+
+    @Test
+    void splitsBasketAcrossCheapestPairOfStores() {
+        double[][] costs = {
+                {1.0, 5.0, 5.0},
+                {5.0, 1.0, 5.0},
+                {5.0, 5.0, 1.0},
+                {2.0, 2.0, 2.0},
+        };
+
+        BasketSplitOptimizer.Plan plan = BasketSplitOptimizer.solve(costs, 3, 2, 0.0, NO_DEADLINE);
+
+        assertThat(plan.total()).isCloseTo(5.0, within(1e-9));
+        assertThat(plan.optimal()).isTrue();
+        assertThat(plan.uncoveredItems()).isZero();
+    }
+
+    @Test
+    void visitCostFavoursFewerStores() {
+        double[][] costs = {
+                {1.0, 5.0},
+                {5.0, 1.0},
+                {2.5, 2.5},
+        };
+
+        BasketSplitOptimizer.Plan plan = BasketSplitOptimizer.solve(costs, 2, 2, 4.0, NO_DEADLINE);
+
+        assertThat(plan.stores()).containsExactly(2);
+        assertThat(plan.total()).isCloseTo(9.0, within(1e-9));
+    }
+
+    @Test
+    void maxStoresIsClampedToTheStoreCount() {
+        double[][] costs = {
+                {1.0, 5.0, 5.0},
+                {5.0, 1.0, 5.0},
+                {5.0, 5.0, 1.0},
+        };
+
+        BasketSplitOptimizer.Plan plan = BasketSplitOptimizer.solve(costs, 3, Integer.MAX_VALUE, 0.0, NO_DEADLINE);
+
+        assertThat(plan.stores()).containsExactlyInAnyOrder(0, 1, 2);
+        assertThat(plan.total()).isCloseTo(3.0, within(1e-9));
+    }
+
+    @Test
+    void coverageComesBeforePrice() {
+        double[][] costs = {
+                {1.0, NA},
+                {3.0, 3.0},
+        };
+
+        BasketSplitOptimizer.Plan plan = BasketSplitOptimizer.solve(costs, 2, 1, 0.0, NO_DEADLINE);
+
+        assertThat(plan.stores()).containsExactly(1);
+        assertThat(plan.uncoveredItems()).isZero();
+    }
+
+    @Test
+    void matchesExhaustiveSearchOnRandomBaskets() {
+        Random random = new Random(42);
+        for (int round = 0; round < 50; round++) {
+            double[][] costs = randomCosts(random, 8, 12, 0.3);
+            double visitCost = random.nextInt(3);
+
+            BasketSplitOptimizer.Plan plan = BasketSplitOptimizer.solve(costs, 12, 3, visitCost, NO_DEADLINE);
+
+            assertThat(plan.total()).isCloseTo(bruteForce(costs, 12, 3, visitCost, plan.uncoveredItems()), within(1e-9));
+        }
+    }
+
+    @Test
+    @EnabledIfSystemProperty(named = "benchmark", matches = "true")
+    void benchmarkHundredItemsAcrossFiftyStores() {
+        Random random = new Random(7);
+        double[][] costs = randomCosts(random, 50, 100, 0.2);
+
+        for (int maxStores = 1; maxStores <= 4; maxStores++) {
+            long start = System.nanoTime();
+            BasketSplitOptimizer.Plan plan = BasketSplitOptimizer.solve(
+                    costs, 100, maxStores, 1.0, System.nanoTime() + 200_000_000L);
+            long elapsedMicros = (System.nanoTime() - start) / 1_000;
+
+            System.out.printf("K=%d total=%.2f optimal=%s nodes=%d elapsed=%dus%n",
+                    maxStores, plan.total(), plan.optimal(), plan.nodesExplored(), elapsedMicros);
+            assertThat(plan.stores().length).isLessThanOrEqualTo(maxStores);
+        }
+    }
+
+    private static double[][] randomCosts(Random random, int stores, int items, double missingRate) {
+        double[][] costs = new double[stores][items];
+        for (int store = 0; store < stores; store++) {
+            for (int item = 0; item < items; item++) {
+                costs[store][item] = random.nextDouble() < missingRate ? NA : 1.0 + random.nextInt(20) / 4.0;
+            }
+        }
+        return costs;
+    }
+
+    /**
+     * Cheapest total over every subset of at most maxStores stores that leaves the same number of items uncovered
+     */
+    private static double bruteForce(double[][] costs, int itemCount, int maxStores, double visitCost, int uncovered) {
+        double best = NA;
+        for (int mask = 1; mask < (1 << costs.length); mask++) {
+            int size = Integer.bitCount(mask);
+            if (size > maxStores) {
+                continue;
+            }
+            double total = 0.0;
+            int missing = 0;
+            for (int item = 0; item < itemCount; item++) {
+                double min = NA;
+                for (int store = 0; store < costs.length; store++) {
+                    if ((mask & (1 << store)) != 0) {
+                        min = Math.min(min, costs[store][item]);
+                    }
+                }
+                if (min == NA) {
+                    missing++;
+                } else {
+                    total += min;
+                }
+            }
+            if (missing == uncovered) {
+                best = Math.min(best, total + visitCost * size);
+            }
+        }
+        return best;
+    }
+}
@@ -0,0 +1,72 @@
+package com.smartbasket.backend.service;
+
+import com.smartbasket.backend.model.StoreItem;
+import com.smartbasket.backend.model.StorePrice;
+import org.bson.Document;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.aggregation.Aggregation;
+import org.springframework.data.mongodb.core.aggregation.AggregationResults;
+
+import java.time.Instant;
+import java.util.List;
+import java.util.Map;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+@ExtendWith(MockitoExtension.class)
+class HistoricalPriceLookupTest {
+
+    private static final Instant AS_OF = Instant.parse("2024-06-01T00:00:00Z");
+
+    @Mock
+    private MongoTemplate mongoTemplate;
+
+    @InjectMocks
+    private HistoricalPriceLookup historicalPriceLookup;
+
+    @Test
+    void repricesOnlyItemsChangedSinceAsOf() {
+        StorePrice mayPrice = StorePrice.builder()
+                .storeItemId("changed")
+                .price(1.5)
+                .timestamp(AS_OF.minusSeconds(86_400))
+                .build();
+        when(mongoTemplate.aggregate(any(Aggregation.class), eq("store_prices"), eq(StorePrice.class)))
+                .thenReturn(new AggregationResults<>(List.of(mayPrice), new Document()));
+
+        List<StoreItem> storeItems = List.of(
+                storeItem("unchanged", 2.0, AS_OF.minusSeconds(3_600)),
+                storeItem("changed", 3.0, AS_OF.plusSeconds(3_600)),
+                storeItem("new", 4.0, AS_OF.plusSeconds(7_200)));
+
+        Map<String, StoreItem> priced = historicalPriceLookup.pricedAsOf(storeItems, AS_OF).stream()
+                .collect(Collectors.toMap(StoreItem::getId, Function.identity()));
+
+        assertThat(priced.get("unchanged").getCurrentPrice()).isEqualTo(2.0);
+        assertThat(priced.get("changed").getCurrentPrice()).isEqualTo(1.5);
+        assertThat(priced.get("new").getCurrentPrice()).isNull();
+        verify(mongoTemplate, times(1)).aggregate(any(Aggregation.class), eq("store_prices"), eq(StorePrice.class));
+    }
+
+    private static StoreItem storeItem(String id, double price, Instant lastPriceUpdate) {
+        return StoreItem.builder()
+                .id(id)
+                .storeId("store")
+                .referenceItemId("ref")
+                .currentPrice(price)
+                .lastPriceUpdate(lastPriceUpdate)
+                .build();
+    }
+}
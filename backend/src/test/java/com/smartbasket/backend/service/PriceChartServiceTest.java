@@ -0,0 +1,60 @@
+package com.smartbasket.backend.service;
+
+import com.smartbasket.backend.dto.PriceChart;
+import com.smartbasket.backend.model.StorePrice;
+import org.junit.jupiter.api.Test;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.query.Query;
+
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+class PriceChartServiceTest {
+
+    private static final Instant START = Instant.parse("2022-01-01T00:00:00Z");
+
+    private final MongoTemplate mongoTemplate = mock(MongoTemplate.class);
+    private final PriceChartService priceChartService = new PriceChartService(mongoTemplate);
+
+    @Test
+    void keepsSpikesFirstAndLastPointsWithinThePointBudget() {
+        List<StorePrice> history = new ArrayList<>();
+        for (int hour = 0; hour < 20_000; hour++) {
+            double price = hour == 12_345 ? 0.5 : hour == 777 ? 9.0 : 2.0 + (hour % 7) / 100.0;
+            history.add(StorePrice.builder().storeItemId("milk").price(price).timestamp(START.plusSeconds(hour * 3600L)).build());
+        }
+        when(mongoTemplate.stream(any(Query.class), eq(StorePrice.class))).thenReturn(history.stream());
+
+        PriceChart chart = priceChartService.chart("milk", START, START.plusSeconds(20_000 * 3600L), 100);
+
+        assertThat(chart.isDownsampled()).isTrue();
+        assertThat(chart.getSourcePoints()).isEqualTo(20_000);
+        assertThat(chart.getPoints()).hasSizeLessThanOrEqualTo(100).hasSizeGreaterThan(90);
+        assertThat(chart.getPoints()).extracting(PriceChart.Point::getPrice).contains(0.5, 9.0);
+        assertThat(chart.getPoints().get(0).getTimestamp()).isEqualTo(START);
+        assertThat(chart.getPoints().get(chart.getPoints().size() - 1).getTimestamp())
+                .isEqualTo(START.plusSeconds(19_999 * 3600L));
+        assertThat(chart.getPoints()).extracting(PriceChart.Point::getTimestamp).isSorted();
+    }
+
+    @Test
+    void returnsShortHistoriesUnchanged() {
+        List<StorePrice> history = List.of(
+                StorePrice.builder().price(2.0).timestamp(START).build(),
+                StorePrice.builder().price(1.5).timestamp(START.plusSeconds(60)).build(),
+                StorePrice.builder().price(1.8).timestamp(START.plusSeconds(120)).build());
+        when(mongoTemplate.stream(any(Query.class), eq(StorePrice.class))).thenReturn(history.stream());
+
+        PriceChart chart = priceChartService.chart("milk", START, START.plusSeconds(3600), 4);
+
+        assertThat(chart.isDownsampled()).isFalse();
+        assertThat(chart.getPoints()).extracting(PriceChart.Point::getPrice).containsExactly(2.0, 1.5, 1.8);
+    }
+}
@@ -0,0 +1,112 @@
+package com.smartbasket.backend.service;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.smartbasket.backend.dto.BatchPriceUpdateRequest;
+import com.smartbasket.backend.dto.BatchPriceUpdateResponse;
+import com.smartbasket.backend.dto.PriceImportResponse;
+import jakarta.validation.Validation;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.anyList;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+class PriceImportServiceTest {
+
+    @TempDir
+    Path reportDir;
+
+    private final PriceUpdateService priceUpdateService = mock(PriceUpdateService.class);
+    private final List<Integer> flushedChunkSizes = new ArrayList<>();
+    private PriceImportService priceImportService;
+
+    @BeforeEach
+    void setUp() {
+        priceImportService = new PriceImportService(priceUpdateService, new ObjectMapper(),
+                Validation.buildDefaultValidatorFactory().getValidator());
+        ReflectionTestUtils.setField(priceImportService, "chunkSize", 2);
+        ReflectionTestUtils.setField(priceImportService, "reportDir", reportDir.toString());
+        ReflectionTestUtils.setField(priceImportService, "reportTtlHours", 24L);
+
+        // Every id is known except "unknown"
+        when(priceUpdateService.applyPriceEntries(anyList())).thenAnswer(invocation -> {
+            List<BatchPriceUpdateRequest.PriceEntry> entries = invocation.getArgument(0);
+            flushedChunkSizes.add(entries.size());
+            return entries.stream().map(entry -> BatchPriceUpdateResponse.PriceUpdateResult.builder()
+                    .storeItemId(entry.getStoreItemId())
+                    .success(!entry.getStoreItemId().equals("unknown"))
+                    .message(entry.getStoreItemId().equals("unknown") ? "Store item not found: unknown" : "ok")
+                    .newPrice(entry.getPrice())
+                    .build()).toList();
+        });
+    }
+
+    @Test
+    void importsCsvInChunksAndReportsRejectedRows() throws IOException {
+        String csv = """
+                storeItemId,price,isPromotion,currency
+                a,1.5,false,JOD
+                b,abc,false,JOD
+                "c, quoted",2.0,yes,
+                unknown,3.0,,
+
+                d,-1,,
+                e,4.25,1,JOD
+                """;
+
+        PriceImportResponse response = priceImportService.importPrices(
+                new ByteArrayInputStream(csv.getBytes(StandardCharsets.UTF_8)), PriceImportService.FORMAT_CSV);
+
+        assertThat(response.getTotalRows()).isEqualTo(6);
+        assertThat(response.getImportedCount()).isEqualTo(3);
+        assertThat(response.getRejectedCount()).isEqualTo(3);
+        assertThat(flushedChunkSizes).containsExactly(2, 2);
+        assertThat(response.getChunkCount()).isEqualTo(2);
+
+        List<String> report = Files.readAllLines(priceImportService.rejectedReport(response.getImportId()));
+        assertThat(report).hasSize(4);
+        assertThat(report).anyMatch(line -> line.startsWith("3,,\"Invalid price: abc\""))
+                .anyMatch(line -> line.startsWith("5,\"unknown\",\"Store item not found: unknown\""))
+                .anyMatch(line -> line.startsWith("7,,\"Price must be non-negative\""));
+    }
+
+    @Test
+    void readsCsvHeaderAfterByteOrderMark() throws IOException {
+        String csv = "\uFEFFstoreItemId,price\na,1.5\nb,2.0\n";
+
+        PriceImportResponse response = priceImportService.importPrices(
+                new ByteArrayInputStream(csv.getBytes(StandardCharsets.UTF_8)), PriceImportService.FORMAT_CSV);
+
+        assertThat(response.getImportedCount()).isEqualTo(2);
+        assertThat(response.getRejectedCount()).isZero();
+    }
+
+    @Test
+    void importsNdjsonWithoutReportWhenEveryRowSucceeds() throws IOException {
+        String ndjson = """
+                {"storeItemId":"a","price":1.5}
+                {"storeItemId":"b","price":2.0,"isPromotion":true}
+                {"storeItemId":"c","price":0.75}
+                """;
+
+        PriceImportResponse response = priceImportService.importPrices(
+                new ByteArrayInputStream(ndjson.getBytes(StandardCharsets.UTF_8)), PriceImportService.FORMAT_NDJSON);
+
+        assertThat(response.getImportedCount()).isEqualTo(3);
+        assertThat(flushedChunkSizes).containsExactly(2, 1);
+        assertThat(response.getRejectedReportUrl()).isNull();
+        assertThat(reportDir).isEmptyDirectory();
+    }
+}
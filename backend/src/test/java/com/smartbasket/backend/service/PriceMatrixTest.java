@@ -0,0 +1,115 @@
+package com.smartbasket.backend.service;
+
+import com.smartbasket.backend.dto.StoreComparisonResult;
+import com.smartbasket.backend.model.ReferenceItem;
+import com.smartbasket.backend.model.Store;
+import com.smartbasket.backend.model.StoreItem;
+import com.smartbasket.backend.repository.ReferenceItemRepository;
+import com.smartbasket.backend.repository.StoreItemRepository;
+import com.smartbasket.backend.repository.StoreRepository;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+
+import java.util.List;
+import java.util.Map;
+import java.util.stream.Collectors;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.Mockito.when;
+
+@ExtendWith(MockitoExtension.class)
+class PriceMatrixTest {
+
+    @Mock
+    private StoreRepository storeRepository;
+
+    @Mock
+    private ReferenceItemRepository referenceItemRepository;
+
+    @Mock
+    private StoreItemRepository storeItemRepository;
+
+    @InjectMocks
+    private PriceMatrix priceMatrix;
+
+    private final Store storeA = Store.builder().id("a").name("Store A").active(true).build();
+    private final Store storeB = Store.builder().id("b").name("Store B").active(true).build();
+    private final ReferenceItem milk = ReferenceItem.builder().id("milk").name("Milk").active(true).build();
+    private final ReferenceItem bread = ReferenceItem.builder().id("bread").name("Bread").active(true).build();
+
+    @BeforeEach
+    void setUp() {
+        when(storeRepository.findAll()).thenReturn(List.of(storeA, storeB));
+        when(referenceItemRepository.findAll()).thenReturn(List.of(milk, bread));
+        when(storeItemRepository.findAll()).thenReturn(List.of(
+                storeItem("a-milk", "a", "milk", 1.0),
+                storeItem("a-bread", "a", "bread", 0.5),
+                storeItem("b-milk", "b", "milk", 1.2)));
+        priceMatrix.rebuild();
+    }
+
+    @Test
+    void evaluatesBasketFromLoadedPrices() {
+        Map<String, StoreComparisonResult> results = evaluate("milk", "bread");
+
+        assertThat(results.get("a").getTotalPrice()).isEqualTo(1.5);
+        assertThat(results.get("a").isAllItemsAvailable()).isTrue();
+        assertThat(results.get("b").getTotalPrice()).isEqualTo(1.2);
+        assertThat(results.get("b").getMissingItems()).containsExactly("Bread");
+    }
+
+    @Test
+    void appliesIncrementalWrites() {
+        priceMatrix.upsertStoreItem(storeItem("b-bread", "b", "bread", 0.4));
+        priceMatrix.upsertStoreItem(storeItem("a-milk", "a", "milk", 2.0));
+        assertThat(evaluate("milk", "bread").get("a").getTotalPrice()).isEqualTo(2.5);
+        assertThat(evaluate("milk", "bread").get("b").isAllItemsAvailable()).isTrue();
+
+        priceMatrix.removeStoreItem(storeItem("b-bread", "b", "bread", 0.4));
+        assertThat(evaluate("milk", "bread").get("b").isAllItemsAvailable()).isFalse();
+
+        storeA.setActive(false);
+        priceMatrix.upsertStore(storeA);
+        assertThat(evaluate("milk", "bread")).containsOnlyKeys("b");
+
+        milk.setActive(false);
+        priceMatrix.upsertReferenceItem(milk);
+        assertThat(priceMatrix.evaluate(CanonicalBasket.of(List.of("milk", "bread"), null, true))
+                .orElseThrow().basketItems()).hasSize(1);
+    }
+
+    @Test
+    void picksCheapestVariantAndHonoursBrandPreference() {
+        StoreItem premium = storeItem("a-milk-premium", "a", "milk", 0.8);
+        premium.setBrand("Premium");
+        priceMatrix.upsertStoreItem(premium);
+        priceMatrix.upsertStoreItem(storeItem("a-milk-bulk", "a", "milk", 0.6));
+        assertThat(evaluate("milk").get("a").getItemPrices().get(0).getStoreItemId()).isEqualTo("a-milk-bulk");
+
+        CanonicalBasket preferPremium = CanonicalBasket.of(List.of("milk"), null,
+                Map.of("milk", List.of(" premium ")), true, 0, null, null);
+        StoreComparisonResult atStoreA = priceMatrix.evaluate(preferPremium).orElseThrow().storeResults().stream()
+                .filter(result -> result.getStoreId().equals("a"))
+                .findFirst()
+                .orElseThrow();
+        assertThat(atStoreA.getTotalPrice()).isEqualTo(0.8);
+
+        // Removing the cheapest variant falls back to the next cheapest
+        priceMatrix.removeStoreItem(storeItem("a-milk-bulk", "a", "milk", 0.6));
+        assertThat(evaluate("milk").get("a").getTotalPrice()).isEqualTo(0.8);
+    }
+
+    private Map<String, StoreComparisonResult> evaluate(String... referenceItemIds) {
+        return priceMatrix.evaluate(CanonicalBasket.of(List.of(referenceItemIds), null, true))
+                .orElseThrow().storeResults().stream()
+                .collect(Collectors.toMap(StoreComparisonResult::getStoreId, r -> r));
+    }
+
+    private static StoreItem storeItem(String id, String storeId, String referenceItemId, double price) {
+        return StoreItem.builder().id(id).storeId(storeId).referenceItemId(referenceItemId).currentPrice(price).build();
+    }
+}
@@ -0,0 +1,72 @@
+package com.smartbasket.backend.service;
+
+import com.smartbasket.backend.model.PriceGranularity;
+import org.bson.Document;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.ArgumentCaptor;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.aggregation.Aggregation;
+import org.springframework.data.mongodb.core.aggregation.AggregationResults;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.Date;
+import java.util.List;
+import java.util.stream.Stream;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+@ExtendWith(MockitoExtension.class)
+class PriceRollupServiceTest {
+
+    @Mock
+    private MongoTemplate mongoTemplate;
+
+    @Mock
+    private PriceHistoryStorage priceHistoryStorage;
+
+    @InjectMocks
+    private PriceRollupService priceRollupService;
+
+    @Test
+    void picksCoarsestGranularityWithEnoughPoints() {
+        assertThat(priceRollupService.resolveGranularity("auto", Duration.ofDays(365))).isEqualTo(PriceGranularity.DAY);
+        assertThat(priceRollupService.resolveGranularity(null, Duration.ofDays(30))).isEqualTo(PriceGranularity.HOUR);
+        assertThat(priceRollupService.resolveGranularity("auto", Duration.ofHours(12))).isEqualTo(PriceGranularity.RAW);
+        assertThat(priceRollupService.resolveGranularity("day", Duration.ofHours(12))).isEqualTo(PriceGranularity.DAY);
+        assertThatThrownBy(() -> priceRollupService.resolveGranularity("week", Duration.ofDays(1)))
+                .isInstanceOf(IllegalArgumentException.class);
+    }
+
+    @Test
+    void mergesBucketsOfTouchedItemsFromTheirOldestObservation() {
+        Instant oldest = Instant.parse("2024-03-01T10:42:00Z");
+        when(mongoTemplate.aggregateStream(any(Aggregation.class), eq("store_prices"), eq(Document.class)))
+                .thenReturn(Stream.of(new Document("_id", "item-1").append("from", Date.from(oldest))));
+        when(mongoTemplate.aggregate(any(Aggregation.class), eq("store_prices"), eq(Document.class)))
+                .thenReturn(new AggregationResults<>(List.of(), new Document()));
+
+        assertThat(priceRollupService.rollup()).isEqualTo(1);
+
+        ArgumentCaptor<Aggregation> pipelines = ArgumentCaptor.forClass(Aggregation.class);
+        verify(mongoTemplate, times(2)).aggregate(pipelines.capture(), eq("store_prices"), eq(Document.class));
+        String hourly = pipelines.getAllValues().get(0).toString();
+        String daily = pipelines.getAllValues().get(1).toString();
+        assertThat(hourly).contains("$dateTrunc", "\"unit\" : \"hour\"", "$merge", "price_rollups");
+        assertThat(daily).contains("\"unit\" : \"day\"");
+        // Buckets are recomputed from the start of the oldest touched one
+        assertThat(hourly).contains("2024-03-01T10:00:00");
+        assertThat(daily).contains("2024-03-01T00:00:00");
+        verify(mongoTemplate).upsert(any(), any(), eq("price_rollup_state"));
+    }
+}
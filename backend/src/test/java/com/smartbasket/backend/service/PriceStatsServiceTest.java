@@ -0,0 +1,152 @@
+package com.smartbasket.backend.service;
+
+import com.smartbasket.backend.dto.PriceStats;
+import com.smartbasket.backend.model.PriceGranularity;
+import com.smartbasket.backend.model.PriceRollup;
+import com.smartbasket.backend.model.StoreItem;
+import com.smartbasket.backend.repository.StoreItemRepository;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.condition.EnabledIfSystemProperty;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.query.Query;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.within;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyList;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+import static org.mockito.Mockito.withSettings;
+
+class PriceStatsServiceTest {
+
+    private static final Instant TODAY = Instant.parse("2025-06-30T00:00:00Z");
+
+    private final PriceStatsService priceStatsService =
+            new PriceStatsService(mock(MongoTemplate.class), mock(StoreItemRepository.class));
+
+    @Test
+    void carriesPricesForwardAndComparesAgainstTheReferencePeriod() {
+        // 2.00 for a long time, 1.80 for two days 40 days ago, 2.20 since 5 days ago, promotion at 1.90 today
+        List<PriceRollup> buckets = List.of(
+                bucket("milk", 100, 2.0, 2.0, 2.0),
+                bucket("milk", 40, 1.8, 2.0, 1.8),
+                bucket("milk", 38, 1.8, 2.0, 2.0),
+                bucket("milk", 5, 2.0, 2.2, 2.2));
+        StoreItem item = StoreItem.builder().id("milk").currentPrice(1.9).originalPrice(2.2).isPromotion(true)
+                .lastPriceUpdate(TODAY.plusSeconds(3600)).build();
+
+        PriceStats stats = priceStatsService.compute(item, buckets, TODAY, null);
+
+        PriceStats.Window month = stats.getWindows().get(0);
+        assertThat(month.getDays()).isEqualTo(30);
+        assertThat(month.getDaysWithPrice()).isEqualTo(30);
+        assertThat(month.getMin()).isEqualTo(1.9);
+        assertThat(month.getMax()).isEqualTo(2.2);
+        assertThat(month.getMedian()).isEqualTo(2.0);
+        PriceStats.Window quarter = stats.getWindows().get(1);
+        assertThat(quarter.getMin()).isEqualTo(1.8);
+        assertThat(stats.getWindows().get(2).getDaysWithPrice()).isEqualTo(101);
+
+        // Lowest price of the 30 days before today is 2.00, so 1.90 is a real 5% discount
+        assertThat(stats.getReferencePrice()).isEqualTo(2.0);
+        assertThat(stats.isRealDiscount()).isTrue();
+        assertThat(stats.getDiscountPercent()).isCloseTo(5.0, within(1e-9));
+
+        // Against a reference period containing the 1.80 price it is not
+        StoreItem promotedEarlier = StoreItem.builder().id("milk").currentPrice(1.9)
+                .lastPriceUpdate(TODAY.minus(Duration.ofDays(20))).build();
+        assertThat(priceStatsService.compute(promotedEarlier, buckets, TODAY, null).isRealDiscount()).isFalse();
+    }
+
+    @Test
+    void startsFromThePriceInEffectBeforeTheWindow() {
+        Instant today = PriceGranularity.DAY.truncate(Instant.now());
+        // Never changed inside the window, so it left no buckets there
+        StoreItem stable = StoreItem.builder().id("rice").currentPrice(2.0)
+                .lastPriceUpdate(today.minus(Duration.ofDays(500))).build();
+        // 2.00 from before the window until it dropped to 1.50 ten days ago
+        StoreItem dropped = StoreItem.builder().id("milk").currentPrice(1.5)
+                .lastPriceUpdate(today.minus(Duration.ofDays(10)).plusSeconds(3600)).build();
+        MongoTemplate mongoTemplate = mock(MongoTemplate.class);
+        when(mongoTemplate.find(any(Query.class), eq(PriceRollup.class))).thenReturn(List.of(PriceRollup.builder()
+                .storeItemId("milk").granularity(PriceGranularity.DAY.key())
+                .bucketStart(today.minus(Duration.ofDays(10))).min(1.5).max(2.0).close(1.5).build()));
+        when(mongoTemplate.findOne(any(Query.class), eq(PriceRollup.class)))
+                .thenReturn(PriceRollup.builder().storeItemId("milk").close(2.0).build());
+        StoreItemRepository storeItemRepository = mock(StoreItemRepository.class);
+        when(storeItemRepository.findAllById(anyList())).thenReturn(List.of(stable, dropped));
+
+        List<PriceStats> stats = new PriceStatsService(mongoTemplate, storeItemRepository)
+                .getStats(List.of("rice", "milk"));
+
+        PriceStats rice = stats.get(0);
+        assertThat(rice.getWindows()).allSatisfy(window -> {
+            assertThat(window.getDaysWithPrice()).isEqualTo(window.getDays());
+            assertThat(window.getMin()).isEqualTo(2.0);
+            assertThat(window.getMax()).isEqualTo(2.0);
+        });
+        assertThat(rice.isRealDiscount()).isFalse();
+
+        PriceStats milk = stats.get(1);
+        assertThat(milk.getWindows().get(2).getDaysWithPrice()).isEqualTo(365);
+        assertThat(milk.getWindows().get(0).getMax()).isEqualTo(2.0);
+        assertThat(milk.getReferencePrice()).isEqualTo(2.0);
+        assertThat(milk.isRealDiscount()).isTrue();
+        // Only the item that changed inside the window needed the earlier price
+        verify(mongoTemplate, times(1)).findOne(any(Query.class), eq(PriceRollup.class));
+    }
+
+    @Test
+    @EnabledIfSystemProperty(named = "benchmark", matches = "true")
+    void benchmarkBatchStatsFromDailyRollups() {
+        int itemCount = 200;
+        Random random = new Random(5);
+        List<StoreItem> items = new ArrayList<>();
+        List<PriceRollup> buckets = new ArrayList<>();
+        for (int i = 0; i < itemCount; i++) {
+            String id = "item-" + i;
+            items.add(StoreItem.builder().id(id).currentPrice(2.0).lastPriceUpdate(TODAY).build());
+            // A full year of daily buckets, whatever the number of raw observations behind them
+            for (int day = 0; day < 395; day++) {
+                double price = 1.5 + random.nextInt(100) / 100.0;
+                buckets.add(bucket(id, day, price - 0.1, price + 0.1, price));
+            }
+        }
+        MongoTemplate mongoTemplate = mock(MongoTemplate.class, withSettings().stubOnly());
+        when(mongoTemplate.find(any(Query.class), eq(PriceRollup.class))).thenReturn(buckets);
+        StoreItemRepository storeItemRepository = mock(StoreItemRepository.class, withSettings().stubOnly());
+        when(storeItemRepository.findAllById(anyList())).thenReturn(items);
+        PriceStatsService service = new PriceStatsService(mongoTemplate, storeItemRepository);
+        List<String> ids = items.stream().map(StoreItem::getId).toList();
+
+        for (int round = 0; round < 5; round++) {
+            long start = System.nanoTime();
+            List<PriceStats> stats = service.getStats(ids);
+            long elapsedUs = (System.nanoTime() - start) / 1_000;
+            System.out.printf("items=%d buckets=%d elapsed=%dus perItem=%dus%n",
+                    stats.size(), buckets.size(), elapsedUs, elapsedUs / itemCount);
+            assertThat(stats).hasSize(itemCount);
+        }
+    }
+
+    private static PriceRollup bucket(String storeItemId, int daysAgo, double min, double max, double close) {
+        return PriceRollup.builder()
+                .storeItemId(storeItemId)
+                .granularity(PriceGranularity.DAY.key())
+                .bucketStart(TODAY.minus(Duration.ofDays(daysAgo)))
+                .min(min)
+                .max(max)
+                .close(close)
+                .build();
+    }
+}
@@ -0,0 +1,311 @@
+package com.smartbasket.backend.service;
+
+import com.smartbasket.backend.dto.BarcodePriceUpdateRequest;
+import com.smartbasket.backend.dto.BatchPriceUpdateRequest;
+import com.smartbasket.backend.dto.BatchPriceUpdateResponse;
+import com.smartbasket.backend.dto.PriceHistoryPage;
+import com.smartbasket.backend.model.StoreItem;
+import com.smartbasket.backend.model.StorePrice;
+import com.smartbasket.backend.repository.StoreItemRepository;
+import com.smartbasket.backend.repository.StorePriceRepository;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.condition.EnabledIfSystemProperty;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.ArgumentCaptor;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.Spy;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.data.mongodb.core.BulkOperations;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.data.mongodb.core.query.Update;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.tuple;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyList;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.doReturn;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+import static org.mockito.Mockito.withSettings;
+
+@ExtendWith(MockitoExtension.class)
+@SuppressWarnings("unchecked")
+class PriceUpdateServiceTest {
+
+    @Mock
+    private StoreItemRepository storeItemRepository;
+
+    @Mock
+    private StorePriceRepository storePriceRepository;
+
+    @Mock
+    private PriceMatrix priceMatrix;
+
+    @Mock
+    private BasketComparisonCache basketComparisonCache;
+
+    @Mock
+    private MongoTemplate mongoTemplate;
+
+    @Mock
+    private BulkOperations historyInserts;
+
+    @Mock
+    private BulkOperations itemUpdates;
+
+    @Mock
+    private BarcodeIndex barcodeIndex;
+
+    @Spy
+    private PriceFingerprints priceFingerprints = new PriceFingerprints(new SimpleMeterRegistry());
+
+    @Spy
+    private ExecutorService priceBatchExecutor = Executors.newFixedThreadPool(4);
+
+    @InjectMocks
+    private PriceUpdateService priceUpdateService;
+
+    @Test
+    void batchUpdateUsesBulkWritesAndReportsPerEntry() {
+        StoreItem milk = StoreItem.builder().id("milk-a").storeId("a").referenceItemId("milk").build();
+        when(storeItemRepository.findAllById(any())).thenReturn(List.of(milk));
+        when(mongoTemplate.bulkOps(BulkOperations.BulkMode.UNORDERED, StorePrice.class)).thenReturn(historyInserts);
+        when(mongoTemplate.bulkOps(BulkOperations.BulkMode.UNORDERED, StoreItem.class)).thenReturn(itemUpdates);
+
+        BatchPriceUpdateResponse response = priceUpdateService.batchUpdatePrices(BatchPriceUpdateRequest.builder()
+                .prices(List.of(entry("milk-a", 1.0), entry("missing", 2.0), entry("milk-a", 0.9)))
+                .build());
+
+        assertThat(response.getSuccessCount()).isEqualTo(2);
+        assertThat(response.getFailureCount()).isEqualTo(1);
+        assertThat(response.getResults())
+                .extracting(BatchPriceUpdateResponse.PriceUpdateResult::isSuccess)
+                .containsExactly(true, false, true);
+        assertThat(milk.getCurrentPrice()).isEqualTo(0.9);
+
+        verify(storeItemRepository, times(1)).findAllById(any());
+        verify(historyInserts).insert(anyList());
+        verify(itemUpdates, times(1)).updateOne(any(Query.class), any(Update.class));
+        verify(storeItemRepository, never()).save(any());
+        verify(storePriceRepository, never()).save(any());
+        verify(priceMatrix).upsertStoreItem(milk);
+        verify(basketComparisonCache).invalidateReferenceItem(eq("milk"));
+    }
+
+    @Test
+    void unchangedPricesAreOnlyConfirmed() {
+        StoreItem milk = StoreItem.builder().id("milk-a").storeId("a").referenceItemId("milk")
+                .currentPrice(1.0).currency("JOD").isPromotion(false).build();
+        when(storeItemRepository.findAllById(any())).thenReturn(List.of(milk));
+        when(mongoTemplate.bulkOps(BulkOperations.BulkMode.UNORDERED, StorePrice.class)).thenReturn(historyInserts);
+        when(mongoTemplate.bulkOps(BulkOperations.BulkMode.UNORDERED, StoreItem.class)).thenReturn(itemUpdates);
+
+        BatchPriceUpdateResponse first = priceUpdateService.batchUpdatePrices(BatchPriceUpdateRequest.builder()
+                .prices(List.of(entry("milk-a", 1.0), entry("milk-a", 1.2), entry("milk-a", 1.2)))
+                .build());
+
+        assertThat(first.getResults())
+                .extracting(BatchPriceUpdateResponse.PriceUpdateResult::getChanged)
+                .containsExactly(false, true, false);
+        assertThat(first.getChangedCount()).isEqualTo(1);
+        assertThat(first.getUnchangedCount()).isEqualTo(2);
+        assertThat(milk.getLastConfirmedAt()).isNotNull();
+
+        // The fingerprint now matches, so a repeat is confirmed without reading the store item
+        BatchPriceUpdateResponse second = priceUpdateService.batchUpdatePrices(BatchPriceUpdateRequest.builder()
+                .prices(List.of(entry("milk-a", 1.2)))
+                .build());
+
+        assertThat(second.getUnchangedCount()).isEqualTo(1);
+        verify(storeItemRepository, times(1)).findAllById(any());
+        verify(historyInserts, times(1)).insert(anyList());
+        verify(itemUpdates, times(2)).updateOne(any(Query.class), any(Update.class));
+        verify(priceMatrix, times(1)).upsertStoreItem(milk);
+    }
+
+    @Test
+    void fingerprintChangingDuringTheBatchDoesNotFailIt() {
+        long known = PriceFingerprints.of(1.0, null, "JOD", false);
+        priceFingerprints.put("milk-a", known);
+        // Forgotten by a concurrent write right after the batch classified its entries
+        doReturn(known).doReturn(null).when(priceFingerprints).get("milk-a");
+        when(mongoTemplate.bulkOps(BulkOperations.BulkMode.UNORDERED, StoreItem.class)).thenReturn(itemUpdates);
+
+        BatchPriceUpdateResponse response = priceUpdateService.batchUpdatePrices(BatchPriceUpdateRequest.builder()
+                .prices(List.of(entry("milk-a", 1.0), entry("milk-a", 1.0)))
+                .build());
+
+        assertThat(response.getUnchangedCount()).isEqualTo(2);
+        assertThat(response.getFailureCount()).isZero();
+        verify(storeItemRepository, never()).findAllById(any());
+        verify(itemUpdates, times(1)).updateOne(any(Query.class), any(Update.class));
+    }
+
+    @Test
+    void barcodeFeedResolvesInOneLookupAndListsUnknownBarcodes() {
+        StoreItem milk = StoreItem.builder().id("milk-a").storeId("a").referenceItemId("milk").barcode("111").build();
+        when(barcodeIndex.resolve(eq("a"), anyList())).thenReturn(Map.of("111", "milk-a"));
+        when(storeItemRepository.findAllById(any())).thenReturn(List.of(milk));
+        when(mongoTemplate.bulkOps(BulkOperations.BulkMode.UNORDERED, StorePrice.class)).thenReturn(historyInserts);
+        when(mongoTemplate.bulkOps(BulkOperations.BulkMode.UNORDERED, StoreItem.class)).thenReturn(itemUpdates);
+
+        BatchPriceUpdateResponse response = priceUpdateService.batchUpdatePricesByBarcode(
+                BarcodePriceUpdateRequest.builder()
+                        .storeId("a")
+                        .prices(List.of(barcodeEntry("999", 1.0), barcodeEntry(" 111 ", 2.0), barcodeEntry("999", 3.0)))
+                        .build());
+
+        assertThat(response.getResults())
+                .extracting(BatchPriceUpdateResponse.PriceUpdateResult::getBarcode,
+                        BatchPriceUpdateResponse.PriceUpdateResult::getStoreItemId,
+                        BatchPriceUpdateResponse.PriceUpdateResult::isSuccess)
+                .containsExactly(tuple("999", null, false), tuple("111", "milk-a", true), tuple("999", null, false));
+        assertThat(response.getUnknownBarcodes()).containsExactly("999");
+        assertThat(response.getFailureCount()).isEqualTo(2);
+        assertThat(milk.getCurrentPrice()).isEqualTo(2.0);
+        verify(barcodeIndex, times(1)).resolve(eq("a"), anyList());
+    }
+
+    @Test
+    void largeBatchIsPartitionedByStoreItemAndMergedInInputOrder() {
+        ReflectionTestUtils.setField(priceUpdateService, "batchParallelism", 3);
+        ReflectionTestUtils.setField(priceUpdateService, "batchChunkSize", 2);
+        Map<String, StoreItem> items = new ConcurrentHashMap<>();
+        for (int j = 0; j < 8; j++) {
+            items.put("item-" + j, StoreItem.builder().id("item-" + j).storeId("a").referenceItemId("ref-" + j).build());
+        }
+        when(storeItemRepository.findAllById(any())).thenAnswer(invocation -> {
+            List<StoreItem> found = new ArrayList<>();
+            ((Iterable<String>) invocation.getArgument(0)).forEach(id -> found.add(items.get(id)));
+            return found;
+        });
+        when(mongoTemplate.bulkOps(BulkOperations.BulkMode.UNORDERED, StorePrice.class)).thenReturn(historyInserts);
+        when(mongoTemplate.bulkOps(BulkOperations.BulkMode.UNORDERED, StoreItem.class)).thenReturn(itemUpdates);
+
+        // Three rounds over eight items; each round raises every price
+        List<BatchPriceUpdateRequest.PriceEntry> entries = new ArrayList<>();
+        for (int round = 0; round < 3; round++) {
+            for (int j = 0; j < 8; j++) {
+                entries.add(entry("item-" + j, round * 10 + j));
+            }
+        }
+        List<BatchPriceUpdateResponse.PriceUpdateResult> results = priceUpdateService.applyPriceEntries(entries);
+
+        assertThat(results).extracting(BatchPriceUpdateResponse.PriceUpdateResult::getStoreItemId)
+                .containsExactlyElementsOf(entries.stream().map(BatchPriceUpdateRequest.PriceEntry::getStoreItemId).toList());
+        assertThat(results).extracting(BatchPriceUpdateResponse.PriceUpdateResult::getNewPrice)
+                .containsExactlyElementsOf(entries.stream().map(BatchPriceUpdateRequest.PriceEntry::getPrice).toList());
+        assertThat(results).allMatch(BatchPriceUpdateResponse.PriceUpdateResult::isSuccess);
+        for (int j = 0; j < 8; j++) {
+            assertThat(items.get("item-" + j).getCurrentPrice()).isEqualTo(20.0 + j);
+        }
+        verify(priceBatchExecutor, times(3)).submit(any(Runnable.class));
+    }
+
+    @Test
+    @EnabledIfSystemProperty(named = "benchmark", matches = "true")
+    void benchmarkPartitionCounts() {
+        int itemCount = 20_000;
+        int entryCount = 100_000;
+        Map<String, StoreItem> items = new ConcurrentHashMap<>();
+        for (int j = 0; j < itemCount; j++) {
+            items.put("item-" + j, StoreItem.builder().id("item-" + j).storeId("a").referenceItemId("ref-" + j % 500).build());
+        }
+        Random random = new Random(11);
+        List<BatchPriceUpdateRequest.PriceEntry> entries = new ArrayList<>();
+        for (int i = 0; i < entryCount; i++) {
+            entries.add(entry("item-" + random.nextInt(itemCount), 1 + random.nextInt(400) / 100.0));
+        }
+
+        // Every round-trip to MongoDB costs about 2 ms
+        StoreItemRepository slowRepository = mock(StoreItemRepository.class, withSettings().stubOnly());
+        when(slowRepository.findAllById(any())).thenAnswer(invocation -> {
+            Thread.sleep(2);
+            List<StoreItem> found = new ArrayList<>();
+            ((Iterable<String>) invocation.getArgument(0)).forEach(id -> found.add(items.get(id)));
+            return found;
+        });
+        BulkOperations slowBulk = mock(BulkOperations.class, withSettings().stubOnly());
+        when(slowBulk.execute()).thenAnswer(invocation -> {
+            Thread.sleep(2);
+            return null;
+        });
+        MongoTemplate slowTemplate = mock(MongoTemplate.class, withSettings().stubOnly());
+        when(slowTemplate.bulkOps(any(BulkOperations.BulkMode.class), any(Class.class))).thenReturn(slowBulk);
+
+        for (int partitions : new int[] {1, 2, 4, 8}) {
+            ExecutorService executor = Executors.newFixedThreadPool(partitions);
+            PriceUpdateService service = new PriceUpdateService(slowRepository, storePriceRepository,
+                    mock(PriceMatrix.class, withSettings().stubOnly()),
+                    mock(BasketComparisonCache.class, withSettings().stubOnly()), slowTemplate,
+                    new PriceFingerprints(new SimpleMeterRegistry()), barcodeIndex, executor);
+            ReflectionTestUtils.setField(service, "batchParallelism", partitions);
+            ReflectionTestUtils.setField(service, "batchChunkSize", 1000);
+
+            long start = System.nanoTime();
+            List<BatchPriceUpdateResponse.PriceUpdateResult> results = service.applyPriceEntries(entries);
+            long elapsedMs = (System.nanoTime() - start) / 1_000_000;
+            executor.shutdown();
+
+            System.out.printf("partitions=%d entries=%d elapsed=%dms throughput=%d entries/s%n",
+                    partitions, results.size(), elapsedMs, entryCount * 1000L / Math.max(1, elapsedMs));
+            assertThat(results).hasSize(entryCount);
+        }
+    }
+
+    @Test
+    void historyPagesResumeAfterTheCursorAndCapThePageSize() {
+        Instant t0 = Instant.parse("2025-01-01T00:00:00Z");
+        List<StorePrice> newestFirst = List.of(
+                history("65a000000000000000000003", t0.plusSeconds(2)),
+                history("65a000000000000000000002", t0.plusSeconds(1)),
+                history("65a000000000000000000001", t0.plusSeconds(1)));
+        ArgumentCaptor<Query> queries = ArgumentCaptor.forClass(Query.class);
+        when(mongoTemplate.find(queries.capture(), eq(StorePrice.class))).thenReturn(newestFirst, List.of());
+
+        PriceHistoryPage first = priceUpdateService.getPriceHistoryPage("milk-a", t0, null, null, 2);
+
+        assertThat(first.getPrices()).hasSize(2);
+        assertThat(first.isHasMore()).isTrue();
+        assertThat(queries.getValue().getLimit()).isEqualTo(3);
+
+        PriceHistoryPage next = priceUpdateService.getPriceHistoryPage("milk-a", t0, null, first.getNextCursor(), 100_000);
+
+        assertThat(next.isHasMore()).isFalse();
+        assertThat(next.getNextCursor()).isNull();
+        assertThat(queries.getValue().getLimit()).isEqualTo(501);
+        // Resumes strictly after (t0 + 1s, ...002): older timestamps, or the same timestamp and a smaller id
+        assertThat(queries.getValue().getQueryObject().toString())
+                .contains("$or")
+                .contains("65a000000000000000000002");
+    }
+
+    private static StorePrice history(String id, Instant timestamp) {
+        return StorePrice.builder().id(id).storeItemId("milk-a").price(1.0).timestamp(timestamp).build();
+    }
+
+    private static BarcodePriceUpdateRequest.BarcodePriceEntry barcodeEntry(String barcode, double price) {
+        return BarcodePriceUpdateRequest.BarcodePriceEntry.builder().barcode(barcode).price(price).build();
+    }
+
+    private static BatchPriceUpdateRequest.PriceEntry entry(String storeItemId, double price) {
+        return BatchPriceUpdateRequest.PriceEntry.builder().storeItemId(storeItemId).price(price).build();
+    }
+}
@@ -0,0 +1,93 @@
+package com.smartbasket.backend.service;
+
+import com.smartbasket.backend.dto.BatchPriceUpdateRequest;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+import org.mockito.ArgumentCaptor;
+import org.springframework.boot.web.context.WebServerGracefulShutdownLifecycle;
+import org.springframework.context.SmartLifecycle;
+
+import java.time.Instant;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.anyList;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+class PriceWriteBehindQueueTest {
+
+    private final PriceUpdateService priceUpdateService = mock(PriceUpdateService.class);
+    private final SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+
+    @Test
+    @SuppressWarnings("unchecked")
+    void coalescesUpdatesPerStoreItemAndDrainsOnStop() {
+        when(priceUpdateService.applyPriceEntries(anyList(), anyList())).thenReturn(List.of());
+        PriceWriteBehindQueue queue = queue(100, false);
+        queue.start();
+
+        assertThat(queue.enqueueAll(List.of(entry("a", 1.0), entry("b", 5.0), entry("a", 2.0), entry("a", 3.0))))
+                .isEqualTo(4);
+        queue.stop();
+
+        ArgumentCaptor<List<BatchPriceUpdateRequest.PriceEntry>> entries = ArgumentCaptor.forClass(List.class);
+        ArgumentCaptor<List<Instant>> observedAt = ArgumentCaptor.forClass(List.class);
+        verify(priceUpdateService, times(1)).applyPriceEntries(entries.capture(), observedAt.capture());
+        assertThat(entries.getValue()).extracting(BatchPriceUpdateRequest.PriceEntry::getStoreItemId)
+                .containsExactly("a", "b");
+        assertThat(entries.getValue().get(0).getPrice()).isEqualTo(3.0);
+        assertThat(observedAt.getValue()).hasSize(2);
+
+        assertThat(queue.depth()).isZero();
+        assertThat(meterRegistry.get("prices.ingest.coalesced").counter().count()).isEqualTo(2.0);
+        assertThat(meterRegistry.get("prices.ingest.flush.size").summary().totalAmount()).isEqualTo(2.0);
+        assertThat(meterRegistry.get("prices.ingest.lag").timer().count()).isEqualTo(4);
+    }
+
+    @Test
+    void rejectsWhatDoesNotFitInTheQueue() throws InterruptedException {
+        // Hold the writer inside its first flush, so nothing else leaves the queue
+        CountDownLatch flushing = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+        when(priceUpdateService.applyPriceEntries(anyList(), anyList())).thenAnswer(invocation -> {
+            flushing.countDown();
+            release.await();
+            return List.of();
+        });
+        PriceWriteBehindQueue queue = new PriceWriteBehindQueue(priceUpdateService, meterRegistry,
+                PriceWriteBehindQueue.MODE_ASYNC, 2, 60_000, 1, true, 5000);
+        queue.start();
+        try {
+            assertThat(queue.enqueueAll(List.of(entry("a", 1.0)))).isEqualTo(1);
+            assertThat(flushing.await(5, TimeUnit.SECONDS)).as("writer picked up the first entry").isTrue();
+
+            assertThat(queue.enqueueAll(List.of(entry("b", 1.0), entry("c", 1.0), entry("d", 1.0)))).isEqualTo(2);
+            assertThat(meterRegistry.get("prices.ingest.rejected").counter().count()).isEqualTo(1.0);
+        } finally {
+            release.countDown();
+            queue.stop();
+        }
+    }
+
+    @Test
+    void stopsStrictlyAfterTheWebServer() {
+        // Boot's WebServerStartStopLifecycle phase is not public, it sits at DEFAULT_PHASE - 2048
+        assertThat(queue(10, false).getPhase())
+                .isLessThan(WebServerGracefulShutdownLifecycle.SMART_LIFECYCLE_PHASE)
+                .isLessThan(SmartLifecycle.DEFAULT_PHASE - 2048);
+    }
+
+    private PriceWriteBehindQueue queue(int capacity, boolean keepHistory) {
+        return new PriceWriteBehindQueue(priceUpdateService, meterRegistry, PriceWriteBehindQueue.MODE_ASYNC,
+                capacity, 60_000, 5000, keepHistory, 5000);
+    }
+
+    private static BatchPriceUpdateRequest.PriceEntry entry(String storeItemId, double price) {
+        return BatchPriceUpdateRequest.PriceEntry.builder().storeItemId(storeItemId).price(price).build();
+    }
+}
@@ -0,0 +1,154 @@
+package com.smartbasket.backend.service;
+
+import com.smartbasket.backend.model.ReferenceItem;
+import com.smartbasket.backend.model.StoreItem;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.condition.EnabledIfSystemProperty;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.query.Query;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+class ReferenceItemSearchIndexTest {
+
+    @Test
+    void matchesNormalizedArabicAndRanksNameMatchesFirst() {
+        ReferenceItemSearchIndex index = load(
+                List.of(item("milk", "Fresh Milk 1L", "حليب طازج", "Dairy"),
+                        item("bread", "Arabic Bread", "خبز عربي", "Bakery"),
+                        item("cheese", "Feta Cheese", "جبنة فيتا", "Dairy"),
+                        item("labneh", "Labneh", "لبنة", "Dairy")),
+                List.of(StoreItem.builder().referenceItemId("cheese").brand("Almarai").build()));
+
+        // Diacritics, hamza on alef and ta marbuta are normalized on both sides
+        assertThat(index.search("حَلِيب", 0, 10).ids()).containsExactly("milk");
+        assertThat(index.search("عربى", 0, 10).ids()).containsExactly("bread");
+        assertThat(index.search("جبنه", 0, 10).ids()).containsExactly("cheese");
+        // Brands of store items are searchable, short tokens match prefixes, longer ones substrings
+        assertThat(index.search("almarai", 0, 10).ids()).containsExactly("cheese");
+        assertThat(index.search("fe", 0, 10).ids()).containsExactly("cheese");
+        assertThat(index.search("ilk", 0, 10).ids()).containsExactly("milk");
+        // Every query token must match
+        assertThat(index.search("fresh bread", 0, 10).ids()).isEmpty();
+        // Category matches rank below name matches
+        ReferenceItemSearchIndex.Result dairy = index.search("dairy", 0, 2);
+        assertThat(dairy.total()).isEqualTo(3);
+        assertThat(dairy.ids()).hasSize(2);
+        assertThat(index.search("dairy", 1, 2).ids()).hasSize(1);
+    }
+
+    @Test
+    void appliesCreatesUpdatesAndDeletes() {
+        ReferenceItemSearchIndex index = load(List.of(item("milk", "Fresh Milk", null, "Dairy")), List.of());
+
+        index.put(item("juice", "Orange Juice", "عصير برتقال", "Drinks"));
+        index.put(item("milk", "Goat Milk", null, "Dairy"));
+        index.addBrand("juice", "Tropicana");
+        index.addBrand("juice", "Tropicana");
+        index.removeBrand("juice", "Tropicana");
+
+        assertThat(index.search("برتقال", 0, 10).ids()).containsExactly("juice");
+        assertThat(index.search("fresh", 0, 10).ids()).isEmpty();
+        assertThat(index.search("goat", 0, 10).ids()).containsExactly("milk");
+        assertThat(index.search("tropicana", 0, 10).ids()).containsExactly("juice");
+
+        index.removeBrand("juice", "Tropicana");
+        index.remove("milk");
+        assertThat(index.search("tropicana", 0, 10).ids()).isEmpty();
+        assertThat(index.search("milk", 0, 10).ids()).isEmpty();
+    }
+
+    @Test
+    void fuzzySearchToleratesTyposAndRanksExactMatchesFirst() {
+        ReferenceItemSearchIndex index = load(
+                List.of(item("chocolate", "Dark Chocolate", "شوكولاتة داكنة", "Sweets"),
+                        item("milk", "Fresh Milk", "حليب طازج", "Dairy"),
+                        item("mild", "Mild Cheddar", null, "Dairy"),
+                        item("water", "Water 500", null, "Drinks")),
+                List.of());
+        index.put(item("juice", "Orange Juice", null, "Drinks"));
+
+        assertThat(index.search("choclate", 0, 10).ids()).isEmpty();
+        // Deletion, transposition and substitution, in the segment and in the delta
+        assertThat(index.search("choclate", 0, 10, true).ids()).containsExactly("chocolate");
+        assertThat(index.search("dakr chocolaet", 0, 10, true).ids()).containsExactly("chocolate");
+        assertThat(index.search("oragne", 0, 10, true).ids()).containsExactly("juice");
+        assertThat(index.search("حلبب", 0, 10, true).ids()).containsExactly("milk");
+        // Exact matches rank above typo matches, short tokens and numbers must match exactly
+        assertThat(index.search("mild", 0, 10, true).ids()).containsExactly("mild", "milk");
+        assertThat(index.search("tea", 0, 10, true).ids()).isEmpty();
+        assertThat(index.search("water 600", 0, 10, true).ids()).isEmpty();
+        // A substring match outranks a typo match, even in a shorter name
+        index.put(item("jam", "Strawberry Jam", null, "Spreads"));
+        index.put(item("cake", "Merry Cake", null, "Sweets"));
+        assertThat(index.search("berry", 0, 10, true).ids()).containsExactly("jam", "cake");
+    }
+
+    @Test
+    @EnabledIfSystemProperty(named = "benchmark", matches = "true")
+    void benchmarkSearchOverHundredThousandItems() {
+        String[] words = {"milk", "bread", "cheese", "rice", "sugar", "tea", "coffee", "juice", "water", "oil",
+                "fresh", "organic", "large", "small", "family", "pack", "light", "classic", "premium", "natural"};
+        String[] arabic = {"حليب", "خبز", "جبنة", "أرز", "سكر", "شاي", "قهوة", "عصير", "ماء", "زيت"};
+        Random random = new Random(3);
+        List<ReferenceItem> items = new ArrayList<>();
+        for (int i = 0; i < 100_000; i++) {
+            String name = words[random.nextInt(words.length)] + " " + words[random.nextInt(words.length)] + " " + i;
+            String nameAr = arabic[random.nextInt(arabic.length)] + " " + arabic[random.nextInt(arabic.length)];
+            items.add(item("item-" + i, name, nameAr, "Category " + i % 40));
+        }
+        long loadStart = System.nanoTime();
+        ReferenceItemSearchIndex index = load(items, List.of());
+        System.out.printf("load=%dms%n", (System.nanoTime() - loadStart) / 1_000_000);
+
+        for (String query : new String[] {"milk", "organic tea", "حليب", "قهوه", "premium coffee 4242", "ju"}) {
+            for (int warmup = 0; warmup < 200; warmup++) {
+                index.search(query, 0, 20);
+            }
+            int rounds = 1_000;
+            long start = System.nanoTime();
+            ReferenceItemSearchIndex.Result result = null;
+            for (int round = 0; round < rounds; round++) {
+                result = index.search(query, 0, 20);
+            }
+            System.out.printf("query=%s matches=%d avg=%dus%n", query, result.total(),
+                    (System.nanoTime() - start) / rounds / 1_000);
+        }
+
+        for (String query : new String[] {"mlik", "orgnaic tae", "premuim cofee", "حلبب", "qahwa"}) {
+            for (int warmup = 0; warmup < 200; warmup++) {
+                index.search(query, 0, 20, true);
+            }
+            int rounds = 1_000;
+            long start = System.nanoTime();
+            ReferenceItemSearchIndex.Result result = null;
+            for (int round = 0; round < rounds; round++) {
+                result = index.search(query, 0, 20, true);
+            }
+            System.out.printf("fuzzy query=%s matches=%d avg=%dus%n", query, result.total(),
+                    (System.nanoTime() - start) / rounds / 1_000);
+        }
+    }
+
+    private static ReferenceItemSearchIndex load(List<ReferenceItem> items, List<StoreItem> storeItems) {
+        MongoTemplate mongoTemplate = mock(MongoTemplate.class);
+        when(mongoTemplate.stream(any(Query.class), eq(ReferenceItem.class))).thenReturn(items.stream());
+        when(mongoTemplate.stream(any(Query.class), eq(StoreItem.class))).thenReturn(storeItems.stream());
+        ReferenceItemSearchIndex index = new ReferenceItemSearchIndex(mongoTemplate);
+        index.rebuild();
+        assertThat(index.isLoaded()).isTrue();
+        return index;
+    }
+
+    private static ReferenceItem item(String id, String name, String nameAr, String category) {
+        return ReferenceItem.builder().id(id).name(name).nameAr(nameAr).category(category).build();
+    }
+}
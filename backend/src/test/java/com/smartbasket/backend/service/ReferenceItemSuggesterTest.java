@@ -0,0 +1,63 @@
+package com.smartbasket.backend.service;
+
+import com.smartbasket.backend.dto.ItemSuggestion;
+import com.smartbasket.backend.model.ReferenceItem;
+import org.junit.jupiter.api.Test;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.query.Query;
+
+import java.util.List;
+import java.util.stream.IntStream;
+import java.util.stream.Stream;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+class ReferenceItemSuggesterTest {
+
+    @Test
+    void suggestsWordPrefixesRankedByPopularityAndFollowsCatalogChanges() {
+        MongoTemplate mongoTemplate = mock(MongoTemplate.class);
+        when(mongoTemplate.stream(any(Query.class), eq(ReferenceItem.class))).thenReturn(Stream.of(
+                item("milk", "Fresh Milk", "حليب طازج", 2),
+                item("goat", "Goat Milk", "حليب ماعز", 5),
+                item("mint", "Mint Tea", "شاي بالنعناع", 1)));
+        ReferenceItemSuggester suggester = new ReferenceItemSuggester(mongoTemplate);
+        suggester.rebuild();
+
+        assertThat(ids(suggester.suggest("mi", 10))).containsExactly("goat", "milk", "mint");
+        assertThat(ids(suggester.suggest("MILK", 1))).containsExactly("goat");
+        assertThat(ids(suggester.suggest("fresh m", 10))).containsExactly("milk");
+        assertThat(ids(suggester.suggest("حلي", 10))).containsExactly("goat", "milk");
+        assertThat(suggester.suggest("mi", 10).get(0).getCategory()).isEqualTo("Dairy");
+
+        // More stores carry fresh milk now, goat milk is deactivated, and a new item is added
+        suggester.put(item("milk", "Fresh Milk", "حليب طازج", 9));
+        ReferenceItem goat = item("goat", "Goat Milk", "حليب ماعز", 5);
+        goat.setActive(false);
+        suggester.put(goat);
+        suggester.put(item("millet", "Millet", null, 3));
+        suggester.remove("mint");
+
+        assertThat(ids(suggester.suggest("mi", 10))).containsExactly("milk", "millet");
+        assertThat(ids(suggester.suggest("goat", 10))).isEmpty();
+    }
+
+    private static List<String> ids(List<ItemSuggestion> suggestions) {
+        return suggestions.stream().map(ItemSuggestion::getId).toList();
+    }
+
+    private static ReferenceItem item(String id, String name, String nameAr, int stores) {
+        return ReferenceItem.builder()
+                .id(id)
+                .name(name)
+                .nameAr(nameAr)
+                .category("Dairy")
+                .active(true)
+                .linkedStoreIds(IntStream.range(0, stores).mapToObj(i -> "store-" + i).toList())
+                .build();
+    }
+}
@@ -0,0 +1,128 @@
+package com.smartbasket.backend.service;
+
+import com.smartbasket.backend.dto.StoreItemMatchResponse;
+import com.smartbasket.backend.model.ReferenceItem;
+import com.smartbasket.backend.model.StoreItem;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.condition.EnabledIfSystemProperty;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.query.Query;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+class StoreItemMatcherTest {
+
+    private final ExecutorService executor = Executors.newFixedThreadPool(Runtime.getRuntime().availableProcessors());
+
+    @AfterEach
+    void shutdown() {
+        executor.shutdownNow();
+    }
+
+    @Test
+    void linksConfidentMatchesAndQueuesAmbiguousOnesForReview() {
+        List<ReferenceItem> catalog = List.of(
+                reference("milk", "Fresh Milk 1L", "حليب طازج 1 لتر"),
+                reference("milk-2l", "Fresh Milk 2L", null),
+                reference("cheese", "Feta Cheese", null),
+                reference("yogurt", "Greek Yogurt", null),
+                reference("labneh", "Labneh", null));
+        List<StoreItem> linked = List.of(
+                StoreItem.builder().id("a-1").referenceItemId("milk").barcode("6291").brand("Almarai").build());
+        List<StoreItem> unlinked = List.of(
+                unlinked("b-1", "Full Cream", "6291", null),
+                unlinked("b-2", "Almarai Fresh Milk 1L", null, "Almarai"),
+                unlinked("b-3", "Greek Yoghurt", null, null),
+                unlinked("b-4", "Fresh Milk", null, null),
+                unlinked("b-5", "Dish Soap", null, null));
+        StoreItemService storeItemService = mock(StoreItemService.class);
+
+        StoreItemMatchResponse response = matcher(catalog, linked, unlinked, storeItemService).match("store-b", true);
+
+        // Barcode already linked elsewhere, brand words and size agreeing, a typo
+        assertThat(response.getMatches()).extracting(StoreItemMatchResponse.Match::getReferenceItemId)
+                .containsExactly("milk", "milk", "yogurt");
+        assertThat(response.getMatches().get(0).getReason()).isEqualTo("barcode");
+        // Both sizes fit equally well
+        assertThat(response.getReviews()).singleElement().satisfies(review -> {
+            assertThat(review.getStoreItemId()).isEqualTo("b-4");
+            assertThat(review.getCandidates()).extracting(StoreItemMatchResponse.Candidate::getReferenceItemId)
+                    .containsExactlyInAnyOrder("milk", "milk-2l");
+        });
+        assertThat(response.getUnmatchedCount()).isEqualTo(1);
+        verify(storeItemService).linkAll(Map.of("b-1", "milk", "b-2", "milk", "b-3", "yogurt"));
+    }
+
+    @Test
+    @EnabledIfSystemProperty(named = "benchmark", matches = "true")
+    void benchmarkFiftyThousandStoreItemsAgainstTwentyThousandReferenceItems() {
+        Random random = new Random(5);
+        String[] vocabulary = new String[4000];
+        for (int i = 0; i < vocabulary.length; i++) {
+            StringBuilder word = new StringBuilder();
+            for (int c = 0; c < 4 + random.nextInt(5); c++) {
+                word.append((char) ('a' + random.nextInt(26)));
+            }
+            vocabulary[i] = word.toString();
+        }
+        String[] sizes = {"250g", "500g", "1kg", "1l", "2l", "500ml", "6x200ml", "12pcs"};
+
+        List<ReferenceItem> catalog = new ArrayList<>();
+        for (int i = 0; i < 20_000; i++) {
+            String name = vocabulary[random.nextInt(200)] + " " + vocabulary[random.nextInt(vocabulary.length)] + " "
+                    + vocabulary[random.nextInt(vocabulary.length)] + " " + sizes[random.nextInt(sizes.length)];
+            catalog.add(reference("ref-" + i, name, null));
+        }
+        List<StoreItem> unlinked = new ArrayList<>();
+        for (int i = 0; i < 50_000; i++) {
+            String[] words = catalog.get(random.nextInt(catalog.size())).getName().split(" ");
+            if (random.nextInt(4) == 0) {
+                // A typo in one word
+                int w = 1 + random.nextInt(2);
+                words[w] = words[w].substring(1);
+            }
+            if (random.nextInt(10) == 0) {
+                // A product the catalog does not have
+                words[2] = vocabulary[random.nextInt(vocabulary.length)];
+            }
+            unlinked.add(unlinked("store-" + i, String.join(" ", words), null, null));
+        }
+
+        StoreItemMatcher matcher = matcher(catalog, List.of(), unlinked, mock(StoreItemService.class));
+        long start = System.nanoTime();
+        StoreItemMatchResponse response = matcher.match(null, false);
+        System.out.printf("matched=%d review=%d unmatched=%d elapsed=%dms%n", response.getMatchedCount(),
+                response.getReviewCount(), response.getUnmatchedCount(), (System.nanoTime() - start) / 1_000_000);
+    }
+
+    private StoreItemMatcher matcher(List<ReferenceItem> catalog, List<StoreItem> linked, List<StoreItem> unlinked,
+                                     StoreItemService storeItemService) {
+        MongoTemplate mongoTemplate = mock(MongoTemplate.class);
+        when(mongoTemplate.stream(any(Query.class), eq(ReferenceItem.class))).thenReturn(catalog.stream());
+        // Linked store items are read first, then the unlinked ones
+        when(mongoTemplate.stream(any(Query.class), eq(StoreItem.class)))
+                .thenReturn(linked.stream(), unlinked.stream());
+        return new StoreItemMatcher(mongoTemplate, storeItemService, executor);
+    }
+
+    private static ReferenceItem reference(String id, String name, String nameAr) {
+        return ReferenceItem.builder().id(id).name(name).nameAr(nameAr).build();
+    }
+
+    private static StoreItem unlinked(String id, String name, String barcode, String brand) {
+        return StoreItem.builder().id(id).storeId("store-b").name(name).barcode(barcode).brand(brand).build();
+    }
+}
@@ -0,0 +1,124 @@
+package com.smartbasket.backend.service;
+
+import com.smartbasket.backend.dto.CreateStoreItemRequest;
+import com.smartbasket.backend.dto.StoreItemDto;
+import com.smartbasket.backend.dto.StoreItemPage;
+import com.smartbasket.backend.model.ReferenceItem;
+import com.smartbasket.backend.model.Store;
+import com.smartbasket.backend.model.StoreItem;
+import com.smartbasket.backend.repository.ReferenceItemRepository;
+import com.smartbasket.backend.repository.StoreItemRepository;
+import com.smartbasket.backend.repository.StoreRepository;
+import org.bson.Document;
+import org.bson.types.ObjectId;
+import org.junit.jupiter.api.Test;
+import org.mockito.ArgumentCaptor;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.query.Query;
+
+import java.util.List;
+import java.util.Optional;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.verifyNoInteractions;
+import static org.mockito.Mockito.when;
+
+class StoreItemServiceTest {
+
+    private final MongoTemplate mongoTemplate = mock(MongoTemplate.class);
+    private final StoreRepository storeRepository = mock(StoreRepository.class);
+    private final StoreItemRepository storeItemRepository = mock(StoreItemRepository.class);
+    private final BarcodeIndex barcodeIndex = mock(BarcodeIndex.class);
+    private final StoreItemService service = new StoreItemService(storeItemRepository,
+            mock(ReferenceItemRepository.class), storeRepository, mock(PriceMatrix.class),
+            mock(BasketComparisonCache.class), mock(PriceFingerprints.class), barcodeIndex,
+            mock(ReferenceItemSearchIndex.class), mock(ReferenceItemSuggester.class), mongoTemplate);
+
+    @Test
+    void pagesByIdWithFiltersProjectionAndPageOnlyNames() {
+        String cursor = new ObjectId().toHexString();
+        List<StoreItem> found = List.of(
+                StoreItem.builder().id("a").referenceItemId("milk").currentPrice(1.0).build(),
+                StoreItem.builder().id("b").build(),
+                StoreItem.builder().id("c").referenceItemId("bread").build());
+        when(mongoTemplate.find(any(Query.class), eq(StoreItem.class))).thenReturn(found);
+        when(mongoTemplate.find(any(Query.class), eq(ReferenceItem.class)))
+                .thenReturn(List.of(ReferenceItem.builder().id("milk").name("Fresh Milk").build()));
+
+        StoreItemPage page = service.getPage("store-1", null, List.of("milk", "bread"), true, false, cursor, 2,
+                List.of("referenceItemName", "currentPrice"));
+
+        ArgumentCaptor<Query> queries = ArgumentCaptor.forClass(Query.class);
+        verify(mongoTemplate).find(queries.capture(), eq(StoreItem.class));
+        Query query = queries.getValue();
+        String filter = query.getQueryObject().toJson();
+        assertThat(filter).contains("\"storeId\": \"store-1\"", "\"currentPrice\": {\"$ne\": null}",
+                "\"isPromotion\": {\"$ne\": true}", "\"referenceItemId\": {\"$in\": [\"milk\", \"bread\"]}",
+                "\"$gt\": {\"$oid\": \"" + cursor + "\"}");
+        assertThat(query.getLimit()).isEqualTo(3);
+        assertThat(query.getFieldsObject()).isEqualTo(new Document("referenceItemId", 1).append("currentPrice", 1));
+
+        // The extra item only tells that there is another page
+        assertThat(page.isHasMore()).isTrue();
+        assertThat(page.getNextCursor()).isEqualTo("b");
+        assertThat(page.getItems()).extracting(StoreItemDto::getReferenceItemName).containsExactly("Fresh Milk", null);
+        assertThat(page.getItems().get(0).getImages()).isNull();
+
+        // Names of the reference items on the page only, store names were not requested
+        verify(mongoTemplate).find(queries.capture(), eq(ReferenceItem.class));
+        assertThat(queries.getValue().getQueryObject().toJson()).contains("\"$in\": [\"milk\"]");
+        verifyNoInteractions(storeRepository);
+    }
+
+    @Test
+    void projectsOnlyTheIdWhenNothingElseIsRequested() {
+        when(mongoTemplate.find(any(Query.class), eq(StoreItem.class))).thenReturn(List.of(
+                StoreItem.builder().id("a").storeId("store-1").currentPrice(1.0).originalPrice(2.0).build()));
+
+        StoreItemPage page = service.getPage(null, null, null, null, null, null, 10, List.of("id"));
+
+        ArgumentCaptor<Query> query = ArgumentCaptor.forClass(Query.class);
+        verify(mongoTemplate).find(query.capture(), eq(StoreItem.class));
+        assertThat(query.getValue().getFieldsObject()).isEqualTo(new Document("_id", 1));
+        assertThat(page.getItems()).singleElement().isEqualTo(StoreItemDto.builder().id("a").build());
+
+        // Computed fields are left out unless requested
+        StoreItemDto prices = service.getPage(null, null, null, null, null, null, 10,
+                List.of("storeId", "currentPrice")).getItems().get(0);
+        assertThat(prices.getDiscountPercentage()).isNull();
+        assertThat(prices.getImages()).isNull();
+        assertThat(prices.getStoreId()).isEqualTo("store-1");
+        verifyNoInteractions(storeRepository);
+    }
+
+    @Test
+    void storesBarcodesTrimmedAndBlankOnesAsNone() {
+        when(storeRepository.findById("store-1"))
+                .thenReturn(Optional.of(Store.builder().id("store-1").name("A").build()));
+        when(storeItemRepository.save(any(StoreItem.class))).thenAnswer(invocation -> invocation.getArgument(0));
+
+        service.createStoreItem(CreateStoreItemRequest.builder()
+                .storeId("store-1").name("Milk").barcode("123 ").build());
+        service.createStoreItem(CreateStoreItemRequest.builder()
+                .storeId("store-1").name("Bread").barcode("  ").build());
+
+        ArgumentCaptor<StoreItem> saved = ArgumentCaptor.forClass(StoreItem.class);
+        verify(storeItemRepository, times(2)).save(saved.capture());
+        assertThat(saved.getAllValues()).extracting(StoreItem::getBarcode).containsExactly("123", null);
+        verify(barcodeIndex).find("store-1", "123");
+    }
+
+    @Test
+    void rejectsUnknownFieldsAndCursors() {
+        assertThatThrownBy(() -> service.getPage(null, null, null, null, null, null, null, List.of("password")))
+                .isInstanceOf(IllegalArgumentException.class);
+        assertThatThrownBy(() -> service.getPage(null, null, null, null, null, "not-an-id", null, null))
+                .isInstanceOf(IllegalArgumentException.class);
+    }
+}